@@ -0,0 +1,98 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import prime.physics.PrimitiveSwerveKinematics;
+
+/**
+ * One loop of turning chassis speeds into module setpoints: inverse kinematics, desaturation and each module's
+ * shortest-path optimization, with WPILib's kinematics and with PrimitiveSwerveKinematics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwerveModuleBenchmark {
+
+  private static final int kSpeedCount = 1024; // A power of two, so the index wraps with a mask
+  private static final double kMaxSpeedMetersPerSecond = 4.5;
+  private static final double kLoopPeriodSeconds = 0.02;
+
+  private SwerveDriveKinematics m_kinematics;
+  private PrimitiveSwerveKinematics m_primitiveKinematics;
+
+  // Requested chassis speeds and the modules' current angles
+  private double[][] m_speeds;
+  private double[] m_currentAnglesRadians;
+  private int m_index;
+
+  private final double[] m_optimizedState = new double[2];
+
+  @Setup
+  public void setup() {
+    var half = 0.3;
+    var moduleLocations = new Translation2d[] {
+      new Translation2d(half, half),
+      new Translation2d(half, -half),
+      new Translation2d(-half, half),
+      new Translation2d(-half, -half),
+    };
+    m_kinematics = new SwerveDriveKinematics(moduleLocations);
+    m_primitiveKinematics = new PrimitiveSwerveKinematics(moduleLocations);
+
+    var random = new Random(254);
+    m_speeds = new double[kSpeedCount][3];
+    for (var speeds : m_speeds) {
+      speeds[0] = (random.nextDouble() * 2 - 1) * kMaxSpeedMetersPerSecond;
+      speeds[1] = (random.nextDouble() * 2 - 1) * kMaxSpeedMetersPerSecond;
+      speeds[2] = (random.nextDouble() * 2 - 1) * Math.PI;
+    }
+
+    m_currentAnglesRadians = new double[4];
+    for (int i = 0; i < 4; i++) m_currentAnglesRadians[i] = (random.nextDouble() * 2 - 1) * Math.PI;
+  }
+
+  @Benchmark
+  public void wpilibKinematics(Blackhole blackhole) {
+    var speeds = m_speeds[m_index++ & (kSpeedCount - 1)];
+    var chassisSpeeds = ChassisSpeeds.discretize(speeds[0], speeds[1], speeds[2], kLoopPeriodSeconds);
+    var states = m_kinematics.toSwerveModuleStates(chassisSpeeds);
+    SwerveDriveKinematics.desaturateWheelSpeeds(states, kMaxSpeedMetersPerSecond);
+
+    for (int i = 0; i < states.length; i++) {
+      SwerveModule.optimize(
+        states[i].speedMetersPerSecond,
+        states[i].angle.getRadians(),
+        m_currentAnglesRadians[i],
+        m_optimizedState
+      );
+      blackhole.consume(m_optimizedState[0]);
+      blackhole.consume(m_optimizedState[1]);
+    }
+  }
+
+  @Benchmark
+  public void primitiveKinematics(Blackhole blackhole) {
+    var speeds = m_speeds[m_index++ & (kSpeedCount - 1)];
+    m_primitiveKinematics.toModuleStates(speeds[0], speeds[1], speeds[2], kLoopPeriodSeconds);
+    m_primitiveKinematics.desaturateWheelSpeeds(kMaxSpeedMetersPerSecond);
+
+    var moduleSpeeds = m_primitiveKinematics.getSpeeds();
+    var moduleAngles = m_primitiveKinematics.getAnglesRadians();
+    for (int i = 0; i < moduleSpeeds.length; i++) {
+      SwerveModule.optimize(moduleSpeeds[i], moduleAngles[i], m_currentAnglesRadians[i], m_optimizedState);
+      blackhole.consume(m_optimizedState[0]);
+      blackhole.consume(m_optimizedState[1]);
+    }
+  }
+}
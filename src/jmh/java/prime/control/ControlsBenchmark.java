@@ -0,0 +1,67 @@
+package prime.control;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The driver input path, run once per loop for each axis: the cubic deadband on its own, and the swerve control
+ * suppliers reading the stick and triggers through the simulated driver station.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ControlsBenchmark {
+
+  private static final int kInputCount = 1024; // A power of two, so the index wraps with a mask
+  private static final double kDeadband = 0.1;
+  private static final double kCurveWeight = 0.6;
+
+  private double[] m_inputs;
+  private int m_index;
+
+  private DoubleSupplier m_xSupplier;
+  private DoubleSupplier m_ySupplier;
+  private DoubleSupplier m_rotationSupplier;
+
+  @Setup
+  public void setup() {
+    // Stick positions across the whole range, a tenth of them inside the deadband
+    var random = new Random(254);
+    m_inputs = new double[kInputCount];
+    for (int i = 0; i < kInputCount; i++) m_inputs[i] = random.nextDouble() * 2 - 1;
+
+    if (!HAL.initialize(500, 0)) throw new IllegalStateException("Failed to initialize the HAL");
+    DriverStationSim.setJoystickAxisCount(Controls.DRIVER_PORT, 6);
+    DriverStationSim.setJoystickAxis(Controls.DRIVER_PORT, Controls.LEFT_STICK_X, 0.4);
+    DriverStationSim.setJoystickAxis(Controls.DRIVER_PORT, Controls.LEFT_STICK_Y, -0.7);
+    DriverStationSim.setJoystickAxis(Controls.DRIVER_PORT, Controls.RIGHT_TRIGGER, 0.5);
+    DriverStationSim.notifyNewData();
+
+    var controls = new PrimeXboxController(Controls.DRIVER_PORT)
+      .getSwerveControlProfile(HolonomicControlStyle.Standard, kDeadband, kCurveWeight);
+    m_xSupplier = controls.X;
+    m_ySupplier = controls.Y;
+    m_rotationSupplier = controls.Z;
+  }
+
+  @Benchmark
+  public double cubicScaledDeadband() {
+    var input = m_inputs[m_index++ & (kInputCount - 1)];
+    return Controls.cubicScaledDeadband(input, kDeadband, kCurveWeight);
+  }
+
+  @Benchmark
+  public double swerveControlSuppliers() {
+    return m_xSupplier.getAsDouble() + m_ySupplier.getAsDouble() + m_rotationSupplier.getAsDouble();
+  }
+}
@@ -0,0 +1,60 @@
+package prime.control.LEDs.Patterns;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import prime.control.LEDs.Color;
+import prime.control.LEDs.LEDFrameBuffer;
+
+/**
+ * Rendering one frame of the animated patterns into a strip. The patterns skip frames until their frame time has
+ * passed, so each invocation clears the last frame time to always measure a render.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LEDPatternBenchmark {
+
+  @Param({ "30", "120" })
+  public int StripLength;
+
+  private LEDFrameBuffer m_buffer;
+  private ChasePattern m_chasePattern;
+  private ChasePattern m_reversedChasePattern;
+  private PulsePattern m_pulsePattern;
+
+  @Setup
+  public void setup() {
+    m_buffer = new LEDFrameBuffer(StripLength);
+    m_chasePattern = new ChasePattern(Color.GREEN, 0.25, false);
+    m_reversedChasePattern = new ChasePattern(Color.GREEN, 0.25, true);
+    m_pulsePattern = new PulsePattern(Color.ORANGE, 1);
+  }
+
+  @Benchmark
+  public LEDFrameBuffer chasePattern() {
+    m_chasePattern.LastFrameTime = 0;
+    m_chasePattern.updateBuffer(0, StripLength, m_buffer);
+    return m_buffer;
+  }
+
+  @Benchmark
+  public LEDFrameBuffer reversedChasePattern() {
+    m_reversedChasePattern.LastFrameTime = 0;
+    m_reversedChasePattern.updateBuffer(0, StripLength, m_buffer);
+    return m_buffer;
+  }
+
+  @Benchmark
+  public LEDFrameBuffer pulsePattern() {
+    m_pulsePattern.LastFrameTime = 0;
+    m_pulsePattern.updateBuffer(0, StripLength, m_buffer);
+    return m_buffer;
+  }
+}
@@ -0,0 +1,55 @@
+package prime.physics;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing one Limelight botpose_wpiblue frame, done for every frame from each camera. With tags visible the frame
+ * carries a raw fiducial entry per tag after the summary values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LimelightPoseBenchmark {
+
+  @Param({ "0", "1", "4" })
+  public int TagCount;
+
+  private double[] m_data;
+  private Matrix<N3, N1> m_stdDevs;
+
+  @Setup
+  public void setup() {
+    m_data = new double[11 + TagCount * 7];
+    m_data[0] = 4.2;
+    m_data[1] = 5.5;
+    m_data[5] = 172;
+    m_data[6] = 35;
+    m_data[7] = Math.max(1, TagCount);
+    m_data[8] = 1.2;
+    m_data[9] = 3.1;
+    m_data[10] = 0.4;
+    for (int i = 0; i < TagCount; i++) {
+      m_data[11 + i * 7] = 3 + i;
+      m_data[11 + i * 7 + 5] = 2.5 + i * 0.3;
+    }
+
+    m_stdDevs = VecBuilder.fill(0.3, 0.3, 0.5);
+  }
+
+  @Benchmark
+  public LimelightPose construct() {
+    return new LimelightPose(m_data, 12.5, m_stdDevs);
+  }
+}
@@ -0,0 +1,163 @@
+package prime.physics;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares WPILib's SwerveDrivePoseEstimator with DeltaPoseEstimator over one simulated second of driving: 250 Hz
+ * odometry and two cameras at the given frame rate, each frame arriving 30-80 ms after it was captured, so frames from
+ * the two cameras often arrive out of order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PoseEstimatorBenchmark {
+
+  private static final double kOdometryPeriod = 1.0 / 250;
+  private static final int kOdometrySteps = 250;
+
+  @Param({ "15", "30", "50" })
+  public int CameraFramesPerSecond;
+
+  private Translation2d[] m_moduleLocations;
+  private SwerveDriveKinematics m_kinematics;
+  private PrimitiveSwerveKinematics m_primitiveKinematics;
+
+  // Odometry inputs per step
+  private SwerveModulePosition[][] m_positions;
+  private Rotation2d[] m_gyroAngles;
+  private double[] m_timestamps;
+
+  // Vision frames in arrival order
+  private Pose2d[] m_visionPoses;
+  private double[] m_visionTimestamps;
+  private int[] m_visionArrivalSteps;
+
+  private SwerveModulePosition[] m_startPositions;
+
+  @Setup
+  public void setup() {
+    var half = 0.3;
+    m_moduleLocations =
+      new Translation2d[] {
+        new Translation2d(half, half),
+        new Translation2d(half, -half),
+        new Translation2d(-half, half),
+        new Translation2d(-half, -half),
+      };
+    m_kinematics = new SwerveDriveKinematics(m_moduleLocations);
+    m_primitiveKinematics = new PrimitiveSwerveKinematics(m_moduleLocations);
+
+    // Drive an arc at 2 m/s while turning at 1 rad/s
+    var speeds = new ChassisSpeeds(2, 0, 1);
+    var states = m_kinematics.toSwerveModuleStates(speeds);
+    var distances = new double[4];
+    var heading = 0.0;
+    var x = 0.0;
+    var y = 0.0;
+
+    m_startPositions = new SwerveModulePosition[4];
+    for (int m = 0; m < 4; m++) m_startPositions[m] = new SwerveModulePosition(0, states[m].angle);
+
+    m_positions = new SwerveModulePosition[kOdometrySteps][4];
+    m_gyroAngles = new Rotation2d[kOdometrySteps];
+    m_timestamps = new double[kOdometrySteps];
+    var truePoses = new Pose2d[kOdometrySteps];
+    for (int step = 0; step < kOdometrySteps; step++) {
+      for (int m = 0; m < 4; m++) {
+        distances[m] += states[m].speedMetersPerSecond * kOdometryPeriod;
+        m_positions[step][m] = new SwerveModulePosition(distances[m], states[m].angle);
+      }
+
+      x += speeds.vxMetersPerSecond * Math.cos(heading) * kOdometryPeriod;
+      y += speeds.vxMetersPerSecond * Math.sin(heading) * kOdometryPeriod;
+      heading += speeds.omegaRadiansPerSecond * kOdometryPeriod;
+
+      m_gyroAngles[step] = new Rotation2d(heading);
+      m_timestamps[step] = (step + 1) * kOdometryPeriod;
+      truePoses[step] = new Pose2d(x, y, new Rotation2d(heading));
+    }
+
+    // Two cameras, each with a noisy pose and a random latency, sorted by arrival time
+    var random = new Random(254);
+    var framesPerCamera = CameraFramesPerSecond;
+    var frameCount = framesPerCamera * 2;
+    var arrivals = new double[frameCount];
+    var captures = new double[frameCount];
+    var poses = new Pose2d[frameCount];
+    for (int i = 0; i < frameCount; i++) {
+      var camera = i % 2;
+      var capture = (i / 2 + 0.5 * camera) / framesPerCamera;
+      var step = Math.min(kOdometrySteps - 1, (int) (capture / kOdometryPeriod));
+      var truth = truePoses[step];
+
+      captures[i] = m_timestamps[step];
+      arrivals[i] = captures[i] + 0.03 + random.nextDouble() * 0.05;
+      poses[i] =
+        new Pose2d(
+          truth.getX() + random.nextGaussian() * 0.05,
+          truth.getY() + random.nextGaussian() * 0.05,
+          truth.getRotation().plus(new Rotation2d(random.nextGaussian() * 0.02))
+        );
+    }
+
+    var order = new Integer[frameCount];
+    for (int i = 0; i < frameCount; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Double.compare(arrivals[a], arrivals[b]));
+
+    m_visionPoses = new Pose2d[frameCount];
+    m_visionTimestamps = new double[frameCount];
+    m_visionArrivalSteps = new int[frameCount];
+    for (int i = 0; i < frameCount; i++) {
+      m_visionPoses[i] = poses[order[i]];
+      m_visionTimestamps[i] = captures[order[i]];
+      m_visionArrivalSteps[i] = (int) Math.ceil(arrivals[order[i]] / kOdometryPeriod);
+    }
+  }
+
+  @Benchmark
+  public void wpilibEstimator(Blackhole blackhole) {
+    run(new WPILibPoseEstimator(m_kinematics, new Rotation2d(), m_startPositions, new Pose2d()), blackhole);
+  }
+
+  @Benchmark
+  public void deltaEstimator(Blackhole blackhole) {
+    run(
+      new DeltaPoseEstimator(m_primitiveKinematics, new Rotation2d(), m_startPositions, new Pose2d(), 375),
+      blackhole
+    );
+  }
+
+  private void run(IPoseEstimator estimator, Blackhole blackhole) {
+    var stdDevs = VecBuilder.fill(0.5, 0.5, 0.5);
+    var frame = 0;
+
+    for (int step = 0; step < kOdometrySteps; step++) {
+      blackhole.consume(estimator.updateWithTime(m_timestamps[step], m_gyroAngles[step], m_positions[step]));
+
+      while (frame < m_visionPoses.length && m_visionArrivalSteps[frame] <= step) {
+        estimator.addVisionMeasurement(m_visionPoses[frame], m_visionTimestamps[frame], stdDevs);
+        frame++;
+      }
+    }
+
+    blackhole.consume(estimator.getEstimatedPosition());
+  }
+}
@@ -0,0 +1,162 @@
+package frc.robot;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.subsystems.DriverDashboard;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Loads and builds every deployed PathPlanner auto once, on a background thread, so the robot is ready to drive
+ * before the autos are. The same command instances back the auto chooser and the Auto tab, and autonomousInit gets a
+ * prebuilt command without touching the filesystem.
+ *
+ * Building a command group registers its commands with the CommandScheduler, which isn't thread safe, so each auto is
+ * composed while holding the composition lock, which the robot holds for its whole loop. That covers the scheduler, the
+ * mode init methods and the dashboard's command widgets. Each auto's files are read before taking the lock, so the loop
+ * only waits on the composition itself. The chooser and the Auto tab are filled in on the robot loop's thread once
+ * everything is built.
+ */
+public class AutoCache {
+
+  private final String m_defaultAutoName;
+  private final Function<String, Supplier<Command>> m_autoPreparer;
+  private final ReentrantLock m_compositionLock = new ReentrantLock();
+  private final CountDownLatch m_loaded = new CountDownLatch(1);
+  private final SendableChooser<Command> m_chooser = new SendableChooser<>();
+
+  // Written by the loader thread before m_loaded counts down, read on the robot loop's thread after
+  private final Map<String, Command> m_autos = new LinkedHashMap<>();
+  private final Map<String, Double> m_loadMilliseconds = new LinkedHashMap<>();
+  private double m_totalLoadMilliseconds;
+
+  private boolean m_published = false;
+
+  /**
+   * Creates a new AutoCache. Call startLoading() once the named commands are registered.
+   * @param defaultAutoName The auto selected by default, if it exists
+   * @param autoPreparer Reads an auto's files by name, returning what composes its command
+   */
+  public AutoCache(String defaultAutoName, Function<String, Supplier<Command>> autoPreparer) {
+    m_defaultAutoName = defaultAutoName;
+    m_autoPreparer = autoPreparer;
+    m_chooser.setDefaultOption("None", Commands.none());
+  }
+
+  /**
+   * Gets the auto chooser. It only has the "None" option until the autos are published.
+   */
+  public SendableChooser<Command> getChooser() {
+    return m_chooser;
+  }
+
+  /**
+   * Gets the lock held while building autos. Hold it while anything can reach the CommandScheduler.
+   */
+  public ReentrantLock getCompositionLock() {
+    return m_compositionLock;
+  }
+
+  /**
+   * Starts building every deployed auto on a background thread
+   */
+  public void startLoading() {
+    var loader = new Thread(this::loadAll, "AutoCache");
+    loader.setDaemon(true);
+    loader.setPriority(Thread.MIN_PRIORITY);
+    loader.start();
+  }
+
+  private void loadAll() {
+    var startNanos = System.nanoTime();
+
+    try {
+      for (var name : AutoBuilder.getAllAutoNames()) {
+        var autoStartNanos = System.nanoTime();
+        try {
+          var composer = m_autoPreparer.apply(name);
+
+          m_compositionLock.lock();
+          try {
+            m_autos.put(name, composer.get());
+          } finally {
+            m_compositionLock.unlock();
+          }
+        } catch (Exception e) {
+          DriverStation.reportError(
+            "[ERROR] >> Failed to load auto " + name + ": " + e.getMessage(),
+            e.getStackTrace()
+          );
+        }
+        m_loadMilliseconds.put(name, (System.nanoTime() - autoStartNanos) / 1e6);
+      }
+    } finally {
+      m_totalLoadMilliseconds = (System.nanoTime() - startNanos) / 1e6;
+      m_loaded.countDown();
+    }
+  }
+
+  /**
+   * Whether every auto has been built
+   */
+  public boolean isLoaded() {
+    return m_loaded.getCount() == 0;
+  }
+
+  /**
+   * Blocks until every auto has been built. If the caller holds the composition lock, it's released while waiting so
+   * the loader can finish.
+   */
+  public void awaitLoaded() {
+    var holdCount = m_compositionLock.getHoldCount();
+    for (int i = 0; i < holdCount; i++) m_compositionLock.unlock();
+
+    try {
+      m_loaded.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      for (int i = 0; i < holdCount; i++) m_compositionLock.lock();
+    }
+  }
+
+  /**
+   * Adds the built autos to the chooser and the Auto tab, and publishes how long each took to load. Does nothing
+   * until loading is done, or once they're published. Call from the robot loop.
+   */
+  public void publishWhenLoaded(DriverDashboard dashboard) {
+    if (m_published || !isLoaded()) return;
+    m_published = true;
+
+    for (var entry : m_autos.entrySet()) {
+      if (entry.getKey().equals(m_defaultAutoName)) {
+        m_chooser.setDefaultOption(entry.getKey(), entry.getValue());
+      } else {
+        m_chooser.addOption(entry.getKey(), entry.getValue());
+      }
+      dashboard.AutoTab.add(entry.getKey(), entry.getValue()).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
+    }
+
+    for (var entry : m_loadMilliseconds.entrySet()) {
+      SmartDashboard.putNumber("Robot/Auto/LoadMs/" + entry.getKey(), entry.getValue());
+    }
+    SmartDashboard.putNumber("Robot/Auto/LoadMs/Total", m_totalLoadMilliseconds);
+    SmartDashboard.putNumber("Robot/Auto/Count", m_autos.size());
+  }
+
+  /**
+   * Gets the prebuilt command for an auto, or null if it doesn't exist or hasn't been built yet
+   */
+  public Command getAuto(String name) {
+    return isLoaded() ? m_autos.get(name) : null;
+  }
+}
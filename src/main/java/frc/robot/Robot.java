@@ -18,20 +18,30 @@ import prime.control.LEDs.Patterns.BlinkPattern;
 import prime.control.LEDs.Patterns.ChasePattern;
 import prime.control.LEDs.Patterns.LEDPattern;
 import prime.control.LEDs.Patterns.PulsePattern;
+import prime.devices.CANBudget;
+import prime.movers.LazyOutputFilter;
+import prime.telemetry.TelemetryLevel;
+import prime.telemetry.TelemetryRegistry;
+import prime.utilities.LoopProfiler;
 
 public class Robot extends TimedRobot {
 
   private RobotContainer m_robotContainer;
   private Command m_autonomousCommand;
+  private final LoopProfiler.Section m_schedulerTiming = LoopProfiler.getSection("Scheduler");
 
   @Override
   public void robotInit() {
     // Start L2 logging
     DataLogManager.start();
     DriverStation.startDataLog(DataLogManager.getLog());
+    TelemetryRegistry.startLevelChooser(TelemetryLevel.Practice);
 
     // Initialize the robot container
     m_robotContainer = new RobotContainer(RobotConfig.getDefault());
+
+    // Time each command's execute() alongside the subsystems
+    LoopProfiler.bindCommandScheduler(CommandScheduler.getInstance());
   }
 
   @Override
@@ -39,14 +49,44 @@ public class Robot extends TimedRobot {
     m_robotContainer.LEDs.setStripPersistentPattern(new PulsePattern(onRedAlliance() ? Color.RED : Color.BLUE, 2));
   }
 
+  /**
+   * Runs one robot loop while holding the AutoCache's composition lock. Commands can't be composed on its thread while
+   * anything in the loop can reach the CommandScheduler: the scheduler itself, the mode init methods, and the
+   * dashboard's command widgets, which are updated after robotPeriodic().
+   */
+  @Override
+  protected void loopFunc() {
+    // The container failed to build its autos, so nothing is composing in the background
+    if (m_robotContainer == null || m_robotContainer.Autos == null) {
+      super.loopFunc();
+      return;
+    }
+
+    var compositionLock = m_robotContainer.Autos.getCompositionLock();
+    compositionLock.lock();
+    try {
+      super.loopFunc();
+    } finally {
+      compositionLock.unlock();
+    }
+  }
+
   /**
    * This function is called every robot packet, no matter the mode. Use this for
    * things that you want ran during all modes.
    */
   @Override
   public void robotPeriodic() {
+    TelemetryRegistry.updateLevel();
+
+    m_schedulerTiming.start();
     CommandScheduler.getInstance().run();
+    m_schedulerTiming.stop();
+    LoopProfiler.publishPeriodically();
+    LazyOutputFilter.publishPeriodically();
+    CANBudget.publishPeriodically();
 
+    if (m_robotContainer.Autos != null) m_robotContainer.Autos.publishWhenLoaded(m_robotContainer.DriverDashboard);
     m_robotContainer.DriverDashboard.AllianceBox.setBoolean(onRedAlliance());
   }
 
@@ -103,9 +143,6 @@ public class Robot extends TimedRobot {
     m_robotContainer.LEDs.setStripPersistentPattern(
       new ChasePattern(onRedAlliance() ? Color.RED : Color.BLUE, 0.5, false)
     );
-
-    m_robotContainer.Drivetrain.EnableContinuousPoseEstimationFront = false;
-    m_robotContainer.Drivetrain.EnableContinuousPoseEstimationRear = false;
   }
 
   /**
@@ -4,28 +4,34 @@
 
 package frc.robot;
 
-import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
 import com.pathplanner.lib.commands.PathPlannerAuto;
 import edu.wpi.first.wpilibj.Compressor;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
 import edu.wpi.first.wpilibj2.command.WaitUntilCommand;
 import frc.robot.config.RobotConfig;
+import frc.robot.sim.SimulatedField;
+import frc.robot.sim.SimulationPerturbations;
 import frc.robot.subsystems.*;
 import frc.robot.subsystems.Climb.ClimbSubsystem;
+import frc.robot.subsystems.Intake.IntakeIOSim;
 import frc.robot.subsystems.Intake.IntakeSubsystem;
+import frc.robot.subsystems.Shooter.ShooterIOSim;
 import frc.robot.subsystems.Shooter.ShooterSubsystem;
 
 import java.util.Map;
+import java.util.function.Supplier;
 import prime.control.Controls;
 import prime.control.HolonomicControlStyle;
 import prime.control.PrimeXboxController;
+import prime.devices.CANBudget;
+import prime.devices.DeviceConfigService;
 
 public class RobotContainer {
 
@@ -40,6 +46,10 @@ public class RobotContainer {
   public PwmLEDs LEDs;
   public Compressor Compressor;
   public DriverDashboard DriverDashboard;
+  public AutoCache Autos;
+
+  // The simulated robot's ground truth, or null on the real robot
+  public SimulatedField SimulatedField;
 
   private CombinedCommands m_combinedCommands;
 
@@ -54,10 +64,29 @@ public class RobotContainer {
       // Create new subsystems
       LEDs = new PwmLEDs(m_config.LEDs);
       DriverDashboard = new DriverDashboard(m_config);
-      Drivetrain = new Drivetrain(m_config, LEDs, DriverDashboard);
-      Shooter = new ShooterSubsystem(true, LEDs);
-      Intake = new IntakeSubsystem(true);
-      Climbers = new ClimbSubsystem(true, DriverDashboard);
+      var drivetrainConfig = m_config.Drivetrain;
+      if (RobotBase.isReal()) {
+        var gyroIO = new GyroIOReal(drivetrainConfig.PigeonId, drivetrainConfig.OdometryFrequencyHz);
+        Drivetrain = new Drivetrain(true, gyroIO, m_config, LEDs, DriverDashboard);
+        Shooter = new ShooterSubsystem(true, LEDs);
+        Intake = new IntakeSubsystem(true);
+      } else {
+        // The simulated gyro moves the robot around the simulated field, which feeds the Limelights
+        SimulatedField =
+          new SimulatedField(
+            SimulationPerturbations.get(),
+            drivetrainConfig.LimelightRearName,
+            drivetrainConfig.LimelightFrontName
+          );
+        var gyroIO = new GyroIOSim(drivetrainConfig.PigeonId, drivetrainConfig.OdometryFrequencyHz, SimulatedField);
+        Drivetrain = new Drivetrain(false, gyroIO, m_config, LEDs, DriverDashboard);
+
+        // The simulated intake hands the notes it picks up to the simulated shooter
+        var shooterSim = new ShooterIOSim(LEDs);
+        Shooter = new ShooterSubsystem(shooterSim);
+        Intake = new IntakeSubsystem(new IntakeIOSim(shooterSim::loadNote));
+      }
+      Climbers = new ClimbSubsystem(RobotBase.isReal(), DriverDashboard);
       Compressor = new Compressor(m_config.PneumaticsModuleId, PneumaticsModuleType.REVPH);
       Compressor.enableDigital();
 
@@ -75,31 +104,56 @@ public class RobotContainer {
       // Reconfigure bindings
       configureDriverControls();
       configureOperatorControls();
+
+      // Build the autos in the background, after the bindings have composed their commands
+      Autos.startLoading();
+
+      // The devices have been configuring in the background since their subsystems were created. Their status frame
+      // rates are set once each device's configuration is done.
+      CANBudget.submitAll();
+      DeviceConfigService.awaitAll();
     } catch (Exception e) {
       DriverStation.reportError("[ERROR] >> Failed to configure robot: " + e.getMessage(), e.getStackTrace());
     }
   }
 
   /**
-   * Configures the autonomous dashboard items
+   * Configures the autonomous dashboard items. The chooser starts with only "None", the autos are added to it and to
+   * the Auto tab once the AutoCache has built them.
    */
   public void configAutonomousDashboardItems() {
-    // Build an auto chooser. This will use Commands.none() as the default option.
-    DriverDashboard.addAutoChooser(AutoBuilder.buildAutoChooser("Straight Park"));
-
-    // Add all autos to the auto tab
-    var possibleAutos = AutoBuilder.getAllAutoNames();
-    for (int i = 0; i < possibleAutos.size(); i++) {
-      var autoCommand = new PathPlannerAuto(possibleAutos.get(i));
-      DriverDashboard.AutoTab.add(possibleAutos.get(i), autoCommand).withWidget(BuiltInWidgets.kCommand).withSize(2, 1);
-    }
+    Autos = new AutoCache("Straight Park", this::prepareAuto);
+    DriverDashboard.addAutoChooser(Autos.getChooser());
+  }
+
+  /**
+   * Builds an auto, from its compiled trajectories if it was compiled, otherwise with PathPlanner
+   */
+  public Command buildAuto(String autoName) {
+    return prepareAuto(autoName).get();
   }
 
   /**
-   * Returns the selected autonomous command to run
+   * Reads what an auto needs from its files, returning what composes its command. PathPlanner reads an uncompiled
+   * auto's files while composing it, so those are read when the command is built.
+   */
+  public Supplier<Command> prepareAuto(String autoName) {
+    var compiledAuto = Drivetrain.prepareCompiledAuto(autoName);
+
+    return compiledAuto != null ? compiledAuto : () -> new PathPlannerAuto(autoName);
+  }
+
+  /**
+   * Returns the selected autonomous command to run, waiting for the autos to finish building if they haven't
    * @return
    */
   public Command getAutonomousCommand() {
+    if (!Autos.isLoaded()) {
+      DriverStation.reportWarning("[WARNING] >> Waiting for autos to finish building", false);
+      Autos.awaitLoaded();
+    }
+    Autos.publishWhenLoaded(DriverDashboard);
+
     return DriverDashboard.AutoChooser.getSelected();
   }
 
@@ -12,6 +12,9 @@ public class DrivetrainConfig {
   public double MaxSpeedMetersPerSecond;
   public double MaxAccelerationMetersPerSecondSquared;
   public double MaxAngularSpeedRadians;
+  public double MaxSteeringSpeedRadiansPerSecond;
+  public double OdometryFrequencyHz;
+  public boolean UseDeltaPoseEstimator; // Uses prime.physics.DeltaPoseEstimator instead of WPILib's estimator
 
   // CAN IDs
   public int PigeonId;
@@ -23,14 +26,25 @@ public class DrivetrainConfig {
   // PID configs
   public PrimePIDConstants DrivePID;
   public PrimePIDConstants SteeringPID;
+  public boolean UseOnboardSteeringControl; // Runs SteeringPID on the SPARK MAX instead of the roboRIO
+  public boolean UseSetpointGenerator; // Limits module steering and wheel acceleration between kinematics and modules
   public PrimePIDConstants SnapToPID;
   public PrimePIDConstants PathingTranslationPid;
   public PrimePIDConstants PathingRotationPid;
+  public boolean UseCompiledTrajectories; // Follows the trajectories built by the compilePaths task when they exist
 
   // Limelight configs
   public String LimelightRearName;
   public String LimelightFrontName;
 
+  // Vision fusion
+  public double VisionMaxSpeedMetersPerSecond; // Frames are ignored above this translational speed
+  public double VisionMaxAngularSpeedRadians; // Frames are ignored above this rotational speed
+  public double VisionMaxPoseJumpMeters; // Single-tag frames further than this from the estimate are rejected
+  public double VisionMaxMultiTagPoseJumpMeters; // Multi-tag frames further than this from the estimate are rejected
+  public double VisionXYStdDevCoefficient; // XY std dev per square meter of tag distance
+  public double VisionThetaStdDevCoefficient; // Theta std dev per square meter of tag distance, multi-tag only
+
   /**
    * Gets a default instance of a DrivetrainConfig with all properties set to 2024 robot values
    */
@@ -41,15 +55,27 @@ public class DrivetrainConfig {
     MaxSpeedMetersPerSecond = Units.feetToMeters(20);
     MaxAccelerationMetersPerSecondSquared = Units.feetToMeters(15);
     MaxAngularSpeedRadians = Math.PI * 3;
+    MaxSteeringSpeedRadiansPerSecond = Math.PI * 6;
+    OdometryFrequencyHz = 250;
+    UseDeltaPoseEstimator = false;
     PigeonId = 1;
     DriveDeadband = 0.15;
     DeadbandCurveWeight = 0.5;
     DrivePID = new PrimePIDConstants(0.019, 0, 0, 0, 0.091, 0, 0.05);
     SteeringPID = new PrimePIDConstants(2, 0, 0);
+    UseOnboardSteeringControl = false; // Not yet validated on the robot, and the sim IO doesn't support it
+    UseSetpointGenerator = true;
     SnapToPID = new PrimePIDConstants(6, 0, 0);
     PathingTranslationPid = new PrimePIDConstants(3, 0, 0);
     PathingRotationPid = new PrimePIDConstants(2, 0, 0);
+    UseCompiledTrajectories = true;
     LimelightRearName = "limelight-rear";
     LimelightFrontName = "limelight-front";
+    VisionMaxSpeedMetersPerSecond = 3;
+    VisionMaxAngularSpeedRadians = Math.PI;
+    VisionMaxPoseJumpMeters = 1;
+    VisionMaxMultiTagPoseJumpMeters = 3;
+    VisionXYStdDevCoefficient = 0.02;
+    VisionThetaStdDevCoefficient = 0.06;
   }
 }
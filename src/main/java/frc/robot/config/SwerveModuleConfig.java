@@ -17,6 +17,7 @@ public class SwerveModuleConfig {
   public double DriveGearRatio;
   public double DriveWheelDiameterMeters;
   public double DriveWheelCircumferenceMeters;
+  public double SteerGearRatio = 150.0 / 7.0;
   public boolean DriveInverted;
   public boolean SteerInverted;
 
@@ -0,0 +1,115 @@
+package frc.robot.replay;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.config.RobotConfig;
+import frc.robot.subsystems.Climb.ClimbIOReplay;
+import frc.robot.subsystems.Climb.ClimbSubsystem;
+import frc.robot.subsystems.DrivetrainReplay;
+import frc.robot.subsystems.Intake.IntakeIOReplay;
+import frc.robot.subsystems.Intake.IntakeSubsystem;
+import frc.robot.subsystems.Shooter.ShooterIOReplay;
+import frc.robot.subsystems.Shooter.ShooterSubsystem;
+import java.io.IOException;
+import prime.replay.ReplayLog;
+
+/**
+ * Replays a match log on a desktop JVM, as fast as the subsystems can run. The shooter, intake and climbers are built
+ * on replay IOs that feed back their recorded inputs, and the drivetrain's pose estimation is re-run from its
+ * recorded snapshots. Simulated time is stepped to each loop's recorded timestamp, so anything that reads the clock
+ * sees the same times it saw on the robot.
+ *
+ * Driver inputs aren't logged, so commands only run as they would while disabled; subsystem periodic() logic and
+ * estimation are what get reproduced. The replay writes its own DataLog, including the subsystems' telemetry.
+ *
+ * Usage: ReplayRunner path/to/log.wpilog
+ */
+public final class ReplayRunner {
+
+  private ReplayRunner() {}
+
+  public static void main(String... args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: ReplayRunner <log.wpilog>");
+      System.exit(1);
+    }
+
+    if (!HAL.initialize(500, 0)) throw new IllegalStateException("Failed to initialize the HAL");
+    SimHooks.pauseTiming();
+
+    var log = ReplayLog.load(args[0]);
+    var config = RobotConfig.getDefault();
+
+    // Build whichever subsystems the log has inputs for
+    var shooterEntry = log.getInputsEntry("Shooter");
+    var intakeEntry = log.getInputsEntry("Intake");
+    var climbEntry = log.getInputsEntry("Climb");
+    var snapshotEntry = log.getInputsEntry("Drivetrain");
+
+    var shooter = shooterEntry != null ? new ShooterSubsystem(new ShooterIOReplay(shooterEntry)) : null;
+    var intake = intakeEntry != null ? new IntakeSubsystem(new IntakeIOReplay(intakeEntry)) : null;
+    var climbers = climbEntry != null ? new ClimbSubsystem(new ClimbIOReplay(climbEntry), null) : null;
+    var drivetrain = snapshotEntry != null ? new DrivetrainReplay(config, log) : null;
+
+    // Subsystems log once per loop, so the entry with the most records sets the loop count and the clock
+    var clockEntry = longest(shooterEntry, intakeEntry, climbEntry, snapshotEntry);
+    if (clockEntry == null) {
+      System.err.println("The log has no IO inputs to replay");
+      System.exit(1);
+    }
+
+    var scheduler = CommandScheduler.getInstance();
+    var startNanos = System.nanoTime();
+    var loops = 0;
+    var lastTimestamp = clockEntry.getTimestamp(0);
+    for (; loops < clockEntry.size(); loops++) {
+      var timestamp = clockEntry.getTimestamp(loops);
+      SimHooks.stepTiming(Math.max(0, timestamp - lastTimestamp));
+      lastTimestamp = timestamp;
+
+      scheduler.run();
+      if (drivetrain != null) drivetrain.step();
+    }
+
+    var elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+    var recordedSeconds = clockEntry.getTimestamp(clockEntry.size() - 1) - clockEntry.getTimestamp(0);
+
+    System.out.printf("Replayed %d loops (%.1f s of match time) in %.2f s, %.0fx real time%n",
+      loops,
+      recordedSeconds,
+      elapsedSeconds,
+      recordedSeconds / elapsedSeconds
+    );
+    System.out.printf("Subsystems: shooter %s, intake %s, climbers %s, drivetrain %s%n",
+      shooter != null ? "yes" : "no",
+      intake != null ? "yes" : "no",
+      climbers != null ? "yes" : "no",
+      drivetrain != null ? "yes" : "no"
+    );
+    if (drivetrain != null) {
+      var fusion = drivetrain.getVisionFusion();
+      System.out.println("Final estimated pose: " + drivetrain.getEstimatedPose());
+      System.out.printf(
+        "Vision frames: %d accepted, %d rejected for speed, %d off field, %d jumps, %d multi-tag jumps, %d bad tags%n",
+        fusion.getAcceptedCount(),
+        fusion.getRejectedSpeedCount(),
+        fusion.getRejectedOffFieldCount(),
+        fusion.getRejectedJumpCount(),
+        fusion.getRejectedMultiTagJumpCount(),
+        fusion.getRejectedTagCount()
+      );
+    }
+
+    System.exit(0);
+  }
+
+  private static ReplayLog.Entry longest(ReplayLog.Entry... entries) {
+    ReplayLog.Entry longest = null;
+    for (var entry : entries) {
+      if (entry != null && entry.size() > 0 && (longest == null || entry.size() > longest.size())) longest = entry;
+    }
+
+    return longest;
+  }
+}
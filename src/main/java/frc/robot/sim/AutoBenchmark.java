@@ -0,0 +1,339 @@
+package frc.robot.sim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.auto.NamedCommands;
+import com.pathplanner.lib.util.PathPlannerLogging;
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.RobotContainer;
+import frc.robot.config.RobotConfig;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import prime.pathing.CompiledTrajectoryFollower;
+
+/**
+ * Runs every deployed PathPlanner auto in simulation, as fast as the CPU allows, by stepping robot time manually
+ * instead of waiting for the 20 ms loop. Writes a JSON report with each auto's duration, path-tracking error per path,
+ * loop-time distribution and named-command timing, and flags regressions against a report from an earlier build.
+ *
+ * The Phoenix simulation runs the devices' firmware in real time, so the faster the benchmark runs, the fewer
+ * odometry samples arrive per second of match time. Pass --max-speed to cap the speed when that matters.
+ *
+ * Usage: AutoBenchmark [--output report.json] [--baseline baseline.json] [--max-speed factor]
+ * Exits with 1 if any regression was found.
+ */
+public final class AutoBenchmark {
+
+  private static final double kLoopPeriodSeconds = 0.02;
+  private static final double kTimeoutSeconds = 20;
+  private static final int kMaxLoops = (int) Math.ceil(kTimeoutSeconds / kLoopPeriodSeconds);
+
+  // Path tracking, fed by the path followers' logging callbacks
+  private static AutoBenchmarkReport.AutoResult s_currentResult;
+  private static List<String> s_currentPathNames;
+  private static AutoBenchmarkReport.Segment s_currentSegment;
+  private static double s_segmentSquaredErrorSum;
+  private static int s_segmentSampleCount;
+  private static Pose2d s_currentPose;
+
+  private AutoBenchmark() {}
+
+  public static void main(String... args) throws IOException {
+    var output = new File("build/auto-benchmark/report.json");
+    File baseline = null;
+    var maxSpeed = 0.0;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--output" -> output = new File(args[i + 1]);
+        case "--baseline" -> baseline = args[i + 1].isEmpty() ? null : new File(args[i + 1]);
+        case "--max-speed" -> maxSpeed = Double.parseDouble(args[i + 1]);
+        default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+      }
+    }
+
+    var autoFiles = getAutoFiles();
+    if (autoFiles.length == 0) {
+      System.err.println("No autos found in " + Filesystem.getDeployDirectory());
+      System.exit(1);
+    }
+
+    var container = startSimulatedRobot();
+    var autoDefinitions = new ArrayList<JsonNode>();
+    var mapper = new ObjectMapper();
+    for (var file : autoFiles) autoDefinitions.add(mapper.readTree(file));
+    wrapNamedCommands(autoDefinitions);
+    bindPathLogging();
+    enableAutonomous();
+
+    var report = new AutoBenchmarkReport();
+    report.generatedAtEpochMillis = System.currentTimeMillis();
+    report.loopPeriodSeconds = kLoopPeriodSeconds;
+
+    var scheduler = CommandScheduler.getInstance();
+    var loopNanos = new long[kMaxLoops];
+    for (int i = 0; i < autoFiles.length; i++) {
+      var name = getAutoName(autoFiles[i]);
+      var result = new AutoBenchmarkReport.AutoResult();
+      result.name = name;
+      s_currentResult = result;
+      s_currentPathNames = getPathNames(autoDefinitions.get(i));
+
+      resetMechanisms(container);
+
+      Command auto = container.buildAuto(name);
+      auto.schedule();
+
+      var startTimestamp = Timer.getFPGATimestamp();
+      var startNanos = System.nanoTime();
+      var loops = 0;
+      while (loops < kMaxLoops && (loops == 0 || scheduler.isScheduled(auto))) {
+        SimHooks.stepTiming(kLoopPeriodSeconds);
+
+        var loopStartNanos = System.nanoTime();
+        scheduler.run();
+        loopNanos[loops++] = System.nanoTime() - loopStartNanos;
+
+        // Sleep off the rest of the loop if running faster than the speed cap
+        if (maxSpeed > 0) {
+          var targetNanos = startNanos + (long) (loops * kLoopPeriodSeconds / maxSpeed * 1e9);
+          var sleepNanos = targetNanos - System.nanoTime();
+          if (sleepNanos > 0) sleepQuietly(sleepNanos);
+        }
+      }
+
+      result.completed = !scheduler.isScheduled(auto);
+      auto.cancel();
+      endSegment();
+
+      result.durationSeconds = Timer.getFPGATimestamp() - startTimestamp;
+      result.loops = loops;
+      result.wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+      fillLoopTimes(result.loopTimes, loopNanos, loops);
+      report.autos.add(result);
+
+      System.out.printf("%-32s %s %6.2f s  max error %.3f m  p99 loop %.2f ms  %5.0fx real time%n",
+        name,
+        result.completed ? "done   " : "TIMEOUT",
+        result.durationSeconds,
+        result.maxTrackingErrorMeters(),
+        result.loopTimes.p99Ms,
+        result.durationSeconds / result.wallSeconds
+      );
+    }
+
+    if (baseline != null && baseline.exists()) {
+      var regressionCount = report.compareWith(AutoBenchmarkReport.read(baseline));
+      for (var regression : report.regressions) System.out.println("REGRESSION " + regression);
+      System.out.printf("%d regressions against %s%n", regressionCount, baseline);
+    }
+
+    report.write(output);
+    System.out.println("Wrote " + output);
+    System.exit(report.regressions.isEmpty() ? 0 : 1);
+  }
+
+  //#region Simulated robot
+
+  /**
+   * Gets the deployed PathPlanner autos, sorted by name
+   */
+  static File[] getAutoFiles() {
+    var autoFiles = new File(Filesystem.getDeployDirectory(), "pathplanner/autos").listFiles((dir, name) ->
+      name.endsWith(".auto")
+    );
+    if (autoFiles == null) return new File[0];
+
+    Arrays.sort(autoFiles);
+    return autoFiles;
+  }
+
+  static String getAutoName(File autoFile) {
+    return autoFile.getName().substring(0, autoFile.getName().length() - ".auto".length());
+  }
+
+  /**
+   * Starts the simulated HAL with robot time paused, so it only advances through SimHooks.stepTiming, and builds the
+   * robot
+   */
+  static RobotContainer startSimulatedRobot() {
+    if (!HAL.initialize(500, 0)) throw new IllegalStateException("Failed to initialize the HAL");
+    SimHooks.pauseTiming();
+
+    // The autos are built here too, so the AutoCache must be done composing commands
+    var container = new RobotContainer(RobotConfig.getDefault());
+    container.Autos.awaitLoaded();
+
+    return container;
+  }
+
+  /**
+   * Enables the robot in autonomous on the blue alliance, like the start of a match
+   */
+  static void enableAutonomous() {
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+  }
+
+  /**
+   * Stops everything and stows the intake, ready for the next auto
+   */
+  static void resetMechanisms(RobotContainer container) {
+    var scheduler = CommandScheduler.getInstance();
+    scheduler.cancelAll();
+    container.Shooter.stopMotors();
+    container.Intake.stopRollersCommand().schedule();
+    container.Intake.setIntakeInCommand().schedule();
+    scheduler.run();
+  }
+
+  //#endregion
+
+  //#region Named commands
+
+  /**
+   * Re-registers every named command the autos use with a wrapper that times each run in match time. The autos look
+   * their named commands up when they're built, so this has to happen before any auto is built.
+   */
+  private static void wrapNamedCommands(List<JsonNode> autoDefinitions) {
+    var names = new TreeSet<String>();
+    for (var definition : autoDefinitions) collectNamedCommands(definition, names);
+
+    for (var name : names) {
+      if (!NamedCommands.hasCommand(name)) continue;
+
+      var command = NamedCommands.getCommand(name);
+      var startTimestamp = new double[1];
+      NamedCommands.registerCommand(
+        name,
+        command
+          .beforeStarting(() -> startTimestamp[0] = Timer.getFPGATimestamp())
+          .finallyDo(() ->
+            s_currentResult.namedCommands
+              .computeIfAbsent(name, key -> new AutoBenchmarkReport.NamedCommandTiming())
+              .record(Timer.getFPGATimestamp() - startTimestamp[0])
+          )
+      );
+    }
+  }
+
+  private static void collectNamedCommands(JsonNode node, TreeSet<String> names) {
+    if ("named".equals(node.path("type").asText())) names.add(node.path("data").path("name").asText());
+
+    for (var child : node) collectNamedCommands(child, names);
+  }
+
+  // The paths of an auto in the order they appear, which is the order they run in for sequential autos
+  private static List<String> getPathNames(JsonNode definition) {
+    var names = new ArrayList<String>();
+    collectPathNames(definition, names);
+
+    return names;
+  }
+
+  private static void collectPathNames(JsonNode node, List<String> names) {
+    if ("path".equals(node.path("type").asText())) names.add(node.path("data").path("pathName").asText());
+
+    for (var child : node) collectPathNames(child, names);
+  }
+
+  //#endregion
+
+  //#region Path tracking
+
+  /**
+   * Splits each auto into segments, one per path followed, and measures the distance between the robot's pose and
+   * the path's target pose on every loop
+   */
+  private static void bindPathLogging() {
+    PathPlannerLogging.setLogActivePathCallback(poses -> {
+      endSegment();
+      if (poses != null && !poses.isEmpty()) startSegment();
+    });
+    PathPlannerLogging.setLogCurrentPoseCallback(pose -> s_currentPose = pose);
+    PathPlannerLogging.setLogTargetPoseCallback(target ->
+      recordTrackingError(target.getX(), target.getY(), target.getRotation().getRadians())
+    );
+
+    // Compiled trajectories are followed without PathPlanner, so they report through their own callbacks
+    CompiledTrajectoryFollower.addLogActiveTrajectoryCallback((trajectory, red) -> {
+      endSegment();
+      if (trajectory != null) startSegment();
+    });
+    CompiledTrajectoryFollower.addLogTargetCallback((pose, target) -> {
+      s_currentPose = pose;
+      recordTrackingError(target.XMeters, target.YMeters, target.RotationRadians);
+    });
+  }
+
+  private static void recordTrackingError(double targetX, double targetY, double targetRotationRadians) {
+    if (s_currentSegment == null || s_currentPose == null) return;
+
+    var error = Math.hypot(s_currentPose.getX() - targetX, s_currentPose.getY() - targetY);
+    var headingError = Math.abs(
+      Math.toDegrees(MathUtil.angleModulus(s_currentPose.getRotation().getRadians() - targetRotationRadians))
+    );
+    s_currentSegment.maxErrorMeters = Math.max(s_currentSegment.maxErrorMeters, error);
+    s_currentSegment.maxHeadingErrorDegrees = Math.max(s_currentSegment.maxHeadingErrorDegrees, headingError);
+    s_segmentSquaredErrorSum += error * error;
+    s_segmentSampleCount++;
+  }
+
+  private static void startSegment() {
+    var segment = new AutoBenchmarkReport.Segment();
+    segment.index = s_currentResult.segments.size();
+    segment.pathName = segment.index < s_currentPathNames.size() ? s_currentPathNames.get(segment.index) : null;
+    segment.startSeconds = Timer.getFPGATimestamp();
+
+    s_currentSegment = segment;
+    s_segmentSquaredErrorSum = 0;
+    s_segmentSampleCount = 0;
+    s_currentPose = null;
+  }
+
+  private static void endSegment() {
+    if (s_currentSegment == null) return;
+
+    s_currentSegment.durationSeconds = Timer.getFPGATimestamp() - s_currentSegment.startSeconds;
+    s_currentSegment.rmsErrorMeters =
+      s_segmentSampleCount > 0 ? Math.sqrt(s_segmentSquaredErrorSum / s_segmentSampleCount) : 0;
+    s_currentResult.segments.add(s_currentSegment);
+    s_currentSegment = null;
+  }
+
+  //#endregion
+
+  // Nearest-rank percentiles, the same as LoopProfiler's
+  static void fillLoopTimes(AutoBenchmarkReport.LoopTimes loopTimes, long[] loopNanos, int count) {
+    if (count == 0) return;
+
+    Arrays.sort(loopNanos, 0, count);
+    loopTimes.p50Ms = loopNanos[Math.max(0, (int) Math.ceil(0.50 * count) - 1)] / 1e6;
+    loopTimes.p95Ms = loopNanos[Math.max(0, (int) Math.ceil(0.95 * count) - 1)] / 1e6;
+    loopTimes.p99Ms = loopNanos[Math.max(0, (int) Math.ceil(0.99 * count) - 1)] / 1e6;
+    loopTimes.maxMs = loopNanos[count - 1] / 1e6;
+  }
+
+  private static void sleepQuietly(long nanos) {
+    try {
+      Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package frc.robot.sim;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The machine-readable results of an AutoBenchmark run, written as JSON. Two reports from different builds can be
+ * compared to flag regressions.
+ */
+public class AutoBenchmarkReport {
+
+  // A metric only regresses if it got worse by both the absolute and the relative threshold
+  private static final double kDurationRegressionSeconds = 0.1, kDurationRegressionFraction = 0.05;
+  private static final double kTrackingRegressionMeters = 0.05, kTrackingRegressionFraction = 0.2;
+  private static final double kLoopTimeRegressionMs = 0.5, kLoopTimeRegressionFraction = 0.25;
+
+  public long generatedAtEpochMillis;
+  public double loopPeriodSeconds;
+  public List<AutoResult> autos = new ArrayList<>();
+  public List<String> regressions = new ArrayList<>();
+
+  /**
+   * The results of one auto
+   */
+  public static class AutoResult {
+
+    public String name;
+    public boolean completed;
+    public double durationSeconds;
+    public int loops;
+    public double wallSeconds;
+    public LoopTimes loopTimes = new LoopTimes();
+    public List<Segment> segments = new ArrayList<>();
+    public TreeMap<String, NamedCommandTiming> namedCommands = new TreeMap<>();
+
+    /**
+     * Gets the largest tracking error of any segment in meters
+     */
+    public double maxTrackingErrorMeters() {
+      var max = 0.0;
+      for (var segment : segments) max = Math.max(max, segment.maxErrorMeters);
+
+      return max;
+    }
+  }
+
+  /**
+   * The distribution of the time each loop took to run, in milliseconds
+   */
+  public static class LoopTimes {
+
+    public double p50Ms;
+    public double p95Ms;
+    public double p99Ms;
+    public double maxMs;
+  }
+
+  /**
+   * How closely the robot tracked one path of the auto
+   */
+  public static class Segment {
+
+    public int index;
+    public String pathName;
+    public double startSeconds;
+    public double durationSeconds;
+    public double maxErrorMeters;
+    public double rmsErrorMeters;
+    public double maxHeadingErrorDegrees;
+  }
+
+  /**
+   * How long each run of a named command took, in match time
+   */
+  public static class NamedCommandTiming {
+
+    public int count;
+    public double totalSeconds;
+    public double maxSeconds;
+
+    public void record(double seconds) {
+      count++;
+      totalSeconds += seconds;
+      maxSeconds = Math.max(maxSeconds, seconds);
+    }
+  }
+
+  public void write(File file) throws IOException {
+    if (file.getParentFile() != null) file.getParentFile().mkdirs();
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, this);
+  }
+
+  public static AutoBenchmarkReport read(File file) throws IOException {
+    return new ObjectMapper().readValue(file, AutoBenchmarkReport.class);
+  }
+
+  /**
+   * Compares this report with one from an earlier build and records every regression in this report
+   * @return The number of regressions found
+   */
+  public int compareWith(AutoBenchmarkReport baseline) {
+    regressions.clear();
+
+    for (var auto : autos) {
+      AutoResult previous = null;
+      for (var candidate : baseline.autos) {
+        if (candidate.name.equals(auto.name)) previous = candidate;
+      }
+      if (previous == null) continue;
+
+      if (previous.completed && !auto.completed) {
+        regressions.add(auto.name + ": no longer completes");
+        continue;
+      }
+
+      checkRegression(
+        auto.name + ": duration",
+        previous.durationSeconds,
+        auto.durationSeconds,
+        kDurationRegressionSeconds,
+        kDurationRegressionFraction,
+        "s"
+      );
+      checkRegression(
+        auto.name + ": max tracking error",
+        previous.maxTrackingErrorMeters(),
+        auto.maxTrackingErrorMeters(),
+        kTrackingRegressionMeters,
+        kTrackingRegressionFraction,
+        "m"
+      );
+      checkRegression(
+        auto.name + ": p99 loop time",
+        previous.loopTimes.p99Ms,
+        auto.loopTimes.p99Ms,
+        kLoopTimeRegressionMs,
+        kLoopTimeRegressionFraction,
+        "ms"
+      );
+    }
+
+    return regressions.size();
+  }
+
+  private void checkRegression(
+    String metric,
+    double previous,
+    double current,
+    double absoluteThreshold,
+    double relativeThreshold,
+    String unit
+  ) {
+    var increase = current - previous;
+    if (increase > absoluteThreshold && increase > previous * relativeThreshold) {
+      regressions.add(String.format("%s went from %.3f %s to %.3f %s", metric, previous, unit, current, unit));
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package frc.robot.sim;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.util.PathPlannerLogging;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import prime.pathing.CompiledTrajectoryFollower;
+
+/**
+ * Runs each deployed auto many times in simulation, every run with a randomly perturbed robot: a start-pose error,
+ * a late note sensor, vision latency and dropouts, and wheel slip. Reports each auto's success rate and the
+ * distribution of its completion time and true tracking error.
+ *
+ * Every run is its own JVM, so runs never share the HAL, NetworkTables or the command scheduler, and a batch scales
+ * with the number of worker processes. A run succeeds if the auto completes within the autonomous period and the
+ * robot's true pose never strays further than kMaxTrackingErrorMeters from the path's target.
+ *
+ * Usage: AutoMonteCarlo [--runs 100] [--autos "Auto A,Auto B"] [--workers cores] [--seed 1] [--output report.json]
+ */
+public final class AutoMonteCarlo {
+
+  private static final double kLoopPeriodSeconds = 0.02;
+  private static final double kTimeoutSeconds = 15;
+  private static final int kMaxLoops = (int) Math.ceil(kTimeoutSeconds / kLoopPeriodSeconds);
+  private static final double kMaxTrackingErrorMeters = 0.5;
+
+  // A worker prints its result on a line with this prefix, everything else it prints is ignored
+  private static final String kResultPrefix = "AUTO_MONTE_CARLO_RESULT ";
+  private static final String kWorkerArgument = "--worker";
+
+  // Tracked in the worker from the path followers' logging callbacks
+  private static SimulatedField s_simulatedField;
+  private static Pose2d s_estimatedPose;
+  private static double s_maxTrackingErrorMeters;
+
+  private AutoMonteCarlo() {}
+
+  public static void main(String... args) throws IOException, InterruptedException {
+    if (args.length == 3 && args[0].equals(kWorkerArgument)) {
+      runWorker(args[1], Long.parseLong(args[2]));
+      return;
+    }
+
+    var output = new File("build/auto-monte-carlo/report.json");
+    var runsPerAuto = 100;
+    var workers = Runtime.getRuntime().availableProcessors();
+    var baseSeed = 1L;
+    List<String> autoNames = new ArrayList<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--output" -> output = new File(args[i + 1]);
+        case "--runs" -> runsPerAuto = Integer.parseInt(args[i + 1]);
+        case "--workers" -> workers = Math.max(1, Integer.parseInt(args[i + 1]));
+        case "--seed" -> baseSeed = Long.parseLong(args[i + 1]);
+        case "--autos" -> {
+          if (!args[i + 1].isBlank()) autoNames = Arrays.asList(args[i + 1].split(","));
+        }
+        default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+      }
+    }
+
+    if (autoNames.isEmpty()) {
+      for (var file : AutoBenchmark.getAutoFiles()) autoNames.add(AutoBenchmark.getAutoName(file));
+    }
+    if (autoNames.isEmpty()) {
+      System.err.println("No autos to run");
+      System.exit(1);
+    }
+
+    var report = new AutoMonteCarloReport();
+    report.generatedAtEpochMillis = System.currentTimeMillis();
+    report.baseSeed = baseSeed;
+    report.runsPerAuto = runsPerAuto;
+    report.workers = workers;
+
+    // Run i of every auto uses the same seed, so the autos are compared under the same perturbations
+    var totalRuns = autoNames.size() * runsPerAuto;
+    var finishedRuns = new AtomicInteger();
+    var startNanos = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    var futures = new ArrayList<Future<AutoMonteCarloReport.RunResult>>(totalRuns);
+    for (var autoName : autoNames) {
+      for (int run = 0; run < runsPerAuto; run++) {
+        var seed = baseSeed + run;
+        futures.add(
+          pool.submit(() -> {
+            var result = runInProcess(autoName.trim(), seed);
+            var finished = finishedRuns.incrementAndGet();
+            if (finished % 10 == 0 || finished == totalRuns) System.out.printf("%d/%d runs%n", finished, totalRuns);
+            return result;
+          })
+        );
+      }
+    }
+
+    for (var future : futures) {
+      try {
+        report.runs.add(future.get());
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("A run failed to start", e.getCause());
+      }
+    }
+    pool.shutdown();
+    report.wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+    report.summarize();
+
+    for (var auto : report.autos) {
+      System.out.printf("%-32s %5.1f%% of %d  time p50 %5.2f s  p90 %5.2f s  max %5.2f s  error p90 %.3f m  %s%n",
+        auto.name,
+        auto.successRate * 100,
+        auto.runs,
+        auto.durationSeconds.p50,
+        auto.durationSeconds.p90,
+        auto.durationSeconds.max,
+        auto.maxTrackingErrorMeters.p90,
+        auto.failures.isEmpty() ? "" : auto.failures
+      );
+    }
+    System.out.printf("%d runs on %d workers in %.1f s%n", totalRuns, workers, report.wallSeconds);
+
+    report.write(output);
+    System.out.println("Wrote " + output);
+    System.exit(0);
+  }
+
+  //#region Coordinator
+
+  /**
+   * Runs one perturbed auto in a new JVM with the same classpath and native libraries as this one
+   */
+  private static AutoMonteCarloReport.RunResult runInProcess(String autoName, long seed)
+    throws IOException, InterruptedException {
+    var command = List.of(
+      new File(System.getProperty("java.home"), "bin/java").getPath(),
+      "-cp",
+      System.getProperty("java.class.path"),
+      "-Djava.library.path=" + System.getProperty("java.library.path"),
+      // Each worker is one of many on the machine, so size its GC and compiler threads for a single core
+      "-XX:ActiveProcessorCount=1",
+      "-XX:+UseSerialGC",
+      AutoMonteCarlo.class.getName(),
+      kWorkerArgument,
+      autoName,
+      Long.toString(seed)
+    );
+    var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+    String resultLine = null;
+    try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(kResultPrefix)) resultLine = line.substring(kResultPrefix.length());
+      }
+    }
+    var exitCode = process.waitFor();
+
+    if (resultLine != null) return new ObjectMapper().readValue(resultLine, AutoMonteCarloReport.RunResult.class);
+
+    var result = new AutoMonteCarloReport.RunResult();
+    result.auto = autoName;
+    result.seed = seed;
+    result.perturbations = SimulationPerturbations.random(seed);
+    result.failure = "worker exited with code " + exitCode;
+    return result;
+  }
+
+  //#endregion
+
+  //#region Worker
+
+  /**
+   * Runs one auto on a robot perturbed from the seed and prints the result
+   */
+  private static void runWorker(String autoName, long seed) throws IOException {
+    var perturbations = SimulationPerturbations.random(seed);
+    SimulationPerturbations.set(perturbations);
+
+    var container = AutoBenchmark.startSimulatedRobot();
+    s_simulatedField = container.SimulatedField;
+
+    // Fuse vision as the drivers would in a match
+    container.DriverDashboard.RearPoseEstimationSwitch.setBoolean(true);
+    container.DriverDashboard.FrontPoseEstimationSwitch.setBoolean(true);
+
+    PathPlannerLogging.setLogCurrentPoseCallback(pose -> s_estimatedPose = pose);
+    PathPlannerLogging.setLogTargetPoseCallback(target -> recordTrackingError(target.getX(), target.getY()));
+    CompiledTrajectoryFollower.addLogTargetCallback((pose, target) -> {
+      s_estimatedPose = pose;
+      recordTrackingError(target.XMeters, target.YMeters);
+    });
+
+    AutoBenchmark.enableAutonomous();
+    AutoBenchmark.resetMechanisms(container);
+
+    var scheduler = CommandScheduler.getInstance();
+    Command auto = container.buildAuto(autoName);
+    auto.schedule();
+
+    var startTimestamp = Timer.getFPGATimestamp();
+    var loops = 0;
+    while (loops < kMaxLoops && (loops == 0 || scheduler.isScheduled(auto))) {
+      SimHooks.stepTiming(kLoopPeriodSeconds);
+      scheduler.run();
+      loops++;
+    }
+
+    var result = new AutoMonteCarloReport.RunResult();
+    result.auto = autoName;
+    result.seed = seed;
+    result.perturbations = perturbations;
+    result.completed = !scheduler.isScheduled(auto);
+    result.durationSeconds = Timer.getFPGATimestamp() - startTimestamp;
+    result.maxTrackingErrorMeters = s_maxTrackingErrorMeters;
+    result.finalPoseErrorMeters =
+      s_estimatedPose == null
+        ? 0
+        : s_estimatedPose.getTranslation().getDistance(s_simulatedField.getTruePose().getTranslation());
+
+    if (!result.completed) {
+      result.failure = "timeout";
+    } else if (result.maxTrackingErrorMeters > kMaxTrackingErrorMeters) {
+      result.failure = "tracking error";
+    }
+    result.success = result.failure == null;
+
+    System.out.println(kResultPrefix + new ObjectMapper().writeValueAsString(result));
+    System.out.flush();
+
+    // The robot's notifiers and device threads would keep the JVM alive
+    System.exit(0);
+  }
+
+  // Measures from where the robot really is, not where it thinks it is
+  private static void recordTrackingError(double targetX, double targetY) {
+    var truePose = s_simulatedField.getTruePose();
+    var error = Math.hypot(truePose.getX() - targetX, truePose.getY() - targetY);
+    s_maxTrackingErrorMeters = Math.max(s_maxTrackingErrorMeters, error);
+  }
+
+  //#endregion
+}
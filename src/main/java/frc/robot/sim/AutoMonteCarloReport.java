@@ -0,0 +1,131 @@
+package frc.robot.sim;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The machine-readable results of an AutoMonteCarlo batch, written as JSON: every run, and each auto's success rate
+ * and distributions across its runs.
+ */
+public class AutoMonteCarloReport {
+
+  public long generatedAtEpochMillis;
+  public long baseSeed;
+  public int runsPerAuto;
+  public int workers;
+  public double wallSeconds;
+  public List<AutoSummary> autos = new ArrayList<>();
+  public List<RunResult> runs = new ArrayList<>();
+
+  /**
+   * The result of one perturbed run of an auto
+   */
+  public static class RunResult {
+
+    public String auto;
+    public long seed;
+    public SimulationPerturbations perturbations;
+    public boolean completed;
+    public boolean success;
+    public double durationSeconds;
+    public double maxTrackingErrorMeters;
+    public double finalPoseErrorMeters;
+    public String failure;
+  }
+
+  /**
+   * How an auto did across all of its runs
+   */
+  public static class AutoSummary {
+
+    public String name;
+    public int runs;
+    public int successes;
+    public double successRate;
+
+    // Completion time of the runs that completed
+    public Distribution durationSeconds;
+    public Distribution maxTrackingErrorMeters;
+    public TreeMap<String, Integer> failures = new TreeMap<>();
+  }
+
+  /**
+   * The spread of a metric across runs, with nearest-rank percentiles
+   */
+  public static class Distribution {
+
+    public int count;
+    public double min;
+    public double p50;
+    public double p90;
+    public double p99;
+    public double max;
+    public double mean;
+
+    public static Distribution of(double[] values) {
+      var distribution = new Distribution();
+      distribution.count = values.length;
+      if (values.length == 0) return distribution;
+
+      var sorted = values.clone();
+      Arrays.sort(sorted);
+      distribution.min = sorted[0];
+      distribution.p50 = percentile(sorted, 0.50);
+      distribution.p90 = percentile(sorted, 0.90);
+      distribution.p99 = percentile(sorted, 0.99);
+      distribution.max = sorted[sorted.length - 1];
+      distribution.mean = Arrays.stream(sorted).average().orElse(0);
+
+      return distribution;
+    }
+
+    private static double percentile(double[] sorted, double fraction) {
+      return sorted[Math.max(0, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+  }
+
+  /**
+   * Groups the runs by auto, in the order the autos first appear, and summarizes each
+   */
+  public void summarize() {
+    var runsByAuto = new LinkedHashMap<String, List<RunResult>>();
+    for (var run : runs) runsByAuto.computeIfAbsent(run.auto, key -> new ArrayList<>()).add(run);
+
+    autos.clear();
+    for (var entry : runsByAuto.entrySet()) {
+      var summary = new AutoSummary();
+      summary.name = entry.getKey();
+      summary.runs = entry.getValue().size();
+
+      var durations = new ArrayList<Double>();
+      var trackingErrors = new double[summary.runs];
+      for (int i = 0; i < summary.runs; i++) {
+        var run = entry.getValue().get(i);
+        if (run.success) summary.successes++;
+        if (run.completed) durations.add(run.durationSeconds);
+        if (run.failure != null) summary.failures.merge(run.failure, 1, Integer::sum);
+        trackingErrors[i] = run.maxTrackingErrorMeters;
+      }
+
+      summary.successRate = summary.runs > 0 ? (double) summary.successes / summary.runs : 0;
+      summary.durationSeconds = Distribution.of(durations.stream().mapToDouble(Double::doubleValue).toArray());
+      summary.maxTrackingErrorMeters = Distribution.of(trackingErrors);
+      autos.add(summary);
+    }
+  }
+
+  public void write(File file) throws IOException {
+    if (file.getParentFile() != null) file.getParentFile().mkdirs();
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, this);
+  }
+
+  public static AutoMonteCarloReport read(File file) throws IOException {
+    return new ObjectMapper().readValue(file, AutoMonteCarloReport.class);
+  }
+}
@@ -0,0 +1,176 @@
+package frc.robot.sim;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Robot;
+import frc.robot.config.RobotConfig;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import prime.control.Controls;
+
+/**
+ * Runs the whole robot loop in teleop against the simulated IOs, with a scripted driver and operator: driving with
+ * the sticks, locking on to the speaker, running the intake out and in, and the speaker scoring sequence. Records the
+ * distribution of loop times and the bytes each loop allocates, and fails if either is over budget.
+ *
+ * Only the loop's own thread is measured: the odometry thread and the drivetrain simulation are not part of the loop
+ * time or allocations. Robot time is stepped manually, so the loops run back to back.
+ *
+ * Usage: LoopBenchmark [--loops 5000] [--warmup 1500] [--p99-budget-ms 5] [--max-budget-ms 0]
+ *                      [--allocation-budget-bytes 2048] [--output report.json]
+ * A budget of 0 isn't checked. Exits with 1 if any budget was exceeded.
+ */
+public final class LoopBenchmark {
+
+  private static final double kLoopPeriodSeconds = 0.02;
+
+  // The robot's own code doesn't allocate in teleop, but the command scheduler's iterators and the event loop do, a
+  // few hundred bytes each loop. Building one set of module states would add about 800 bytes.
+  private static final double kDefaultAllocationBudgetBytes = 2048;
+
+  // The scripted inputs repeat every 6 seconds
+  private static final int kScriptLoops = 300;
+
+  private LoopBenchmark() {}
+
+  public static void main(String... args) throws IOException {
+    var output = new File("build/loop-benchmark/report.json");
+    var report = new LoopBenchmarkReport();
+    report.loops = 5000;
+    report.warmupLoops = 1500;
+    report.p99BudgetMs = 5;
+    report.allocationBudgetBytes = kDefaultAllocationBudgetBytes;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--output" -> output = new File(args[i + 1]);
+        case "--loops" -> report.loops = Integer.parseInt(args[i + 1]);
+        case "--warmup" -> report.warmupLoops = Integer.parseInt(args[i + 1]);
+        case "--p99-budget-ms" -> report.p99BudgetMs = Double.parseDouble(args[i + 1]);
+        case "--max-budget-ms" -> report.maxBudgetMs = Double.parseDouble(args[i + 1]);
+        case "--allocation-budget-bytes" -> report.allocationBudgetBytes = Double.parseDouble(args[i + 1]);
+        default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+      }
+    }
+
+    if (!HAL.initialize(500, 0)) throw new IllegalStateException("Failed to initialize the HAL");
+    SimHooks.pauseTiming();
+    setUpControllers();
+
+    var robot = new Robot();
+    robot.robotInit();
+
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAutonomous(false);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+    robot.teleopInit();
+
+    var rearLimelight = NetworkTableInstance
+      .getDefault()
+      .getTable(RobotConfig.getDefault().Drivetrain.LimelightRearName);
+    var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    var loopNanos = new long[report.loops];
+    var loopBytes = new long[report.loops];
+
+    for (int loop = 0; loop < report.warmupLoops + report.loops; loop++) {
+      applyScript(loop % kScriptLoops, rearLimelight);
+      SimHooks.stepTiming(kLoopPeriodSeconds);
+
+      // What TimedRobot does each loop, less the mode's periodic method, which Robot doesn't use
+      var startBytes = threadBean.getCurrentThreadAllocatedBytes();
+      var startNanos = System.nanoTime();
+      DriverStation.refreshData();
+      robot.robotPeriodic();
+      var nanos = System.nanoTime() - startNanos;
+      var bytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+
+      var measuredLoop = loop - report.warmupLoops;
+      if (measuredLoop < 0) continue;
+
+      loopNanos[measuredLoop] = nanos;
+      loopBytes[measuredLoop] = bytes;
+    }
+
+    report.generatedAtEpochMillis = System.currentTimeMillis();
+    AutoBenchmark.fillLoopTimes(report.loopTimes, loopNanos, report.loops);
+    fillAllocations(report, loopBytes);
+    report.checkBudgets();
+
+    System.out.printf("%d loops  p50 %.3f ms  p99 %.3f ms  max %.3f ms  %.0f bytes per loop (p99 %d)%n",
+      report.loops,
+      report.loopTimes.p50Ms,
+      report.loopTimes.p99Ms,
+      report.loopTimes.maxMs,
+      report.meanAllocatedBytes,
+      report.p99AllocatedBytes
+    );
+    for (var violation : report.violations) System.out.println("OVER BUDGET " + violation);
+
+    report.write(output);
+    System.out.println("Wrote " + output);
+    System.exit(report.violations.isEmpty() ? 0 : 1);
+  }
+
+  //#region Scripted controls
+
+  private static void setUpControllers() {
+    for (var port : new int[] { Controls.DRIVER_PORT, Controls.OPERATOR_PORT }) {
+      DriverStationSim.setJoystickAxisCount(port, 6);
+      DriverStationSim.setJoystickButtonCount(port, 10);
+      DriverStationSim.setJoystickPOVCount(port, 1);
+      DriverStationSim.setJoystickPOV(port, 0, -1); // Centered, so no snap-to setpoint is pressed
+    }
+  }
+
+  /**
+   * Sets the controllers for one loop of the script. The driver drives in circles while turning the whole time and
+   * locks on to the speaker for a while, the operator runs the intake out and back in, then scores in the speaker.
+   * @param step The loop within the script
+   */
+  private static void applyScript(int step, NetworkTable rearLimelight) {
+    var t = step * kLoopPeriodSeconds;
+
+    // Drone controls: the right stick drives, the left stick turns
+    var driveAngle = 2 * Math.PI * t / 3;
+    DriverStationSim.setJoystickAxis(Controls.DRIVER_PORT, Controls.RIGHT_STICK_X, 0.6 * Math.sin(driveAngle));
+    DriverStationSim.setJoystickAxis(Controls.DRIVER_PORT, Controls.RIGHT_STICK_Y, 0.6 * Math.cos(driveAngle));
+    DriverStationSim.setJoystickAxis(Controls.DRIVER_PORT, Controls.LEFT_STICK_X, 0.3 * Math.sin(2 * Math.PI * t / 5));
+
+    // Lock on to the speaker's center tag while the rear camera sees it
+    var lockingOn = step >= 100 && step < 180;
+    DriverStationSim.setJoystickButton(Controls.DRIVER_PORT, Controls.LEFT_STICK_BUTTON, lockingOn);
+    rearLimelight.getEntry("tid").setDouble(lockingOn ? 7 : -1);
+    rearLimelight.getEntry("tx").setDouble(lockingOn ? 5 * Math.cos(2 * Math.PI * t) : 0);
+
+    // Intake out, run the rollers, back in
+    DriverStationSim.setJoystickButton(Controls.OPERATOR_PORT, Controls.A, step == 20 || step == 140);
+    var intaking = step >= 30 && step < 130;
+    DriverStationSim.setJoystickAxis(Controls.OPERATOR_PORT, Controls.LEFT_TRIGGER, intaking ? 0.8 : 0);
+
+    // Score in the speaker
+    DriverStationSim.setJoystickButton(Controls.OPERATOR_PORT, Controls.B, step == 200);
+
+    DriverStationSim.notifyNewData();
+  }
+
+  //#endregion
+
+  private static void fillAllocations(LoopBenchmarkReport report, long[] loopBytes) {
+    if (loopBytes.length == 0) return;
+
+    report.meanAllocatedBytes = Arrays.stream(loopBytes).average().orElse(0);
+
+    var sorted = loopBytes.clone();
+    Arrays.sort(sorted);
+    report.p99AllocatedBytes = sorted[Math.max(0, (int) Math.ceil(0.99 * sorted.length) - 1)];
+    report.maxAllocatedBytes = sorted[sorted.length - 1];
+  }
+}
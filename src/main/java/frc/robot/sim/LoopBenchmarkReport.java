@@ -0,0 +1,60 @@
+package frc.robot.sim;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The machine-readable results of a LoopBenchmark run, written as JSON, with the budgets it was checked against
+ */
+public class LoopBenchmarkReport {
+
+  public long generatedAtEpochMillis;
+  public int warmupLoops;
+  public int loops;
+  public AutoBenchmarkReport.LoopTimes loopTimes = new AutoBenchmarkReport.LoopTimes();
+
+  // Bytes allocated by the loop's thread, per loop
+  public double meanAllocatedBytes;
+  public long p99AllocatedBytes;
+  public long maxAllocatedBytes;
+
+  // A budget of 0 isn't checked
+  public double p99BudgetMs;
+  public double maxBudgetMs;
+  public double allocationBudgetBytes;
+  public List<String> violations = new ArrayList<>();
+
+  /**
+   * Records a violation for every budget this run exceeded
+   * @return The number of violations
+   */
+  public int checkBudgets() {
+    violations.clear();
+
+    if (p99BudgetMs > 0 && loopTimes.p99Ms > p99BudgetMs) {
+      violations.add(String.format("p99 loop time %.3f ms is over the %.3f ms budget", loopTimes.p99Ms, p99BudgetMs));
+    }
+    if (maxBudgetMs > 0 && loopTimes.maxMs > maxBudgetMs) {
+      violations.add(String.format("max loop time %.3f ms is over the %.3f ms budget", loopTimes.maxMs, maxBudgetMs));
+    }
+    if (allocationBudgetBytes > 0 && meanAllocatedBytes > allocationBudgetBytes) {
+      violations.add(
+        String.format(
+          "%.0f bytes allocated per loop is over the %.0f byte budget",
+          meanAllocatedBytes,
+          allocationBudgetBytes
+        )
+      );
+    }
+
+    return violations.size();
+  }
+
+  public void write(File file) throws IOException {
+    if (file.getParentFile() != null) file.getParentFile().mkdirs();
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, this);
+  }
+}
@@ -0,0 +1,139 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * The ground truth of a simulated robot: where it really is, as opposed to where odometry thinks it is. Integrates the
+ * simulated chassis motion less the wheel slip, starts off by the start-pose error, and publishes what the Limelights
+ * would see of it to their botpose_wpiblue topics, late and with dropped frames.
+ */
+public class SimulatedField {
+
+  // Each camera captures a frame this often
+  private static final double kVisionPeriodSeconds = 0.05;
+
+  // What the cameras report alongside the pose: tag count, tag span, average distance and average area
+  private static final double kTagCount = 2, kTagSpanMeters = 1, kAverageTagDistanceMeters = 3, kAverageTagArea = 0.5;
+
+  private final SimulationPerturbations m_perturbations;
+  private final Random m_random;
+  private final DoubleArrayPublisher[] m_botPosePublishers;
+  private final ArrayDeque<PendingFrame> m_pendingFrames = new ArrayDeque<>();
+
+  private Pose2d m_truePose = new Pose2d();
+  private double m_trueOmegaRadiansPerSecond;
+  private double m_nextCaptureTimestamp;
+  private int m_nextCamera;
+
+  private record PendingFrame(int camera, double publishTimestamp, double[] botPose) {}
+
+  /**
+   * Creates a new SimulatedField
+   * @param perturbations How the simulated robot differs from the nominal one
+   * @param limelightNames The NetworkTables names of the Limelights to publish simulated frames to
+   */
+  public SimulatedField(SimulationPerturbations perturbations, String... limelightNames) {
+    m_perturbations = perturbations;
+    m_random = new Random(perturbations.seed);
+
+    var instance = NetworkTableInstance.getDefault();
+    m_botPosePublishers = new DoubleArrayPublisher[limelightNames.length];
+    for (int i = 0; i < limelightNames.length; i++) {
+      m_botPosePublishers[i] = instance.getTable(limelightNames[i]).getDoubleArrayTopic("botpose_wpiblue").publish();
+    }
+  }
+
+  /**
+   * Gets the robot's true pose on the field
+   */
+  public synchronized Pose2d getTruePose() {
+    return m_truePose;
+  }
+
+  /**
+   * Gets the robot's true angular velocity, which is what the gyro measures
+   */
+  public synchronized double getTrueOmegaRadiansPerSecond() {
+    return m_trueOmegaRadiansPerSecond;
+  }
+
+  /**
+   * Places the robot where it's told to start, off by the start-pose error
+   * @param pose The pose odometry is being reset to
+   */
+  public synchronized void resetTruePose(Pose2d pose) {
+    m_truePose =
+      pose.transformBy(
+        new Transform2d(
+          new Translation2d(m_perturbations.startErrorXMeters, m_perturbations.startErrorYMeters),
+          Rotation2d.fromRadians(m_perturbations.startErrorRadians())
+        )
+      );
+  }
+
+  /**
+   * Moves the robot by the chassis motion its wheels produced, less the wheel slip, and publishes any camera frames
+   * that are due
+   * @param timestamp The current FPGA timestamp in seconds
+   * @param dtSeconds The time since the last update
+   * @param wheelSpeeds The robot-relative chassis speeds the wheels produced
+   */
+  public synchronized void update(double timestamp, double dtSeconds, ChassisSpeeds wheelSpeeds) {
+    var traction = 1 - m_perturbations.wheelSlipFraction;
+    m_trueOmegaRadiansPerSecond = wheelSpeeds.omegaRadiansPerSecond * traction;
+    m_truePose =
+      m_truePose.exp(
+        new Twist2d(
+          wheelSpeeds.vxMetersPerSecond * traction * dtSeconds,
+          wheelSpeeds.vyMetersPerSecond * traction * dtSeconds,
+          m_trueOmegaRadiansPerSecond * dtSeconds
+        )
+      );
+
+    if (m_botPosePublishers.length == 0) return;
+
+    // Capture a frame from the cameras in turn, unless it drops out
+    if (timestamp >= m_nextCaptureTimestamp) {
+      m_nextCaptureTimestamp = timestamp + kVisionPeriodSeconds / m_botPosePublishers.length;
+      if (m_random.nextDouble() >= m_perturbations.visionDropoutProbability) {
+        m_pendingFrames.add(
+          new PendingFrame(m_nextCamera, timestamp + m_perturbations.visionLatencySeconds, captureBotPose())
+        );
+      }
+      m_nextCamera = (m_nextCamera + 1) % m_botPosePublishers.length;
+    }
+
+    // Publish the frames whose latency has passed. The Limelight subtracts the reported latency from the publish time.
+    while (!m_pendingFrames.isEmpty() && m_pendingFrames.peek().publishTimestamp() <= timestamp) {
+      var frame = m_pendingFrames.poll();
+      m_botPosePublishers[frame.camera()].set(frame.botPose());
+    }
+  }
+
+  // A botpose_wpiblue array of the true pose plus noise, without per-tag data
+  private double[] captureBotPose() {
+    return new double[] {
+      m_truePose.getX() + m_random.nextGaussian() * m_perturbations.visionNoiseMeters,
+      m_truePose.getY() + m_random.nextGaussian() * m_perturbations.visionNoiseMeters,
+      0,
+      0,
+      0,
+      m_truePose.getRotation().getDegrees() + m_random.nextGaussian() * m_perturbations.visionNoiseDegrees,
+      Units.secondsToMilliseconds(m_perturbations.visionLatencySeconds),
+      kTagCount,
+      kTagSpanMeters,
+      kAverageTagDistanceMeters,
+      kAverageTagArea,
+    };
+  }
+}
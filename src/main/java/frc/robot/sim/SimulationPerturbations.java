@@ -0,0 +1,73 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.util.Units;
+import java.util.Random;
+
+/**
+ * The ways a simulated run differs from the nominal robot: where it really starts, how late its sensors are, how
+ * often the cameras miss and how much its wheels slip. Set once, before the robot is built, and read by the sim IOs
+ * and the SimulatedField.
+ */
+public class SimulationPerturbations {
+
+  /**
+   * A perfect robot, and no simulated vision
+   */
+  public static final SimulationPerturbations kNone = new SimulationPerturbations();
+
+  private static SimulationPerturbations s_current = kNone;
+
+  public long seed = 0;
+
+  // Offset of the true starting pose from the pose the auto resets to
+  public double startErrorXMeters = 0;
+  public double startErrorYMeters = 0;
+  public double startErrorDegrees = 0;
+
+  // How long after a note reaches the beam-break the shooter's sensor reports it
+  public double noteSensorDelaySeconds = 0;
+
+  // Time from a camera frame being captured to its pose being published
+  public double visionLatencySeconds = 0.04;
+
+  // Chance that a camera frame sees no tags
+  public double visionDropoutProbability = 1;
+
+  // Standard deviation of the simulated vision pose
+  public double visionNoiseMeters = 0.03;
+  public double visionNoiseDegrees = 1;
+
+  // Fraction of the wheels' motion lost to slip
+  public double wheelSlipFraction = 0;
+
+  /**
+   * Draws a random perturbation, reproducible from its seed
+   */
+  public static SimulationPerturbations random(long seed) {
+    var random = new Random(seed);
+    var perturbations = new SimulationPerturbations();
+
+    perturbations.seed = seed;
+    perturbations.startErrorXMeters = random.nextGaussian() * 0.1;
+    perturbations.startErrorYMeters = random.nextGaussian() * 0.1;
+    perturbations.startErrorDegrees = random.nextGaussian() * 3;
+    perturbations.noteSensorDelaySeconds = random.nextDouble() * 0.1;
+    perturbations.visionLatencySeconds = 0.02 + random.nextDouble() * 0.06;
+    perturbations.visionDropoutProbability = random.nextDouble() * 0.6;
+    perturbations.wheelSlipFraction = random.nextDouble() * 0.08;
+
+    return perturbations;
+  }
+
+  public static void set(SimulationPerturbations perturbations) {
+    s_current = perturbations;
+  }
+
+  public static SimulationPerturbations get() {
+    return s_current;
+  }
+
+  public double startErrorRadians() {
+    return Units.degreesToRadians(startErrorDegrees);
+  }
+}
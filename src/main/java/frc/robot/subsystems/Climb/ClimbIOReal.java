@@ -2,13 +2,17 @@ package frc.robot.subsystems.Climb;
 
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.VictorSPXControlMode;
-import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+import com.ctre.phoenix.motorcontrol.can.VictorSPXConfiguration;
 
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
 import frc.robot.subsystems.DriverDashboard;
+import prime.devices.CANBudget;
+import prime.devices.DeviceConfigService;
+import prime.devices.VictorSPXDeviceConfig;
+import prime.movers.LazyDoubleSolenoid;
+import prime.movers.LazyVictorSPX;
 
 public class ClimbIOReal implements IClimbIO {
 
@@ -17,43 +21,45 @@ public class ClimbIOReal implements IClimbIO {
     private ClimbIOOutputs climbOutputs = new ClimbIOOutputs();
 
     // Motors
-    private VictorSPX m_leftVictorSPX;
-    private VictorSPX m_rightVictorSPX;
+    private LazyVictorSPX m_leftVictorSPX;
+    private LazyVictorSPX m_rightVictorSPX;
 
     // Limit Switches
     private DigitalInput m_leftLimitSwitch;
     private DigitalInput m_rightLimitSwitch;
 
     // Clutch Solenoids
-    private DoubleSolenoid m_clutchSolenoidLeft;
-    private DoubleSolenoid m_clutchSolenoidRight;
+    private LazyDoubleSolenoid m_clutchSolenoidLeft;
+    private LazyDoubleSolenoid m_clutchSolenoidRight;
 
     public ClimbIOReal() {
 
-        m_leftVictorSPX = new VictorSPX(ClimbSubsystem.VMap.VICTORSPX_LEFT_CAN_ID);
-        m_leftVictorSPX.configFactoryDefault();
+        m_leftVictorSPX = new LazyVictorSPX(ClimbSubsystem.VMap.VICTORSPX_LEFT_CAN_ID);
+        DeviceConfigService.submit(new VictorSPXDeviceConfig("Climb/LeftVictorSPX", m_leftVictorSPX, victorConfig()));
         m_leftVictorSPX.setInverted(ClimbSubsystem.VMap.LEFT_INVERTED);
         m_leftVictorSPX.setNeutralMode(NeutralMode.Brake);
-        m_leftVictorSPX.configOpenloopRamp(0.5);
 
-        m_rightVictorSPX = new VictorSPX(ClimbSubsystem.VMap.VICTORSPX_RIGHT_CAN_ID);
-        m_rightVictorSPX.configFactoryDefault();
+        m_rightVictorSPX = new LazyVictorSPX(ClimbSubsystem.VMap.VICTORSPX_RIGHT_CAN_ID);
+        DeviceConfigService.submit(new VictorSPXDeviceConfig("Climb/RightVictorSPX", m_rightVictorSPX, victorConfig()));
         m_rightVictorSPX.setInverted(ClimbSubsystem.VMap.RIGHT_INVERTED);
         m_rightVictorSPX.setNeutralMode(NeutralMode.Brake);
-        m_rightVictorSPX.configOpenloopRamp(0.5);
+
+        // Only the outputs are read, see CANBudget
+        CANBudget.declareVictorSPX("Climb/LeftVictorSPX", m_leftVictorSPX, CANBudget.kLoopPeriodMs);
+        CANBudget.declareVictorSPX("Climb/RightVictorSPX", m_rightVictorSPX, CANBudget.kLoopPeriodMs);
 
         m_leftLimitSwitch = new DigitalInput(ClimbSubsystem.VMap.LEFT_LIMIT_SWITCH_DIO_CHANNEL);
         m_rightLimitSwitch = new DigitalInput(ClimbSubsystem.VMap.RIGHT_LIMIT_SWITCH_DIO_CHANNEL);
 
         m_clutchSolenoidLeft =
-          new DoubleSolenoid(
+          new LazyDoubleSolenoid(
             30,
             PneumaticsModuleType.REVPH,
             ClimbSubsystem.VMap.LEFT_SOLENOID_FORWARD_CHANNEL,
             ClimbSubsystem.VMap.LEFT_SOLENOID_REVERSE_CHANNEL
           );
         m_clutchSolenoidRight =
-          new DoubleSolenoid(
+          new LazyDoubleSolenoid(
             30,
             PneumaticsModuleType.REVPH,
             ClimbSubsystem.VMap.RIGHT_SOLENOID_FORWARD_CHANNEL,
@@ -61,6 +67,12 @@ public class ClimbIOReal implements IClimbIO {
           );
     }
 
+    private static VictorSPXConfiguration victorConfig() {
+        var config = new VictorSPXConfiguration();
+        config.openloopRamp = 0.5;
+        return config;
+    }
+
     @Override
     public ClimbIOInputs getInputs() {
         var inputs = new ClimbIOInputs();
@@ -0,0 +1,34 @@
+package frc.robot.subsystems.Climb;
+
+import prime.replay.ReplayLog;
+
+/**
+ * Feeds recorded inputs back to the subsystem during replay. Outputs go nowhere.
+ */
+public class ClimbIOReplay implements IClimbIO {
+
+    private final ReplayLog.Entry m_entry;
+    private final ClimbIOInputs m_inputs = new ClimbIOInputs();
+
+    public ClimbIOReplay(ReplayLog.Entry entry) {
+        m_entry = entry;
+    }
+
+    @Override
+    public ClimbIOInputs getInputs() {
+        m_entry.next(m_inputs);
+        return m_inputs;
+    }
+
+    @Override
+    public void setOutputs(ClimbIOOutputs outputs) {}
+
+    @Override
+    public void MoveArm(Side side, Direction direction, double speed) {}
+
+    @Override
+    public void StopArm(Side side) {}
+
+    @Override
+    public void SetClutch(Side side, boolean engaged) {}
+}
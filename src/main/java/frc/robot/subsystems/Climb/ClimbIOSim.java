@@ -1,35 +1,131 @@
 package frc.robot.subsystems.Climb;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.ElevatorSim;
+
+/**
+ * Simulates the climbers: each arm as an elevator driven by its motor, with a limit switch at the top of its travel
+ * and a clutch. An engaged clutch acts as a ratchet, so the arm can still be pulled down but can't rise.
+ *
+ * The physics are advanced in getInputs(), which the subsystem calls once per loop, by the time since the last call.
+ */
 public class ClimbIOSim implements IClimbIO {
 
+    private static final double kGearing = 20;
+    private static final double kCarriageMassKg = 2.0;
+    private static final double kDrumRadiusMeters = 0.02;
+    private static final double kMaxHeightMeters = 0.6;
+    private static final double kLimitSwitchToleranceMeters = 0.005;
+
+    private ElevatorSim m_leftArm;
+    private ElevatorSim m_rightArm;
+
+    private double m_leftOutput = 0;
+    private double m_rightOutput = 0;
+    private boolean m_leftClutchEngaged = true;
+    private boolean m_rightClutchEngaged = true;
+    private double m_lastTimestamp = Double.NaN;
+
+    private ClimbIOInputs m_inputs = new ClimbIOInputs();
+
+    public ClimbIOSim() {
+        m_leftArm = createArm();
+        m_rightArm = createArm();
+    }
+
+    private static ElevatorSim createArm() {
+        return new ElevatorSim(
+          DCMotor.getCIM(1),
+          kGearing,
+          kCarriageMassKg,
+          kDrumRadiusMeters,
+          0,
+          kMaxHeightMeters,
+          false,
+          0
+        );
+    }
+
     @Override
     public ClimbIOInputs getInputs() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getInputs'");
+        var timestamp = Timer.getFPGATimestamp();
+        var dt = Double.isNaN(m_lastTimestamp) ? 0 : timestamp - m_lastTimestamp;
+        m_lastTimestamp = timestamp;
+
+        if (dt > 0) {
+            updateArm(m_leftArm, m_leftOutput, m_leftClutchEngaged, dt);
+            updateArm(m_rightArm, m_rightOutput, m_rightClutchEngaged, dt);
+        }
+
+        m_inputs.m_leftLimitSwitchState = m_leftArm.getPositionMeters() >= kMaxHeightMeters - kLimitSwitchToleranceMeters;
+        m_inputs.m_rightLimitSwitchState = m_rightArm.getPositionMeters() >= kMaxHeightMeters - kLimitSwitchToleranceMeters;
+
+        m_inputs.m_leftVictorSPXOutputPercent = m_leftOutput;
+        m_inputs.m_rightVictorSPXOutputPercent = m_rightOutput;
+
+        return m_inputs;
     }
 
-    @Override
-    public void setOutputs(ClimbIOOutputs outputs) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'setOutputs'");
+    private static void updateArm(ElevatorSim arm, double output, boolean clutchEngaged, double dt) {
+        var position = arm.getPositionMeters();
+        arm.setInputVoltage(output * RobotController.getBatteryVoltage());
+        arm.update(dt);
+
+        // The ratchet stops the arm from rising
+        if (clutchEngaged && arm.getPositionMeters() > position) arm.setState(VecBuilder.fill(position, 0));
     }
 
+    @Override
+    public void setOutputs(ClimbIOOutputs outputs) {}
+
     @Override
     public void MoveArm(Side side, Direction direction, double speed) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'MoveArm'");
+        if (direction == Direction.kRaise) {
+
+            if (side == Side.kLeft && !m_inputs.m_leftLimitSwitchState) {
+                m_leftOutput = ClimbSubsystem.VMap.CLIMBER_UP_SPEED;
+            }
+
+            if (side == Side.kRight && !m_inputs.m_rightLimitSwitchState) {
+                m_rightOutput = ClimbSubsystem.VMap.CLIMBER_UP_SPEED;
+            }
+        }
+
+        if (direction == Direction.kLower) {
+
+            if (side == Side.kLeft) {
+                m_leftOutput = MathUtil.clamp(-speed, -1, 1);
+            }
+
+            if (side == Side.kRight) {
+                m_rightOutput = MathUtil.clamp(-speed, -1, 1);
+            }
+        }
     }
 
     @Override
     public void StopArm(Side side) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'StopArm'");
+        if (side == Side.kLeft) {
+            m_leftOutput = 0;
+        }
+
+        if (side == Side.kRight) {
+            m_rightOutput = 0;
+        }
     }
 
     @Override
     public void SetClutch(Side side, boolean engaged) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'SetClutch'");
+        if (side == Side.kLeft) {
+            m_leftClutchEngaged = engaged;
+        }
+
+        if (side == Side.kRight) {
+            m_rightClutchEngaged = engaged;
+        }
     }
-    
 }
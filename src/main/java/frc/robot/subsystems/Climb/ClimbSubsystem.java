@@ -8,7 +8,6 @@ import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
@@ -20,6 +19,12 @@ import frc.robot.subsystems.Climb.IClimbIO.Side;
 import frc.robot.subsystems.Climb.IClimbIO.ClimbIOInputs;
 import frc.robot.subsystems.Climb.IClimbIO.ClimbIOOutputs;
 import frc.robot.subsystems.Climb.IClimbIO.Direction;
+import prime.replay.InputsLogger;
+import prime.telemetry.BooleanTelemetry;
+import prime.telemetry.DoubleTelemetry;
+import prime.telemetry.TelemetryLevel;
+import prime.telemetry.TelemetryRegistry;
+import prime.utilities.LoopProfiler;
 
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
@@ -47,24 +52,47 @@ public class ClimbSubsystem extends SubsystemBase {
   private IClimbIO climbIO;
   private ClimbIOInputs climbInputs = new ClimbIOInputs();
   private ClimbIOOutputs climbOutputs = new ClimbIOOutputs();
+  private InputsLogger m_inputsLogger;
 
   private DriverDashboard m_driverDashboard;
   
   // Member to track if the climb controls are enabled
   private boolean m_climbControlsEnabled = false;
 
+  // Telemetry, published under SmartDashboard/Climbers
+  private final TelemetryRegistry m_telemetry = new TelemetryRegistry("Climbers");
+  private final BooleanTelemetry t_controlsEnabled = m_telemetry
+    .addBoolean("ControlsEnabled", TelemetryLevel.Competition);
+  private final DoubleTelemetry t_leftMotorOutput = m_telemetry
+    .addDouble("LeftMotorOutput", TelemetryLevel.Debug)
+    .withDeadband(0.01);
+  private final DoubleTelemetry t_rightMotorOutput = m_telemetry
+    .addDouble("RightMotorOutput", TelemetryLevel.Debug)
+    .withDeadband(0.01);
+  private final BooleanTelemetry t_leftLimitSwitch = m_telemetry.addBoolean("LeftLimitSwitch", TelemetryLevel.Practice);
+  private final BooleanTelemetry t_rightLimitSwitch = m_telemetry
+    .addBoolean("RightLimitSwitch", TelemetryLevel.Practice);
+
+  private final LoopProfiler.Section m_loopTiming = LoopProfiler.getSection("Subsystems/Climbers");
+
   /**
    * Creates a new Climbers subsystem
    * @param dashboard
    */
   public ClimbSubsystem(boolean isReal, DriverDashboard dashboard) {
-    setName("Climb");
+    this(isReal ? new ClimbIOReal() : new ClimbIOSim(), dashboard);
+  }
 
-    if (isReal) {
-      climbIO = new ClimbIOReal();
-    } else {
-      climbIO = new ClimbIOSim();
-    }
+  /**
+   * Creates a new Climbers subsystem with the given IO, e.g. a ClimbIOReplay
+   * @param io
+   * @param dashboard The driver dashboard, or null when there is none, such as during replay
+   */
+  public ClimbSubsystem(IClimbIO io, DriverDashboard dashboard) {
+    setName("Climb");
+    climbIO = io;
+    m_driverDashboard = dashboard;
+    m_inputsLogger = new InputsLogger("Climb", climbInputs);
   }
 
   //#region Control Methods
@@ -98,18 +126,25 @@ public class ClimbSubsystem extends SubsystemBase {
 
   @Override
   public void periodic() {
+    m_loopTiming.start();
+
+    climbInputs = climbIO.getInputs();
+    m_inputsLogger.log(climbInputs);
+
     // d_leftLimitEntry.setBoolean(m_leftLimitSwitch.get());
     // d_rightLimitEntry.setBoolean(m_rightLimitSwitch.get());
-    m_driverDashboard.ClimberControlsActiveBox.setBoolean(m_climbControlsEnabled);
+    if (m_driverDashboard != null) m_driverDashboard.ClimberControlsActiveBox.setBoolean(m_climbControlsEnabled);
 
     // Level2 Logging
-    SmartDashboard.putBoolean("Climbers/ControlsEnabled", m_climbControlsEnabled);
+    t_controlsEnabled.set(m_climbControlsEnabled);
+
+    t_leftMotorOutput.set(climbInputs.m_leftVictorSPXOutputPercent);
+    t_rightMotorOutput.set(climbInputs.m_rightVictorSPXOutputPercent);
 
-    SmartDashboard.putNumber("Climbers/LeftMotorOutput", climbInputs.m_leftVictorSPXOutputPercent);
-    SmartDashboard.putNumber("Climbers/RightMotorOutput", climbInputs.m_rightVictorSPXOutputPercent);
+    t_leftLimitSwitch.set(climbInputs.m_leftLimitSwitchState);
+    t_rightLimitSwitch.set(climbInputs.m_rightLimitSwitchState);
 
-    SmartDashboard.putBoolean("Climbers/LeftLimitSwitch", climbInputs.m_leftLimitSwitchState);
-    SmartDashboard.putBoolean("Climbers/RightLimitSwitch", climbInputs.m_rightLimitSwitchState);
+    m_loopTiming.stop();
   }
 
   //#endregion
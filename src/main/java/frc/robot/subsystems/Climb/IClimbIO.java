@@ -1,14 +1,37 @@
 package frc.robot.subsystems.Climb;
 
+import java.nio.ByteBuffer;
+import prime.replay.LoggableInputs;
+
 public interface IClimbIO {
-    public static class ClimbIOInputs {
+    public static class ClimbIOInputs implements LoggableInputs {
 
         public boolean m_leftLimitSwitchState;
         public boolean m_rightLimitSwitchState;
 
         public double m_leftVictorSPXOutputPercent = 0;
         public double m_rightVictorSPXOutputPercent = 0;
-        
+
+        @Override
+        public int getSizeBytes() {
+            return 2 + 2 * Double.BYTES;
+        }
+
+        @Override
+        public void toBytes(ByteBuffer buffer) {
+            buffer.put((byte) (m_leftLimitSwitchState ? 1 : 0));
+            buffer.put((byte) (m_rightLimitSwitchState ? 1 : 0));
+            buffer.putDouble(m_leftVictorSPXOutputPercent);
+            buffer.putDouble(m_rightVictorSPXOutputPercent);
+        }
+
+        @Override
+        public void fromBytes(ByteBuffer buffer) {
+            m_leftLimitSwitchState = buffer.get() != 0;
+            m_rightLimitSwitchState = buffer.get() != 0;
+            m_leftVictorSPXOutputPercent = buffer.getDouble();
+            m_rightVictorSPXOutputPercent = buffer.getDouble();
+        }
     }
 
     public static class ClimbIOOutputs {
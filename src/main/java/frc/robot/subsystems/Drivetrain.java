@@ -1,37 +1,66 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix6.configs.Pigeon2Configuration;
-import com.ctre.phoenix6.hardware.Pigeon2;
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.path.PathPlannerPath;
 import com.pathplanner.lib.util.HolonomicPathFollowerConfig;
 import com.pathplanner.lib.util.PathPlannerLogging;
 import com.pathplanner.lib.util.ReplanningConfig;
+import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.networktables.GenericEntry;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Robot;
 import frc.robot.config.RobotConfig;
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import prime.control.LEDs.Color;
 import prime.control.LEDs.Patterns.PulsePattern;
 import prime.control.LEDs.Patterns.SolidPattern;
 import prime.control.SwerveControlSuppliers;
+import prime.pathing.CompiledAuto;
+import prime.pathing.CompiledPaths;
+import prime.pathing.CompiledTrajectoryFollower;
+import prime.physics.DeltaPoseEstimator;
+import prime.physics.IPoseEstimator;
+import prime.physics.PhoenixOdometryThread;
+import prime.physics.PrimitiveSwerveKinematics;
+import prime.physics.SwerveSetpointGenerator;
+import prime.physics.VisionFusion;
+import prime.physics.WPILibPoseEstimator;
+import prime.replay.InputsLogger;
+import prime.telemetry.BooleanTelemetry;
+import prime.telemetry.DoubleTelemetry;
+import prime.telemetry.StructTelemetry;
+import prime.telemetry.TelemetryLevel;
+import prime.telemetry.TelemetryRegistry;
+import prime.utilities.LoopProfiler;
+import prime.utilities.TimestampedRingBuffer;
 
 public class Drivetrain extends SubsystemBase {
 
@@ -63,36 +92,156 @@ public class Drivetrain extends SubsystemBase {
     .getEntry();
 
   // Gyro and swerve module controller
-  public Pigeon2 m_gyro;
+  private IGyroIO m_gyroIO;
   private SwerveController m_swerveController;
 
   // Vision, Kinematics, odometry
   public Limelight LimelightRear;
   public Limelight LimelightFront;
   private SwerveDriveKinematics m_kinematics;
-  private SwerveDrivePoseEstimator m_poseEstimator;
+  private PrimitiveSwerveKinematics m_primitiveKinematics;
+  private SwerveSetpointGenerator m_setpointGenerator;
+  private IPoseEstimator m_poseEstimator;
+  private VisionFusion m_visionFusion;
   public boolean EnableContinuousPoseEstimationFront = true;
   public boolean EnableContinuousPoseEstimationRear = true;
 
+  // High-rate odometry. The estimator is only touched while holding the lock; readers use the latest snapshots.
+  private PhoenixOdometryThread m_odometryThread;
+  private StatusSignal<Double> m_gyroYawSignal;
+  private final ReentrantLock m_odometryLock = new ReentrantLock();
+  private double m_odometryResetTimestamp = 0;
+  private volatile Pose2d m_latestPose = new Pose2d();
+  private volatile Rotation2d m_latestGyroAngle = new Rotation2d();
+  private double[] m_odometryDistancesMeters;
+  private double[] m_odometryHeadingsRadians;
+
+  // Recent history for latency compensation. The pose history is written by the odometry thread under the lock.
+  private static final int kPoseHistoryX = 0, kPoseHistoryY = 1, kPoseHistoryTheta = 2, kPoseHistoryGyroYaw = 3;
+  private static final double kHistoryLengthSeconds = 1.5;
+  private TimestampedRingBuffer m_poseHistory;
+  private final double[] m_poseHistorySample = new double[4];
+
+  // Sensor snapshot, refreshed once at the start of each loop
+  private BaseStatusSignal[] m_cycleSignals;
+  private StatusSignal<Double> m_gyroRateSignal;
+  private StatusSignal<Double> m_gyroAccelerationXSignal;
+  private StatusSignal<Double> m_gyroAccelerationYSignal;
+  private StatusSignal<Double> m_gyroAccelerationZSignal;
+  private DrivetrainSnapshot[] m_snapshots;
+  private int m_snapshotIndex = 0;
+  private DrivetrainSnapshot m_snapshot;
+  private InputsLogger m_snapshotLogger;
+
+  // Physics simulation, stepped faster than the loop so the odometry thread sees smooth motion
+  private static final double kSimulationPeriodSeconds = 0.004;
+  private Notifier m_simulationNotifier;
+  private double m_lastSimulationTimestamp;
+  private SwerveModuleState[] m_simulatedModuleStates;
+
   // Snap-to PID
   public boolean m_snapToGyroEnabled = false;
   public PIDController m_snapToRotationController;
+  private final SolidPattern m_snapToAlignedPattern = new SolidPattern(Color.GREEN);
+  private final PulsePattern m_snapToAligningPattern = new PulsePattern(Color.RED, 0.5);
+
+  // Trajectories compiled at build time, followed without PathPlanner
+  private CompiledPaths m_compiledPaths;
+  private PIDController m_pathXController;
+  private PIDController m_pathYController;
+  private PIDController m_pathRotationController;
+
+  // Telemetry, published under SmartDashboard/Drive
+  private final TelemetryRegistry m_telemetry = new TelemetryRegistry("Drive");
+  private final StructTelemetry<Pose2d> t_estimatedPose = m_telemetry
+    .addStruct("EstimatedPose", Pose2d.struct, TelemetryLevel.Competition)
+    .withPeriod(2);
+  private final StructTelemetry<ChassisSpeeds> t_measuredSpeeds = m_telemetry
+    .addStruct("MeasuredChassisSpeeds", ChassisSpeeds.struct, TelemetryLevel.Practice);
+  private final StructTelemetry<ChassisSpeeds> t_setpointSpeeds = m_telemetry
+    .addStruct("SetpointChassisSpeeds", ChassisSpeeds.struct, TelemetryLevel.Practice);
+  private static final int kFieldWidgetPeriodLoops = 5;
+  private int m_fieldWidgetLoops = 0;
+  private final ChassisSpeeds m_measuredSpeedsTelemetry = new ChassisSpeeds();
+  private final ChassisSpeeds m_setpointSpeedsTelemetry = new ChassisSpeeds();
+  private final DoubleTelemetry t_gyroDegrees = m_telemetry
+    .addDouble("Gyro (deg)", TelemetryLevel.Practice)
+    .withDeadband(0.1);
+  private final DoubleTelemetry t_gyroRate = m_telemetry
+    .addDouble("Gyro Rate (deg per s)", TelemetryLevel.Debug)
+    .withDeadband(0.5);
+  private final DoubleTelemetry t_accelerationX = m_telemetry
+    .addDouble("Acceleration/X", TelemetryLevel.Debug)
+    .withPeriod(5);
+  private final DoubleTelemetry t_accelerationY = m_telemetry
+    .addDouble("Acceleration/Y", TelemetryLevel.Debug)
+    .withPeriod(5);
+  private final DoubleTelemetry t_accelerationZ = m_telemetry
+    .addDouble("Acceleration/Z", TelemetryLevel.Debug)
+    .withPeriod(5);
+  private final DoubleTelemetry t_odometrySamples = m_telemetry
+    .addDouble("Odometry/SampleCount", TelemetryLevel.Practice)
+    .withPeriod(50);
+  private final DoubleTelemetry t_odometryFailedSamples = m_telemetry
+    .addDouble("Odometry/FailedSampleCount", TelemetryLevel.Practice)
+    .withPeriod(50);
+  private final BooleanTelemetry t_snapToEnabled = m_telemetry.addBoolean("SnapTo/Enabled", TelemetryLevel.Practice);
+  private final DoubleTelemetry t_snapToSetpointRadians = m_telemetry
+    .addDouble("SnapTo/Setpoint (rad)", TelemetryLevel.Practice)
+    .withDeadband(0.001);
+  private final DoubleTelemetry t_snapToSetpointDegrees = m_telemetry
+    .addDouble("SnapTo/Setpoint (deg)", TelemetryLevel.Practice)
+    .withDeadband(0.1);
+  private final BooleanTelemetry t_rearEstimationEnabled = m_telemetry
+    .addBoolean("PoseEstimation/RearEstimationEnabled", TelemetryLevel.Competition);
+  private final BooleanTelemetry t_rearValidTarget = m_telemetry
+    .addBoolean("PoseEstimation/Rear/IsValidTarget", TelemetryLevel.Practice);
+  private final BooleanTelemetry t_frontEstimationEnabled = m_telemetry
+    .addBoolean("PoseEstimation/FrontEstimationEnabled", TelemetryLevel.Competition);
+  private final BooleanTelemetry t_frontValidTarget = m_telemetry
+    .addBoolean("PoseEstimation/Front/IsValidTarget", TelemetryLevel.Practice);
+  private final DoubleTelemetry t_visionAccepted = m_telemetry
+    .addDouble("PoseEstimation/AcceptedFrames", TelemetryLevel.Practice)
+    .withPeriod(50);
+  private final DoubleTelemetry t_visionRejectedSpeed = m_telemetry
+    .addDouble("PoseEstimation/RejectedSpeed", TelemetryLevel.Practice)
+    .withPeriod(50);
+  private final DoubleTelemetry t_visionRejectedOffField = m_telemetry
+    .addDouble("PoseEstimation/RejectedOffField", TelemetryLevel.Practice)
+    .withPeriod(50);
+  private final DoubleTelemetry t_visionRejectedJump = m_telemetry
+    .addDouble("PoseEstimation/RejectedJump", TelemetryLevel.Practice)
+    .withPeriod(50);
+  private final DoubleTelemetry t_visionRejectedMultiTagJump = m_telemetry
+    .addDouble("PoseEstimation/RejectedMultiTagJump", TelemetryLevel.Practice)
+    .withPeriod(50);
+  private final DoubleTelemetry t_visionRejectedTags = m_telemetry
+    .addDouble("PoseEstimation/RejectedTags", TelemetryLevel.Practice)
+    .withPeriod(50);
+
+  private final LoopProfiler.Section m_loopTiming = LoopProfiler.getSection("Subsystems/Drivetrain");
 
   /**
    * Creates a new Drivetrain.
+   * @param isReal Whether to use the real modules or simulated ones
+   * @param gyroIO The gyro, a GyroIOSim moving the simulated field when not real
    */
-  public Drivetrain(RobotConfig config, PwmLEDs leds, DriverDashboard driverDashboard) {
+  public Drivetrain(boolean isReal, IGyroIO gyroIO, RobotConfig config, PwmLEDs leds, DriverDashboard driverDashboard) {
     setName("Drivetrain");
     m_config = config;
     m_leds = leds;
     m_driverDashboard = driverDashboard;
 
-    // Create gyro
-    m_gyro = new Pigeon2(config.Drivetrain.PigeonId);
-    m_gyro.getConfigurator().apply(new Pigeon2Configuration());
+    m_gyroIO = gyroIO;
+    m_gyroYawSignal = m_gyroIO.getYawSignal();
+    m_gyroRateSignal = m_gyroIO.getRateSignal();
+    m_gyroAccelerationXSignal = m_gyroIO.getAccelerationXSignal();
+    m_gyroAccelerationYSignal = m_gyroIO.getAccelerationYSignal();
+    m_gyroAccelerationZSignal = m_gyroIO.getAccelerationZSignal();
 
     // Create swerve modules
-    m_swerveController = new SwerveController(config, config.Drivetrain.DrivePID, config.Drivetrain.SteeringPID);
+    m_swerveController =
+      new SwerveController(isReal, config, config.Drivetrain.DrivePID, config.Drivetrain.SteeringPID);
 
     // Configure snap-to PID
     m_snapToRotationController = m_config.Drivetrain.SnapToPID.createPIDController(0.02);
@@ -110,11 +259,95 @@ public class Drivetrain extends SubsystemBase {
         m_config.RearLeftSwerveModule.getModuleLocation(),
         m_config.RearRightSwerveModule.getModuleLocation()
       );
+    m_primitiveKinematics =
+      new PrimitiveSwerveKinematics(
+        m_config.FrontLeftSwerveModule.getModuleLocation(),
+        m_config.FrontRightSwerveModule.getModuleLocation(),
+        m_config.RearLeftSwerveModule.getModuleLocation(),
+        m_config.RearRightSwerveModule.getModuleLocation()
+      );
+    m_setpointGenerator =
+      new SwerveSetpointGenerator(
+        m_primitiveKinematics,
+        m_config.Drivetrain.MaxSpeedMetersPerSecond,
+        m_config.Drivetrain.MaxAccelerationMetersPerSecondSquared,
+        m_config.Drivetrain.MaxSteeringSpeedRadiansPerSecond
+      );
+
+    m_visionFusion =
+      new VisionFusion(
+        AprilTagFields.k2024Crescendo.loadAprilTagLayoutField(),
+        this::getPoseAt,
+        m_config.Drivetrain.VisionMaxSpeedMetersPerSecond,
+        m_config.Drivetrain.VisionMaxAngularSpeedRadians,
+        m_config.Drivetrain.VisionMaxPoseJumpMeters,
+        m_config.Drivetrain.VisionMaxMultiTagPoseJumpMeters,
+        m_config.Drivetrain.VisionXYStdDevCoefficient,
+        m_config.Drivetrain.VisionThetaStdDevCoefficient
+      );
+
+    if (!isReal) startSimulation();
+
+    // Take an initial sample of the odometry signals, then start sampling them on the odometry thread
+    var odometrySignals = getOdometrySignals();
+    BaseStatusSignal.refreshAll(odometrySignals);
+    m_swerveController.sampleOdometry();
+    m_latestGyroAngle = Rotation2d.fromDegrees(m_gyroYawSignal.getValueAsDouble());
+    m_odometryDistancesMeters = new double[m_primitiveKinematics.getModuleCount()];
+    m_odometryHeadingsRadians = new double[m_primitiveKinematics.getModuleCount()];
+    m_poseHistory =
+      new TimestampedRingBuffer(
+        (int) Math.ceil(m_config.Drivetrain.OdometryFrequencyHz * kHistoryLengthSeconds),
+        false,
+        false,
+        true,
+        true
+      );
+
     m_poseEstimator =
-      new SwerveDrivePoseEstimator(m_kinematics, m_gyro.getRotation2d(), getModulePositions(), new Pose2d());
+      m_config.Drivetrain.UseDeltaPoseEstimator
+        ? new DeltaPoseEstimator(
+          m_primitiveKinematics,
+          m_latestGyroAngle,
+          getModulePositions(),
+          new Pose2d(),
+          (int) Math.ceil(m_config.Drivetrain.OdometryFrequencyHz * kHistoryLengthSeconds)
+        )
+        : new WPILibPoseEstimator(m_kinematics, m_latestGyroAngle, getModulePositions(), new Pose2d());
+    m_odometryThread =
+      new PhoenixOdometryThread(odometrySignals, m_config.Drivetrain.OdometryFrequencyHz, this::sampleOdometry);
+    m_odometryThread.start();
+
+    // Collect the signals that are batch-refreshed once per loop and take the first snapshot
+    var moduleCycleSignals = m_swerveController.getCycleSignals();
+    m_cycleSignals = new BaseStatusSignal[moduleCycleSignals.length + 4];
+    System.arraycopy(moduleCycleSignals, 0, m_cycleSignals, 0, moduleCycleSignals.length);
+    m_cycleSignals[moduleCycleSignals.length] = m_gyroRateSignal;
+    m_cycleSignals[moduleCycleSignals.length + 1] = m_gyroAccelerationXSignal;
+    m_cycleSignals[moduleCycleSignals.length + 2] = m_gyroAccelerationYSignal;
+    m_cycleSignals[moduleCycleSignals.length + 3] = m_gyroAccelerationZSignal;
+    m_snapshots =
+      new DrivetrainSnapshot[] {
+        new DrivetrainSnapshot(m_primitiveKinematics.getModuleCount()),
+        new DrivetrainSnapshot(m_primitiveKinematics.getModuleCount()),
+      };
+    m_snapshot = captureSnapshot();
+    m_snapshotLogger = new InputsLogger("Drivetrain", m_snapshot);
 
     // Set up PP to feed current path poses to the field widget
     PathPlannerLogging.setLogActivePathCallback(poses -> driverDashboard.FieldWidget.getObject("path").setPoses(poses));
+    CompiledTrajectoryFollower.addLogActiveTrajectoryCallback((trajectory, red) ->
+      driverDashboard.FieldWidget
+        .getObject("path")
+        .setPoses(trajectory != null ? trajectory.getPoses(red, 10) : List.of())
+    );
+
+    // Configure compiled trajectory following, with the same gains PathPlanner uses
+    m_compiledPaths = new CompiledPaths();
+    m_pathXController = m_config.Drivetrain.PathingTranslationPid.createPIDController(0.02);
+    m_pathYController = m_config.Drivetrain.PathingTranslationPid.createPIDController(0.02);
+    m_pathRotationController = m_config.Drivetrain.PathingRotationPid.createPIDController(0.02);
+    m_pathRotationController.enableContinuousInput(-Math.PI, Math.PI);
 
     // Configure PathPlanner holonomic control
     AutoBuilder.configureHolonomic(
@@ -142,9 +375,21 @@ public class Drivetrain extends SubsystemBase {
 
   // Resets the Gyro
   public void resetGyro() {
-    m_gyro.setYaw(Robot.onBlueAlliance() ? 180 : 0);
-
-    m_poseEstimator.resetPosition(m_gyro.getRotation2d(), getModulePositions(), m_poseEstimator.getEstimatedPosition());
+    var yawDegrees = Robot.onBlueAlliance() ? 180 : 0;
+
+    m_odometryLock.lock();
+    try {
+      m_gyroIO.SetYaw(yawDegrees);
+
+      // Samples taken before the reset still carry the old yaw, so the odometry thread drops them
+      m_odometryResetTimestamp = Timer.getFPGATimestamp();
+      m_latestGyroAngle = Rotation2d.fromDegrees(yawDegrees);
+      m_poseEstimator.resetPosition(m_latestGyroAngle, getModulePositions(), m_poseEstimator.getEstimatedPosition());
+      m_latestPose = m_poseEstimator.getEstimatedPosition();
+      m_poseHistory.clear();
+    } finally {
+      m_odometryLock.unlock();
+    }
   }
 
   /**
@@ -152,34 +397,53 @@ public class Drivetrain extends SubsystemBase {
    * @param desiredChassisSpeeds The desired speeds of the robot
    */
   private void driveRobotRelative(ChassisSpeeds desiredChassisSpeeds) {
+    driveRobotRelative(
+      desiredChassisSpeeds.vxMetersPerSecond,
+      desiredChassisSpeeds.vyMetersPerSecond,
+      desiredChassisSpeeds.omegaRadiansPerSecond
+    );
+  }
+
+  /**
+   * Drives using robot-relative speeds without allocating
+   * @param vxMetersPerSecond The desired forward speed
+   * @param vyMetersPerSecond The desired left speed
+   * @param omegaRadiansPerSecond The desired rotational speed, CCW+
+   */
+  private void driveRobotRelative(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond) {
     // If snap-to is enabled, calculate and set the rotational speed to reach the setpoint
     if (m_snapToGyroEnabled) {
-      var currentRotationRadians = MathUtil.angleModulus(m_gyro.getRotation2d().getRadians());
-      desiredChassisSpeeds.omegaRadiansPerSecond = m_snapToRotationController.calculate(currentRotationRadians);
+      var currentRotationRadians = MathUtil.angleModulus(getGyroRotation().getRadians());
+      omegaRadiansPerSecond = m_snapToRotationController.calculate(currentRotationRadians);
 
       // Use the LEDs to indicate how close the robot is to being aligned
-      if (Math.abs(desiredChassisSpeeds.omegaRadiansPerSecond) < 0.1) {
-        m_leds.setStripTemporaryPattern(new SolidPattern(Color.GREEN));
+      if (Math.abs(omegaRadiansPerSecond) < 0.1) {
+        m_leds.setStripTemporaryPattern(m_snapToAlignedPattern);
       } else {
-        m_leds.setStripTemporaryPattern(new PulsePattern(Color.RED, 0.5));
+        m_leds.setStripTemporaryPattern(m_snapToAligningPattern);
       }
     }
 
-    // Correct drift by taking the input speeds and converting them to a desired per-period speed. This is known as "discretizing"
-    desiredChassisSpeeds = ChassisSpeeds.discretize(desiredChassisSpeeds, 0.02);
+    if (m_config.Drivetrain.UseSetpointGenerator) {
+      // Step towards the requested speeds only as fast as the modules can steer and accelerate
+      m_setpointGenerator.generate(vxMetersPerSecond, vyMetersPerSecond, omegaRadiansPerSecond, 0.02);
+      m_swerveController.setDesiredStates(m_setpointGenerator.getSpeeds(), m_setpointGenerator.getAnglesRadians());
+      return;
+    }
 
-    // Calculate the module states from the chassis speeds
-    var swerveModuleStates = m_kinematics.toSwerveModuleStates(desiredChassisSpeeds);
-    SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, m_config.Drivetrain.MaxSpeedMetersPerSecond);
+    // Calculate the module states from the chassis speeds. Correct drift by converting the input speeds to a desired
+    // per-period speed first. This is known as "discretizing"
+    m_primitiveKinematics.toModuleStates(vxMetersPerSecond, vyMetersPerSecond, omegaRadiansPerSecond, 0.02);
+    m_primitiveKinematics.desaturateWheelSpeeds(m_config.Drivetrain.MaxSpeedMetersPerSecond);
 
     // Set the desired states for each module
-    m_swerveController.setDesiredStates(swerveModuleStates);
+    m_swerveController.setDesiredStates(m_primitiveKinematics.getSpeeds(), m_primitiveKinematics.getAnglesRadians());
   }
 
   private void drivePathPlanner(ChassisSpeeds robotRelativeSpeeds) {
     if (Robot.onRedAlliance()) {
       // If we're on the red alliance, we need to flip the gyro
-      var gyroAngle = m_gyro.getRotation2d().plus(Rotation2d.fromDegrees(180));
+      var gyroAngle = getGyroRotation().plus(Rotation2d.fromDegrees(180));
 
       // Convert the robot-relative speeds to field-relative speeds with the flipped gyro
       var fieldSpeeds = ChassisSpeeds.fromRobotRelativeSpeeds(robotRelativeSpeeds, gyroAngle);
@@ -202,10 +466,17 @@ public class Drivetrain extends SubsystemBase {
   }
 
   /**
-   * Gets the current pose of the drivetrain from odometry
+   * Gets the snap-to gyro setpoint in radians if snap-to is enabled, otherwise NaN
+   */
+  private double getRotationTargetOverrideRadians() {
+    return m_snapToGyroEnabled ? m_snapToRotationController.getSetpoint() : Double.NaN;
+  }
+
+  /**
+   * Gets the current pose of the drivetrain from the latest odometry sample. Never blocks.
    */
   private Pose2d getPose() {
-    return m_poseEstimator.getEstimatedPosition();
+    return m_latestPose;
   }
 
   /**
@@ -213,14 +484,186 @@ public class Drivetrain extends SubsystemBase {
    * @param pose The pose to reset the estimator to
    */
   private void setEstimatorPose(Pose2d pose) {
-    m_poseEstimator.resetPosition(m_gyro.getRotation2d(), getModulePositions(), pose);
+    m_odometryLock.lock();
+    try {
+      m_poseEstimator.resetPosition(m_latestGyroAngle, getModulePositions(), pose);
+      m_latestPose = m_poseEstimator.getEstimatedPosition();
+      m_poseHistory.clear();
+    } finally {
+      m_odometryLock.unlock();
+    }
+
+    // Odometry is where the auto says the robot starts, the simulated robot is wherever it was really placed
+    m_gyroIO.resetSimulatedPose(pose);
+  }
+
+  /**
+   * Adds a vision measurement to the pose estimator
+   * @param pose The measured pose of the robot
+   * @param timestamp The FPGA timestamp of the measurement in seconds
+   * @param stdDeviations The standard deviations of the measurement (x, y, theta)
+   */
+  private void addVisionMeasurement(Pose2d pose, double timestamp, Matrix<N3, N1> stdDeviations) {
+    m_odometryLock.lock();
+    try {
+      m_poseEstimator.addVisionMeasurement(pose, timestamp, stdDeviations);
+      m_latestPose = m_poseEstimator.getEstimatedPosition();
+    } finally {
+      m_odometryLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the gyro angle from this loop's snapshot, CCW+
+   */
+  private Rotation2d getGyroRotation() {
+    return m_snapshot.getGyroAngle();
+  }
+
+  /**
+   * Gets the sensor snapshot captured at the start of this loop
+   */
+  public DrivetrainSnapshot getSnapshot() {
+    return m_snapshot;
+  }
+
+  /**
+   * Gets the estimated pose of the robot at a past timestamp, interpolated from the odometry history
+   * @param timestamp The FPGA timestamp in seconds
+   * @param pose Output of length 3: x, y (meters) and theta (radians)
+   * @return False if there is no history yet, in which case the output is left unchanged
+   */
+  public boolean getPoseAt(double timestamp, double[] pose) {
+    m_odometryLock.lock();
+    try {
+      if (m_poseHistory.size() == 0) return false;
+
+      pose[0] = m_poseHistory.get(timestamp, kPoseHistoryX);
+      pose[1] = m_poseHistory.get(timestamp, kPoseHistoryY);
+      pose[2] = m_poseHistory.get(timestamp, kPoseHistoryTheta);
+      return true;
+    } finally {
+      m_odometryLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the gyro angle at a past timestamp in radians, CCW+. Falls back to the current angle if there is no history.
+   * @param timestamp The FPGA timestamp in seconds
+   */
+  public double getGyroRadiansAt(double timestamp) {
+    m_odometryLock.lock();
+    try {
+      if (m_poseHistory.size() == 0) return m_latestGyroAngle.getRadians();
+
+      return m_poseHistory.get(timestamp, kPoseHistoryGyroYaw);
+    } finally {
+      m_odometryLock.unlock();
+    }
+  }
+
+  /**
+   * Batch-refreshes the per-loop signals and captures them, together with the latest odometry sample, into the
+   * snapshot that was not handed out last loop
+   */
+  private DrivetrainSnapshot captureSnapshot() {
+    BaseStatusSignal.refreshAll(m_cycleSignals);
+
+    m_snapshotIndex ^= 1;
+    var snapshot = m_snapshots[m_snapshotIndex];
+    snapshot.setGyro(
+      Timer.getFPGATimestamp(),
+      m_latestGyroAngle,
+      m_gyroRateSignal.getValueAsDouble(),
+      m_gyroAccelerationXSignal.getValueAsDouble(),
+      m_gyroAccelerationYSignal.getValueAsDouble(),
+      m_gyroAccelerationZSignal.getValueAsDouble()
+    );
+
+    // Velocities are paired with the headings from the same odometry sample as the distances so they agree
+    m_swerveController.updateMeasurements(
+      snapshot.moduleDistancesBuffer(),
+      snapshot.moduleHeadingsBuffer(),
+      snapshot.moduleVelocitiesBuffer()
+    );
+    m_primitiveKinematics.toChassisSpeeds(
+      snapshot.moduleVelocitiesBuffer(),
+      snapshot.moduleHeadingsBuffer(),
+      snapshot.chassisSpeedsBuffer()
+    );
+
+    return snapshot;
   }
 
   /**
    * Gets the direction the robot is facing in degrees, CCW+
    */
   private double getHeading() {
-    return m_gyro.getRotation2d().getDegrees();
+    return getGyroRotation().getDegrees();
+  }
+
+  /**
+   * Gets the status signals of the modules and gyro that the odometry thread waits on
+   */
+  private BaseStatusSignal[] getOdometrySignals() {
+    var moduleSignals = m_swerveController.getOdometrySignals();
+    var signals = new BaseStatusSignal[moduleSignals.length + 1];
+    System.arraycopy(moduleSignals, 0, signals, 0, moduleSignals.length);
+    signals[moduleSignals.length] = m_gyroYawSignal;
+
+    return signals;
+  }
+
+  /**
+   * Feeds one synchronized sample of the odometry signals into the pose estimator. Runs on the odometry thread.
+   * @param timestamp The FPGA timestamp of the sample in seconds
+   */
+  private void sampleOdometry(double timestamp) {
+    m_swerveController.sampleOdometry();
+    var gyroAngle = Rotation2d.fromDegrees(m_gyroYawSignal.getValueAsDouble());
+
+    m_odometryLock.lock();
+    try {
+      // Drop samples that were taken before the last gyro reset
+      if (timestamp < m_odometryResetTimestamp) return;
+
+      m_latestGyroAngle = gyroAngle;
+      m_swerveController.updatePositions(m_odometryDistancesMeters, m_odometryHeadingsRadians);
+      m_latestPose =
+        m_poseEstimator.updateWithTime(timestamp, gyroAngle, m_odometryDistancesMeters, m_odometryHeadingsRadians);
+
+      m_poseHistorySample[kPoseHistoryX] = m_latestPose.getX();
+      m_poseHistorySample[kPoseHistoryY] = m_latestPose.getY();
+      m_poseHistorySample[kPoseHistoryTheta] = m_latestPose.getRotation().getRadians();
+      m_poseHistorySample[kPoseHistoryGyroYaw] = gyroAngle.getRadians();
+      m_poseHistory.add(timestamp, m_poseHistorySample);
+    } finally {
+      m_odometryLock.unlock();
+    }
+  }
+
+  /**
+   * Starts stepping the simulated modules and gyro on a notifier. The gyro sim moves the robot on the simulated field
+   * by the chassis motion the modules produced.
+   */
+  private void startSimulation() {
+    m_simulatedModuleStates = new SwerveModuleState[m_primitiveKinematics.getModuleCount()];
+    for (int i = 0; i < m_simulatedModuleStates.length; i++) m_simulatedModuleStates[i] = new SwerveModuleState();
+
+    m_lastSimulationTimestamp = Timer.getFPGATimestamp();
+    m_simulationNotifier = new Notifier(this::updateSimulation);
+    m_simulationNotifier.setName("DrivetrainSimulation");
+    m_simulationNotifier.startPeriodic(kSimulationPeriodSeconds);
+  }
+
+  private void updateSimulation() {
+    var timestamp = Timer.getFPGATimestamp();
+    var dt = timestamp - m_lastSimulationTimestamp;
+    m_lastSimulationTimestamp = timestamp;
+    if (dt <= 0) return;
+
+    m_swerveController.updateSimulation(dt, m_simulatedModuleStates);
+    m_gyroIO.updateSimulation(m_kinematics.toChassisSpeeds(m_simulatedModuleStates), dt);
   }
 
   /**
@@ -250,59 +693,55 @@ public class Drivetrain extends SubsystemBase {
   }
 
   /**
-   * Gets the current chassis speeds of the robot
+   * Gets the current chassis speeds of the robot from this loop's snapshot
    */
   private ChassisSpeeds getRobotRelativeChassisSpeeds() {
-    return m_kinematics.toChassisSpeeds(m_swerveController.getModuleStates());
+    return m_snapshot.getRobotRelativeSpeeds();
   }
 
   /**
    * Evaluates the pose estimation using the limelight cameras
    */
   private void evaluatePoseEstimation() {
-    var currentSpeeds = getRobotRelativeChassisSpeeds();
+    // Drain every frame that arrived since the last loop, even if it won't be used, so each frame is seen only once
+    var rearPoses = LimelightRear.readNewRobotPoses();
+    var frontPoses = LimelightFront.readNewRobotPoses();
 
-    var withinTrustedVelocity =
-      currentSpeeds.omegaRadiansPerSecond < 0.2 && // 1 rad/s is about 60 degrees/s
-      currentSpeeds.vxMetersPerSecond < 2 &&
-      currentSpeeds.vyMetersPerSecond < 2;
-    SmartDashboard.putBoolean("Drive/PoseEstimation/WithinTrustedVelocity", withinTrustedVelocity);
+    m_visionFusion.begin(m_snapshot.getLinearSpeedMetersPerSecond(), m_snapshot.getOmegaRadiansPerSecond());
 
     EnableContinuousPoseEstimationRear = m_driverDashboard.RearPoseEstimationSwitch.getBoolean(false);
-    SmartDashboard.putBoolean("Drive/PoseEstimation/RearEstimationEnabled", EnableContinuousPoseEstimationRear);
+    t_rearEstimationEnabled.set(EnableContinuousPoseEstimationRear);
     if (EnableContinuousPoseEstimationRear) {
       // Rear Limelight
-      // If we have a valid target and we're moving in a trusted velocity range, update the pose estimator
       var primaryTarget = LimelightRear.getApriltagId();
-      var isValidTarget = LimelightRear.isValidApriltag(primaryTarget);
-      SmartDashboard.putBoolean("Drive/PoseEstimation/Rear/IsValidTarget", isValidTarget);
+      t_rearValidTarget.set(LimelightRear.isValidApriltag(primaryTarget));
 
       m_driverDashboard.RearApTagIdField.setDouble(primaryTarget);
       m_driverDashboard.RearApTagOffsetDial.setDouble(LimelightRear.getHorizontalOffsetFromTarget().getDegrees());
 
-      if (isValidTarget && withinTrustedVelocity) {
-        var llPose = LimelightRear.getRobotPose(Alliance.Blue);
-
-        m_poseEstimator.addVisionMeasurement(llPose.Pose.toPose2d(), llPose.Timestamp, llPose.StdDeviations);
-      }
+      m_visionFusion.addFrames(rearPoses);
     }
 
     EnableContinuousPoseEstimationFront = m_driverDashboard.FrontPoseEstimationSwitch.getBoolean(false);
-    SmartDashboard.putBoolean("Drive/PoseEstimation/FrontEstimationEnabled", EnableContinuousPoseEstimationFront);
+    t_frontEstimationEnabled.set(EnableContinuousPoseEstimationFront);
     if (EnableContinuousPoseEstimationFront) {
       // Front Limelight
-      // If we have a valid target and we're moving in a trusted velocity range, update the pose estimator
       var frontPrimaryTarget = LimelightFront.getApriltagId();
-      var frontIsValidTarget = LimelightFront.isValidApriltag(frontPrimaryTarget);
       m_driverDashboard.FrontApTagIdField.setDouble(frontPrimaryTarget);
-      SmartDashboard.putBoolean("Drive/PoseEstimation/Front/IsValidTarget", frontIsValidTarget);
-
-      if (frontIsValidTarget && withinTrustedVelocity) {
-        var llPose = LimelightFront.getRobotPose(Alliance.Blue);
+      t_frontValidTarget.set(LimelightFront.isValidApriltag(frontPrimaryTarget));
 
-        m_poseEstimator.addVisionMeasurement(llPose.Pose.toPose2d(), llPose.Timestamp, llPose.StdDeviations);
-      }
+      m_visionFusion.addFrames(frontPoses);
     }
+
+    // Merge frames from both cameras taken at about the same time, then update the estimator once per merged frame
+    m_visionFusion.fuse(this::addVisionMeasurement);
+
+    t_visionAccepted.set(m_visionFusion.getAcceptedCount());
+    t_visionRejectedSpeed.set(m_visionFusion.getRejectedSpeedCount());
+    t_visionRejectedOffField.set(m_visionFusion.getRejectedOffFieldCount());
+    t_visionRejectedJump.set(m_visionFusion.getRejectedJumpCount());
+    t_visionRejectedMultiTagJump.set(m_visionFusion.getRejectedMultiTagJumpCount());
+    t_visionRejectedTags.set(m_visionFusion.getRejectedTagCount());
   }
 
   //#endregion
@@ -312,38 +751,69 @@ public class Drivetrain extends SubsystemBase {
    */
   @Override
   public void periodic() {
+    m_loopTiming.start();
+
+    // Refresh the sensors once; everything else this loop reads the snapshot
+    m_snapshot = captureSnapshot();
+    m_snapshotLogger.log(m_snapshot);
+
+    // While disabled, keep the setpoint generator starting from what the robot is actually doing
+    if (DriverStation.isDisabled()) {
+      m_setpointGenerator.reset(
+        m_snapshot.getVxMetersPerSecond(),
+        m_snapshot.getVyMetersPerSecond(),
+        m_snapshot.getOmegaRadiansPerSecond(),
+        m_snapshot.moduleHeadingsBuffer()
+      );
+    }
+
     // Level2 Logging
-    var chassisSpeed = getRobotRelativeChassisSpeeds();
-    SmartDashboard.putNumber("Drive/MeasuredChassisSpeeds/X (m/s)", chassisSpeed.vxMetersPerSecond);
-    SmartDashboard.putNumber("Drive/MeasuredChassisSpeeds/Y (m/s)", chassisSpeed.vyMetersPerSecond);
-    SmartDashboard.putNumber("Drive/MeasuredChassisSpeeds/Z (rad/s)", chassisSpeed.omegaRadiansPerSecond);
+    m_measuredSpeedsTelemetry.vxMetersPerSecond = m_snapshot.getVxMetersPerSecond();
+    m_measuredSpeedsTelemetry.vyMetersPerSecond = m_snapshot.getVyMetersPerSecond();
+    m_measuredSpeedsTelemetry.omegaRadiansPerSecond = m_snapshot.getOmegaRadiansPerSecond();
+    t_measuredSpeeds.set(m_measuredSpeedsTelemetry);
+    m_setpointSpeedsTelemetry.vxMetersPerSecond = m_setpointGenerator.getVxMetersPerSecond();
+    m_setpointSpeedsTelemetry.vyMetersPerSecond = m_setpointGenerator.getVyMetersPerSecond();
+    m_setpointSpeedsTelemetry.omegaRadiansPerSecond = m_setpointGenerator.getOmegaRadiansPerSecond();
+    t_setpointSpeeds.set(m_setpointSpeedsTelemetry);
 
     // Pose estimation
     evaluatePoseEstimation();
 
     // Update pose estimation on shuffleboard and logging
-    var gyroAngle = m_gyro.getRotation2d();
+    var gyroAngle = getGyroRotation();
     d_currentHeading.setDouble(gyroAngle.getDegrees());
     m_driverDashboard.HeadingGyro.setDouble(gyroAngle.getDegrees());
-    SmartDashboard.putNumber("Drive/Gyro (deg)", gyroAngle.getDegrees());
-    SmartDashboard.putNumber("Drive/Acceleration/X", m_gyro.getAccelerationX().getValueAsDouble());
-    SmartDashboard.putNumber("Drive/Acceleration/Y", m_gyro.getAccelerationY().getValueAsDouble());
-    SmartDashboard.putNumber("Drive/Acceleration/Z", m_gyro.getAccelerationZ().getValueAsDouble());
-
-    var estimatedPose = m_poseEstimator.update(gyroAngle, getModulePositions());
-    SmartDashboard.putNumber("Drive/EstimatedPose/X (m)", estimatedPose.getX());
-    SmartDashboard.putNumber("Drive/EstimatedPose/Y (m)", estimatedPose.getY());
-    SmartDashboard.putNumber("Drive/EstimatedPose/Omega (deg)", estimatedPose.getRotation().getDegrees());
-    m_driverDashboard.FieldWidget.setRobotPose(estimatedPose);
+    t_gyroDegrees.set(gyroAngle.getDegrees());
+    t_gyroRate.set(m_snapshot.getGyroRateDegreesPerSecond());
+    t_accelerationX.set(m_snapshot.getAccelerationX());
+    t_accelerationY.set(m_snapshot.getAccelerationY());
+    t_accelerationZ.set(m_snapshot.getAccelerationZ());
+
+    // Odometry is updated on the odometry thread, so only read the latest estimate here
+    var estimatedPose = getPose();
+    m_swerveController.logMeasurements(m_snapshot);
+    m_swerveController.logDesiredStates();
+    t_odometrySamples.set(m_odometryThread.getSampleCount());
+    t_odometryFailedSamples.set(m_odometryThread.getFailedSampleCount());
+    t_estimatedPose.set(estimatedPose);
+
+    // The field widget sends the whole pose as a double array; 10 Hz is plenty for the driver
+    if (++m_fieldWidgetLoops >= kFieldWidgetPeriodLoops) {
+      m_driverDashboard.FieldWidget.setRobotPose(estimatedPose);
+      m_fieldWidgetLoops = 0;
+    }
 
     // Update SnapTo shuffleboard and logging
     d_snapToEnabledEntry.setBoolean(m_snapToGyroEnabled);
-    SmartDashboard.putBoolean("Drive/SnapTo/Enabled", m_snapToGyroEnabled);
+    t_snapToEnabled.set(m_snapToGyroEnabled);
 
     var snapToSetpointRad = m_snapToRotationController.getSetpoint();
     d_snapAngle.setDouble(snapToSetpointRad);
-    SmartDashboard.putNumber("Drive/SnapTo/Setpoint (rad)", snapToSetpointRad);
-    SmartDashboard.putNumber("Drive/SnapTo/Setpoint (deg)", Rotation2d.fromRadians(snapToSetpointRad).getDegrees());
+    t_snapToSetpointRadians.set(snapToSetpointRad);
+    t_snapToSetpointDegrees.set(Math.toDegrees(snapToSetpointRad));
+
+    m_loopTiming.stop();
   }
 
   //#region Commands
@@ -365,20 +835,16 @@ public class Drivetrain extends SubsystemBase {
         var inputYMPS = -controlSuppliers.Y.getAsDouble() * m_config.Drivetrain.MaxSpeedMetersPerSecond;
         var inputRotationRadiansPS = -controlSuppliers.Z.getAsDouble() * m_config.Drivetrain.MaxAngularSpeedRadians;
 
-        // Build chassis speeds
-        ChassisSpeeds robotRelativeSpeeds;
-        var invert = Robot.onRedAlliance() ? -1 : 1;
-
         // Drive the robot with the driver-relative inputs, converted to field-relative based on which side we're on
-        robotRelativeSpeeds =
-          ChassisSpeeds.fromFieldRelativeSpeeds(
-            (inputYMPS * invert), // Use Y as X for field-relative
-            (inputXMPS * invert), // Use X as Y for field-relative
-            inputRotationRadiansPS,
-            m_gyro.getRotation2d()
-          );
-
-        driveRobotRelative(robotRelativeSpeeds);
+        var invert = Robot.onRedAlliance() ? -1 : 1;
+        var fieldXMPS = inputYMPS * invert; // Use Y as X for field-relative
+        var fieldYMPS = inputXMPS * invert; // Use X as Y for field-relative
+
+        // Rotate the field-relative speeds into the robot's frame, same as ChassisSpeeds.fromFieldRelativeSpeeds
+        var gyroAngle = getGyroRotation();
+        var cos = gyroAngle.getCos();
+        var sin = gyroAngle.getSin();
+        driveRobotRelative(fieldXMPS * cos + fieldYMPS * sin, -fieldXMPS * sin + fieldYMPS * cos, inputRotationRadiansPS);
       });
   }
 
@@ -414,9 +880,9 @@ public class Drivetrain extends SubsystemBase {
 
       // If targetedAprilTag is in validTargets, snap to its offset
       if (LimelightRear.isSpeakerCenterTarget(targetedAprilTag)) {
-        // Calculate the target heading
+        // Calculate the target heading from where the robot was facing when the frame was captured
         var horizontalOffsetDeg = LimelightRear.getHorizontalOffsetFromTarget().getDegrees();
-        var robotHeadingDeg = getHeading();
+        var robotHeadingDeg = Units.radiansToDegrees(getGyroRadiansAt(LimelightRear.getTargetTimestamp()));
         var targetHeadingDeg = robotHeadingDeg - horizontalOffsetDeg;
 
         // Set the drivetrain to snap to the target heading
@@ -427,6 +893,56 @@ public class Drivetrain extends SubsystemBase {
     });
   }
 
+  /**
+   * Creates a command that follows a path's compiled trajectory, flipped for the red alliance
+   * @return The command, or null if the path wasn't compiled
+   */
+  public Command followCompiledPathCommand(String pathName) {
+    var trajectory = m_compiledPaths.getTrajectory(pathName);
+    if (trajectory == null) return null;
+
+    return new CompiledTrajectoryFollower(
+      trajectory,
+      this::getPose,
+      this::driveRobotRelative,
+      m_pathXController,
+      m_pathYController,
+      m_pathRotationController,
+      this::getRotationTargetOverrideRadians,
+      Robot::onRedAlliance,
+      this
+    );
+  }
+
+  /**
+   * Creates a command that follows a path, from its compiled trajectory if it has one, otherwise with PathPlanner
+   */
+  private Command followPathCommand(String pathName) {
+    var command = followCompiledPathCommand(pathName);
+
+    return command != null ? command : AutoBuilder.followPath(PathPlannerPath.fromPathFile(pathName));
+  }
+
+  /**
+   * Reads a compiled auto and its paths' compiled trajectories, without composing any commands, so it can run on a
+   * background thread
+   * @return Builds the auto's command, or null if compiled trajectories are disabled or it wasn't compiled
+   */
+  public Supplier<Command> prepareCompiledAuto(String autoName) {
+    var file = m_compiledPaths.getAutoFile(autoName);
+    if (!m_config.Drivetrain.UseCompiledTrajectories || !file.isFile()) return null;
+
+    try {
+      var auto = CompiledAuto.read(file);
+      auto.forEachPath(m_compiledPaths::getTrajectory);
+
+      return () -> auto.build(this::followPathCommand, this::setEstimatorPose, Robot::onRedAlliance);
+    } catch (IOException e) {
+      DriverStation.reportError("[ERROR] >> Failed to load compiled auto " + autoName + ": " + e.getMessage(), false);
+      return null;
+    }
+  }
+
   public Map<String, Command> getNamedCommands() {
     return Map.of("Enable_Lock_On", enableLockOn(), "Disable_Snap_To", disableSnapToCommand());
   }
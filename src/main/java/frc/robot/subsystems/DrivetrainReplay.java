@@ -0,0 +1,176 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.config.RobotConfig;
+import java.util.ArrayList;
+import prime.physics.DeltaPoseEstimator;
+import prime.physics.IPoseEstimator;
+import prime.physics.LimelightPose;
+import prime.physics.PrimitiveSwerveKinematics;
+import prime.physics.VisionFusion;
+import prime.physics.WPILibPoseEstimator;
+import prime.replay.ReplayLog;
+import prime.utilities.TimestampedRingBuffer;
+
+/**
+ * Re-runs the drivetrain's pose estimation from a recorded log, one loop per logged DrivetrainSnapshot. Odometry comes
+ * from the snapshots and vision from the Limelight botpose arrays recorded by NetworkTables logging, fused the same
+ * way the Drivetrain fuses them.
+ *
+ * Odometry runs at the loop rate rather than the odometry thread's rate, and both cameras are always used since the
+ * dashboard switches aren't logged.
+ */
+public class DrivetrainReplay {
+
+  private static final double kHistoryLengthSeconds = 1.5;
+
+  private final ReplayLog.Entry m_snapshotEntry;
+  private final ReplayLog.Entry m_rearPoseEntry;
+  private final ReplayLog.Entry m_frontPoseEntry;
+  private final DrivetrainSnapshot m_snapshot;
+  private final SwerveModulePosition[] m_positions;
+
+  private final IPoseEstimator m_poseEstimator;
+  private final VisionFusion m_visionFusion;
+  private final TimestampedRingBuffer m_poseHistory;
+
+  private double m_lastRearFrameTimestamp = Double.NEGATIVE_INFINITY;
+  private double m_lastFrontFrameTimestamp = Double.NEGATIVE_INFINITY;
+  private final ArrayList<LimelightPose> m_frames = new ArrayList<>();
+  private int m_loopCount = 0;
+
+  /**
+   * Creates a replay of the drivetrain in the given log
+   * @throws IllegalArgumentException If the log has no drivetrain snapshots
+   */
+  public DrivetrainReplay(RobotConfig config, ReplayLog log) {
+    m_snapshotEntry = log.getInputsEntry("Drivetrain");
+    if (m_snapshotEntry == null) throw new IllegalArgumentException("The log has no drivetrain snapshots");
+
+    m_rearPoseEntry = log.getEntry("NT:/" + config.Drivetrain.LimelightRearName + "/botpose_wpiblue");
+    m_frontPoseEntry = log.getEntry("NT:/" + config.Drivetrain.LimelightFrontName + "/botpose_wpiblue");
+
+    var moduleLocations = new Translation2d[] {
+      config.FrontLeftSwerveModule.getModuleLocation(),
+      config.FrontRightSwerveModule.getModuleLocation(),
+      config.RearLeftSwerveModule.getModuleLocation(),
+      config.RearRightSwerveModule.getModuleLocation(),
+    };
+
+    // Start from the first snapshot, like the Drivetrain starts from its first sample
+    m_snapshot = new DrivetrainSnapshot(moduleLocations.length);
+    m_positions = new SwerveModulePosition[moduleLocations.length];
+    for (int i = 0; i < m_positions.length; i++) m_positions[i] = new SwerveModulePosition();
+    if (m_snapshotEntry.size() > 0) {
+      m_snapshotEntry.next(m_snapshot);
+      m_snapshotEntry.rewind();
+      updatePositions();
+    }
+
+    m_poseEstimator =
+      config.Drivetrain.UseDeltaPoseEstimator
+        ? new DeltaPoseEstimator(
+          new PrimitiveSwerveKinematics(moduleLocations),
+          m_snapshot.getGyroAngle(),
+          m_positions,
+          new Pose2d(),
+          (int) Math.ceil(config.Drivetrain.OdometryFrequencyHz * kHistoryLengthSeconds)
+        )
+        : new WPILibPoseEstimator(
+          new SwerveDriveKinematics(moduleLocations),
+          m_snapshot.getGyroAngle(),
+          m_positions,
+          new Pose2d()
+        );
+
+    m_poseHistory = new TimestampedRingBuffer((int) Math.ceil(50 * kHistoryLengthSeconds), false, false, true);
+    m_visionFusion =
+      new VisionFusion(
+        AprilTagFields.k2024Crescendo.loadAprilTagLayoutField(),
+        (timestamp, pose) -> m_poseHistory.get(timestamp, pose),
+        config.Drivetrain.VisionMaxSpeedMetersPerSecond,
+        config.Drivetrain.VisionMaxAngularSpeedRadians,
+        config.Drivetrain.VisionMaxPoseJumpMeters,
+        config.Drivetrain.VisionMaxMultiTagPoseJumpMeters,
+        config.Drivetrain.VisionXYStdDevCoefficient,
+        config.Drivetrain.VisionThetaStdDevCoefficient
+      );
+  }
+
+  /**
+   * Replays the next loop: odometry from its snapshot, then every camera frame that had arrived by then
+   * @return False once every snapshot has been replayed
+   */
+  public boolean step() {
+    if (!m_snapshotEntry.next(m_snapshot)) return false;
+
+    var timestamp = m_snapshot.getTimestamp();
+    updatePositions();
+    var pose = m_poseEstimator.updateWithTime(timestamp, m_snapshot.getGyroAngle(), m_positions);
+    m_poseHistory.add(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+
+    m_visionFusion.begin(m_snapshot.getLinearSpeedMetersPerSecond(), m_snapshot.getOmegaRadiansPerSecond());
+    m_lastRearFrameTimestamp = addFrames(m_rearPoseEntry, timestamp, m_lastRearFrameTimestamp);
+    m_lastFrontFrameTimestamp = addFrames(m_frontPoseEntry, timestamp, m_lastFrontFrameTimestamp);
+    m_visionFusion.fuse(m_poseEstimator::addVisionMeasurement);
+
+    m_loopCount++;
+    return true;
+  }
+
+  /**
+   * Runs every remaining loop
+   */
+  public void run() {
+    while (step());
+  }
+
+  public Pose2d getEstimatedPose() {
+    return m_poseEstimator.getEstimatedPosition();
+  }
+
+  public DrivetrainSnapshot getSnapshot() {
+    return m_snapshot;
+  }
+
+  public int getLoopCount() {
+    return m_loopCount;
+  }
+
+  public VisionFusion getVisionFusion() {
+    return m_visionFusion;
+  }
+
+  private void updatePositions() {
+    for (int i = 0; i < m_positions.length; i++) {
+      m_positions[i].distanceMeters = m_snapshot.getModuleDistanceMeters(i);
+      m_positions[i].angle = new Rotation2d(m_snapshot.getModuleHeadingRadians(i));
+    }
+  }
+
+  // Adds a camera's frames that arrived by the given time, timestamped the way Limelight.readNewRobotPoses() does
+  private double addFrames(ReplayLog.Entry entry, double until, double lastFrameTimestamp) {
+    if (entry == null) return lastFrameTimestamp;
+
+    m_frames.clear();
+    while (entry.hasNext() && entry.peekTimestamp() <= until) {
+      var arrival = entry.peekTimestamp();
+      var data = entry.nextDoubleArray();
+      if (data.length < 11 || data[7] < 1) continue;
+
+      var timestamp = arrival - (data[6] / 1000.0);
+      if (timestamp <= lastFrameTimestamp) continue;
+
+      lastFrameTimestamp = timestamp;
+      m_frames.add(new LimelightPose(data, timestamp, Limelight.calculateTrust(data[7])));
+    }
+
+    if (!m_frames.isEmpty()) m_visionFusion.addFrames(m_frames.toArray(new LimelightPose[0]));
+    return lastFrameTimestamp;
+  }
+}
@@ -0,0 +1,203 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import java.nio.ByteBuffer;
+import prime.replay.LoggableInputs;
+
+/**
+ * A read-only view of the drivetrain's sensors, captured once per robot loop so every consumer in that loop reads
+ * the same values without touching the CAN bus.
+ *
+ * Snapshots are stored in primitive arrays and recycled by the Drivetrain, which alternates between two instances.
+ * A snapshot stays unchanged for the loop it was captured in and the loop after it; don't hold on to one longer.
+ *
+ * Each snapshot is logged as a binary record so the drivetrain's estimation can be replayed offline.
+ */
+public final class DrivetrainSnapshot implements LoggableInputs {
+
+  private double m_timestamp;
+  private Rotation2d m_gyroAngle = new Rotation2d();
+  private double m_gyroRateDegreesPerSecond;
+  private double m_accelerationX;
+  private double m_accelerationY;
+  private double m_accelerationZ;
+
+  // Module measurements in order FL, FR, RL, RR
+  private final double[] m_moduleDistancesMeters;
+  private final double[] m_moduleHeadingsRadians;
+  private final double[] m_moduleVelocitiesMetersPerSecond;
+
+  // Robot-relative vx, vy, omega
+  private final double[] m_chassisSpeeds = new double[3];
+
+  DrivetrainSnapshot(int moduleCount) {
+    m_moduleDistancesMeters = new double[moduleCount];
+    m_moduleHeadingsRadians = new double[moduleCount];
+    m_moduleVelocitiesMetersPerSecond = new double[moduleCount];
+  }
+
+  //#region Capture
+
+  void setGyro(
+    double timestamp,
+    Rotation2d gyroAngle,
+    double gyroRateDegreesPerSecond,
+    double accelerationX,
+    double accelerationY,
+    double accelerationZ
+  ) {
+    m_timestamp = timestamp;
+    m_gyroAngle = gyroAngle;
+    m_gyroRateDegreesPerSecond = gyroRateDegreesPerSecond;
+    m_accelerationX = accelerationX;
+    m_accelerationY = accelerationY;
+    m_accelerationZ = accelerationZ;
+  }
+
+  double[] moduleDistancesBuffer() {
+    return m_moduleDistancesMeters;
+  }
+
+  double[] moduleHeadingsBuffer() {
+    return m_moduleHeadingsRadians;
+  }
+
+  double[] moduleVelocitiesBuffer() {
+    return m_moduleVelocitiesMetersPerSecond;
+  }
+
+  double[] chassisSpeedsBuffer() {
+    return m_chassisSpeeds;
+  }
+
+  //#endregion
+
+  //#region Logging
+
+  @Override
+  public int getSizeBytes() {
+    return (9 + 3 * getModuleCount()) * Double.BYTES;
+  }
+
+  @Override
+  public void toBytes(ByteBuffer buffer) {
+    buffer.putDouble(m_timestamp);
+    buffer.putDouble(m_gyroAngle.getRadians());
+    buffer.putDouble(m_gyroRateDegreesPerSecond);
+    buffer.putDouble(m_accelerationX);
+    buffer.putDouble(m_accelerationY);
+    buffer.putDouble(m_accelerationZ);
+    for (var speed : m_chassisSpeeds) buffer.putDouble(speed);
+    for (int i = 0; i < getModuleCount(); i++) {
+      buffer.putDouble(m_moduleDistancesMeters[i]);
+      buffer.putDouble(m_moduleHeadingsRadians[i]);
+      buffer.putDouble(m_moduleVelocitiesMetersPerSecond[i]);
+    }
+  }
+
+  @Override
+  public void fromBytes(ByteBuffer buffer) {
+    m_timestamp = buffer.getDouble();
+    m_gyroAngle = new Rotation2d(buffer.getDouble());
+    m_gyroRateDegreesPerSecond = buffer.getDouble();
+    m_accelerationX = buffer.getDouble();
+    m_accelerationY = buffer.getDouble();
+    m_accelerationZ = buffer.getDouble();
+    for (int i = 0; i < m_chassisSpeeds.length; i++) m_chassisSpeeds[i] = buffer.getDouble();
+    for (int i = 0; i < getModuleCount(); i++) {
+      m_moduleDistancesMeters[i] = buffer.getDouble();
+      m_moduleHeadingsRadians[i] = buffer.getDouble();
+      m_moduleVelocitiesMetersPerSecond[i] = buffer.getDouble();
+    }
+  }
+
+  //#endregion
+
+  /**
+   * The FPGA timestamp the snapshot was captured at in seconds
+   */
+  public double getTimestamp() {
+    return m_timestamp;
+  }
+
+  /**
+   * The gyro angle, CCW+
+   */
+  public Rotation2d getGyroAngle() {
+    return m_gyroAngle;
+  }
+
+  /**
+   * The gyro yaw rate in degrees per second, CCW+
+   */
+  public double getGyroRateDegreesPerSecond() {
+    return m_gyroRateDegreesPerSecond;
+  }
+
+  /**
+   * The accelerations measured by the gyro in g
+   */
+  public double getAccelerationX() {
+    return m_accelerationX;
+  }
+
+  public double getAccelerationY() {
+    return m_accelerationY;
+  }
+
+  public double getAccelerationZ() {
+    return m_accelerationZ;
+  }
+
+  /**
+   * The measured robot-relative forward speed
+   */
+  public double getVxMetersPerSecond() {
+    return m_chassisSpeeds[0];
+  }
+
+  /**
+   * The measured robot-relative left speed
+   */
+  public double getVyMetersPerSecond() {
+    return m_chassisSpeeds[1];
+  }
+
+  /**
+   * The measured rotational speed, CCW+
+   */
+  public double getOmegaRadiansPerSecond() {
+    return m_chassisSpeeds[2];
+  }
+
+  /**
+   * The measured translational speed of the robot, regardless of direction
+   */
+  public double getLinearSpeedMetersPerSecond() {
+    return Math.hypot(m_chassisSpeeds[0], m_chassisSpeeds[1]);
+  }
+
+  public int getModuleCount() {
+    return m_moduleHeadingsRadians.length;
+  }
+
+  public double getModuleDistanceMeters(int module) {
+    return m_moduleDistancesMeters[module];
+  }
+
+  public double getModuleHeadingRadians(int module) {
+    return m_moduleHeadingsRadians[module];
+  }
+
+  public double getModuleVelocityMetersPerSecond(int module) {
+    return m_moduleVelocitiesMetersPerSecond[module];
+  }
+
+  /**
+   * Builds the measured robot-relative chassis speeds. Allocates.
+   */
+  public ChassisSpeeds getRobotRelativeSpeeds() {
+    return new ChassisSpeeds(m_chassisSpeeds[0], m_chassisSpeeds[1], m_chassisSpeeds[2]);
+  }
+}
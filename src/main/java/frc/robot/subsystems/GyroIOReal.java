@@ -0,0 +1,79 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.Pigeon2Configuration;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import prime.devices.CANBudget;
+import prime.devices.DeviceConfigService;
+import prime.devices.PhoenixDeviceConfig;
+
+/**
+ * A Pigeon 2.0
+ */
+public class GyroIOReal implements IGyroIO {
+
+  protected Pigeon2 m_gyro;
+
+  private StatusSignal<Double> m_yawSignal;
+  private StatusSignal<Double> m_rateSignal;
+  private StatusSignal<Double> m_accelerationXSignal;
+  private StatusSignal<Double> m_accelerationYSignal;
+  private StatusSignal<Double> m_accelerationZSignal;
+
+  /**
+   * Creates a new GyroIOReal
+   * @param odometryFrequencyHz How often the odometry thread samples the yaw
+   */
+  public GyroIOReal(int pigeonId, double odometryFrequencyHz) {
+    m_gyro = new Pigeon2(pigeonId);
+    DeviceConfigService.submit(PhoenixDeviceConfig.forPigeon2("Pigeon2", m_gyro, new Pigeon2Configuration()));
+
+    m_yawSignal = m_gyro.getYaw();
+    m_rateSignal = m_gyro.getAngularVelocityZWorld();
+    m_accelerationXSignal = m_gyro.getAccelerationX();
+    m_accelerationYSignal = m_gyro.getAccelerationY();
+    m_accelerationZSignal = m_gyro.getAccelerationZ();
+
+    // Only these signals are sent, see CANBudget
+    CANBudget.declarePhoenix("Pigeon2", m_gyro, odometryFrequencyHz, m_yawSignal);
+    CANBudget.declarePhoenix(
+      "Pigeon2",
+      m_gyro,
+      CANBudget.kLoopFrequencyHz,
+      m_rateSignal,
+      m_accelerationXSignal,
+      m_accelerationYSignal,
+      m_accelerationZSignal
+    );
+  }
+
+  @Override
+  public StatusSignal<Double> getYawSignal() {
+    return m_yawSignal;
+  }
+
+  @Override
+  public StatusSignal<Double> getRateSignal() {
+    return m_rateSignal;
+  }
+
+  @Override
+  public StatusSignal<Double> getAccelerationXSignal() {
+    return m_accelerationXSignal;
+  }
+
+  @Override
+  public StatusSignal<Double> getAccelerationYSignal() {
+    return m_accelerationYSignal;
+  }
+
+  @Override
+  public StatusSignal<Double> getAccelerationZSignal() {
+    return m_accelerationZSignal;
+  }
+
+  @Override
+  public void SetYaw(double degrees) {
+    m_gyro.setYaw(degrees);
+  }
+}
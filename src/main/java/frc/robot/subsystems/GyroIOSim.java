@@ -0,0 +1,44 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.sim.SimulatedField;
+
+/**
+ * Simulates the Pigeon 2.0 by integrating the chassis' angular velocity into the Pigeon2 sim state, so the yaw is read
+ * back through the same status signals as on the robot. SetYaw() still works, as an offset applied by the device.
+ *
+ * The chassis' true motion comes from the simulated field, which this advances by what the wheels produced, so the gyro
+ * follows what the robot really does rather than what the encoders report.
+ */
+public class GyroIOSim extends GyroIOReal {
+
+  private final SimulatedField m_field;
+  private double m_rawYawDegrees = 0;
+
+  public GyroIOSim(int pigeonId, double odometryFrequencyHz, SimulatedField field) {
+    super(pigeonId, odometryFrequencyHz);
+    m_field = field;
+  }
+
+  @Override
+  public void updateSimulation(ChassisSpeeds wheelSpeeds, double dtSeconds) {
+    m_field.update(Timer.getFPGATimestamp(), dtSeconds, wheelSpeeds);
+
+    var rateDegreesPerSecond = Units.radiansToDegrees(m_field.getTrueOmegaRadiansPerSecond());
+    m_rawYawDegrees += rateDegreesPerSecond * dtSeconds;
+
+    var simState = m_gyro.getSimState();
+    simState.setSupplyVoltage(RobotController.getBatteryVoltage());
+    simState.setRawYaw(m_rawYawDegrees);
+    simState.setAngularVelocityZ(rateDegreesPerSecond);
+  }
+
+  @Override
+  public void resetSimulatedPose(Pose2d pose) {
+    m_field.resetTruePose(pose);
+  }
+}
@@ -0,0 +1,48 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.StatusSignal;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * The drivetrain's gyro. Like ISwerveModuleIO, measurements are exposed as Phoenix status signals so the odometry
+ * thread can wait on the yaw together with the modules.
+ */
+public interface IGyroIO {
+  /**
+   * Gets the yaw signal, in degrees CCW+
+   */
+  public StatusSignal<Double> getYawSignal();
+
+  /**
+   * Gets the yaw rate signal, in degrees per second CCW+
+   */
+  public StatusSignal<Double> getRateSignal();
+
+  /**
+   * Gets the acceleration signals, in g
+   */
+  public StatusSignal<Double> getAccelerationXSignal();
+
+  public StatusSignal<Double> getAccelerationYSignal();
+
+  public StatusSignal<Double> getAccelerationZSignal();
+
+  /**
+   * Sets the current yaw in degrees
+   */
+  public void SetYaw(double degrees);
+
+  /**
+   * Advances the simulated robot by the chassis motion its wheels produced, and the gyro by how much it really turned.
+   * Does nothing on a real robot.
+   * @param wheelSpeeds The robot-relative chassis speeds the simulated wheels produced
+   * @param dtSeconds The time since the last update
+   */
+  public default void updateSimulation(ChassisSpeeds wheelSpeeds, double dtSeconds) {}
+
+  /**
+   * Places the simulated robot where odometry is being reset to. Does nothing on a real robot.
+   */
+  public default void resetSimulatedPose(Pose2d pose) {}
+}
@@ -0,0 +1,74 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.StatusSignal;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import prime.control.PrimePIDConstants;
+
+/**
+ * The devices of one swerve module. Measurements are exposed as Phoenix status signals rather than an inputs object,
+ * because the drivetrain's odometry thread waits on them together with the gyro's.
+ */
+public interface ISwerveModuleIO {
+  /**
+   * Gets the drive motor's position signal, in rotations of the motor shaft
+   */
+  public StatusSignal<Double> getDrivePositionSignal();
+
+  /**
+   * Gets the drive motor's velocity signal, in rotations of the motor shaft per second
+   */
+  public StatusSignal<Double> getDriveVelocitySignal();
+
+  /**
+   * Gets the CANcoder's position signal, in module rotations from 0 to 1
+   */
+  public StatusSignal<Double> getEncoderPositionSignal();
+
+  /**
+   * Runs closed-loop velocity control on the drive motor
+   * @param rotationsPerSecond The velocity of the motor shaft
+   */
+  public void SetDriveVelocity(double rotationsPerSecond);
+
+  /**
+   * Sets the steering motor's duty cycle, for when the steering loop runs on the RIO
+   */
+  public void SetSteeringOutput(double output);
+
+  /**
+   * Configures the steering motor controller to run position control itself, in module rotations
+   * @return Whether every setting was applied. If not, steering falls back to the RIO.
+   */
+  public boolean ConfigureOnboardSteering(PrimePIDConstants pid);
+
+  /**
+   * Sets the onboard steering position setpoint, in module rotations from 0 to 1
+   */
+  public void SetSteeringPosition(double rotations);
+
+  /**
+   * Overwrites the steering motor's relative position, in module rotations
+   * @return Whether the position was applied
+   */
+  public boolean SeedSteeringPosition(double rotations);
+
+  /**
+   * Gets the steering motor's relative position in module rotations
+   */
+  public double getSteeringPosition();
+
+  /**
+   * Gets the steering motor's velocity in module rotations per second
+   */
+  public double getSteeringVelocity();
+
+  public void StopMotors();
+
+  /**
+   * Advances the simulated module and writes its resulting wheel speed and heading into the given state. Does
+   * nothing on a real robot.
+   * @param dtSeconds The time since the last update
+   * @param state Output for the module's simulated state
+   */
+  public default void updateSimulation(double dtSeconds, SwerveModuleState state) {}
+}
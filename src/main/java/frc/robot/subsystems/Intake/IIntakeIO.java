@@ -1,10 +1,13 @@
 package frc.robot.subsystems.Intake;
 
+import java.nio.ByteBuffer;
+import prime.replay.LoggableInputs;
+
 //import org.littletonrobotics.junction.AutoLog;
 
 public interface IIntakeIO {
     //@AutoLog
-    public static class IntakeIOInputs {
+    public static class IntakeIOInputs implements LoggableInputs {
 
         public boolean m_topLimitSwitchState;
         public boolean m_bottomLimitSwitchState;
@@ -18,6 +21,34 @@ public interface IIntakeIO {
 
         public double m_anglePidOutput;
 
+        @Override
+        public int getSizeBytes() {
+            return 2 + 6 * Double.BYTES;
+        }
+
+        @Override
+        public void toBytes(ByteBuffer buffer) {
+            buffer.put((byte) (m_topLimitSwitchState ? 1 : 0));
+            buffer.put((byte) (m_bottomLimitSwitchState ? 1 : 0));
+            buffer.putDouble(m_angleLeftPosition);
+            buffer.putDouble(m_angleRightPosition);
+            buffer.putDouble(m_angleLeftState);
+            buffer.putDouble(m_angleRightState);
+            buffer.putDouble(m_rollersState);
+            buffer.putDouble(m_anglePidOutput);
+        }
+
+        @Override
+        public void fromBytes(ByteBuffer buffer) {
+            m_topLimitSwitchState = buffer.get() != 0;
+            m_bottomLimitSwitchState = buffer.get() != 0;
+            m_angleLeftPosition = buffer.getDouble();
+            m_angleRightPosition = buffer.getDouble();
+            m_angleLeftState = buffer.getDouble();
+            m_angleRightState = buffer.getDouble();
+            m_rollersState = buffer.getDouble();
+            m_anglePidOutput = buffer.getDouble();
+        }
     }
 
     //@AutoLog
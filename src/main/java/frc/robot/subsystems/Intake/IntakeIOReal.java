@@ -7,7 +7,9 @@ import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.filter.Debouncer;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import prime.devices.CANBudget;
+import prime.devices.DeviceConfigService;
+import prime.devices.SparkMaxDeviceConfig;
 import prime.movers.LazyCANSparkMax;
 
 public class IntakeIOReal implements IIntakeIO {
@@ -27,8 +29,42 @@ public class IntakeIOReal implements IIntakeIO {
     private Debouncer m_angleToggleDebouncer = new Debouncer(0.1, Debouncer.DebounceType.kBoth);
 
     public IntakeIOReal() {
-
-
+        m_rollers = new LazyCANSparkMax(IntakeSubsystem.VMap.ROLLER_CAN_ID, MotorType.kBrushless);
+        DeviceConfigService.submit(
+            new SparkMaxDeviceConfig("Intake/Rollers", m_rollers)
+                .withInverted(IntakeSubsystem.VMap.ROLLERS_INVERTED));
+
+        m_angleLeft = new LazyCANSparkMax(IntakeSubsystem.VMap.NEO_LEFT_CAN_ID, MotorType.kBrushless);
+        DeviceConfigService.submit(
+            new SparkMaxDeviceConfig("Intake/AngleLeft", m_angleLeft)
+                .withInverted(IntakeSubsystem.VMap.NEO_LEFT_INVERTED));
+
+        m_angleRight = new LazyCANSparkMax(IntakeSubsystem.VMap.NEO_RIGHT_CAN_ID, MotorType.kBrushless);
+        DeviceConfigService.submit(
+            new SparkMaxDeviceConfig("Intake/AngleRight", m_angleRight)
+                .withInverted(IntakeSubsystem.VMap.NEO_RIGHT_INVERTED));
+
+        // Only the angle motors' positions are read, see CANBudget
+        CANBudget.declareSparkMax(
+            "Intake/Rollers",
+            m_rollers,
+            CANBudget.kSparkUnusedPeriodMs,
+            CANBudget.kSparkUnusedPeriodMs);
+        CANBudget.declareSparkMax(
+            "Intake/AngleLeft",
+            m_angleLeft,
+            CANBudget.kSparkUnusedPeriodMs,
+            CANBudget.kLoopPeriodMs);
+        CANBudget.declareSparkMax(
+            "Intake/AngleRight",
+            m_angleRight,
+            CANBudget.kSparkUnusedPeriodMs,
+            CANBudget.kLoopPeriodMs);
+
+        m_anglePid = IntakeSubsystem.VMap.INTAKE_ANGLE_PID.createPIDController(0.02);
+
+        m_topLimitSwitch = new DigitalInput(IntakeSubsystem.VMap.TOP_LIMIT_SWITCH_CHANNEL);
+        m_bottomLimitSwitch = new DigitalInput(IntakeSubsystem.VMap.BOTTOM_LIMIT_SWITCH_CHANNEL);
     }
 
     @Override
@@ -52,7 +88,8 @@ public class IntakeIOReal implements IIntakeIO {
 
     @Override
     public void setOutputs(IntakeIOOutputs outputs) {
-        var inputs = getInputs();
+        // The angle PID in getInputs() seeks the setpoint from these outputs
+        intakeOutputs = outputs;
     }
 
     @Override
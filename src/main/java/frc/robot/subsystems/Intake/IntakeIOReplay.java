@@ -0,0 +1,37 @@
+package frc.robot.subsystems.Intake;
+
+import prime.replay.ReplayLog;
+
+/**
+ * Feeds recorded inputs back to the subsystem during replay. Outputs go nowhere.
+ */
+public class IntakeIOReplay implements IIntakeIO {
+
+    private final ReplayLog.Entry m_entry;
+    private final IntakeIOInputs m_inputs = new IntakeIOInputs();
+
+    public IntakeIOReplay(ReplayLog.Entry entry) {
+        m_entry = entry;
+    }
+
+    @Override
+    public IntakeIOInputs getInputs() {
+        m_entry.next(m_inputs);
+        return m_inputs;
+    }
+
+    @Override
+    public void setOutputs(IntakeIOOutputs outputs) {}
+
+    @Override
+    public void StopMotors() {}
+
+    @Override
+    public void StopRollers() {}
+
+    @Override
+    public void RunIntakeRollers(double speed) {}
+
+    @Override
+    public void SetAngleMotorSpeed(double speed) {}
+}
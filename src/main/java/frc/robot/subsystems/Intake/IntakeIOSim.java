@@ -1,41 +1,149 @@
 package frc.robot.subsystems.Intake;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+
+/**
+ * Simulates the intake: the arm as a single jointed arm driven by both angle NEOs, with limit switches at either end
+ * of its travel, and the rollers. The arm starts stowed, against the top limit switch, and POSITION_DELTA rotations of
+ * the motor shaft take it down to the ground.
+ *
+ * A note is picked up once the rollers have run inwards with the arm on the ground for a moment, as if one were always
+ * there when an auto reaches it. Running the rollers outwards with the arm stowed hands the note to the shooter through
+ * the handoff callback, e.g. ShooterIOSim::loadNote.
+ *
+ * The physics are advanced in getInputs(), which the subsystem calls once per loop, by the time since the last call.
+ */
 public class IntakeIOSim implements IIntakeIO {
 
+    private static final double kStowedAngleRadians = Units.degreesToRadians(110);
+    private static final double kGroundAngleRadians = Units.degreesToRadians(-40);
+    private static final double kArmLengthMeters = 0.35;
+    private static final double kArmMassKg = 3.0;
+    private static final double kLimitSwitchToleranceRadians = Units.degreesToRadians(1);
+    private static final double kNotePickupSeconds = 0.2;
+    private static final double kNoteHandoffSeconds = 0.1;
+    private static final double kHandoffToleranceRadians = Units.degreesToRadians(10);
+
+    // Motor rotations per arm rotation, so that POSITION_DELTA motor rotations cover the arm's travel
+    private static final double kGearing =
+        IntakeSubsystem.VMap.POSITION_DELTA / Units.radiansToRotations(kStowedAngleRadians - kGroundAngleRadians);
+
+    private SingleJointedArmSim m_arm;
+    private PIDController m_anglePid;
+    private final Runnable m_noteHandoff;
+
+    private double m_angleOutput = 0;
+    private double m_rollersOutput = 0;
+    private double m_lastTimestamp = Double.NaN;
+
+    // The robot starts with its note preloaded in the shooter
+    private boolean m_hasNote = false;
+    private double m_noteRollerSeconds = 0;
+
+    private IntakeIOInputs m_inputs = new IntakeIOInputs();
+    private IntakeIOOutputs intakeOutputs = new IntakeIOOutputs();
+
+    public IntakeIOSim() {
+        this(() -> {});
+    }
+
+    /**
+     * Creates the intake sim
+     * @param noteHandoff Called when the intake hands its note to the shooter
+     */
+    public IntakeIOSim(Runnable noteHandoff) {
+        m_noteHandoff = noteHandoff;
+        m_arm =
+          new SingleJointedArmSim(
+            DCMotor.getNEO(2),
+            kGearing,
+            SingleJointedArmSim.estimateMOI(kArmLengthMeters, kArmMassKg),
+            kArmLengthMeters,
+            kGroundAngleRadians,
+            kStowedAngleRadians,
+            true,
+            kStowedAngleRadians
+          );
+
+        m_anglePid = IntakeSubsystem.VMap.INTAKE_ANGLE_PID.createPIDController(0.02);
+    }
+
     @Override
     public IntakeIOInputs getInputs() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getInputs'");
+        var timestamp = Timer.getFPGATimestamp();
+        var dt = Double.isNaN(m_lastTimestamp) ? 0 : timestamp - m_lastTimestamp;
+        m_lastTimestamp = timestamp;
+
+        if (dt > 0) {
+            m_arm.setInputVoltage(m_angleOutput * RobotController.getBatteryVoltage());
+            m_arm.update(dt);
+            updateNote(dt);
+        }
+
+        // The right encoder reads positive towards stowed, and the left motor turns the other way
+        var position = Units.radiansToRotations(m_arm.getAngleRads() - kStowedAngleRadians) * kGearing;
+        m_inputs.m_angleRightPosition = position;
+        m_inputs.m_angleLeftPosition = -position;
+
+        m_inputs.m_angleRightState = m_angleOutput;
+        m_inputs.m_angleLeftState = -m_angleOutput;
+        m_inputs.m_rollersState = m_rollersOutput;
+
+        m_inputs.m_topLimitSwitchState = m_arm.getAngleRads() >= kStowedAngleRadians - kLimitSwitchToleranceRadians;
+        m_inputs.m_bottomLimitSwitchState = m_arm.getAngleRads() <= kGroundAngleRadians + kLimitSwitchToleranceRadians;
+
+        m_inputs.m_anglePidOutput = m_anglePid.calculate(position, intakeOutputs.m_angleToggledIn ? intakeOutputs.m_angleStartPoint : (intakeOutputs.m_angleStartPoint - IntakeSubsystem.VMap.POSITION_DELTA));
+
+        return m_inputs;
+    }
+
+    // Picks a note up off the ground, or hands it to the shooter, once the rollers have run long enough
+    private void updateNote(double dt) {
+        var angle = m_arm.getAngleRads();
+        var picking = !m_hasNote && m_rollersOutput > 0 && angle <= kGroundAngleRadians + kHandoffToleranceRadians;
+        var handing = m_hasNote && m_rollersOutput < 0 && angle >= kStowedAngleRadians - kHandoffToleranceRadians;
+        if (!picking && !handing) {
+            m_noteRollerSeconds = 0;
+            return;
+        }
+
+        m_noteRollerSeconds += dt * Math.abs(m_rollersOutput);
+        if (m_noteRollerSeconds < (picking ? kNotePickupSeconds : kNoteHandoffSeconds)) return;
+
+        m_noteRollerSeconds = 0;
+        m_hasNote = !m_hasNote;
+        if (handing) m_noteHandoff.run();
     }
 
     @Override
     public void setOutputs(IntakeIOOutputs outputs) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'setOutputs'");
+        // The angle PID in getInputs() seeks the setpoint from these outputs
+        intakeOutputs = outputs;
     }
 
     @Override
     public void StopMotors() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'StopMotors'");
+        m_angleOutput = 0;
     }
 
     @Override
     public void StopRollers() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'StopRollers'");
+        m_rollersOutput = 0;
     }
 
     @Override
     public void RunIntakeRollers(double speed) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'runIntakeRollers'");
+        m_rollersOutput = MathUtil.clamp(speed, -1, 1);
     }
 
     @Override
     public void SetAngleMotorSpeed(double speed) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'setAngleMotorSpeed'");
+        m_angleOutput = MathUtil.clamp(speed, -1, 1);
     }
-    
 }
@@ -5,7 +5,6 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.filter.Debouncer;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
@@ -18,6 +17,12 @@ import java.util.function.DoubleSupplier;
 
 import prime.control.PrimePIDConstants;
 import prime.movers.LazyCANSparkMax;
+import prime.replay.InputsLogger;
+import prime.telemetry.BooleanTelemetry;
+import prime.telemetry.DoubleTelemetry;
+import prime.telemetry.TelemetryLevel;
+import prime.telemetry.TelemetryRegistry;
+import prime.utilities.LoopProfiler;
 
 public class IntakeSubsystem extends SubsystemBase {
   public class VMap {
@@ -41,21 +46,57 @@ public class IntakeSubsystem extends SubsystemBase {
   private IIntakeIO intakeIO;
   private IntakeIOInputs intakeInputs = new IntakeIOInputs();
   private IntakeIOOutputs intakeOutputs = new IntakeIOOutputs();
+  private InputsLogger m_inputsLogger;
+
+  // Telemetry, published under SmartDashboard/Intake
+  private final TelemetryRegistry m_telemetry = new TelemetryRegistry("Intake");
+  private final DoubleTelemetry t_angleSetpoint = m_telemetry
+    .addDouble("AngleSetpoint", TelemetryLevel.Debug)
+    .withDeadband(0.01);
+  private final DoubleTelemetry t_anglePidOutput = m_telemetry
+    .addDouble("AnglePIDOutput", TelemetryLevel.Debug)
+    .withDeadband(0.01);
+  private final BooleanTelemetry t_toggledIn = m_telemetry.addBoolean("ToggledIn", TelemetryLevel.Competition);
+  private final DoubleTelemetry t_armPositionRight = m_telemetry
+    .addDouble("ArmPositionRight", TelemetryLevel.Practice)
+    .withDeadband(0.01);
+  private final DoubleTelemetry t_armPositionLeft = m_telemetry
+    .addDouble("ArmPositionLeft", TelemetryLevel.Practice)
+    .withDeadband(0.01);
+  private final DoubleTelemetry t_rightMotorOutput = m_telemetry
+    .addDouble("RightMotorOutput", TelemetryLevel.Debug)
+    .withDeadband(0.01);
+  private final DoubleTelemetry t_leftMotorOutput = m_telemetry
+    .addDouble("LeftMotorOutput", TelemetryLevel.Debug)
+    .withDeadband(0.01);
+  private final DoubleTelemetry t_rollersOutput = m_telemetry
+    .addDouble("RollersOutput", TelemetryLevel.Practice)
+    .withDeadband(0.01);
+
+  private final LoopProfiler.Section m_loopTiming = LoopProfiler.getSection("Subsystems/Intake");
 
   /**
    * Creates a new Intake subsystem
    * @param robotConfig
    */
-
-   
-
   public IntakeSubsystem(boolean isReal) {
+    this(isReal ? new IntakeIOReal() : new IntakeIOSim());
+  }
+
+  /**
+   * Creates a new Intake subsystem with the given IO, e.g. an IntakeIOReplay
+   * @param io
+   */
+  public IntakeSubsystem(IIntakeIO io) {
     setName("Intake");
-    if (isReal) {
-      intakeIO = new IntakeIOReal();
-    } else {
-      intakeIO = new IntakeIOSim();
-    }
+    intakeIO = io;
+    m_inputsLogger = new InputsLogger("Intake", intakeInputs);
+
+    // The arm starts in its stowed position, which the other setpoints are relative to
+    intakeInputs = intakeIO.getInputs();
+    m_inputsLogger.log(intakeInputs);
+    intakeOutputs.m_angleStartPoint = intakeInputs.m_angleRightPosition;
+
     // Set the default command for the subsystem so that it runs the PID loop
     setDefaultCommand(seekAngleSetpointCommand());
   }
@@ -103,10 +144,10 @@ public class IntakeSubsystem extends SubsystemBase {
   public void setIntakeRotation() {
     var currentPosition = intakeInputs.m_angleRightPosition;
     var setpoint = intakeOutputs.m_angleToggledIn ? intakeOutputs.m_angleStartPoint : (intakeOutputs.m_angleStartPoint - VMap.POSITION_DELTA);
-    SmartDashboard.putNumber("Intake/AngleSetpoint", setpoint);
+    t_angleSetpoint.set(setpoint);
 
     var pidOutput = intakeInputs.m_anglePidOutput;
-    SmartDashboard.putNumber("Intake/AnglePIDOutput", pidOutput);
+    t_anglePidOutput.set(pidOutput);
 
     // artificial limits
     if (currentPosition < intakeOutputs.m_angleStartPoint && pidOutput > 0 && !intakeInputs.m_topLimitSwitchState) {
@@ -124,19 +165,24 @@ public class IntakeSubsystem extends SubsystemBase {
 
   @Override
   public void periodic() {
+    m_loopTiming.start();
+
     intakeIO.setOutputs(intakeOutputs);
     intakeInputs = intakeIO.getInputs();
+    m_inputsLogger.log(intakeInputs);
 
     // Level2 Logging
-    SmartDashboard.putBoolean("Intake/ToggledIn", intakeOutputs.m_angleToggledIn);
+    t_toggledIn.set(intakeOutputs.m_angleToggledIn);
+
+    t_armPositionRight.set(getPositionRight());
+    t_armPositionLeft.set(getPositionLeft());
 
-    SmartDashboard.putNumber("Intake/ArmPositionRight", getPositionRight());
-    SmartDashboard.putNumber("Intake/ArmPositionLeft", getPositionLeft());
+    t_rightMotorOutput.set(intakeInputs.m_angleRightState);
+    t_leftMotorOutput.set(intakeInputs.m_angleLeftState);
 
-    SmartDashboard.putNumber("Intake/RightMotorOutput", intakeInputs.m_angleRightState);
-    SmartDashboard.putNumber("Intake/LeftMotorOutput", intakeInputs.m_angleLeftState);
+    t_rollersOutput.set(intakeInputs.m_rollersState);
 
-    SmartDashboard.putNumber("Intake/RollersOutput", intakeInputs.m_rollersState);
+    m_loopTiming.stop();
   }
 
   //#region Commands
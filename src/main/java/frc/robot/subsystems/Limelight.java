@@ -9,27 +9,96 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import prime.physics.LimelightPose;
+import prime.telemetry.DoubleTelemetry;
+import prime.telemetry.TelemetryLevel;
+import prime.telemetry.TelemetryRegistry;
+import prime.utilities.LoopProfiler;
 
 public class Limelight extends SubsystemBase implements AutoCloseable {
 
+  private static final double[] kEmptyArray = new double[0];
+  private static final LimelightPose[] kNoPoses = new LimelightPose[0];
+
   private NetworkTable m_limelightTable;
   private ExecutorService m_executorService = Executors.newSingleThreadExecutor();
 
+  // Cached subscribers, so reads don't look up topics by name
+  private DoubleSubscriber m_txSubscriber;
+  private DoubleSubscriber m_tySubscriber;
+  private DoubleSubscriber m_taSubscriber;
+  private DoubleSubscriber m_tlSubscriber;
+  private DoubleSubscriber m_clSubscriber;
+  private DoubleSubscriber m_tidSubscriber;
+  private DoubleArraySubscriber m_botPoseSubscriber;
+  private DoubleArraySubscriber m_botPoseRedSubscriber;
+  private DoubleArraySubscriber m_botPoseTargetSpaceSubscriber;
+  private DoubleArraySubscriber m_cameraPoseTargetSpaceSubscriber;
+  private DoubleArraySubscriber m_cameraPoseRobotSpaceSubscriber;
+  private DoubleArraySubscriber m_targetPoseCameraSpaceSubscriber;
+  private DoubleArraySubscriber m_targetPoseRobotSpaceSubscriber;
+
+  // Queues every botpose_wpiblue frame published between reads
+  private DoubleArraySubscriber m_botPoseBlueSubscriber;
+  private double m_lastFrameTimestamp = Double.NEGATIVE_INFINITY;
+
+  // Telemetry, published under SmartDashboard/Limelight
+  private final TelemetryRegistry m_telemetry = new TelemetryRegistry("Limelight");
+  private final DoubleTelemetry t_primaryTargetId = m_telemetry.addDouble("PrimaryTargetID", TelemetryLevel.Practice);
+  private final DoubleTelemetry t_horizontalOffset = m_telemetry
+    .addDouble("HorizontalOffset", TelemetryLevel.Practice)
+    .withDeadband(0.1);
+
+  private final LoopProfiler.Section m_loopTiming;
+
   /**
    * Creates a new Limelight subsystem and sets the camera's pose in the coordinate system of the robot.
    * @param cameraPose
    */
   public Limelight(String tableName) {
     m_limelightTable = NetworkTableInstance.getDefault().getTable(tableName);
+    m_loopTiming = LoopProfiler.getSection("Subsystems/" + tableName);
+
+    m_txSubscriber = m_limelightTable.getDoubleTopic("tx").subscribe(0.0);
+    m_tySubscriber = m_limelightTable.getDoubleTopic("ty").subscribe(0.0);
+    m_taSubscriber = m_limelightTable.getDoubleTopic("ta").subscribe(0.0);
+    m_tlSubscriber = m_limelightTable.getDoubleTopic("tl").subscribe(0.0);
+    m_clSubscriber = m_limelightTable.getDoubleTopic("cl").subscribe(0.0);
+    m_tidSubscriber = m_limelightTable.getDoubleTopic("tid").subscribe(-1);
+    m_botPoseSubscriber = m_limelightTable.getDoubleArrayTopic("botpose").subscribe(kEmptyArray);
+    m_botPoseRedSubscriber = m_limelightTable.getDoubleArrayTopic("botpose_wpired").subscribe(kEmptyArray);
+    m_botPoseTargetSpaceSubscriber =
+      m_limelightTable.getDoubleArrayTopic("botpose_targetspace").subscribe(kEmptyArray);
+    m_cameraPoseTargetSpaceSubscriber =
+      m_limelightTable.getDoubleArrayTopic("camerapose_targetspace").subscribe(kEmptyArray);
+    m_cameraPoseRobotSpaceSubscriber =
+      m_limelightTable.getDoubleArrayTopic("camerapose_robotspace").subscribe(kEmptyArray);
+    m_targetPoseCameraSpaceSubscriber =
+      m_limelightTable.getDoubleArrayTopic("targetpose_cameraspace").subscribe(kEmptyArray);
+    m_targetPoseRobotSpaceSubscriber =
+      m_limelightTable.getDoubleArrayTopic("targetpose_robotspace").subscribe(kEmptyArray);
+
+    // Keep every update, including repeated values, so each frame can be read exactly once
+    m_botPoseBlueSubscriber =
+      m_limelightTable
+        .getDoubleArrayTopic("botpose_wpiblue")
+        .subscribe(
+          kEmptyArray,
+          PubSubOption.sendAll(true),
+          PubSubOption.keepDuplicates(true),
+          PubSubOption.pollStorage(20)
+        );
   }
 
   //#region Basic Targeting Data
@@ -38,35 +107,35 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
    * Returns Horizontal Offset From Crosshair To Target (LL1: -27 degrees to 27 degrees / LL2: -29.8 to 29.8 degrees)
    */
   public Rotation2d getHorizontalOffsetFromTarget() {
-    return Rotation2d.fromDegrees(m_limelightTable.getEntry("tx").getDouble(0.0));
+    return Rotation2d.fromDegrees(m_txSubscriber.get());
   }
 
   /**
    * Returns Vertical Offset From Crosshair To Target (LL1: -20.5 degrees to 20.5 degrees / LL2: -24.85 to 24.85 degrees)
    */
   public Rotation2d getVerticalOffsetFromTarget() {
-    return Rotation2d.fromDegrees(m_limelightTable.getEntry("ty").getDouble(0.0));
+    return Rotation2d.fromDegrees(m_tySubscriber.get());
   }
 
   /**
    * Returns Target Area (0% of image to 100% of image)
    */
   public double getTargetArea() {
-    return m_limelightTable.getEntry("ta").getDouble(0.0);
+    return m_taSubscriber.get();
   }
 
   /**
    * The pipeline's latency contribution (ms). Add to "cl" to get total latency.
    */
   public long getPipelineLatencyMs() {
-    return (long) m_limelightTable.getEntry("tl").getDouble(0.0);
+    return (long) m_tlSubscriber.get();
   }
 
   /**
    * Capture pipeline latency (ms). Time between the end of the exposure of the middle row of the sensor to the beginning of the tracking pipeline.
    */
   public long getCapturePipelineLatencyMs() {
-    return (long) m_limelightTable.getEntry("cl").getDouble(0.0);
+    return (long) m_clSubscriber.get();
   }
 
   /**
@@ -77,6 +146,21 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
     return getPipelineLatencyMs() + getCapturePipelineLatencyMs();
   }
 
+  /**
+   * Returns the FPGA timestamp in seconds at which the current targeting data was captured: the time the pipeline
+   * latency was published, minus the capture and pipeline latency
+   */
+  public double getTargetTimestamp() {
+    // NT timestamps are in microseconds on the same clock as the FPGA timestamp
+    var pipelineLatency = m_tlSubscriber.getAtomic();
+    var latencySeconds = (pipelineLatency.value + m_clSubscriber.get()) / 1000.0;
+
+    // Nothing has been published yet
+    if (pipelineLatency.timestamp == 0) return Timer.getFPGATimestamp() - latencySeconds;
+
+    return (pipelineLatency.timestamp / 1e6) - latencySeconds;
+  }
+
   //#endregion
 
   //#region AprilTag and 3D Data
@@ -85,7 +169,7 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
    * ID of the primary in-view AprilTag
    */
   public int getApriltagId() {
-    return (int) m_limelightTable.getEntry("tid").getDouble(-1);
+    return (int) m_tidSubscriber.get();
   }
 
   /**
@@ -94,18 +178,16 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
    */
   public double getTagCount() {
     // Robot transform in field-space. Translation (X,Y,Z) in meters Rotation(Roll,Pitch,Yaw) in degrees, total latency (cl+tl), tag count, tag span, average tag distance from camera, average tag area (percentage of image)
-    var botPose = m_limelightTable.getEntry("botpose").getDoubleArray(new double[11]);
+    var botPose = m_botPoseSubscriber.get();
 
-    return botPose[7];
+    return botPose.length > 7 ? botPose[7] : 0;
   }
 
   /**
    * Robot transform in field-space.
    */
   public LimelightPose getRobotPose() {
-    var poseData = m_limelightTable.getEntry("botpose").getDoubleArray(new double[11]); // Translation (X,Y,Z) Rotation(Roll,Pitch,Yaw)
-
-    return new LimelightPose(poseData, calculateTrust(poseData[7]));
+    return toLimelightPose(m_botPoseSubscriber.get());
   }
 
   /**
@@ -113,63 +195,88 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
    * @param alliance
    */
   public LimelightPose getRobotPose(DriverStation.Alliance alliance) {
-    var poseData = alliance == Alliance.Blue
-      ? m_limelightTable.getEntry("botpose_wpiblue").getDoubleArray(new double[11])
-      : m_limelightTable.getEntry("botpose_wpired").getDoubleArray(new double[11]);
+    var poseData = alliance == Alliance.Blue ? m_botPoseBlueSubscriber.get() : m_botPoseRedSubscriber.get();
 
-    return new LimelightPose(poseData, calculateTrust(poseData[7]));
+    return toLimelightPose(poseData);
+  }
+
+  /**
+   * Reads every robot transform in field-space (blue driverstation WPILIB origin) published since the last call, oldest
+   * first. Each frame is returned once, timestamped from its NetworkTables publish time minus its capture and pipeline
+   * latency. Frames without any tags are skipped.
+   */
+  public LimelightPose[] readNewRobotPoses() {
+    var frames = m_botPoseBlueSubscriber.readQueue();
+    if (frames.length == 0) return kNoPoses;
+
+    var poses = new LimelightPose[frames.length];
+    var count = 0;
+    for (var frame : frames) {
+      var data = frame.value;
+      if (data.length < 11 || data[7] < 1) continue;
+
+      // NT timestamps are in microseconds on the same clock as the FPGA timestamp; botpose[6] is cl + tl in ms
+      var timestamp = (frame.timestamp / 1e6) - (data[6] / 1000.0);
+      if (timestamp <= m_lastFrameTimestamp) continue;
+
+      m_lastFrameTimestamp = timestamp;
+      poses[count++] = new LimelightPose(data, timestamp, calculateTrust(data[7]));
+    }
+
+    if (count == poses.length) return poses;
+
+    var trimmed = new LimelightPose[count];
+    System.arraycopy(poses, 0, trimmed, 0, count);
+    return trimmed;
   }
 
   /**
    * 3D transform of the robot in the coordinate system of the primary in-view AprilTag
    */
   public LimelightPose getRobotPoseInTargetSpace() {
-    var poseData = m_limelightTable.getEntry("botpose_targetspace").getDoubleArray(new double[11]); // Translation (X,Y,Z) Rotation(Roll,Pitch,Yaw)
-
-    return new LimelightPose(poseData, calculateTrust(poseData[7]));
+    return toLimelightPose(m_botPoseTargetSpaceSubscriber.get());
   }
 
   /**
    * 3D transform of the camera in the coordinate system of the primary in-view AprilTag
    */
   public LimelightPose getCameraPoseInTargetSpace() {
-    var poseData = m_limelightTable.getEntry("camerapose_targetspace").getDoubleArray(new double[11]); // Translation (X,Y,Z) Rotation(Roll,Pitch,Yaw)
-
-    return new LimelightPose(poseData, calculateTrust(poseData[7]));
+    return toLimelightPose(m_cameraPoseTargetSpaceSubscriber.get());
   }
 
   /**
    * 3D transform of the camera in the coordinate system of the robot
    */
   public LimelightPose getCameraPoseInRobotSpace() {
-    var poseData = m_limelightTable.getEntry("camerapose_robotspace").getDoubleArray(new double[11]); // Translation (X,Y,Z) Rotation(Roll,Pitch,Yaw)
-
-    return new LimelightPose(poseData, calculateTrust(poseData[7]));
+    return toLimelightPose(m_cameraPoseRobotSpaceSubscriber.get());
   }
 
   /**
    * 3D transform of the primary in-view AprilTag in the coordinate system of the Camera
    */
   public LimelightPose getTargetPoseInCameraSpace() {
-    var poseData = m_limelightTable.getEntry("targetpose_cameraspace").getDoubleArray(new double[11]); // Translation (X,Y,Z) Rotation(Roll,Pitch,Yaw)
-
-    return new LimelightPose(poseData, calculateTrust(poseData[7]));
+    return toLimelightPose(m_targetPoseCameraSpaceSubscriber.get());
   }
 
   /**
    * 3D transform of the primary in-view AprilTag in the coordinate system of the Robot
    */
   public LimelightPose getTargetPoseInRobotSpace() {
-    var poseData = m_limelightTable.getEntry("targetpose_robotspace").getDoubleArray(new double[11]); // Translation (X,Y,Z) Rotation(Roll,Pitch,Yaw)
+    return toLimelightPose(m_targetPoseRobotSpaceSubscriber.get());
+  }
 
-    return new LimelightPose(poseData, calculateTrust(poseData[7]));
+  /**
+   * Wraps the latest value of a pose array, with a trust level based on its tag count
+   */
+  private LimelightPose toLimelightPose(double[] poseData) {
+    return new LimelightPose(poseData, calculateTrust(poseData.length > 7 ? poseData[7] : 0));
   }
 
   /**
    * Calculates a trust value based on the number of tags in view.
    * @return
    */
-  public Matrix<N3, N1> calculateTrust(double tagCount) {
+  public static Matrix<N3, N1> calculateTrust(double tagCount) {
     // Trust level is a function of the number of tags in view
     // var trustLevel = 0.490956d + Math.pow(9998.51d, -(6.95795d * tagCount));
 
@@ -279,9 +386,13 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
   //#endregion
 
   public void periodic() {
+    m_loopTiming.start();
+
     // Level2 logging
-    SmartDashboard.putNumber("Limelight/PrimaryTargetID", getApriltagId());
-    SmartDashboard.putNumber("Limelight/HorizontalOffset", getHorizontalOffsetFromTarget().getDegrees());
+    t_primaryTargetId.set(getApriltagId());
+    t_horizontalOffset.set(getHorizontalOffsetFromTarget().getDegrees());
+
+    m_loopTiming.stop();
   }
 
   public boolean isSpeakerCenterTarget(int apriltagId) {
@@ -294,5 +405,19 @@ public class Limelight extends SubsystemBase implements AutoCloseable {
 
   public void close() {
     m_executorService.shutdown();
+    m_txSubscriber.close();
+    m_tySubscriber.close();
+    m_taSubscriber.close();
+    m_tlSubscriber.close();
+    m_clSubscriber.close();
+    m_tidSubscriber.close();
+    m_botPoseSubscriber.close();
+    m_botPoseBlueSubscriber.close();
+    m_botPoseRedSubscriber.close();
+    m_botPoseTargetSpaceSubscriber.close();
+    m_cameraPoseTargetSpaceSubscriber.close();
+    m_cameraPoseRobotSpaceSubscriber.close();
+    m_targetPoseCameraSpaceSubscriber.close();
+    m_targetPoseRobotSpaceSubscriber.close();
   }
 }
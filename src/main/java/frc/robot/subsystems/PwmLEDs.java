@@ -7,6 +7,8 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.config.LEDConfig;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import prime.control.LEDs.Color;
+import prime.control.LEDs.LEDFrameBuffer;
 import prime.control.LEDs.Patterns.LEDPattern;
 
 public class PwmLEDs extends SubsystemBase {
@@ -14,6 +16,7 @@ public class PwmLEDs extends SubsystemBase {
   private LEDConfig _config;
   private AddressableLED _led;
   private AddressableLEDBuffer _ledBuffer;
+  private LEDFrameBuffer _frameBuffer;
 
   private final ScheduledExecutorService _updateLoopExecutor = Executors.newScheduledThreadPool(1);
   private LEDPattern _persistentPattern;
@@ -22,15 +25,16 @@ public class PwmLEDs extends SubsystemBase {
   public PwmLEDs(LEDConfig config) {
     _config = config;
 
-    // Initialize the LED strip and buffer
+    // Initialize the LED strip and buffers. Patterns render into the frame buffer, which is copied to the LED buffer
+    // only when it changes
     _ledBuffer = new AddressableLEDBuffer(config.PixelsPerStrip);
+    _frameBuffer = new LEDFrameBuffer(config.PixelsPerStrip);
     _led = new AddressableLED(config.PwmPort);
     _led.setLength(_ledBuffer.getLength());
 
     // Set the strip to a default color and start the LED strip
-    for (var i = 0; i < _ledBuffer.getLength(); i++) {
-      _ledBuffer.setRGB(i, 100, 100, 100);
-    }
+    _frameBuffer.fill(0, _frameBuffer.getLength(), Color.pack(100, 100, 100));
+    _frameBuffer.flushTo(_ledBuffer);
     _led.setData(_ledBuffer);
     _led.start();
 
@@ -69,10 +73,10 @@ public class PwmLEDs extends SubsystemBase {
       // If the pattern is not null, update the LED strip
       if (pattern != null) {
         // Request for the pattern to calculate the next frame and update the buffer
-        pattern.updateBuffer(0, _config.PixelsPerStrip, _ledBuffer);
+        pattern.updateBuffer(0, _config.PixelsPerStrip, _frameBuffer);
 
-        // Update the LED strip with the new buffer
-        _led.setData(_ledBuffer);
+        // Only send the strip new data if a pixel changed, since most updates are between a pattern's frames
+        if (_frameBuffer.flushTo(_ledBuffer)) _led.setData(_ledBuffer);
       }
     } catch (Exception e) {
       _loopErrorCounter++;
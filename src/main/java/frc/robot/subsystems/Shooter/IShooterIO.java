@@ -1,23 +1,51 @@
 package frc.robot.subsystems.Shooter;
 
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
+import java.nio.ByteBuffer;
+import prime.replay.LoggableInputs;
 
 //import org.littletonrobotics.junction.AutoLog;
 
 public interface IShooterIO {
     
     //@AutoLog
-    public static class ShooterIOInputs{
+    public static class ShooterIOInputs implements LoggableInputs {
 
         public boolean m_noteDetectorState = false;
 
         public double m_talonFXVelocity = 0;
+        public double m_talonFXVelocityTimestamp = 0;
         public double m_talonFXState;
 
         public double m_victorSPXOutputPercent = 0;
 
         public Value m_elevationSolenoidState;
 
+        @Override
+        public int getSizeBytes() {
+            return 1 + 4 * Double.BYTES + 1;
+        }
+
+        @Override
+        public void toBytes(ByteBuffer buffer) {
+            buffer.put((byte) (m_noteDetectorState ? 1 : 0));
+            buffer.putDouble(m_talonFXVelocity);
+            buffer.putDouble(m_talonFXVelocityTimestamp);
+            buffer.putDouble(m_talonFXState);
+            buffer.putDouble(m_victorSPXOutputPercent);
+            buffer.put((byte) (m_elevationSolenoidState == null ? -1 : m_elevationSolenoidState.ordinal()));
+        }
+
+        @Override
+        public void fromBytes(ByteBuffer buffer) {
+            m_noteDetectorState = buffer.get() != 0;
+            m_talonFXVelocity = buffer.getDouble();
+            m_talonFXVelocityTimestamp = buffer.getDouble();
+            m_talonFXState = buffer.getDouble();
+            m_victorSPXOutputPercent = buffer.getDouble();
+            var solenoidState = buffer.get();
+            m_elevationSolenoidState = solenoidState < 0 ? null : Value.values()[solenoidState];
+        }
     }
 
     //@AutoLog
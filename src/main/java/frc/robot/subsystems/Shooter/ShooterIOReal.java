@@ -2,26 +2,33 @@ package frc.robot.subsystems.Shooter;
 
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.VictorSPXControlMode;
-import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+import com.ctre.phoenix.motorcontrol.can.VictorSPXConfiguration;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import frc.robot.subsystems.PwmLEDs;
 import prime.control.LEDs.Color;
 import prime.control.LEDs.Patterns.BlinkPattern;
 import prime.control.LEDs.Patterns.ChasePattern;
 import prime.control.LEDs.Patterns.SolidPattern;
+import prime.devices.CANBudget;
+import prime.devices.DeviceConfigService;
+import prime.devices.PhoenixDeviceConfig;
+import prime.devices.VictorSPXDeviceConfig;
+import prime.movers.LazyDoubleSolenoid;
+import prime.movers.LazyTalonFX;
+import prime.movers.LazyVictorSPX;
 
 public class ShooterIOReal implements IShooterIO{
     private PwmLEDs m_leds;
-    private TalonFX m_talonFX;
-    private VictorSPX m_victorSPX;
-    private DoubleSolenoid m_elevationSolenoid;
+    private LazyTalonFX m_talonFX;
+    private LazyVictorSPX m_victorSPX;
+    private LazyDoubleSolenoid m_elevationSolenoid;
     private DigitalInput m_noteDetector;
 
     private IShooterIO shooterIO;
@@ -31,17 +38,28 @@ public class ShooterIOReal implements IShooterIO{
     public ShooterIOReal(PwmLEDs leds) {
         m_leds = leds;
 
-        m_talonFX = new TalonFX(ShooterSubsystem.VMap.TALONFX_CAN_ID);
-        m_talonFX.getConfigurator().apply(new TalonFXConfiguration());
-        m_talonFX.setInverted(true);
-        m_talonFX.setNeutralMode(NeutralModeValue.Brake);
+        m_talonFX = new LazyTalonFX(ShooterSubsystem.VMap.TALONFX_CAN_ID);
+        var talonFXConfig = new TalonFXConfiguration();
+        talonFXConfig.MotorOutput.Inverted = InvertedValue.Clockwise_Positive;
+        talonFXConfig.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+        DeviceConfigService.submit(PhoenixDeviceConfig.forTalonFX("Shooter/TalonFX", m_talonFX, talonFXConfig));
 
-        m_victorSPX = new VictorSPX(ShooterSubsystem.VMap.VICTORSPX_CAN_ID);
-        m_victorSPX.configFactoryDefault();
+        m_victorSPX = new LazyVictorSPX(ShooterSubsystem.VMap.VICTORSPX_CAN_ID);
+        DeviceConfigService.submit(
+            new VictorSPXDeviceConfig("Shooter/VictorSPX", m_victorSPX, new VictorSPXConfiguration()));
         m_victorSPX.setNeutralMode(NeutralMode.Brake);
 
+        // Only the velocity and output are read, see CANBudget
+        CANBudget.declarePhoenix(
+            "Shooter/TalonFX",
+            m_talonFX,
+            CANBudget.kLoopFrequencyHz,
+            m_talonFX.getVelocity(),
+            m_talonFX.getDutyCycle());
+        CANBudget.declareVictorSPX("Shooter/VictorSPX", m_victorSPX, CANBudget.kLoopPeriodMs);
+
         m_elevationSolenoid =
-          new DoubleSolenoid(
+          new LazyDoubleSolenoid(
             30,
             PneumaticsModuleType.REVPH,
             ShooterSubsystem.VMap.ELEVATION_SOLENOID_FORWARD_CHANNEL,
@@ -57,7 +75,9 @@ public class ShooterIOReal implements IShooterIO{
 
         inputs.m_noteDetectorState = m_noteDetector.get();
 
-        inputs.m_talonFXVelocity = m_talonFX.getVelocity().getValueAsDouble();
+        var velocity = m_talonFX.getVelocity();
+        inputs.m_talonFXVelocity = velocity.getValueAsDouble();
+        inputs.m_talonFXVelocityTimestamp = Timer.getFPGATimestamp() - velocity.getTimestamp().getLatency();
         inputs.m_talonFXState = m_talonFX.get();
 
         inputs.m_victorSPXOutputPercent = m_victorSPX.getMotorOutputPercent();
@@ -0,0 +1,47 @@
+package frc.robot.subsystems.Shooter;
+
+import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
+import prime.replay.ReplayLog;
+
+/**
+ * Feeds recorded inputs back to the subsystem during replay. Outputs go nowhere.
+ */
+public class ShooterIOReplay implements IShooterIO {
+
+    private final ReplayLog.Entry m_entry;
+    private final ShooterIOInputs m_inputs = new ShooterIOInputs();
+
+    public ShooterIOReplay(ReplayLog.Entry entry) {
+        m_entry = entry;
+    }
+
+    @Override
+    public ShooterIOInputs getInputs() {
+        m_entry.next(m_inputs);
+        return m_inputs;
+    }
+
+    @Override
+    public void setOutputs(ShooterIOOutputs outputs) {}
+
+    @Override
+    public void ResetLEDs() {}
+
+    @Override
+    public void RunNoteDetectedLEDPattern() {}
+
+    @Override
+    public void RunShootingNoteLEDPattern() {}
+
+    @Override
+    public void StopMotors() {}
+
+    @Override
+    public void RunShooter(double speed) {}
+
+    @Override
+    public void RunGreenWheel(double speed) {}
+
+    @Override
+    public void SetElevator(Value value) {}
+}
@@ -1,61 +1,143 @@
 package frc.robot.subsystems.Shooter;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
+import frc.robot.sim.SimulationPerturbations;
+import frc.robot.subsystems.PwmLEDs;
+import prime.control.LEDs.Color;
+import prime.control.LEDs.Patterns.BlinkPattern;
+import prime.control.LEDs.Patterns.ChasePattern;
 
+/**
+ * Simulates the shooter: a Falcon 500 flywheel, the guide wheel, the elevation solenoid and the note detector's
+ * beam-break. The robot starts with a preloaded note, which leaves once the guide wheel has fed it forward for a moment
+ * and takes some of the flywheel's speed with it. The intake sim calls loadNote() when it hands over another one.
+ *
+ * The physics are advanced in getInputs(), which the subsystem calls once per loop, by the time since the last call.
+ * The beam-break reports a change the perturbations' note sensor delay after it happens.
+ */
 public class ShooterIOSim implements IShooterIO {
 
+    private static final double kFlywheelGearing = 1.0;
+    private static final double kFlywheelMomentOfInertia = 0.004;
+    private static final double kNoteFeedSeconds = 0.15;
+    private static final double kLaunchVelocityRetained = 0.8;
+
+    private PwmLEDs m_leds;
+    private FlywheelSim m_flywheel;
+
+    private double m_talonFXOutput = 0;
+    private double m_victorSPXOutput = 0;
+    private Value m_elevationSolenoidState = Value.kOff;
+
+    private boolean m_noteLoaded = true;
+    private double m_noteFeedSeconds = 0;
+    private double m_lastTimestamp = Double.NaN;
+
+    // What the beam-break reports, and when the note last changed
+    private final double m_noteSensorDelaySeconds;
+    private boolean m_sensedNoteLoaded = true;
+    private double m_noteChangedTimestamp = Double.NEGATIVE_INFINITY;
+
+    private ShooterIOInputs m_inputs = new ShooterIOInputs();
+
+    public ShooterIOSim(PwmLEDs leds) {
+        m_leds = leds;
+        m_flywheel = new FlywheelSim(DCMotor.getFalcon500(1), kFlywheelGearing, kFlywheelMomentOfInertia);
+        m_noteSensorDelaySeconds = SimulationPerturbations.get().noteSensorDelaySeconds;
+    }
+
+    /**
+     * Puts a note against the beam-break, as if the intake had just handed it over
+     */
+    public void loadNote() {
+        m_noteLoaded = true;
+        m_noteFeedSeconds = 0;
+        m_noteChangedTimestamp = Timer.getFPGATimestamp();
+    }
+
     @Override
     public ShooterIOInputs getInputs() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getInputs'");
+        var timestamp = Timer.getFPGATimestamp();
+        var dt = Double.isNaN(m_lastTimestamp) ? 0 : timestamp - m_lastTimestamp;
+        m_lastTimestamp = timestamp;
+
+        if (dt > 0) {
+            m_flywheel.setInputVoltage(m_talonFXOutput * RobotController.getBatteryVoltage());
+            m_flywheel.update(dt);
+            updateNote(dt);
+        }
+
+        if (timestamp - m_noteChangedTimestamp >= m_noteSensorDelaySeconds) m_sensedNoteLoaded = m_noteLoaded;
+
+        m_inputs.m_noteDetectorState = !m_sensedNoteLoaded;
+        m_inputs.m_talonFXVelocity = m_flywheel.getAngularVelocityRPM() / 60;
+        m_inputs.m_talonFXVelocityTimestamp = timestamp;
+        m_inputs.m_talonFXState = m_talonFXOutput;
+        m_inputs.m_victorSPXOutputPercent = m_victorSPXOutput;
+        m_inputs.m_elevationSolenoidState = m_elevationSolenoidState;
+
+        return m_inputs;
     }
 
-    @Override
-    public void setOutputs(ShooterIOOutputs outputs) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'setOutputs'");
+    // Feeds a loaded note into the flywheel while the guide wheel pushes it forward
+    private void updateNote(double dt) {
+        if (!m_noteLoaded || m_victorSPXOutput <= 0) {
+            m_noteFeedSeconds = 0;
+            return;
+        }
+
+        m_noteFeedSeconds += dt * m_victorSPXOutput;
+        if (m_noteFeedSeconds < kNoteFeedSeconds) return;
+
+        m_noteLoaded = false;
+        m_noteFeedSeconds = 0;
+        m_noteChangedTimestamp = Timer.getFPGATimestamp();
+        m_flywheel.setState(VecBuilder.fill(m_flywheel.getAngularVelocityRadPerSec() * kLaunchVelocityRetained));
     }
 
+    @Override
+    public void setOutputs(ShooterIOOutputs outputs) {}
+
     @Override
     public void ResetLEDs() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'ResetLEDs'");
+        m_leds.restorePersistentStripPattern();
     }
 
     @Override
     public void RunNoteDetectedLEDPattern() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'RunNoteDetectedLEDPattern'");
+        m_leds.setStripTemporaryPattern(new BlinkPattern(Color.ORANGE, 0.2));
     }
 
     @Override
     public void RunShootingNoteLEDPattern() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'RunShootingNoteLEDPattern'");
+        m_leds.setStripTemporaryPattern(new ChasePattern(Color.GREEN, 0.25, !m_inputs.m_noteDetectorState));
     }
 
     @Override
     public void StopMotors() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'StopMotors'");
+        m_talonFXOutput = 0;
+        m_victorSPXOutput = 0;
     }
 
     @Override
     public void RunShooter(double speed) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'RunShooter'");
+        m_talonFXOutput = MathUtil.clamp(speed, -1, 1);
+        m_victorSPXOutput = MathUtil.clamp(speed * 3, -1, 1);
     }
 
     @Override
     public void RunGreenWheel(double speed) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'RunGreenWheel'");
+        m_victorSPXOutput = MathUtil.clamp(speed, -1, 1);
     }
 
     @Override
     public void SetElevator(Value value) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'SetElevator'");
+        m_elevationSolenoidState = value;
     }
-
-}
\ No newline at end of file
+}
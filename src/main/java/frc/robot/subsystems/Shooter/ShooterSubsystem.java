@@ -10,7 +10,6 @@ import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
@@ -27,6 +26,12 @@ import prime.control.LEDs.Color;
 import prime.control.LEDs.Patterns.BlinkPattern;
 import prime.control.LEDs.Patterns.ChasePattern;
 import prime.control.LEDs.Patterns.SolidPattern;
+import prime.replay.InputsLogger;
+import prime.telemetry.BooleanTelemetry;
+import prime.telemetry.DoubleTelemetry;
+import prime.telemetry.TelemetryLevel;
+import prime.telemetry.TelemetryRegistry;
+import prime.utilities.LoopProfiler;
 
 public class ShooterSubsystem extends SubsystemBase {
     public class VMap {
@@ -42,20 +47,40 @@ public class ShooterSubsystem extends SubsystemBase {
     private IShooterIO shooterIO;
     private ShooterIOInputs shooterInputs = new ShooterIOInputs();
     private ShooterIOOutputs shooterOutputs = new ShooterIOOutputs();
+    private InputsLogger m_inputsLogger;
   // #endregion
 
+  // Telemetry, published under SmartDashboard/Shooter
+  private final TelemetryRegistry m_telemetry = new TelemetryRegistry("Shooter");
+  private final DoubleTelemetry t_launchMotorOutput = m_telemetry
+    .addDouble("LaunchMotorOutput", TelemetryLevel.Practice)
+    .withDeadband(0.01);
+  private final DoubleTelemetry t_launchMotorVelocity = m_telemetry
+    .addDouble("LaunchMotorVelocity", TelemetryLevel.Practice)
+    .withDeadband(0.5);
+  private final DoubleTelemetry t_guideMotorOutput = m_telemetry
+    .addDouble("GuideMotorOutput", TelemetryLevel.Debug)
+    .withDeadband(0.01);
+  private final BooleanTelemetry t_noteDetected = m_telemetry.addBoolean("NoteDetected", TelemetryLevel.Competition);
+
+  private final LoopProfiler.Section m_loopTiming = LoopProfiler.getSection("Subsystems/Shooter");
+
   /**
    * Creates a new Shooter with a given configuration
    * @param config
    */
   public ShooterSubsystem(boolean isReal, PwmLEDs Leds) {
-    setName("Shooter");
+    this(isReal ? new ShooterIOReal(Leds) : new ShooterIOSim(Leds));
+  }
 
-    if (isReal) {
-      shooterIO = new ShooterIOReal(Leds);
-    } else {
-      shooterIO = new ShooterIOSim();
-    }
+  /**
+   * Creates a new Shooter with the given IO, e.g. a ShooterIOReplay
+   * @param io
+   */
+  public ShooterSubsystem(IShooterIO io) {
+    setName("Shooter");
+    shooterIO = io;
+    m_inputsLogger = new InputsLogger("Shooter", shooterInputs);
   }
 
   //#region Control Methods
@@ -105,6 +130,11 @@ public class ShooterSubsystem extends SubsystemBase {
 
   @Override
   public void periodic() {
+    m_loopTiming.start();
+
+    shooterInputs = shooterIO.getInputs();
+    m_inputsLogger.log(shooterInputs);
+
     var newNoteDetectedValue = isNoteLoaded();
     if (newNoteDetectedValue != m_lastNoteDetectedValue) {
       if (newNoteDetectedValue && !m_lastNoteDetectedValue) {
@@ -118,10 +148,12 @@ public class ShooterSubsystem extends SubsystemBase {
     }
 
     // Level2 Logging
-    SmartDashboard.putNumber("Shooter/LaunchMotorOutput", shooterInputs.m_talonFXState);
-    SmartDashboard.putNumber("Shooter/LaunchMotorVelocity", shooterInputs.m_talonFXVelocity);
-    SmartDashboard.putNumber("Shooter/GuideMotorOutput", shooterInputs.m_talonFXVelocity);
-    SmartDashboard.putBoolean("Shooter/NoteDetected", newNoteDetectedValue);
+    t_launchMotorOutput.set(shooterInputs.m_talonFXState);
+    t_launchMotorVelocity.set(shooterInputs.m_talonFXVelocity);
+    t_guideMotorOutput.set(shooterInputs.m_victorSPXOutputPercent);
+    t_noteDetected.set(newNoteDetectedValue);
+
+    m_loopTiming.stop();
   }
 
   //#region Shooter Commands
@@ -1,92 +1,211 @@
 package frc.robot.subsystems;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.networktables.StructArrayPublisher;
+import edu.wpi.first.math.util.Units;
 import frc.robot.config.RobotConfig;
+import frc.robot.config.SwerveModuleConfig;
 import prime.control.PrimePIDConstants;
+import prime.physics.PrimitiveModuleState;
+import prime.telemetry.StructArrayTelemetry;
+import prime.telemetry.TelemetryLevel;
+import prime.telemetry.TelemetryRegistry;
 
 public class SwerveController {
 
   private SwerveModule m_frontLeftModule, m_frontRightModule, m_rearLeftModule, m_rearRightModule;
+  private SwerveModule[] m_modules;
+
+  // Last commanded states and latest measurements, updated in place for logging
+  private final PrimitiveModuleState[] m_desiredStates = PrimitiveModuleState.createArray(4);
+  private final PrimitiveModuleState[] m_measuredStates = PrimitiveModuleState.createArray(4);
+  private final PrimitiveModuleState[] m_measuredPositions = PrimitiveModuleState.createArray(4);
 
   // Logging
-  private StructArrayPublisher<SwerveModuleState> m_desiredModulesStatesPublisher;
-  private StructArrayPublisher<SwerveModuleState> m_measuredModulesStatesPublisher;
-  private StructArrayPublisher<SwerveModulePosition> m_measuredModulesPositionsPublisher;
+  private final TelemetryRegistry m_telemetry = new TelemetryRegistry("Drive");
+  private final StructArrayTelemetry<PrimitiveModuleState> t_desiredModuleStates = m_telemetry
+    .addStructArray("DesiredSwerveModuleStates", PrimitiveModuleState.kStateStruct, TelemetryLevel.Practice)
+    .withPeriod(2);
+  private final StructArrayTelemetry<PrimitiveModuleState> t_measuredModuleStates = m_telemetry
+    .addStructArray("MeasuredSwerveModuleStates", PrimitiveModuleState.kStateStruct, TelemetryLevel.Practice)
+    .withPeriod(2);
+  private final StructArrayTelemetry<PrimitiveModuleState> t_measuredModulePositions = m_telemetry
+    .addStructArray("MeasuredSwerveModulePositions", PrimitiveModuleState.kPositionStruct, TelemetryLevel.Debug)
+    .withPeriod(5);
 
   /**
    * Creates a new SwerveController with the specified configuration and PID constants.
+   * @param isReal Whether to use the real modules or simulated ones
    * @param config
    * @param drivePID
    * @param steeringPID
    */
-  public SwerveController(RobotConfig config, PrimePIDConstants drivePID, PrimePIDConstants steeringPID) {
+  public SwerveController(boolean isReal, RobotConfig config, PrimePIDConstants drivePID, PrimePIDConstants steeringPID) {
+    // Create every module's IO first, so all of their devices configure in parallel before any module waits on its own
+    var frontLeftIO = createModuleIO(isReal, config, config.FrontLeftSwerveModule, drivePID);
+    var frontRightIO = createModuleIO(isReal, config, config.FrontRightSwerveModule, drivePID);
+    var rearLeftIO = createModuleIO(isReal, config, config.RearLeftSwerveModule, drivePID);
+    var rearRightIO = createModuleIO(isReal, config, config.RearRightSwerveModule, drivePID);
+
     // Create swerve modules in CCW order from FL to FR
-    m_frontLeftModule = new SwerveModule(config.FrontLeftSwerveModule, drivePID, steeringPID);
-    m_frontRightModule = new SwerveModule(config.FrontRightSwerveModule, drivePID, steeringPID);
-    m_rearLeftModule = new SwerveModule(config.RearLeftSwerveModule, drivePID, steeringPID);
-    m_rearRightModule = new SwerveModule(config.RearRightSwerveModule, drivePID, steeringPID);
-
-    // Start logging modules states
-    m_desiredModulesStatesPublisher =
-      NetworkTableInstance
-        .getDefault()
-        .getStructArrayTopic("Drive/DesiredSwerveModuleStates", SwerveModuleState.struct)
-        .publish();
-    m_measuredModulesStatesPublisher =
-      NetworkTableInstance
-        .getDefault()
-        .getStructArrayTopic("Drive/MeasuredSwerveModuleStates", SwerveModuleState.struct)
-        .publish();
-    m_measuredModulesPositionsPublisher =
-      NetworkTableInstance
-        .getDefault()
-        .getStructArrayTopic("Drive/MeasuredSwerveModulePositions", SwerveModulePosition.struct)
-        .publish();
+    m_frontLeftModule = createModule(config, config.FrontLeftSwerveModule, frontLeftIO, steeringPID);
+    m_frontRightModule = createModule(config, config.FrontRightSwerveModule, frontRightIO, steeringPID);
+    m_rearLeftModule = createModule(config, config.RearLeftSwerveModule, rearLeftIO, steeringPID);
+    m_rearRightModule = createModule(config, config.RearRightSwerveModule, rearRightIO, steeringPID);
+    m_modules = new SwerveModule[] { m_frontLeftModule, m_frontRightModule, m_rearLeftModule, m_rearRightModule };
+  }
+
+  private static ISwerveModuleIO createModuleIO(
+    boolean isReal,
+    RobotConfig config,
+    SwerveModuleConfig moduleConfig,
+    PrimePIDConstants drivePID
+  ) {
+    return isReal
+      ? new SwerveModuleIOReal(moduleConfig, drivePID, config.Drivetrain.OdometryFrequencyHz)
+      : new SwerveModuleIOSim(moduleConfig, drivePID, config.Drivetrain.OdometryFrequencyHz);
+  }
+
+  private static SwerveModule createModule(
+    RobotConfig config,
+    SwerveModuleConfig moduleConfig,
+    ISwerveModuleIO io,
+    PrimePIDConstants steeringPID
+  ) {
+    return new SwerveModule(moduleConfig, io, steeringPID, config.Drivetrain.UseOnboardSteeringControl);
   }
 
   /**
-   * Sets the desired states for each swerve module in order FL, FR, RL, RR
-   * @param desiredStates
+   * Sets the desired states for each swerve module in order FL, FR, RL, RR without allocating
+   * @param speedsMetersPerSecond The desired wheel speeds
+   * @param anglesRadians The desired module angles, CCW+
    */
-  public void setDesiredStates(SwerveModuleState[] desiredStates) {
-    // Log desired states
-    m_desiredModulesStatesPublisher.set(desiredStates);
-
-    m_frontLeftModule.setDesiredState(desiredStates[0]);
-    m_frontRightModule.setDesiredState(desiredStates[1]);
-    m_rearLeftModule.setDesiredState(desiredStates[2]);
-    m_rearRightModule.setDesiredState(desiredStates[3]);
+  public void setDesiredStates(double[] speedsMetersPerSecond, double[] anglesRadians) {
+    for (int i = 0; i < m_modules.length; i++) {
+      m_desiredStates[i].Value = speedsMetersPerSecond[i];
+      m_desiredStates[i].AngleRadians = anglesRadians[i];
+      m_modules[i].setDesiredState(speedsMetersPerSecond[i], anglesRadians[i]);
+    }
   }
 
-  public SwerveModuleState[] getModuleStates() {
-    var states = new SwerveModuleState[] {
-      m_frontLeftModule.getModuleState(),
-      m_frontRightModule.getModuleState(),
-      m_rearLeftModule.getModuleState(),
-      m_rearRightModule.getModuleState(),
-    };
+  /**
+   * Logs the last commanded state of each module
+   */
+  public void logDesiredStates() {
+    t_desiredModuleStates.set(m_desiredStates);
+  }
 
-    // Log measured states
-    m_measuredModulesStatesPublisher.set(states);
+  /**
+   * Copies each module's measurements into the given arrays in order FL, FR, RL, RR
+   * @param distancesMeters Output for the wheel distances from the latest odometry sample
+   * @param headingsRadians Output for the module headings from the latest odometry sample
+   * @param velocitiesMetersPerSecond Output for the wheel velocities as of the last snapshot refresh
+   */
+  public void updateMeasurements(double[] distancesMeters, double[] headingsRadians, double[] velocitiesMetersPerSecond) {
+    for (int i = 0; i < m_modules.length; i++) {
+      distancesMeters[i] = m_modules[i].getDistanceMeters();
+      headingsRadians[i] = Units.rotationsToRadians(m_modules[i].getEncoderHeading());
+      velocitiesMetersPerSecond[i] = m_modules[i].getVelocityMetersPerSecond();
+    }
+  }
 
-    return states;
+  /**
+   * Copies each module's latest odometry sample into the given arrays in order FL, FR, RL, RR
+   * @param distancesMeters Output for the wheel distances
+   * @param headingsRadians Output for the module headings
+   */
+  public void updatePositions(double[] distancesMeters, double[] headingsRadians) {
+    for (int i = 0; i < m_modules.length; i++) {
+      distancesMeters[i] = m_modules[i].getDistanceMeters();
+      headingsRadians[i] = Units.rotationsToRadians(m_modules[i].getEncoderHeading());
+    }
   }
 
+  /**
+   * Gets the positions of each module from the latest odometry sample in order FL, FR, RL, RR
+   */
   public SwerveModulePosition[] getPositions() {
-    var positions = new SwerveModulePosition[] {
+    return new SwerveModulePosition[] {
       m_frontLeftModule.getPosition(),
       m_frontRightModule.getPosition(),
       m_rearLeftModule.getPosition(),
       m_rearRightModule.getPosition(),
     };
+  }
+
+  /**
+   * Logs the measured states and positions of each module
+   * @param snapshot The snapshot the measurements were captured in
+   */
+  public void logMeasurements(DrivetrainSnapshot snapshot) {
+    for (int i = 0; i < m_modules.length; i++) {
+      var headingRadians = snapshot.getModuleHeadingRadians(i);
+      m_measuredStates[i].Value = snapshot.getModuleVelocityMetersPerSecond(i);
+      m_measuredStates[i].AngleRadians = headingRadians;
+      m_measuredPositions[i].Value = snapshot.getModuleDistanceMeters(i);
+      m_measuredPositions[i].AngleRadians = headingRadians;
+    }
+
+    t_measuredModuleStates.set(m_measuredStates);
+    t_measuredModulePositions.set(m_measuredPositions);
+  }
+
+  /**
+   * Gets the status signals of every module that are refreshed once per loop
+   */
+  public BaseStatusSignal[] getCycleSignals() {
+    return concatSignals(
+      m_frontLeftModule.getCycleSignals(),
+      m_frontRightModule.getCycleSignals(),
+      m_rearLeftModule.getCycleSignals(),
+      m_rearRightModule.getCycleSignals()
+    );
+  }
+
+  /**
+   * Gets the status signals of every module that the odometry thread waits on
+   */
+  public BaseStatusSignal[] getOdometrySignals() {
+    return concatSignals(
+      m_frontLeftModule.getOdometrySignals(),
+      m_frontRightModule.getOdometrySignals(),
+      m_rearLeftModule.getOdometrySignals(),
+      m_rearRightModule.getOdometrySignals()
+    );
+  }
+
+  /**
+   * Copies each module's refreshed odometry signals into its latest sample
+   */
+  public void sampleOdometry() {
+    m_frontLeftModule.sampleOdometry();
+    m_frontRightModule.sampleOdometry();
+    m_rearLeftModule.sampleOdometry();
+    m_rearRightModule.sampleOdometry();
+  }
+
+  /**
+   * Advances each simulated module and writes its state into the given array in order FL, FR, RL, RR
+   */
+  public void updateSimulation(double dtSeconds, SwerveModuleState[] states) {
+    for (int i = 0; i < m_modules.length; i++) {
+      m_modules[i].updateSimulation(dtSeconds, states[i]);
+    }
+  }
+
+  // Flattens groups of status signals into one array
+  private static BaseStatusSignal[] concatSignals(BaseStatusSignal[]... groups) {
+    var length = 0;
+    for (var group : groups) length += group.length;
 
-    // Log measured positions
-    m_measuredModulesPositionsPublisher.set(positions);
+    var signals = new BaseStatusSignal[length];
+    var index = 0;
+    for (var group : groups) {
+      for (var signal : group) signals[index++] = signal;
+    }
 
-    return positions;
+    return signals;
   }
 
   public void stopAllMotors() {
@@ -1,112 +1,110 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix6.configs.CANcoderConfiguration;
-import com.ctre.phoenix6.configs.MagnetSensorConfigs;
-import com.ctre.phoenix6.configs.Slot0Configs;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.VelocityVoltage;
-import com.ctre.phoenix6.hardware.CANcoder;
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.AbsoluteSensorRangeValue;
-import com.ctre.phoenix6.signals.NeutralModeValue;
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.config.SwerveModuleConfig;
 import prime.control.PrimePIDConstants;
-import prime.movers.LazyCANSparkMax;
+import prime.telemetry.BooleanTelemetry;
+import prime.telemetry.DoubleTelemetry;
+import prime.telemetry.TelemetryLevel;
+import prime.telemetry.TelemetryRegistry;
 import prime.utilities.CTREConverter;
+import prime.utilities.LoopProfiler;
 
 public class SwerveModule extends SubsystemBase {
 
   private SwerveModuleConfig m_config;
 
   // Devices
-  private LazyCANSparkMax m_SteeringMotor;
-  private TalonFX m_driveMotor;
-  private CANcoder m_encoder;
+  private ISwerveModuleIO m_io;
   private PIDController m_steeringPidController;
 
-  // Start at velocity 0, no feed forward, use slot 0
-  private final VelocityVoltage m_voltageVelocity = new VelocityVoltage(0, 0, false, 0, 0, false, false, false);
+  // Onboard steering control. The NEO's encoder is seeded from the CANcoder and the SPARK MAX runs position PID at 1 kHz.
+  private boolean m_useOnboardSteering;
+  private double m_lastSteeringSetpoint = Double.NaN;
+  private int m_steeringReseedCount = 0;
 
-  public SwerveModule(SwerveModuleConfig moduleConfig, PrimePIDConstants drivePID, PrimePIDConstants steeringPID) {
+  // Logging, so the onboard steering can be checked on the robot
+  private final TelemetryRegistry m_telemetry;
+  private final BooleanTelemetry t_onboardSteering;
+  private final DoubleTelemetry t_steeringReseedCount;
+
+  // Unit conversions, precomputed from the module config
+  private final double m_driveRotationsPerMeter;
+  private final double m_driveMetersPerRotation;
+
+  // Output of optimize(), reused every loop: speed in m/s and angle in radians
+  private final double[] m_optimizedState = new double[2];
+
+  // Status signals sampled by the drivetrain's odometry thread
+  private StatusSignal<Double> m_drivePositionSignal;
+  private StatusSignal<Double> m_encoderPositionSignal;
+  private volatile double m_sampledDistanceMeters = 0;
+  private volatile double m_sampledHeadingRotations = 0;
+
+  // Status signals refreshed once per loop by the drivetrain snapshot
+  private StatusSignal<Double> m_driveVelocitySignal;
+
+  private final LoopProfiler.Section m_loopTiming;
+
+  public SwerveModule(
+    SwerveModuleConfig moduleConfig,
+    ISwerveModuleIO io,
+    PrimePIDConstants steeringPID,
+    boolean useOnboardSteering
+  ) {
     m_config = moduleConfig;
+    m_io = io;
     setName(m_config.ModuleName);
-
-    setupSteeringMotor(steeringPID);
-    setupDriveMotor(drivePID);
-    setupCanCoder();
+    m_loopTiming = LoopProfiler.getSection("Subsystems/" + m_config.ModuleName);
+    m_telemetry = new TelemetryRegistry("Drive/" + m_config.ModuleName);
+    t_onboardSteering = m_telemetry.addBoolean("OnboardSteering", TelemetryLevel.Practice);
+    t_steeringReseedCount = m_telemetry.addDouble("SteeringReseedCount", TelemetryLevel.Practice);
+
+    m_driveRotationsPerMeter =
+      CTREConverter.metersToRotations(1, m_config.DriveWheelCircumferenceMeters, m_config.DriveGearRatio);
+    m_driveMetersPerRotation =
+      CTREConverter.rotationsToMeters(1, m_config.DriveWheelCircumferenceMeters, m_config.DriveGearRatio);
+
+    m_drivePositionSignal = m_io.getDrivePositionSignal();
+    m_driveVelocitySignal = m_io.getDriveVelocitySignal();
+    m_encoderPositionSignal = m_io.getEncoderPositionSignal();
+    setupSteeringPid(steeringPID);
+
+    // Fall back to the RIO PID if the SPARK MAX couldn't be configured for position control
+    m_useOnboardSteering = useOnboardSteering && setupOnboardSteering(steeringPID);
   }
 
   //#region Setup methods
 
-  // Sets up the steering motor and PID controller
-  private void setupSteeringMotor(PrimePIDConstants pid) {
-    m_SteeringMotor = new LazyCANSparkMax(m_config.SteeringMotorCanId, MotorType.kBrushless);
-    m_SteeringMotor.restoreFactoryDefaults();
-
-    m_SteeringMotor.setSmartCurrentLimit(100, 80);
-    m_SteeringMotor.clearFaults();
-    m_SteeringMotor.setIdleMode(CANSparkMax.IdleMode.kBrake);
-    m_SteeringMotor.setInverted(m_config.SteerInverted); // CCW inversion
-
+  // Sets up the RIO steering PID controller
+  private void setupSteeringPid(PrimePIDConstants pid) {
     // Create a PID controller to calculate steering motor output
     m_steeringPidController = pid.createPIDController(0.02);
     m_steeringPidController.enableContinuousInput(0, 1); // 0 to 1 rotation
     m_steeringPidController.setTolerance((1 / 360.0) * 2); // 2 degrees in units of rotations
   }
 
-  // Sets up the drive motors
-  public void setupDriveMotor(PrimePIDConstants pid) {
-    m_driveMotor = new TalonFX(m_config.DriveMotorCanId);
-    m_driveMotor.clearStickyFaults();
-    m_driveMotor.getConfigurator().apply(new TalonFXConfiguration()); // Reset to factory default
-
-    TalonFXConfiguration driveMotorConfig = new TalonFXConfiguration();
-
-    // Set the PID values for slot 0
-    driveMotorConfig.Slot0 =
-      new Slot0Configs().withKP(pid.kP).withKI(pid.kI).withKD(pid.kD).withKS(pid.kS).withKV(pid.kV);
-
-    // Set the voltage limits
-    driveMotorConfig.Voltage.PeakForwardVoltage = 12;
-    driveMotorConfig.Voltage.PeakReverseVoltage = -12;
-
-    // Set the current limits
-    driveMotorConfig.withCurrentLimits(m_config.DriveCurrentLimitConfiguration);
-
-    // Set the ramp rates
-    driveMotorConfig.withClosedLoopRamps(m_config.DriveClosedLoopRampConfiguration);
-
-    // Apply the configuration
-    m_driveMotor.getConfigurator().apply(driveMotorConfig);
-    m_driveMotor.setNeutralMode(NeutralModeValue.Brake);
-    m_driveMotor.setInverted(m_config.DriveInverted); // Clockwise Inversion
-  }
+  /**
+   * Configures the SPARK MAX to run steering position control itself, in module rotations, and seeds its encoder
+   * from the CANcoder
+   * @return Whether every setting was applied
+   */
+  private boolean setupOnboardSteering(PrimePIDConstants pid) {
+    if (!m_io.ConfigureOnboardSteering(pid)) return false;
 
-  // Sets up the CANCoder
-  public void setupCanCoder() {
-    m_encoder = new CANcoder(m_config.CANCoderCanId);
-    m_encoder.clearStickyFaults();
-    m_encoder.getConfigurator().apply(new CANcoderConfiguration());
+    // Nothing else has refreshed the CANcoder yet, so wait for a fresh absolute position to seed from
+    var absolutePosition = m_encoderPositionSignal.waitForUpdate(0.1);
+    if (!absolutePosition.getStatus().isOK()) return false;
 
-    // AbsoluteSensorRangeValue
-    m_encoder
-      .getConfigurator()
-      .apply(
-        new CANcoderConfiguration()
-          .withMagnetSensor(
-            new MagnetSensorConfigs()
-              .withAbsoluteSensorRange(AbsoluteSensorRangeValue.Unsigned_0To1)
-              .withMagnetOffset(-m_config.StartingOffset)
-          )
-      );
+    return m_io.SeedSteeringPosition(absolutePosition.getValueAsDouble());
   }
 
   //#endregion
@@ -120,64 +118,133 @@ public class SwerveModule extends SubsystemBase {
    *                     period
    */
   public void setDesiredState(SwerveModuleState desiredState) {
+    setDesiredState(desiredState.speedMetersPerSecond, desiredState.angle.getRadians());
+  }
+
+  /**
+   * Sets the desired state of the module without allocating.
+   *
+   * @param speedMetersPerSecond The desired wheel speed
+   * @param angleRadians The desired module angle, CCW+
+   */
+  public void setDesiredState(double speedMetersPerSecond, double angleRadians) {
     // Optimize the desired state
-    desiredState = optimize(desiredState);
+    optimize(speedMetersPerSecond, angleRadians, Units.rotationsToRadians(getEncoderHeading()), m_optimizedState);
 
     // Set the drive motor to the desired speed
-    var speedRotationsPerSecond = CTREConverter.metersToRotations(
-      desiredState.speedMetersPerSecond,
-      m_config.DriveWheelCircumferenceMeters,
-      m_config.DriveGearRatio
-    );
+    var speedRotationsPerSecond = m_optimizedState[0] * m_driveRotationsPerMeter;
 
-    m_driveMotor.setControl(
-      m_voltageVelocity.withVelocity(speedRotationsPerSecond) // TODO: evaluate effect of removing ".withAcceleration(speedRotationsPerSecond / 2)"
-    );
+    m_io.SetDriveVelocity(speedRotationsPerSecond); // TODO: evaluate effect of removing ".withAcceleration(speedRotationsPerSecond / 2)"
 
     // Set the steering motor to the desired angle
-    var setpoint = desiredState.angle.getRotations() % 1;
+    var setpoint = Units.radiansToRotations(m_optimizedState[1]) % 1;
     if (setpoint < 0) setpoint += 1;
 
-    var newOutput = m_steeringPidController.calculate(getEncoderHeading(), setpoint);
+    if (m_useOnboardSteering) {
+      // Only send a new reference when it changes, the SPARK MAX holds the last one
+      if (setpoint != m_lastSteeringSetpoint) {
+        m_lastSteeringSetpoint = setpoint;
+        m_io.SetSteeringPosition(setpoint);
+      }
+    } else {
+      var newOutput = m_steeringPidController.calculate(getEncoderHeading(), setpoint);
 
-    m_SteeringMotor.set(MathUtil.clamp(newOutput, -1, 1));
+      m_io.SetSteeringOutput(MathUtil.clamp(newOutput, -1, 1));
+    }
   }
 
   /**
    * Optimizes the module angle & drive inversion to ensure the module takes the shortest path to drive at the desired angle
-   * @param desiredState
-   */
-  private SwerveModuleState optimize(SwerveModuleState desiredState) {
-    Rotation2d currentAngle = getEncoderHeadingRotation2d();
-    var delta = desiredState.angle.minus(currentAngle);
-    if (Math.abs(delta.getDegrees()) > 90.0) {
-      return new SwerveModuleState(
-        -desiredState.speedMetersPerSecond,
-        desiredState.angle.rotateBy(Rotation2d.fromDegrees(180.0))
-      );
+   * @param currentAngleRadians The module's current angle
+   * @param optimizedState Output of length 2: the optimized speed in m/s and angle in radians
+   */
+  static void optimize(
+    double speedMetersPerSecond,
+    double angleRadians,
+    double currentAngleRadians,
+    double[] optimizedState
+  ) {
+    var delta = MathUtil.angleModulus(angleRadians - currentAngleRadians);
+
+    if (Math.abs(delta) > Math.PI / 2) {
+      optimizedState[0] = -speedMetersPerSecond;
+      optimizedState[1] = angleRadians + Math.PI;
     } else {
-      return desiredState;
+      optimizedState[0] = speedMetersPerSecond;
+      optimizedState[1] = angleRadians;
     }
   }
 
   // Stops both motors within the Module
   public void stopMotors() {
-    m_driveMotor.stopMotor();
-    m_SteeringMotor.stopMotor();
+    m_io.StopMotors();
+    m_lastSteeringSetpoint = Double.NaN;
+  }
+
+  /**
+   * Re-seeds the NEO's encoder from the CANcoder if they disagree by more than 2 degrees. Only checked while the module
+   * is nearly still, since the two sensors are sampled at different times.
+   */
+  private void checkSteeringDrift() {
+    if (Math.abs(m_io.getSteeringVelocity()) > 0.05) return;
+
+    var absoluteHeading = getEncoderHeading();
+    var drift = MathUtil.inputModulus(m_io.getSteeringPosition() - absoluteHeading, -0.5, 0.5);
+    if (Math.abs(drift) > (1 / 360.0) * 2) {
+      m_io.SeedSteeringPosition(absoluteHeading);
+      m_steeringReseedCount++;
+    }
   }
 
   /**
-   * Gets the cumulative SwerveModulePosition of the module
+   * Gets whether the steering closed loop is running on the SPARK MAX
+   */
+  public boolean isUsingOnboardSteering() {
+    return m_useOnboardSteering;
+  }
+
+  /**
+   * Gets the number of times the NEO's encoder was re-seeded from the CANcoder after startup
+   */
+  public int getSteeringReseedCount() {
+    return m_steeringReseedCount;
+  }
+
+  /**
+   * Gets the status signals that the odometry thread waits on
+   */
+  public BaseStatusSignal[] getOdometrySignals() {
+    return new BaseStatusSignal[] { m_drivePositionSignal, m_encoderPositionSignal };
+  }
+
+  /**
+   * Gets the status signals refreshed once per loop when the drivetrain captures its snapshot
+   */
+  public BaseStatusSignal[] getCycleSignals() {
+    return new BaseStatusSignal[] { m_driveVelocitySignal };
+  }
+
+  /**
+   * Copies the odometry signals into the module's latest sample. Called from the odometry thread after the signals
+   * have been refreshed, so the main loop never refreshes these signals itself.
+   */
+  public void sampleOdometry() {
+    m_sampledDistanceMeters = m_drivePositionSignal.getValueAsDouble() * m_driveMetersPerRotation;
+    m_sampledHeadingRotations = m_encoderPositionSignal.getValueAsDouble();
+  }
+
+  /**
+   * Gets the cumulative SwerveModulePosition of the module from the latest odometry sample
    */
   public SwerveModulePosition getPosition() {
-    return new SwerveModulePosition(
-      CTREConverter.rotationsToMeters(
-        m_driveMotor.getPosition().getValueAsDouble(),
-        m_config.DriveWheelCircumferenceMeters,
-        m_config.DriveGearRatio
-      ),
-      getEncoderHeadingRotation2d()
-    );
+    return new SwerveModulePosition(m_sampledDistanceMeters, getEncoderHeadingRotation2d());
+  }
+
+  /**
+   * Gets the distance driven by the wheel in meters from the latest odometry sample
+   */
+  public double getDistanceMeters() {
+    return m_sampledDistanceMeters;
   }
 
   /**
@@ -188,19 +255,15 @@ public class SwerveModule extends SubsystemBase {
   }
 
   /**
-   * Gets the velocity of the drive motor in meters per second
+   * Gets the velocity of the drive motor in meters per second as of the last snapshot refresh
    */
   public double getVelocityMetersPerSecond() {
-    return CTREConverter.rotationsToMeters(
-      m_driveMotor.getVelocity().getValueAsDouble(),
-      m_config.DriveWheelCircumferenceMeters,
-      m_config.DriveGearRatio
-    );
+    return m_driveVelocitySignal.getValueAsDouble() * m_driveMetersPerRotation;
   }
 
-  // Gets the heading of the encoder in rotations
+  // Gets the heading of the encoder in rotations from the latest odometry sample
   public double getEncoderHeading() {
-    return m_encoder.getPosition().getValueAsDouble();
+    return m_sampledHeadingRotations;
   }
 
   // Gets the encoder heading as a Rotation2d
@@ -208,6 +271,13 @@ public class SwerveModule extends SubsystemBase {
     return Rotation2d.fromRotations(getEncoderHeading());
   }
 
+  /**
+   * Advances the simulated module, see ISwerveModuleIO.updateSimulation()
+   */
+  public void updateSimulation(double dtSeconds, SwerveModuleState state) {
+    m_io.updateSimulation(dtSeconds, state);
+  }
+
   //#endregion
 
   /**
@@ -215,8 +285,16 @@ public class SwerveModule extends SubsystemBase {
    */
   @Override
   public void periodic() {
+    m_loopTiming.start();
+
+    if (m_useOnboardSteering) checkSteeringDrift();
+    t_onboardSteering.set(m_useOnboardSteering);
+    t_steeringReseedCount.set(m_steeringReseedCount);
+
     // d_driveVelocityEntry.setDouble(getModuleState().speedMetersPerSecond);
     // d_driveVoltageEntry.setDouble(m_driveMotor.getMotorVoltage().getValueAsDouble());
     // d_moduleHeadingEntry.setDouble(getEncoderHeadingRotation2d().getDegrees());
+
+    m_loopTiming.stop();
   }
 }
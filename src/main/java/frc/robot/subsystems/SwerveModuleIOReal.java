@@ -0,0 +1,238 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.CANcoderConfiguration;
+import com.ctre.phoenix6.configs.MagnetSensorConfigs;
+import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.signals.AbsoluteSensorRangeValue;
+import com.ctre.phoenix6.signals.InvertedValue;
+import com.ctre.phoenix6.signals.NeutralModeValue;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.REVLibError;
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkMaxPIDController;
+import frc.robot.config.SwerveModuleConfig;
+import java.util.concurrent.CompletableFuture;
+import prime.control.PrimePIDConstants;
+import prime.devices.CANBudget;
+import prime.devices.DeviceConfigService;
+import prime.devices.PhoenixDeviceConfig;
+import prime.devices.SparkMaxDeviceConfig;
+import prime.movers.LazyCANSparkMax;
+import prime.movers.LazyTalonFX;
+
+/**
+ * A swerve module with a Falcon 500 drive motor, a NEO steering motor on a SPARK MAX and a CANcoder
+ */
+public class SwerveModuleIOReal implements ISwerveModuleIO {
+
+  protected SwerveModuleConfig m_config;
+
+  // Devices
+  protected LazyCANSparkMax m_steeringMotor;
+  protected LazyTalonFX m_driveMotor;
+  protected CANcoder m_encoder;
+
+  // Onboard steering control
+  private RelativeEncoder m_steeringEncoder;
+  private SparkMaxPIDController m_onboardSteeringController;
+  private CompletableFuture<DeviceConfigService.Result> m_steeringConfigured;
+  private CompletableFuture<DeviceConfigService.Result> m_encoderConfigured;
+
+  private StatusSignal<Double> m_drivePositionSignal;
+  private StatusSignal<Double> m_driveVelocitySignal;
+  private StatusSignal<Double> m_encoderPositionSignal;
+
+  // Start at velocity 0, no feed forward, use slot 0
+  private final VelocityVoltage m_voltageVelocity = new VelocityVoltage(0, 0, false, 0, 0, false, false, false);
+
+  /**
+   * Creates a new SwerveModuleIOReal
+   * @param odometryFrequencyHz How often the odometry thread samples the drive and CANcoder positions
+   */
+  public SwerveModuleIOReal(SwerveModuleConfig moduleConfig, PrimePIDConstants drivePID, double odometryFrequencyHz) {
+    m_config = moduleConfig;
+
+    setupSteeringMotor();
+    setupDriveMotor(drivePID);
+    setupCanCoder();
+
+    // Only these signals are sent, see CANBudget
+    CANBudget.declareSparkMax(
+      m_config.ModuleName + "/Steering",
+      m_steeringMotor,
+      CANBudget.kLoopPeriodMs,
+      CANBudget.kLoopPeriodMs
+    );
+    CANBudget.declarePhoenix(m_config.ModuleName + "/Drive", m_driveMotor, odometryFrequencyHz, m_drivePositionSignal);
+    CANBudget.declarePhoenix(
+      m_config.ModuleName + "/Drive",
+      m_driveMotor,
+      CANBudget.kLoopFrequencyHz,
+      m_driveVelocitySignal
+    );
+    CANBudget.declarePhoenix(
+      m_config.ModuleName + "/CANcoder",
+      m_encoder,
+      odometryFrequencyHz,
+      m_encoderPositionSignal
+    );
+  }
+
+  //#region Setup methods
+
+  // Sets up the steering motor
+  private void setupSteeringMotor() {
+    m_steeringMotor = new LazyCANSparkMax(m_config.SteeringMotorCanId, MotorType.kBrushless);
+    m_steeringMotor.clearFaults();
+    m_steeringConfigured =
+      DeviceConfigService.submit(
+        new SparkMaxDeviceConfig(m_config.ModuleName + "/Steering", m_steeringMotor)
+          .withSmartCurrentLimit(100, 80)
+          .withIdleMode(CANSparkMax.IdleMode.kBrake)
+          .withInverted(m_config.SteerInverted) // CCW inversion
+      );
+  }
+
+  // Sets up the drive motors
+  private void setupDriveMotor(PrimePIDConstants pid) {
+    m_driveMotor = new LazyTalonFX(m_config.DriveMotorCanId);
+    m_driveMotor.clearStickyFaults();
+
+    // Applying a full configuration resets everything else to factory defaults
+    TalonFXConfiguration driveMotorConfig = new TalonFXConfiguration();
+
+    // Set the PID values for slot 0
+    driveMotorConfig.Slot0 =
+      new Slot0Configs().withKP(pid.kP).withKI(pid.kI).withKD(pid.kD).withKS(pid.kS).withKV(pid.kV);
+
+    // Set the voltage limits
+    driveMotorConfig.Voltage.PeakForwardVoltage = 12;
+    driveMotorConfig.Voltage.PeakReverseVoltage = -12;
+
+    // Set the current limits
+    driveMotorConfig.withCurrentLimits(m_config.DriveCurrentLimitConfiguration);
+
+    // Set the ramp rates
+    driveMotorConfig.withClosedLoopRamps(m_config.DriveClosedLoopRampConfiguration);
+
+    // Brake, and clockwise inversion
+    driveMotorConfig.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+    driveMotorConfig.MotorOutput.Inverted =
+      m_config.DriveInverted ? InvertedValue.Clockwise_Positive : InvertedValue.CounterClockwise_Positive;
+
+    // Apply the configuration
+    DeviceConfigService.submit(
+      PhoenixDeviceConfig.forTalonFX(m_config.ModuleName + "/Drive", m_driveMotor, driveMotorConfig)
+    );
+
+    m_drivePositionSignal = m_driveMotor.getPosition();
+    m_driveVelocitySignal = m_driveMotor.getVelocity();
+  }
+
+  // Sets up the CANCoder
+  private void setupCanCoder() {
+    m_encoder = new CANcoder(m_config.CANCoderCanId);
+    m_encoder.clearStickyFaults();
+
+    // AbsoluteSensorRangeValue
+    m_encoderConfigured =
+      DeviceConfigService.submit(
+        PhoenixDeviceConfig.forCANcoder(
+          m_config.ModuleName + "/CANcoder",
+          m_encoder,
+          new CANcoderConfiguration()
+            .withMagnetSensor(
+              new MagnetSensorConfigs()
+                .withAbsoluteSensorRange(AbsoluteSensorRangeValue.Unsigned_0To1)
+                .withMagnetOffset(-m_config.StartingOffset)
+            )
+        )
+      );
+
+    m_encoderPositionSignal = m_encoder.getPosition();
+  }
+
+  //#endregion
+
+  @Override
+  public StatusSignal<Double> getDrivePositionSignal() {
+    return m_drivePositionSignal;
+  }
+
+  @Override
+  public StatusSignal<Double> getDriveVelocitySignal() {
+    return m_driveVelocitySignal;
+  }
+
+  @Override
+  public StatusSignal<Double> getEncoderPositionSignal() {
+    return m_encoderPositionSignal;
+  }
+
+  @Override
+  public void SetDriveVelocity(double rotationsPerSecond) {
+    m_driveMotor.setControl(m_voltageVelocity.withVelocity(rotationsPerSecond));
+  }
+
+  @Override
+  public void SetSteeringOutput(double output) {
+    m_steeringMotor.set(output);
+  }
+
+  @Override
+  public boolean ConfigureOnboardSteering(PrimePIDConstants pid) {
+    // A factory reset would undo these settings, and the position is seeded from the offset CANcoder, so wait for both
+    m_steeringConfigured.join();
+    m_encoderConfigured.join();
+
+    m_steeringEncoder = m_steeringMotor.getEncoder();
+    m_onboardSteeringController = m_steeringMotor.getPIDController();
+
+    // Report position in module rotations and velocity in module rotations per second
+    return (
+      m_steeringEncoder.setPositionConversionFactor(1 / m_config.SteerGearRatio) == REVLibError.kOk &&
+      m_steeringEncoder.setVelocityConversionFactor(1 / m_config.SteerGearRatio / 60) == REVLibError.kOk &&
+      m_onboardSteeringController.setFeedbackDevice(m_steeringEncoder) == REVLibError.kOk &&
+      m_onboardSteeringController.setP(pid.kP) == REVLibError.kOk &&
+      m_onboardSteeringController.setI(pid.kI) == REVLibError.kOk &&
+      m_onboardSteeringController.setD(pid.kD) == REVLibError.kOk &&
+      m_onboardSteeringController.setFF(0) == REVLibError.kOk &&
+      m_onboardSteeringController.setOutputRange(-1, 1) == REVLibError.kOk &&
+      // 0 to 1 rotation, same as the RIO PID's continuous input
+      m_onboardSteeringController.setPositionPIDWrappingEnabled(true) == REVLibError.kOk &&
+      m_onboardSteeringController.setPositionPIDWrappingMinInput(0) == REVLibError.kOk &&
+      m_onboardSteeringController.setPositionPIDWrappingMaxInput(1) == REVLibError.kOk
+    );
+  }
+
+  @Override
+  public void SetSteeringPosition(double rotations) {
+    m_onboardSteeringController.setReference(rotations, CANSparkMax.ControlType.kPosition);
+  }
+
+  @Override
+  public boolean SeedSteeringPosition(double rotations) {
+    return m_steeringEncoder.setPosition(rotations) == REVLibError.kOk;
+  }
+
+  @Override
+  public double getSteeringPosition() {
+    return m_steeringEncoder.getPosition();
+  }
+
+  @Override
+  public double getSteeringVelocity() {
+    return m_steeringEncoder.getVelocity();
+  }
+
+  @Override
+  public void StopMotors() {
+    m_driveMotor.stopMotor();
+    m_steeringMotor.stopMotor();
+  }
+}
@@ -0,0 +1,72 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.config.SwerveModuleConfig;
+import prime.control.PrimePIDConstants;
+
+/**
+ * Simulates a swerve module on the same devices as the real one. The drive and steering mechanisms are DCMotorSims
+ * whose results are written to the TalonFX and CANcoder sim states, so the module reads them back through the same
+ * status signals as on the robot.
+ */
+public class SwerveModuleIOSim extends SwerveModuleIOReal {
+
+  private static final double kDriveMomentOfInertia = 0.025;
+  private static final double kSteeringMomentOfInertia = 0.004;
+
+  private DCMotorSim m_driveSim;
+  private DCMotorSim m_steeringSim;
+  private final double m_driveDirection;
+
+  public SwerveModuleIOSim(SwerveModuleConfig moduleConfig, PrimePIDConstants drivePID, double odometryFrequencyHz) {
+    super(moduleConfig, drivePID, odometryFrequencyHz);
+
+    m_driveSim = new DCMotorSim(DCMotor.getFalcon500(1), m_config.DriveGearRatio, kDriveMomentOfInertia);
+    m_steeringSim = new DCMotorSim(DCMotor.getNEO(1), m_config.SteerGearRatio, kSteeringMomentOfInertia);
+
+    // The sim state is in the rotor's frame, the signals apply the motor's inversion
+    m_driveDirection = m_config.DriveInverted ? -1 : 1;
+  }
+
+  /**
+   * REVLib's simulation doesn't run the SPARK MAX's closed loop, so steering always runs on the RIO
+   */
+  @Override
+  public boolean ConfigureOnboardSteering(PrimePIDConstants pid) {
+    return false;
+  }
+
+  @Override
+  public void updateSimulation(double dtSeconds, SwerveModuleState state) {
+    var batteryVoltage = RobotController.getBatteryVoltage();
+
+    // Drive
+    var driveSimState = m_driveMotor.getSimState();
+    driveSimState.setSupplyVoltage(batteryVoltage);
+    m_driveSim.setInputVoltage(driveSimState.getMotorVoltage());
+    m_driveSim.update(dtSeconds);
+
+    var wheelRotations = m_driveSim.getAngularPositionRotations();
+    var wheelRotationsPerSecond = Units.radiansToRotations(m_driveSim.getAngularVelocityRadPerSec());
+    driveSimState.setRawRotorPosition(wheelRotations * m_config.DriveGearRatio);
+    driveSimState.setRotorVelocity(wheelRotationsPerSecond * m_config.DriveGearRatio);
+
+    // Steering. The CANcoder reports its raw position minus the starting offset.
+    m_steeringSim.setInputVoltage(m_steeringMotor.get() * batteryVoltage);
+    m_steeringSim.update(dtSeconds);
+
+    var moduleRotations = m_steeringSim.getAngularPositionRotations();
+    var encoderSimState = m_encoder.getSimState();
+    encoderSimState.setSupplyVoltage(batteryVoltage);
+    encoderSimState.setRawPosition(moduleRotations + m_config.StartingOffset);
+    encoderSimState.setVelocity(Units.radiansToRotations(m_steeringSim.getAngularVelocityRadPerSec()));
+
+    state.speedMetersPerSecond = m_driveDirection * wheelRotationsPerSecond * m_config.DriveWheelCircumferenceMeters;
+    state.angle = Rotation2d.fromRotations(moduleRotations);
+  }
+}
@@ -19,6 +19,32 @@ public class Color {
     this.b = b;
   }
 
+  /**
+   * Gets the color packed into an int as 0xRRGGBB
+   */
+  public int toPacked() {
+    return pack(r, g, b);
+  }
+
+  /**
+   * Packs red, green and blue values from 0 to 255 into an int as 0xRRGGBB
+   */
+  public static int pack(int r, int g, int b) {
+    return (r << 16) | (g << 8) | b;
+  }
+
+  public static int red(int packed) {
+    return (packed >> 16) & 0xFF;
+  }
+
+  public static int green(int packed) {
+    return (packed >> 8) & 0xFF;
+  }
+
+  public static int blue(int packed) {
+    return packed & 0xFF;
+  }
+
   // Predefined static colors
   public static final Color OFF = new Color(0, 0, 0);
 
@@ -0,0 +1,68 @@
+package prime.control.LEDs;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+
+/**
+ * A strip's pixels packed as 0xRRGGBB ints. Patterns render into it every update, and it tracks whether any pixel
+ * actually changed, so the strip is only sent new data when the frame is different.
+ */
+public class LEDFrameBuffer {
+
+  private final int[] m_pixels;
+  private boolean m_dirty = true;
+
+  public LEDFrameBuffer(int length) {
+    m_pixels = new int[length];
+  }
+
+  public int getLength() {
+    return m_pixels.length;
+  }
+
+  /**
+   * Gets a pixel packed as 0xRRGGBB
+   */
+  public int get(int index) {
+    return m_pixels[index];
+  }
+
+  /**
+   * Sets a pixel packed as 0xRRGGBB, marking the frame dirty if it changed
+   */
+  public void set(int index, int packedColor) {
+    if (m_pixels[index] == packedColor) return;
+
+    m_pixels[index] = packedColor;
+    m_dirty = true;
+  }
+
+  /**
+   * Sets a range of pixels packed as 0xRRGGBB
+   */
+  public void fill(int startingIndex, int length, int packedColor) {
+    for (int i = startingIndex; i < startingIndex + length; i++) set(i, packedColor);
+  }
+
+  /**
+   * Whether any pixel changed since the last flush
+   */
+  public boolean isDirty() {
+    return m_dirty;
+  }
+
+  /**
+   * Copies the frame into an AddressableLEDBuffer if any pixel changed since the last flush
+   * @return Whether the frame was copied, and so needs to be sent to the strip
+   */
+  public boolean flushTo(AddressableLEDBuffer buffer) {
+    if (!m_dirty) return false;
+
+    for (int i = 0; i < m_pixels.length; i++) {
+      var pixel = m_pixels[i];
+      buffer.setRGB(i, Color.red(pixel), Color.green(pixel), Color.blue(pixel));
+    }
+
+    m_dirty = false;
+    return true;
+  }
+}
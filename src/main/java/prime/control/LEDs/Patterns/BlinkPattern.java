@@ -1,8 +1,8 @@
 package prime.control.LEDs.Patterns;
 
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import prime.control.LEDs.Color;
 import prime.control.LEDs.LEDEffect;
+import prime.control.LEDs.LEDFrameBuffer;
 
 public class BlinkPattern extends LEDPattern {
 
@@ -18,15 +18,12 @@ public class BlinkPattern extends LEDPattern {
   }
 
   @Override
-  public void updateBuffer(int startingIndex, int length, AddressableLEDBuffer buffer) {
+  public void updateBuffer(int startingIndex, int length, LEDFrameBuffer buffer) {
     if (isUpdatable()) {
       Frame = Frame == 0 ? 1 : 0;
 
       var color = Frame == 0 ? Color : prime.control.LEDs.Color.OFF;
-
-      for (int i = 0; i < length; i++) {
-        buffer.setRGB(startingIndex + i, color.r, color.g, color.b);
-      }
+      buffer.fill(startingIndex, length, color.toPacked());
 
       LastFrameTime = System.currentTimeMillis();
     }
@@ -1,13 +1,15 @@
 package prime.control.LEDs.Patterns;
 
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import prime.control.LEDs.LEDEffect;
+import prime.control.LEDs.LEDFrameBuffer;
 
 public class ChasePattern extends LEDPattern {
 
   private static final int CHASE_LENGTH = 8; // Length of the chasing group
   private static final int FADE_LENGTH = 16; // Length of the fading tail
 
+  private final int[] _fadeTable = new int[FADE_LENGTH]; // The packed color of each pixel in the tail
+
   /**
    * Create a new ChasePattern with a color and speed
    *
@@ -16,82 +18,41 @@ public class ChasePattern extends LEDPattern {
    */
   public ChasePattern(prime.control.LEDs.Color color, double chaseSpeedSeconds, boolean reversed) {
     super(color, LEDEffect.Chase, chaseSpeedSeconds, reversed);
+
+    // The tail fades out linearly from the last chase pixel
+    for (int i = 0; i < FADE_LENGTH; i++) {
+      _fadeTable[i] = getScaledColor((double) (FADE_LENGTH - 1 - i) / FADE_LENGTH);
+    }
   }
 
   @Override
-  public void updateBuffer(int startingIndex, int length, AddressableLEDBuffer buffer) {
+  public void updateBuffer(int startingIndex, int length, LEDFrameBuffer buffer) {
     var totalFrameCount = length + CHASE_LENGTH + FADE_LENGTH;
     var frameSpeedS = EffectSpeedSeconds / totalFrameCount;
     var currentTime = System.currentTimeMillis();
 
     if (currentTime - LastFrameTime >= (frameSpeedS * 1000)) {
-      if (!Reversed) {
-        // Set the chase group
-        var chaseGroupFirst = startingIndex + Frame;
-        var chaseGroupLast = chaseGroupFirst - CHASE_LENGTH;
-
-        for (int i = startingIndex; i < (startingIndex + length); i++) {
-          // If i is a chase pixel, set it to ON
-          if (i > chaseGroupLast && i <= chaseGroupFirst) {
-            buffer.setRGB((int) i, Color.r, Color.g, Color.b);
-          }
-
-          // If it's within FADE_LENGTH of the last chase pixel, fade it out
-          var lastFade = chaseGroupLast - FADE_LENGTH;
-          if (i <= chaseGroupLast && i > lastFade) {
-            var distanceFromLastChase = Math.abs((chaseGroupLast + 1) - i);
-            double brightnessScalar = (1d / (double) FADE_LENGTH) * (double) (FADE_LENGTH - distanceFromLastChase);
-
-            var scaledColor = new prime.control.LEDs.Color(
-              (int) (Color.r * brightnessScalar),
-              (int) (Color.g * brightnessScalar),
-              (int) (Color.b * brightnessScalar)
-            );
-
-            buffer.setRGB(i, scaledColor.r, scaledColor.g, scaledColor.b);
-          }
-
-          if (i <= lastFade) {
-            buffer.setRGB(i, 0, 0, 0);
-          }
-        }
-
-        Frame = Frame + 1;
-        if (Frame >= totalFrameCount) {
-          Frame = 0;
-        }
-      } else {
-        // Set the chase group
-        var chaseGroupFirst = startingIndex + length - Frame;
-        var chaseGroupLast = chaseGroupFirst + CHASE_LENGTH;
-        for (long i = chaseGroupLast; i >= chaseGroupFirst; i--) {
-          if (i >= startingIndex && i < startingIndex + length) {
-            buffer.setRGB((int) i, Color.r, Color.g, Color.b);
-          }
-        }
-
-        // Set the fading trail
-        var fadeTrailFirst = chaseGroupLast + 1;
-        var fadeTrailLast = fadeTrailFirst + FADE_LENGTH;
-        for (long i = fadeTrailLast; i >= fadeTrailFirst; i--) {
-          if (i >= startingIndex && i < startingIndex + length) {
-            var brightnessScalar = (float) (length - i) / FADE_LENGTH;
-            buffer.setRGB(
-              (int) i,
-              (byte) (Color.r * brightnessScalar),
-              (byte) (Color.g * brightnessScalar),
-              (byte) (Color.b * brightnessScalar)
-            );
-          }
+      var color = Color.toPacked();
+
+      for (int i = 0; i < length; i++) {
+        // How far the pixel is behind the front of the chase group, which starts at the far end when reversed
+        var distance = Frame - (Reversed ? length - 1 - i : i);
+
+        if (distance >= 0 && distance < CHASE_LENGTH) {
+          buffer.set(startingIndex + i, color);
+        } else if (distance >= CHASE_LENGTH && distance < CHASE_LENGTH + FADE_LENGTH) {
+          buffer.set(startingIndex + i, _fadeTable[distance - CHASE_LENGTH]);
+        } else {
+          buffer.set(startingIndex + i, 0);
         }
+      }
 
-        Frame = Frame - 1;
-        if (Frame <= 0) {
-          Frame = totalFrameCount;
-        }
+      Frame = Frame + 1;
+      if (Frame >= totalFrameCount) {
+        Frame = 0;
       }
 
-      LastFrameTime = System.currentTimeMillis();
+      LastFrameTime = currentTime;
     }
   }
 }
@@ -1,12 +1,22 @@
 package prime.control.LEDs.Patterns;
 
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import prime.control.LEDs.Color;
 import prime.control.LEDs.LEDEffect;
+import prime.control.LEDs.LEDFrameBuffer;
 
 public abstract class LEDPattern {
 
   protected static final double MIN_FRAME_SPEED = 0.007;
+  protected static final double GAMMA = 2.2;
+
+  // Maps a linear brightness from 0 to 255 to the LED's output level, so fades look even to the eye
+  private static final int[] GAMMA_TABLE = new int[256];
+
+  static {
+    for (int i = 0; i < GAMMA_TABLE.length; i++) {
+      GAMMA_TABLE[i] = (int) Math.round(255 * Math.pow(i / 255.0, GAMMA));
+    }
+  }
 
   /**
    * The color of the pattern
@@ -59,12 +69,27 @@ public abstract class LEDPattern {
   }
 
   /**
-   * Update the buffer with the pattern
+   * Update the buffer with the pattern. Called every LED update, so this should not allocate.
    * @param startingIndex The starting index of the buffer to update
    * @param length The length of the buffer to update
    * @param buffer The buffer to update
    */
-  public abstract void updateBuffer(int startingIndex, int length, AddressableLEDBuffer buffer);
+  public abstract void updateBuffer(int startingIndex, int length, LEDFrameBuffer buffer);
+
+  /**
+   * Gets the pattern's color at a brightness, gamma corrected and packed as 0xRRGGBB. Patterns build their lookup
+   * tables with this when they're created.
+   * @param brightness The linear brightness, from 0 to 1
+   */
+  protected int getScaledColor(double brightness) {
+    var level = GAMMA_TABLE[(int) Math.round(Math.max(0, Math.min(1, brightness)) * 255)];
+
+    return prime.control.LEDs.Color.pack(
+      (Color.r * level + 127) / 255,
+      (Color.g * level + 127) / 255,
+      (Color.b * level + 127) / 255
+    );
+  }
 
   /**
    * Check if the pattern is the same as another pattern
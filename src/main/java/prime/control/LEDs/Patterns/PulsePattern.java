@@ -1,12 +1,13 @@
 package prime.control.LEDs.Patterns;
 
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import prime.control.LEDs.LEDEffect;
+import prime.control.LEDs.LEDFrameBuffer;
 
 public class PulsePattern extends LEDPattern {
 
   private static final int MIN_FRAME_COUNT = 70;
   private int _frameCount = MIN_FRAME_COUNT;
+  private int[] _brightnessTable; // The packed color at each frame
 
   /**
    * Create a new PulsePattern with a color and speed
@@ -17,6 +18,12 @@ public class PulsePattern extends LEDPattern {
     // Get frame count from pulseSpeedSeconds and minimum frame speed
     super(color, LEDEffect.Pulse, getFastestFrameSpeed(pulseSpeedSeconds), false);
     _frameCount = getMaxFrameCount(pulseSpeedSeconds);
+
+    // Frame 0 is OFF, frame _frameCount is MAX_BRIGHTNESS
+    _brightnessTable = new int[_frameCount + 1];
+    for (int i = 0; i <= _frameCount; i++) {
+      _brightnessTable[i] = getScaledColor((double) i / _frameCount);
+    }
   }
 
   /**
@@ -34,20 +41,10 @@ public class PulsePattern extends LEDPattern {
   }
 
   @Override
-  public void updateBuffer(int startingIndex, int length, AddressableLEDBuffer buffer) {
+  public void updateBuffer(int startingIndex, int length, LEDFrameBuffer buffer) {
     if (isUpdatable()) {
-      // calculate brightness of the color by the current Frame. Frame 0 is OFF, frame FRAME_COUNT is MAX_BRIGHTNESS
-      var scalar = (float) Frame / _frameCount;
-      var color = new prime.control.LEDs.Color(
-        (int) (Color.r * scalar),
-        (int) (Color.g * scalar),
-        (int) (Color.b * scalar)
-      );
-
-      // Set the color of each pixel in the buffer length
-      for (int i = 0; i < length; i++) {
-        buffer.setRGB(startingIndex + i, color.r, color.g, color.b);
-      }
+      // Set every pixel to the color at the current frame's brightness
+      buffer.fill(startingIndex, length, _brightnessTable[Frame]);
 
       // Increment the frame forward if not reversed, decrement if reversed
       Frame += !Reversed ? 4 : -4;
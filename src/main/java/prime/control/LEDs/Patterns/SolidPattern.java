@@ -1,7 +1,7 @@
 package prime.control.LEDs.Patterns;
 
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import prime.control.LEDs.LEDEffect;
+import prime.control.LEDs.LEDFrameBuffer;
 
 public class SolidPattern extends LEDPattern {
 
@@ -24,9 +24,7 @@ public class SolidPattern extends LEDPattern {
   }
 
   @Override
-  public void updateBuffer(int startingIndex, int length, AddressableLEDBuffer buffer) {
-    for (int i = 0; i < length; i++) {
-      buffer.setRGB(startingIndex + i, Color.r, Color.g, Color.b);
-    }
+  public void updateBuffer(int startingIndex, int length, LEDFrameBuffer buffer) {
+    buffer.fill(startingIndex, length, Color.toPacked());
   }
 }
@@ -0,0 +1,272 @@
+package prime.devices;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrame;
+import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+import com.revrobotics.REVLibError;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Sets how often each CAN device sends its status frames, from the signals each subsystem declares it reads. Every
+ * Phoenix 6 signal that isn't declared is turned off with optimizeBusUtilization(), and the SPARK MAX and Phoenix 5
+ * frames nobody reads are slowed down, which leaves room on the bus for high rate odometry.
+ *
+ * Declare each device's signals from the constructor that creates it, call submitAll() before
+ * DeviceConfigService.awaitAll() so the rates are applied after each device's configuration, then call
+ * publishPeriodically() once per robot loop to publish the measured bus utilization and error counts under Robot/CAN.
+ */
+public final class CANBudget {
+
+  public static final double kLoopFrequencyHz = 50;
+  public static final int kLoopPeriodMs = 20;
+
+  // SPARK MAX frames are allowed up to 65535 ms, but stay fast enough to show up in a log
+  public static final int kSparkUnusedPeriodMs = 500;
+  private static final int kSparkStatus0PeriodMs = 100; // Applied output and faults
+  private static final int kPhoenix5UnusedPeriodMs = 255; // The slowest Phoenix 5 allows
+
+  private static final StatusFrame[] kVictorUnusedFrames = new StatusFrame[] {
+    StatusFrame.Status_2_Feedback0,
+    StatusFrame.Status_4_AinTempVbat,
+    StatusFrame.Status_10_Targets,
+    StatusFrame.Status_12_Feedback1,
+    StatusFrame.Status_13_Base_PIDF0,
+    StatusFrame.Status_14_Turn_PIDF1,
+  };
+
+  // An 8 byte extended frame is about 130 bits on the wire with bit stuffing, and the roboRIO's bus runs at 1 Mbit/s
+  private static final double kBitsPerFrame = 130;
+  private static final double kBusBitsPerSecond = 1e6;
+  private static final double kMaxEstimatedUtilization = 0.6;
+
+  private static final int kPublishPeriodLoops = 50;
+
+  private static final LinkedHashMap<String, DeviceBudget> s_devices = new LinkedHashMap<>();
+  private static int s_loopsSincePublish = 0;
+
+  private CANBudget() {}
+
+  /**
+   * A device's status frame rates, applied as a configuration after the device's own
+   */
+  private abstract static class DeviceBudget implements IDeviceConfig {
+
+    protected final String m_deviceName;
+
+    protected DeviceBudget(String deviceName) {
+      m_deviceName = deviceName;
+    }
+
+    @Override
+    public String getName() {
+      return m_deviceName + "/Frames";
+    }
+
+    @Override
+    public boolean isApplied(double timeoutSeconds) {
+      // Frame rates can't be read back, and setting them is a single frame each
+      return false;
+    }
+
+    /**
+     * Gets how many status frames per second the device is expected to send
+     */
+    public abstract double getFramesPerSecond();
+  }
+
+  private static class PhoenixBudget extends DeviceBudget {
+
+    private final ParentDevice m_device;
+    private final ArrayList<BaseStatusSignal[]> m_signalGroups = new ArrayList<>();
+    private final ArrayList<Double> m_groupFrequencies = new ArrayList<>();
+
+    public PhoenixBudget(String deviceName, ParentDevice device) {
+      super(deviceName);
+      m_device = device;
+    }
+
+    @Override
+    public boolean apply(double timeoutSeconds) {
+      var ok = true;
+      for (int i = 0; i < m_signalGroups.size(); i++) {
+        for (var signal : m_signalGroups.get(i)) {
+          ok &= signal.setUpdateFrequency(m_groupFrequencies.get(i), timeoutSeconds).isOK();
+        }
+      }
+
+      // Turns off every signal that wasn't given a frequency above
+      return ok && m_device.optimizeBusUtilization(timeoutSeconds).isOK();
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+      // An upper bound, since the device packs several signals into some frames
+      var framesPerSecond = 0.0;
+      for (int i = 0; i < m_signalGroups.size(); i++) {
+        framesPerSecond += m_groupFrequencies.get(i) * m_signalGroups.get(i).length;
+      }
+
+      return framesPerSecond;
+    }
+  }
+
+  private static class SparkMaxBudget extends DeviceBudget {
+
+    private final CANSparkMax m_device;
+    private final int m_velocityPeriodMs;
+    private final int m_positionPeriodMs;
+
+    public SparkMaxBudget(String deviceName, CANSparkMax device, int velocityPeriodMs, int positionPeriodMs) {
+      super(deviceName);
+      m_device = device;
+      m_velocityPeriodMs = velocityPeriodMs;
+      m_positionPeriodMs = positionPeriodMs;
+    }
+
+    @Override
+    public boolean apply(double timeoutSeconds) {
+      m_device.setCANTimeout((int) Math.ceil(timeoutSeconds * 1000));
+
+      return (
+        m_device.setPeriodicFramePeriod(PeriodicFrame.kStatus0, kSparkStatus0PeriodMs) == REVLibError.kOk &&
+        m_device.setPeriodicFramePeriod(PeriodicFrame.kStatus1, m_velocityPeriodMs) == REVLibError.kOk &&
+        m_device.setPeriodicFramePeriod(PeriodicFrame.kStatus2, m_positionPeriodMs) == REVLibError.kOk &&
+        m_device.setPeriodicFramePeriod(PeriodicFrame.kStatus3, kSparkUnusedPeriodMs) == REVLibError.kOk &&
+        m_device.setPeriodicFramePeriod(PeriodicFrame.kStatus4, kSparkUnusedPeriodMs) == REVLibError.kOk
+      );
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+      return (
+        1000.0 / kSparkStatus0PeriodMs +
+        1000.0 / m_velocityPeriodMs +
+        1000.0 / m_positionPeriodMs +
+        2 * 1000.0 / kSparkUnusedPeriodMs
+      );
+    }
+  }
+
+  private static class VictorSPXBudget extends DeviceBudget {
+
+    private final VictorSPX m_device;
+    private final int m_generalPeriodMs;
+
+    public VictorSPXBudget(String deviceName, VictorSPX device, int generalPeriodMs) {
+      super(deviceName);
+      m_device = device;
+      m_generalPeriodMs = generalPeriodMs;
+    }
+
+    @Override
+    public boolean apply(double timeoutSeconds) {
+      var timeoutMs = (int) Math.ceil(timeoutSeconds * 1000);
+
+      var ok =
+        m_device.setStatusFramePeriod(StatusFrame.Status_1_General, m_generalPeriodMs, timeoutMs) == ErrorCode.OK;
+      for (var frame : kVictorUnusedFrames) {
+        ok &= m_device.setStatusFramePeriod(frame, kPhoenix5UnusedPeriodMs, timeoutMs) == ErrorCode.OK;
+      }
+
+      return ok;
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+      return 1000.0 / m_generalPeriodMs + kVictorUnusedFrames.length * 1000.0 / kPhoenix5UnusedPeriodMs;
+    }
+  }
+
+  /**
+   * Declares Phoenix 6 signals a subsystem reads and how often. Declare every signal read from the device, including
+   * ones read through getters like TalonFX.get(), since the rest are turned off.
+   * @param deviceName The name the device's configuration was submitted under
+   */
+  public static synchronized void declarePhoenix(
+    String deviceName,
+    ParentDevice device,
+    double frequencyHz,
+    BaseStatusSignal... signals
+  ) {
+    var budget = s_devices.get(deviceName);
+    if (budget == null) {
+      budget = new PhoenixBudget(deviceName, device);
+      s_devices.put(deviceName, budget);
+    }
+
+    var phoenixBudget = (PhoenixBudget) budget;
+    phoenixBudget.m_signalGroups.add(signals);
+    phoenixBudget.m_groupFrequencies.add(frequencyHz);
+  }
+
+  /**
+   * Declares how often a SPARK MAX's velocity (status 1) and position (status 2) frames are read. Pass
+   * kSparkUnusedPeriodMs for a frame nobody reads.
+   * @param deviceName The name the device's configuration was submitted under
+   */
+  public static synchronized void declareSparkMax(
+    String deviceName,
+    CANSparkMax device,
+    int velocityPeriodMs,
+    int positionPeriodMs
+  ) {
+    s_devices.put(deviceName, new SparkMaxBudget(deviceName, device, velocityPeriodMs, positionPeriodMs));
+  }
+
+  /**
+   * Declares how often a VictorSPX's general frame, which carries its output, is read
+   * @param deviceName The name the device's configuration was submitted under
+   */
+  public static synchronized void declareVictorSPX(String deviceName, VictorSPX device, int generalPeriodMs) {
+    s_devices.put(deviceName, new VictorSPXBudget(deviceName, device, generalPeriodMs));
+  }
+
+  /**
+   * Submits every declared device's frame rates to the DeviceConfigService, each after the device's own configuration,
+   * and publishes the expected frames per second of each device
+   */
+  public static synchronized void submitAll() {
+    var totalFramesPerSecond = 0.0;
+    for (var budget : s_devices.values()) {
+      DeviceConfigService.submitAfter(budget.m_deviceName, budget);
+
+      var framesPerSecond = budget.getFramesPerSecond();
+      SmartDashboard.putNumber("Robot/CAN/Devices/" + budget.m_deviceName + "/FramesPerSecond", framesPerSecond);
+      totalFramesPerSecond += framesPerSecond;
+    }
+
+    var estimatedUtilization = totalFramesPerSecond * kBitsPerFrame / kBusBitsPerSecond;
+    SmartDashboard.putNumber("Robot/CAN/DeclaredFramesPerSecond", totalFramesPerSecond);
+    SmartDashboard.putNumber("Robot/CAN/EstimatedUtilization", estimatedUtilization * 100);
+
+    if (estimatedUtilization > kMaxEstimatedUtilization) {
+      DriverStation.reportWarning(
+        "[WARNING] >> Declared CAN status frames use about " + Math.round(estimatedUtilization * 100) + "% of the bus",
+        false
+      );
+    }
+  }
+
+  /**
+   * Publishes the measured bus utilization and error counts every kPublishPeriodLoops calls. Call once per robot loop.
+   */
+  public static void publishPeriodically() {
+    if (++s_loopsSincePublish < kPublishPeriodLoops) return;
+
+    s_loopsSincePublish = 0;
+    var status = RobotController.getCANStatus();
+    SmartDashboard.putNumber("Robot/CAN/Utilization", status.percentBusUtilization * 100);
+    SmartDashboard.putNumber("Robot/CAN/BusOffCount", status.busOffCount);
+    SmartDashboard.putNumber("Robot/CAN/TxFullCount", status.txFullCount);
+    SmartDashboard.putNumber("Robot/CAN/ReceiveErrorCount", status.receiveErrorCount);
+    SmartDashboard.putNumber("Robot/CAN/TransmitErrorCount", status.transmitErrorCount);
+  }
+}
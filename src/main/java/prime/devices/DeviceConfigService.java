@@ -0,0 +1,142 @@
+package prime.devices;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configures CAN devices concurrently at startup. Each blocking configuration call spends most of its time waiting for
+ * the device to acknowledge, so configuring devices in parallel instead of one after another takes a fraction of the
+ * time. A device whose configuration reads back as already applied, such as after a robot code restart, is skipped.
+ *
+ * Submit each device's configuration from the constructor that creates it, then call awaitAll() once every subsystem
+ * exists to wait for them and report how long each took and which failed.
+ */
+public final class DeviceConfigService {
+
+  private static final int kThreadCount = 8;
+  private static final int kMaxAttempts = 3;
+  private static final double kTimeoutSeconds = 0.1;
+
+  private static ExecutorService s_executor;
+  private static final LinkedHashMap<String, CompletableFuture<Result>> s_results = new LinkedHashMap<>();
+  private static long s_firstSubmitNanos;
+
+  private DeviceConfigService() {}
+
+  /**
+   * How a device's configuration went
+   */
+  public static final class Result {
+
+    public String name;
+    public boolean skipped; // The device already had the configuration
+    public boolean success;
+    public int attempts;
+    public double milliseconds;
+  }
+
+  /**
+   * Starts configuring a device in the background. Configurations for the same device name run in submit order.
+   * @return Completes once the device is configured, or every attempt has failed
+   */
+  public static synchronized CompletableFuture<Result> submit(IDeviceConfig config) {
+    return submitAfter(config.getName(), config);
+  }
+
+  /**
+   * Starts configuring a device in the background once the configuration last submitted under another name is done,
+   * such as settings a factory reset in that configuration would undo
+   * @return Completes once the device is configured, or every attempt has failed
+   */
+  public static synchronized CompletableFuture<Result> submitAfter(String previousName, IDeviceConfig config) {
+    if (s_executor == null) {
+      var threadIndex = new AtomicInteger();
+      s_executor =
+        Executors.newFixedThreadPool(
+          kThreadCount,
+          runnable -> {
+            var thread = new Thread(runnable, "DeviceConfig-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+          }
+        );
+      s_firstSubmitNanos = System.nanoTime();
+    }
+
+    var previous = s_results.get(previousName);
+    var future = previous == null
+      ? CompletableFuture.supplyAsync(() -> configure(config), s_executor)
+      : previous.thenApplyAsync(result -> configure(config), s_executor);
+    s_results.put(config.getName(), future);
+
+    return future;
+  }
+
+  private static Result configure(IDeviceConfig config) {
+    var result = new Result();
+    result.name = config.getName();
+    var startNanos = System.nanoTime();
+
+    try {
+      if (config.isApplied(kTimeoutSeconds)) {
+        result.skipped = true;
+        result.success = true;
+      } else {
+        while (!result.success && result.attempts < kMaxAttempts) {
+          result.attempts++;
+          result.success = config.apply(kTimeoutSeconds);
+        }
+      }
+    } catch (Exception e) {
+      DriverStation.reportError(
+        "[ERROR] >> Failed to configure " + config.getName() + ": " + e.getMessage(),
+        e.getStackTrace()
+      );
+    }
+
+    result.milliseconds = (System.nanoTime() - startNanos) / 1e6;
+    return result;
+  }
+
+  /**
+   * Waits for every submitted configuration, reports any failures and publishes how long each device took under
+   * Robot/DeviceConfig
+   * @return The result of every configuration, in submit order
+   */
+  public static synchronized List<Result> awaitAll() {
+    var results = new ArrayList<Result>();
+    for (var future : s_results.values()) results.add(future.join());
+    if (results.isEmpty()) return results;
+
+    var totalMilliseconds = (System.nanoTime() - s_firstSubmitNanos) / 1e6;
+    var skipped = 0;
+    var failed = 0;
+    for (var result : results) {
+      SmartDashboard.putNumber("Robot/DeviceConfig/" + result.name + "/Ms", result.milliseconds);
+      SmartDashboard.putBoolean("Robot/DeviceConfig/" + result.name + "/Skipped", result.skipped);
+      SmartDashboard.putBoolean("Robot/DeviceConfig/" + result.name + "/Success", result.success);
+
+      if (result.skipped) skipped++;
+      if (!result.success) {
+        failed++;
+        DriverStation.reportError(
+          "[ERROR] >> " + result.name + " wasn't configured after " + result.attempts + " attempts",
+          false
+        );
+      }
+    }
+    SmartDashboard.putNumber("Robot/DeviceConfig/TotalMs", totalMilliseconds);
+    SmartDashboard.putNumber("Robot/DeviceConfig/DeviceCount", results.size());
+    SmartDashboard.putNumber("Robot/DeviceConfig/UnchangedCount", skipped);
+    SmartDashboard.putNumber("Robot/DeviceConfig/FailedCount", failed);
+
+    return results;
+  }
+}
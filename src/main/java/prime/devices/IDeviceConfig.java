@@ -0,0 +1,22 @@
+package prime.devices;
+
+/**
+ * A CAN device's configuration, applied by the DeviceConfigService
+ */
+public interface IDeviceConfig {
+  /**
+   * Gets the name the device is reported under
+   */
+  public String getName();
+
+  /**
+   * Reads the device's configuration back and checks whether it already matches this one
+   */
+  public boolean isApplied(double timeoutSeconds);
+
+  /**
+   * Applies this configuration to the device
+   * @return Whether the device acknowledged every setting
+   */
+  public boolean apply(double timeoutSeconds);
+}
@@ -0,0 +1,96 @@
+package prime.devices;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.configs.CANcoderConfiguration;
+import com.ctre.phoenix6.configs.CustomParamsConfigs;
+import com.ctre.phoenix6.configs.ParentConfiguration;
+import com.ctre.phoenix6.configs.Pigeon2Configuration;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import com.ctre.phoenix6.hardware.TalonFX;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A full Phoenix 6 device configuration. A 16 bit hash of the configuration is stored in the device's CustomParam0
+ * when it's applied, so it can be compared by reading back that one config group instead of every setting. Applying a
+ * full configuration resets everything it doesn't set to factory defaults, so no separate factory reset is needed.
+ */
+public class PhoenixDeviceConfig<T extends ParentConfiguration> implements IDeviceConfig {
+
+  private final String m_name;
+  private final T m_config;
+  private final int m_hash;
+  private final BiFunction<T, Double, StatusCode> m_apply;
+  private final BiFunction<CustomParamsConfigs, Double, StatusCode> m_refreshCustomParams;
+
+  /**
+   * Creates a new PhoenixDeviceConfig. CustomParam0 of the configuration is overwritten with its hash.
+   * @param customParams Gets the configuration's custom params
+   * @param apply Applies a configuration to the device with a timeout
+   * @param refreshCustomParams Reads the device's custom params back with a timeout
+   */
+  public PhoenixDeviceConfig(
+    String name,
+    T config,
+    Function<T, CustomParamsConfigs> customParams,
+    BiFunction<T, Double, StatusCode> apply,
+    BiFunction<CustomParamsConfigs, Double, StatusCode> refreshCustomParams
+  ) {
+    m_name = name;
+    m_config = config;
+    m_apply = apply;
+    m_refreshCustomParams = refreshCustomParams;
+
+    // CustomParam0 only holds -32768 to 32767, so the hash is folded into 16 bits
+    customParams.apply(config).CustomParam0 = 0;
+    var hash = config.serialize().hashCode();
+    m_hash = (short) (hash ^ (hash >>> 16));
+    customParams.apply(config).CustomParam0 = m_hash;
+  }
+
+  public static PhoenixDeviceConfig<TalonFXConfiguration> forTalonFX(
+    String name,
+    TalonFX device,
+    TalonFXConfiguration config
+  ) {
+    var configurator = device.getConfigurator();
+    return new PhoenixDeviceConfig<>(name, config, c -> c.CustomParams, configurator::apply, configurator::refresh);
+  }
+
+  public static PhoenixDeviceConfig<CANcoderConfiguration> forCANcoder(
+    String name,
+    CANcoder device,
+    CANcoderConfiguration config
+  ) {
+    var configurator = device.getConfigurator();
+    return new PhoenixDeviceConfig<>(name, config, c -> c.CustomParams, configurator::apply, configurator::refresh);
+  }
+
+  public static PhoenixDeviceConfig<Pigeon2Configuration> forPigeon2(
+    String name,
+    Pigeon2 device,
+    Pigeon2Configuration config
+  ) {
+    var configurator = device.getConfigurator();
+    return new PhoenixDeviceConfig<>(name, config, c -> c.CustomParams, configurator::apply, configurator::refresh);
+  }
+
+  @Override
+  public String getName() {
+    return m_name;
+  }
+
+  @Override
+  public boolean isApplied(double timeoutSeconds) {
+    var current = new CustomParamsConfigs();
+
+    return m_refreshCustomParams.apply(current, timeoutSeconds).isOK() && current.CustomParam0 == m_hash;
+  }
+
+  @Override
+  public boolean apply(double timeoutSeconds) {
+    return m_apply.apply(m_config, timeoutSeconds).isOK();
+  }
+}
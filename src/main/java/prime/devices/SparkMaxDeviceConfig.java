@@ -0,0 +1,73 @@
+package prime.devices;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMax.IdleMode;
+import com.revrobotics.REVLibError;
+
+/**
+ * A SPARK MAX configuration: a factory reset, then the settings below. Nothing is burned to flash, so a power cycle
+ * returns the controller to its defaults.
+ *
+ * The SPARK MAX has nowhere to store a hash and can't report every setting, so it counts as already configured when
+ * the settings it can report (inversion and idle mode) match and it isn't in its factory default idle mode. That
+ * means it was configured since it last powered on, which only this robot does. The smart current limit can't be read
+ * back, so it isn't compared, and a configuration that leaves the controller in coast is applied on every boot.
+ */
+public class SparkMaxDeviceConfig implements IDeviceConfig {
+
+  private final String m_name;
+  private final CANSparkMax m_device;
+  private boolean m_inverted = false;
+  private IdleMode m_idleMode = IdleMode.kCoast;
+  private int m_stallCurrentLimit = 0;
+  private int m_freeCurrentLimit = 0;
+
+  public SparkMaxDeviceConfig(String name, CANSparkMax device) {
+    m_name = name;
+    m_device = device;
+  }
+
+  public SparkMaxDeviceConfig withInverted(boolean inverted) {
+    m_inverted = inverted;
+    return this;
+  }
+
+  public SparkMaxDeviceConfig withIdleMode(IdleMode idleMode) {
+    m_idleMode = idleMode;
+    return this;
+  }
+
+  public SparkMaxDeviceConfig withSmartCurrentLimit(int stallLimitAmps, int freeLimitAmps) {
+    m_stallCurrentLimit = stallLimitAmps;
+    m_freeCurrentLimit = freeLimitAmps;
+    return this;
+  }
+
+  @Override
+  public String getName() {
+    return m_name;
+  }
+
+  @Override
+  public boolean isApplied(double timeoutSeconds) {
+    // Coast is the factory default, so a controller in coast can't be told apart from one that was just powered on
+    if (m_idleMode == IdleMode.kCoast) return false;
+
+    m_device.setCANTimeout((int) Math.ceil(timeoutSeconds * 1000));
+    return m_device.getIdleMode() == m_idleMode && m_device.getInverted() == m_inverted;
+  }
+
+  @Override
+  public boolean apply(double timeoutSeconds) {
+    m_device.setCANTimeout((int) Math.ceil(timeoutSeconds * 1000));
+
+    var ok = m_device.restoreFactoryDefaults() == REVLibError.kOk;
+    if (m_stallCurrentLimit > 0) {
+      ok &= m_device.setSmartCurrentLimit(m_stallCurrentLimit, m_freeCurrentLimit) == REVLibError.kOk;
+    }
+    ok &= m_device.setIdleMode(m_idleMode) == REVLibError.kOk;
+    m_device.setInverted(m_inverted);
+
+    return ok && m_device.getInverted() == m_inverted;
+  }
+}
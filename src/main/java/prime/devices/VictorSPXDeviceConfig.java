@@ -0,0 +1,52 @@
+package prime.devices;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+import com.ctre.phoenix.motorcontrol.can.VictorSPXConfiguration;
+
+/**
+ * A full Phoenix 5 VictorSPX configuration. As with PhoenixDeviceConfig, a hash of it is stored in custom param 0 so
+ * it can be compared by reading back one parameter. Inversion and neutral mode aren't configs on the VictorSPX, so set
+ * them on the device directly.
+ */
+public class VictorSPXDeviceConfig implements IDeviceConfig {
+
+  private final String m_name;
+  private final VictorSPX m_device;
+  private final VictorSPXConfiguration m_config;
+  private final int m_hash;
+
+  /**
+   * Creates a new VictorSPXDeviceConfig. customParam0 of the configuration is overwritten with its hash.
+   */
+  public VictorSPXDeviceConfig(String name, VictorSPX device, VictorSPXConfiguration config) {
+    m_name = name;
+    m_device = device;
+    m_config = config;
+
+    config.customParam0 = 0;
+    m_hash = config.toString().hashCode();
+    config.customParam0 = m_hash;
+  }
+
+  @Override
+  public String getName() {
+    return m_name;
+  }
+
+  @Override
+  public boolean isApplied(double timeoutSeconds) {
+    var timeoutMs = (int) Math.ceil(timeoutSeconds * 1000);
+
+    return (
+      m_device.configGetCustomParam(0, timeoutMs) == m_hash &&
+      m_device.getLastError() == ErrorCode.OK
+    );
+  }
+
+  @Override
+  public boolean apply(double timeoutSeconds) {
+    // Every setting is written, so this also acts as a factory reset
+    return m_device.configAllSettings(m_config, (int) Math.ceil(timeoutSeconds * 1000)) == ErrorCode.OK;
+  }
+}
@@ -4,21 +4,24 @@ import com.revrobotics.CANSparkMax;
 
 public class LazyCANSparkMax extends CANSparkMax {
 
-  protected double mLastSpeed = Double.NaN;
+  private final LazyOutputFilter m_filter = new LazyOutputFilter();
 
   public LazyCANSparkMax(int deviceId, MotorType type) {
     super(deviceId, type);
   }
 
+  public LazyOutputFilter getOutputFilter() {
+    return m_filter;
+  }
+
   public double getLastSpeed() {
-    return mLastSpeed;
+    return m_filter.getLastValue();
   }
 
   @Override
   public void set(double speed) {
-    if (speed == mLastSpeed) return;
+    if (!m_filter.shouldSend(0, speed)) return;
 
-    mLastSpeed = speed;
     super.set(speed);
   }
 }
@@ -0,0 +1,28 @@
+package prime.movers;
+
+import edu.wpi.first.wpilibj.DoubleSolenoid;
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+
+/**
+ * A DoubleSolenoid that skips setting the value it already has. The keep-alive still resends it every so often in case
+ * the pneumatics hub lost it.
+ */
+public class LazyDoubleSolenoid extends DoubleSolenoid {
+
+  private final LazyOutputFilter m_filter = new LazyOutputFilter();
+
+  public LazyDoubleSolenoid(int module, PneumaticsModuleType moduleType, int forwardChannel, int reverseChannel) {
+    super(module, moduleType, forwardChannel, reverseChannel);
+  }
+
+  public LazyOutputFilter getOutputFilter() {
+    return m_filter;
+  }
+
+  @Override
+  public void set(Value value) {
+    if (!m_filter.shouldSend(value.ordinal(), 0)) return;
+
+    super.set(value);
+  }
+}
@@ -0,0 +1,118 @@
+package prime.movers;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Decides whether an actuator output is worth sending. An output is skipped when it's in the same mode as the last
+ * one sent and within the tolerance of its value, unless the keep-alive period has passed since the last send, so a
+ * device that reboots mid-match still gets its output back.
+ *
+ * Every lazy actuator adds to the totals published under Robot/CAN, which show how many frames (and JNI calls) were
+ * avoided.
+ */
+public class LazyOutputFilter {
+
+  public static final double kDefaultKeepAliveSeconds = 1.0;
+  private static final int kPublishPeriodLoops = 50;
+
+  private static long s_totalSent = 0;
+  private static long s_totalSkipped = 0;
+  private static int s_loopsSincePublish = 0;
+
+  private final double m_tolerance;
+  private final long m_keepAliveNanos;
+
+  private boolean m_hasSent = false;
+  private int m_lastMode;
+  private double m_lastValue;
+  private long m_lastSendNanos;
+  private long m_sent = 0;
+  private long m_skipped = 0;
+
+  /**
+   * Creates a new LazyOutputFilter
+   * @param tolerance How far a value can move from the last one sent before it's sent again
+   * @param keepAliveSeconds How often an unchanged output is sent anyway
+   */
+  public LazyOutputFilter(double tolerance, double keepAliveSeconds) {
+    m_tolerance = tolerance;
+    m_keepAliveNanos = (long) (keepAliveSeconds * 1e9);
+  }
+
+  /**
+   * Creates a new LazyOutputFilter that only skips exact repeats
+   */
+  public LazyOutputFilter() {
+    this(0, kDefaultKeepAliveSeconds);
+  }
+
+  /**
+   * Checks whether an output should be sent, and records it as sent if so
+   * @param mode The control mode, or any other key that forces a send when it changes
+   * @param value The output's value
+   */
+  public boolean shouldSend(int mode, double value) {
+    // System.nanoTime() instead of the FPGA clock, which would cost the JNI call this is meant to save
+    var now = System.nanoTime();
+
+    if (
+      m_hasSent &&
+      mode == m_lastMode &&
+      Math.abs(value - m_lastValue) <= m_tolerance &&
+      now - m_lastSendNanos < m_keepAliveNanos
+    ) {
+      m_skipped++;
+      s_totalSkipped++;
+      return false;
+    }
+
+    m_hasSent = true;
+    m_lastMode = mode;
+    m_lastValue = value;
+    m_lastSendNanos = now;
+    m_sent++;
+    s_totalSent++;
+    return true;
+  }
+
+  /**
+   * Forces the next output to be sent, such as after a setting that isn't part of the mode or value changes
+   */
+  public void invalidate() {
+    m_hasSent = false;
+  }
+
+  /**
+   * Gets the value last sent, or NaN if nothing has been sent
+   */
+  public double getLastValue() {
+    return m_hasSent ? m_lastValue : Double.NaN;
+  }
+
+  public long getSentCount() {
+    return m_sent;
+  }
+
+  public long getSkippedCount() {
+    return m_skipped;
+  }
+
+  public static long getTotalSentCount() {
+    return s_totalSent;
+  }
+
+  public static long getTotalSkippedCount() {
+    return s_totalSkipped;
+  }
+
+  /**
+   * Publishes the sent and skipped totals every kPublishPeriodLoops calls. Call once per robot loop.
+   */
+  public static void publishPeriodically() {
+    if (++s_loopsSincePublish < kPublishPeriodLoops) return;
+
+    s_loopsSincePublish = 0;
+    SmartDashboard.putNumber("Robot/CAN/SentFrames", s_totalSent);
+    SmartDashboard.putNumber("Robot/CAN/SkippedFrames", s_totalSkipped);
+  }
+}
@@ -0,0 +1,119 @@
+package prime.movers;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.controls.DutyCycleOut;
+import com.ctre.phoenix6.controls.NeutralOut;
+import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+/**
+ * A TalonFX that skips duty cycle, velocity and neutral requests that match the last one sent. Phoenix 6 repeats the
+ * last request to the device at its update frequency on its own, so a skipped request only saves the JNI call and the
+ * extra frame. A request is only skipped when every one of its fields matches, not just its output.
+ */
+public class LazyTalonFX extends TalonFX {
+
+  private static final int kDutyCycleMode = 0;
+  private static final int kVelocityVoltageMode = 1;
+  private static final int kNeutralMode = 2;
+
+  private final LazyOutputFilter m_filter;
+
+  // The fields of the last request besides its output, any of which changing forces a send
+  private boolean m_lastEnableFOC = true;
+  private boolean m_lastOverrideBrakeDurNeutral = false;
+  private boolean m_lastLimitForwardMotion = false;
+  private boolean m_lastLimitReverseMotion = false;
+  private double m_lastUpdateFreqHz = 100;
+  private double m_lastAcceleration = 0;
+  private double m_lastFeedForward = 0;
+  private int m_lastSlot = 0;
+
+  public LazyTalonFX(int deviceId, double tolerance) {
+    super(deviceId);
+    m_filter = new LazyOutputFilter(tolerance, LazyOutputFilter.kDefaultKeepAliveSeconds);
+  }
+
+  public LazyTalonFX(int deviceId) {
+    this(deviceId, 0);
+  }
+
+  public LazyOutputFilter getOutputFilter() {
+    return m_filter;
+  }
+
+  @Override
+  public StatusCode setControl(DutyCycleOut request) {
+    var changed = recordSharedFields(
+      request.EnableFOC,
+      request.OverrideBrakeDurNeutral,
+      request.LimitForwardMotion,
+      request.LimitReverseMotion,
+      request.UpdateFreqHz
+    );
+    if (changed) m_filter.invalidate();
+    if (!m_filter.shouldSend(kDutyCycleMode, request.Output)) return StatusCode.OK;
+
+    return super.setControl(request);
+  }
+
+  @Override
+  public StatusCode setControl(VelocityVoltage request) {
+    var changed = recordSharedFields(
+      request.EnableFOC,
+      request.OverrideBrakeDurNeutral,
+      request.LimitForwardMotion,
+      request.LimitReverseMotion,
+      request.UpdateFreqHz
+    );
+    if (
+      request.Acceleration != m_lastAcceleration ||
+      request.FeedForward != m_lastFeedForward ||
+      request.Slot != m_lastSlot
+    ) {
+      m_lastAcceleration = request.Acceleration;
+      m_lastFeedForward = request.FeedForward;
+      m_lastSlot = request.Slot;
+      changed = true;
+    }
+    if (changed) m_filter.invalidate();
+    if (!m_filter.shouldSend(kVelocityVoltageMode, request.Velocity)) return StatusCode.OK;
+
+    return super.setControl(request);
+  }
+
+  @Override
+  public StatusCode setControl(NeutralOut request) {
+    if (request.UpdateFreqHz != m_lastUpdateFreqHz) {
+      m_lastUpdateFreqHz = request.UpdateFreqHz;
+      m_filter.invalidate();
+    }
+    if (!m_filter.shouldSend(kNeutralMode, 0)) return StatusCode.OK;
+
+    return super.setControl(request);
+  }
+
+  // Records the fields duty cycle and velocity requests share, returning whether any changed
+  private boolean recordSharedFields(
+    boolean enableFOC,
+    boolean overrideBrakeDurNeutral,
+    boolean limitForwardMotion,
+    boolean limitReverseMotion,
+    double updateFreqHz
+  ) {
+    var changed =
+      enableFOC != m_lastEnableFOC ||
+      overrideBrakeDurNeutral != m_lastOverrideBrakeDurNeutral ||
+      limitForwardMotion != m_lastLimitForwardMotion ||
+      limitReverseMotion != m_lastLimitReverseMotion ||
+      updateFreqHz != m_lastUpdateFreqHz;
+
+    m_lastEnableFOC = enableFOC;
+    m_lastOverrideBrakeDurNeutral = overrideBrakeDurNeutral;
+    m_lastLimitForwardMotion = limitForwardMotion;
+    m_lastLimitReverseMotion = limitReverseMotion;
+    m_lastUpdateFreqHz = updateFreqHz;
+
+    return changed;
+  }
+}
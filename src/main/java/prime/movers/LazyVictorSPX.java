@@ -0,0 +1,33 @@
+package prime.movers;
+
+import com.ctre.phoenix.motorcontrol.VictorSPXControlMode;
+import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+
+/**
+ * A VictorSPX that skips outputs that match the last one sent. Phoenix 5 sends the control frame periodically in the
+ * background, so a skipped set() only saves the JNI call and the extra frame.
+ */
+public class LazyVictorSPX extends VictorSPX {
+
+  private final LazyOutputFilter m_filter;
+
+  public LazyVictorSPX(int deviceNumber, double tolerance) {
+    super(deviceNumber);
+    m_filter = new LazyOutputFilter(tolerance, LazyOutputFilter.kDefaultKeepAliveSeconds);
+  }
+
+  public LazyVictorSPX(int deviceNumber) {
+    this(deviceNumber, 0);
+  }
+
+  public LazyOutputFilter getOutputFilter() {
+    return m_filter;
+  }
+
+  @Override
+  public void set(VictorSPXControlMode mode, double value) {
+    if (!m_filter.shouldSend(mode.value, value)) return;
+
+    super.set(mode, value);
+  }
+}
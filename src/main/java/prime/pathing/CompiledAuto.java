@@ -0,0 +1,84 @@
+package prime.pathing;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A PathPlanner auto compiled by PathCompiler: its starting pose for each alliance and its command tree. Reading the
+ * file and building the command are separate, so the file can be read on any thread and only the build has to happen
+ * where commands can be composed.
+ *
+ * File layout, big-endian:
+ *   int magic, int version, byte whether there's a starting pose
+ *   if there is, blue x, y, rotation, then red x, y, rotation, as doubles
+ *   the command tree as a CompiledCommand
+ */
+public final class CompiledAuto {
+
+  public static final int kMagic = 0x50415554; // "PAUT"
+  public static final int kVersion = 1;
+
+  private final String m_name;
+  private final Pose2d m_blueStartingPose;
+  private final Pose2d m_redStartingPose;
+  private final ByteBuffer m_commandTree;
+
+  private CompiledAuto(String name, Pose2d blueStartingPose, Pose2d redStartingPose, ByteBuffer commandTree) {
+    m_name = name;
+    m_blueStartingPose = blueStartingPose;
+    m_redStartingPose = redStartingPose;
+    m_commandTree = commandTree;
+  }
+
+  /**
+   * Reads a compiled auto without building its command
+   */
+  public static CompiledAuto read(File file) throws IOException {
+    var buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    if (buffer.getInt() != kMagic || buffer.getInt() != kVersion) {
+      throw new IOException(file.getName() + " isn't a version " + kVersion + " compiled auto");
+    }
+
+    var name = file.getName().substring(0, file.getName().length() - CompiledPaths.kAutoExtension.length());
+    if (buffer.get() == 0) return new CompiledAuto(name, null, null, buffer.slice());
+
+    var blue = new Pose2d(buffer.getDouble(), buffer.getDouble(), new Rotation2d(buffer.getDouble()));
+    var red = new Pose2d(buffer.getDouble(), buffer.getDouble(), new Rotation2d(buffer.getDouble()));
+
+    return new CompiledAuto(name, blue, red, buffer.slice());
+  }
+
+  /**
+   * Passes the name of each path the auto follows to the action
+   */
+  public void forEachPath(Consumer<String> action) {
+    CompiledCommand.forEachPath(m_commandTree.duplicate(), action);
+  }
+
+  /**
+   * Builds the auto's command. Can be called more than once.
+   * @param pathCommands Builds the command that follows a path, by name
+   * @param resetPose Resets odometry to the auto's starting pose, if it has one
+   * @param onRed Whether to start from the red alliance's pose. Checked when the auto starts.
+   */
+  public Command build(Function<String, Command> pathCommands, Consumer<Pose2d> resetPose, BooleanSupplier onRed) {
+    var command = CompiledCommand.read(m_commandTree.duplicate(), pathCommands);
+    if (m_blueStartingPose == null) return command.withName(m_name);
+
+    return Commands
+      .sequence(
+        Commands.runOnce(() -> resetPose.accept(onRed.getAsBoolean() ? m_redStartingPose : m_blueStartingPose)),
+        command
+      )
+      .withName(m_name);
+  }
+}
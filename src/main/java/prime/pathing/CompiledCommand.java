@@ -0,0 +1,150 @@
+package prime.pathing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pathplanner.lib.auto.NamedCommands;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A PathPlanner command tree (the "command" of an auto or an event marker) in a compact binary form, so building it
+ * at runtime doesn't parse JSON. Each node is a type byte followed by its data: a name for named commands and paths,
+ * a time for waits, and a child count and the children for groups.
+ */
+public final class CompiledCommand {
+
+  private static final byte kNamed = 0, kWait = 1, kPath = 2, kSequential = 3, kParallel = 4, kRace = 5, kDeadline = 6;
+
+  private CompiledCommand() {}
+
+  /**
+   * Writes a command tree from its PathPlanner JSON
+   * @param node A command node, with "type" and "data"
+   */
+  public static void write(JsonNode node, DataOutputStream output) throws IOException {
+    var type = node.path("type").asText();
+    var data = node.path("data");
+
+    switch (type) {
+      case "named" -> {
+        output.writeByte(kNamed);
+        writeString(data.path("name").asText(), output);
+      }
+      case "wait" -> {
+        output.writeByte(kWait);
+        output.writeDouble(data.path("waitTime").asDouble());
+      }
+      case "path" -> {
+        output.writeByte(kPath);
+        writeString(data.path("pathName").asText(), output);
+      }
+      case "sequential", "parallel", "race", "deadline" -> {
+        output.writeByte(
+          switch (type) {
+            case "sequential" -> kSequential;
+            case "parallel" -> kParallel;
+            case "race" -> kRace;
+            default -> kDeadline;
+          }
+        );
+        var children = data.path("commands");
+        output.writeInt(children.size());
+        for (var child : children) write(child, output);
+      }
+      default -> throw new IOException("Unsupported PathPlanner command type " + type);
+    }
+  }
+
+  /**
+   * Builds the command tree starting at the buffer's position, leaving the position after it
+   * @param pathCommands Builds the command that follows a path, by name
+   */
+  public static Command read(ByteBuffer buffer, Function<String, Command> pathCommands) {
+    var type = buffer.get();
+
+    switch (type) {
+      case kNamed:
+        var name = readString(buffer);
+        if (NamedCommands.hasCommand(name)) return NamedCommands.getCommand(name);
+
+        DriverStation.reportWarning("[WARNING] >> Named command " + name + " isn't registered", false);
+        return Commands.none();
+      case kWait:
+        return Commands.waitSeconds(buffer.getDouble());
+      case kPath:
+        return pathCommands.apply(readString(buffer));
+      case kSequential:
+      case kParallel:
+      case kRace:
+      case kDeadline:
+        var children = new Command[buffer.getInt()];
+        for (int i = 0; i < children.length; i++) children[i] = read(buffer, pathCommands);
+
+        if (type == kSequential) return Commands.sequence(children);
+        if (type == kParallel) return Commands.parallel(children);
+        if (type == kRace) return Commands.race(children);
+        if (children.length == 0) return Commands.none();
+
+        var others = new Command[children.length - 1];
+        System.arraycopy(children, 1, others, 0, others.length);
+        return Commands.deadline(children[0], others);
+      default:
+        throw new IllegalStateException("Unknown compiled command type " + type);
+    }
+  }
+
+  /**
+   * Moves the buffer's position past the command tree starting at it, without building it
+   */
+  public static void skip(ByteBuffer buffer) {
+    var type = buffer.get();
+
+    switch (type) {
+      case kNamed, kPath -> buffer.position(buffer.position() + buffer.getInt());
+      case kWait -> buffer.getDouble();
+      case kSequential, kParallel, kRace, kDeadline -> {
+        var childCount = buffer.getInt();
+        for (int i = 0; i < childCount; i++) skip(buffer);
+      }
+      default -> throw new IllegalStateException("Unknown compiled command type " + type);
+    }
+  }
+
+  /**
+   * Passes the name of each path in the command tree starting at the buffer's position to the action, without building
+   * the tree, leaving the position after it
+   */
+  public static void forEachPath(ByteBuffer buffer, Consumer<String> action) {
+    var type = buffer.get();
+
+    switch (type) {
+      case kNamed -> buffer.position(buffer.position() + buffer.getInt());
+      case kPath -> action.accept(readString(buffer));
+      case kWait -> buffer.getDouble();
+      case kSequential, kParallel, kRace, kDeadline -> {
+        var childCount = buffer.getInt();
+        for (int i = 0; i < childCount; i++) forEachPath(buffer, action);
+      }
+      default -> throw new IllegalStateException("Unknown compiled command type " + type);
+    }
+  }
+
+  static void writeString(String value, DataOutputStream output) throws IOException {
+    var bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  static String readString(ByteBuffer buffer) {
+    var bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,73 @@
+package prime.pathing;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The trajectories and autos PathCompiler wrote to the deploy directory. Trajectories are memory-mapped the first
+ * time they're asked for and kept.
+ */
+public class CompiledPaths {
+
+  public static final String kTrajectoryExtension = ".traj";
+  public static final String kAutoExtension = ".pauto";
+  public static final String kPathsDirectory = "paths";
+  public static final String kAutosDirectory = "autos";
+
+  private final File m_directory;
+  private final Map<String, CompiledTrajectory> m_trajectories = new HashMap<>();
+
+  /**
+   * Reads compiled paths from the deploy directory's "compiled" folder
+   */
+  public CompiledPaths() {
+    this(getDefaultDirectory());
+  }
+
+  public CompiledPaths(File directory) {
+    m_directory = directory;
+  }
+
+  public static File getDefaultDirectory() {
+    return new File(Filesystem.getDeployDirectory(), "compiled");
+  }
+
+  /**
+   * Whether a compiled trajectory exists for a path
+   */
+  public boolean hasTrajectory(String pathName) {
+    return getTrajectoryFile(pathName).isFile();
+  }
+
+  /**
+   * Gets a path's compiled trajectory, or null if it wasn't compiled or can't be read
+   */
+  public synchronized CompiledTrajectory getTrajectory(String pathName) {
+    var trajectory = m_trajectories.get(pathName);
+    if (trajectory != null || !hasTrajectory(pathName)) return trajectory;
+
+    try {
+      trajectory = CompiledTrajectory.load(getTrajectoryFile(pathName));
+      m_trajectories.put(pathName, trajectory);
+    } catch (IOException e) {
+      DriverStation.reportError(
+        "[ERROR] >> Failed to load compiled trajectory " + pathName + ": " + e.getMessage(),
+        e.getStackTrace()
+      );
+    }
+
+    return trajectory;
+  }
+
+  public File getTrajectoryFile(String pathName) {
+    return new File(new File(m_directory, kPathsDirectory), pathName + kTrajectoryExtension);
+  }
+
+  public File getAutoFile(String autoName) {
+    return new File(new File(m_directory, kAutosDirectory), autoName + kAutoExtension);
+  }
+}
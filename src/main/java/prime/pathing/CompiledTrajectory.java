@@ -0,0 +1,164 @@
+package prime.pathing;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj2.command.Command;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A PathPlanner path compiled by PathCompiler into fixed-period samples for both alliances, memory-mapped from the
+ * deploy directory. Sampling reads straight from the mapping, interpolating between the two nearest samples, and never
+ * allocates.
+ *
+ * File layout, big-endian:
+ *   int magic, int version, double sample period, int sample count, int marker count
+ *   sample count × 7 doubles for blue: time, x, y, vx, vy, rotation, omega
+ *   the same for red
+ *   per marker: double time, then the marker's command as a CompiledCommand
+ */
+public class CompiledTrajectory {
+
+  public static final int kMagic = 0x50545259; // "PTRY"
+  public static final int kVersion = 1;
+  public static final int kHeaderBytes = 24;
+  public static final int kValuesPerSample = 7;
+  public static final int kSampleBytes = kValuesPerSample * Double.BYTES;
+
+  private final String m_name;
+  private final ByteBuffer m_buffer;
+  private final double m_samplePeriodSeconds;
+  private final int m_sampleCount;
+  private final int m_redOffset;
+  private final double m_totalTimeSeconds;
+
+  // Markers, in time order. The commands are decoded when a follower is built.
+  private final double[] m_markerTimes;
+  private final int[] m_markerOffsets;
+
+  private CompiledTrajectory(String name, ByteBuffer buffer) throws IOException {
+    m_name = name;
+    m_buffer = buffer;
+
+    if (buffer.getInt(0) != kMagic || buffer.getInt(4) != kVersion) {
+      throw new IOException(name + " isn't a version " + kVersion + " compiled trajectory");
+    }
+    m_samplePeriodSeconds = buffer.getDouble(8);
+    m_sampleCount = buffer.getInt(16);
+    if (m_sampleCount < 1) throw new IOException(name + " has no samples");
+
+    m_redOffset = kHeaderBytes + m_sampleCount * kSampleBytes;
+    m_totalTimeSeconds = buffer.getDouble(kHeaderBytes + (m_sampleCount - 1) * kSampleBytes);
+
+    // Skip over each marker's command to find the next
+    var markerCount = buffer.getInt(20);
+    m_markerTimes = new double[markerCount];
+    m_markerOffsets = new int[markerCount];
+    var reader = buffer.duplicate().position(m_redOffset + m_sampleCount * kSampleBytes);
+    for (int i = 0; i < markerCount; i++) {
+      m_markerTimes[i] = reader.getDouble();
+      m_markerOffsets[i] = reader.position();
+      CompiledCommand.skip(reader);
+    }
+  }
+
+  /**
+   * Memory-maps a compiled trajectory
+   */
+  public static CompiledTrajectory load(File file) throws IOException {
+    try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      var name = file.getName().substring(0, file.getName().length() - CompiledPaths.kTrajectoryExtension.length());
+      return new CompiledTrajectory(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public String getName() {
+    return m_name;
+  }
+
+  public double getTotalTimeSeconds() {
+    return m_totalTimeSeconds;
+  }
+
+  /**
+   * Samples the trajectory at a time since its start, clamped to its ends
+   * @param red Whether to sample the red alliance's trajectory
+   * @param sample Where to write the sample
+   */
+  public void sample(boolean red, double timeSeconds, TrajectorySample sample) {
+    var base = red ? m_redOffset : kHeaderBytes;
+    var position = Math.max(0, timeSeconds / m_samplePeriodSeconds);
+    var index = Math.min((int) position, m_sampleCount - 1);
+    var next = Math.min(index + 1, m_sampleCount - 1);
+    var fraction = next == index ? 0 : position - index;
+
+    var from = base + index * kSampleBytes;
+    var to = base + next * kSampleBytes;
+    sample.TimeSeconds = interpolate(from, to, 0, fraction);
+    sample.XMeters = interpolate(from, to, 1, fraction);
+    sample.YMeters = interpolate(from, to, 2, fraction);
+    sample.VxMetersPerSecond = interpolate(from, to, 3, fraction);
+    sample.VyMetersPerSecond = interpolate(from, to, 4, fraction);
+    sample.RotationRadians = interpolate(from, to, 5, fraction);
+    sample.OmegaRadiansPerSecond = interpolate(from, to, 6, fraction);
+  }
+
+  private double interpolate(int from, int to, int value, double fraction) {
+    var a = m_buffer.getDouble(from + value * Double.BYTES);
+    var b = m_buffer.getDouble(to + value * Double.BYTES);
+
+    return a + (b - a) * fraction;
+  }
+
+  /**
+   * Gets the pose at the start of the trajectory
+   */
+  public Pose2d getInitialPose(boolean red) {
+    var sample = new TrajectorySample();
+    sample(red, 0, sample);
+
+    return new Pose2d(sample.XMeters, sample.YMeters, new Rotation2d(sample.RotationRadians));
+  }
+
+  /**
+   * Gets every nth pose along the trajectory, for drawing it on a field
+   */
+  public List<Pose2d> getPoses(boolean red, int stride) {
+    var poses = new ArrayList<Pose2d>();
+    var sample = new TrajectorySample();
+    for (int i = 0; i < m_sampleCount; i += Math.max(1, stride)) {
+      sample(red, i * m_samplePeriodSeconds, sample);
+      poses.add(new Pose2d(sample.XMeters, sample.YMeters, new Rotation2d(sample.RotationRadians)));
+    }
+
+    return poses;
+  }
+
+  public int getMarkerCount() {
+    return m_markerTimes.length;
+  }
+
+  /**
+   * Gets the time since the start of the trajectory at which a marker triggers
+   */
+  public double getMarkerTime(int marker) {
+    return m_markerTimes[marker];
+  }
+
+  /**
+   * Builds a new instance of a marker's command
+   */
+  public Command buildMarkerCommand(int marker) {
+    return CompiledCommand.read(
+      m_buffer.duplicate().position(m_markerOffsets[marker]),
+      pathName -> {
+        throw new IllegalStateException("Event markers can't follow paths");
+      }
+    );
+  }
+}
@@ -0,0 +1,186 @@
+package prime.pathing;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Follows a CompiledTrajectory with feedforward from the samples plus PID on the pose error, in the field frame, then
+ * rotates the result into the robot's frame. Event markers are run inside this command, as PathPlanner's own follower
+ * does, so their requirements are added to it. Doesn't replan.
+ */
+public class CompiledTrajectoryFollower extends Command {
+
+  /**
+   * Drives the robot at robot-relative speeds
+   */
+  @FunctionalInterface
+  public interface RobotRelativeDrive {
+    void drive(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond);
+  }
+
+  private static final ArrayList<BiConsumer<CompiledTrajectory, Boolean>> s_activeTrajectoryCallbacks =
+    new ArrayList<>();
+  private static final ArrayList<BiConsumer<Pose2d, TrajectorySample>> s_targetCallbacks = new ArrayList<>();
+
+  private final CompiledTrajectory m_trajectory;
+  private final Supplier<Pose2d> m_poseSupplier;
+  private final RobotRelativeDrive m_drive;
+  private final PIDController m_xController;
+  private final PIDController m_yController;
+  private final PIDController m_rotationController;
+  private final DoubleSupplier m_rotationOverride;
+  private final BooleanSupplier m_onRed;
+
+  private final Timer m_timer = new Timer();
+  private final TrajectorySample m_sample = new TrajectorySample();
+  private final Command[] m_markerCommands;
+  private final boolean[] m_markerRunning;
+  private boolean m_red;
+  private int m_nextMarker;
+
+  /**
+   * Creates a new CompiledTrajectoryFollower
+   * @param poseSupplier The robot's field pose
+   * @param rotationController Must have continuous input over -π..π
+   * @param rotationOverride A heading to hold instead of the trajectory's, in radians, or NaN to follow the trajectory
+   * @param onRed Whether to follow the red alliance's trajectory. Checked when the command starts.
+   */
+  public CompiledTrajectoryFollower(
+    CompiledTrajectory trajectory,
+    Supplier<Pose2d> poseSupplier,
+    RobotRelativeDrive drive,
+    PIDController xController,
+    PIDController yController,
+    PIDController rotationController,
+    DoubleSupplier rotationOverride,
+    BooleanSupplier onRed,
+    Subsystem... requirements
+  ) {
+    m_trajectory = trajectory;
+    m_poseSupplier = poseSupplier;
+    m_drive = drive;
+    m_xController = xController;
+    m_yController = yController;
+    m_rotationController = rotationController;
+    m_rotationOverride = rotationOverride;
+    m_onRed = onRed;
+
+    m_markerCommands = new Command[trajectory.getMarkerCount()];
+    m_markerRunning = new boolean[m_markerCommands.length];
+    for (int i = 0; i < m_markerCommands.length; i++) {
+      m_markerCommands[i] = trajectory.buildMarkerCommand(i);
+      addRequirements(m_markerCommands[i].getRequirements().toArray(Subsystem[]::new));
+    }
+    addRequirements(requirements);
+    setName("Follow " + trajectory.getName());
+  }
+
+  /**
+   * Adds a callback for the trajectory that starts being followed, and whether it's red's. Called with null when it
+   * ends. Callbacks run in the order they were added.
+   */
+  public static void addLogActiveTrajectoryCallback(BiConsumer<CompiledTrajectory, Boolean> callback) {
+    s_activeTrajectoryCallbacks.add(callback);
+  }
+
+  /**
+   * Adds a callback for the robot's pose and the sample it's chasing, every loop. The sample is reused.
+   */
+  public static void addLogTargetCallback(BiConsumer<Pose2d, TrajectorySample> callback) {
+    s_targetCallbacks.add(callback);
+  }
+
+  @Override
+  public void initialize() {
+    m_red = m_onRed.getAsBoolean();
+    m_nextMarker = 0;
+    m_xController.reset();
+    m_yController.reset();
+    m_rotationController.reset();
+    m_timer.restart();
+
+    logActiveTrajectory(m_trajectory);
+  }
+
+  @Override
+  public void execute() {
+    var time = m_timer.get();
+    m_trajectory.sample(m_red, time, m_sample);
+
+    var pose = m_poseSupplier.get();
+    var rotation = pose.getRotation();
+    for (int i = 0; i < s_targetCallbacks.size(); i++) s_targetCallbacks.get(i).accept(pose, m_sample);
+
+    // Field-relative speeds: the sample's velocity plus a correction towards where it says the robot should be
+    var vx = m_sample.VxMetersPerSecond + m_xController.calculate(pose.getX(), m_sample.XMeters);
+    var vy = m_sample.VyMetersPerSecond + m_yController.calculate(pose.getY(), m_sample.YMeters);
+
+    var rotationOverride = m_rotationOverride.getAsDouble();
+    var omega = Double.isNaN(rotationOverride)
+      ? m_sample.OmegaRadiansPerSecond + m_rotationController.calculate(rotation.getRadians(), m_sample.RotationRadians)
+      : m_rotationController.calculate(rotation.getRadians(), rotationOverride);
+
+    // Rotate into the robot's frame, same as ChassisSpeeds.fromFieldRelativeSpeeds
+    var cos = rotation.getCos();
+    var sin = rotation.getSin();
+    m_drive.drive(vx * cos + vy * sin, -vx * sin + vy * cos, omega);
+
+    runMarkers(time);
+  }
+
+  private void runMarkers(double time) {
+    while (m_nextMarker < m_markerCommands.length && m_trajectory.getMarkerTime(m_nextMarker) <= time) {
+      m_markerCommands[m_nextMarker].initialize();
+      m_markerRunning[m_nextMarker] = true;
+      m_nextMarker++;
+    }
+
+    for (int i = 0; i < m_markerCommands.length; i++) {
+      if (!m_markerRunning[i]) continue;
+
+      m_markerCommands[i].execute();
+      if (m_markerCommands[i].isFinished()) {
+        m_markerCommands[i].end(false);
+        m_markerRunning[i] = false;
+      }
+    }
+  }
+
+  @Override
+  public boolean isFinished() {
+    return m_timer.hasElapsed(m_trajectory.getTotalTimeSeconds());
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    m_timer.stop();
+
+    // Markers still running when the path ends are interrupted, as in PathPlanner
+    for (int i = 0; i < m_markerCommands.length; i++) {
+      if (m_markerRunning[i]) m_markerCommands[i].end(true);
+      m_markerRunning[i] = false;
+    }
+
+    // Only stop if the path ends at rest; otherwise the next command takes over at speed
+    m_trajectory.sample(m_red, m_trajectory.getTotalTimeSeconds(), m_sample);
+    if (interrupted || (m_sample.VxMetersPerSecond == 0 && m_sample.VyMetersPerSecond == 0)) {
+      m_drive.drive(0, 0, 0);
+    }
+
+    logActiveTrajectory(null);
+  }
+
+  private void logActiveTrajectory(CompiledTrajectory trajectory) {
+    for (int i = 0; i < s_activeTrajectoryCallbacks.size(); i++) {
+      s_activeTrajectoryCallbacks.get(i).accept(trajectory, m_red);
+    }
+  }
+}
@@ -0,0 +1,269 @@
+package prime.pathing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+import com.pathplanner.lib.util.GeometryUtil;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compiles every deployed PathPlanner path into a CompiledTrajectory for each alliance, and every auto into a
+ * CompiledAuto, so the robot never generates or flips a trajectory at runtime. Run by the compilePaths Gradle task.
+ *
+ * Event markers trigger at the time the trajectory is closest to their position, instead of when the robot gets near
+ * it. Paths that fail to compile are skipped, along with the autos that use them, and fall back to PathPlanner.
+ *
+ * Usage: PathCompiler [output directory]
+ */
+public final class PathCompiler {
+
+  public static final double kSamplePeriodSeconds = 0.01;
+
+  private static final ObjectMapper s_mapper = new ObjectMapper();
+
+  private PathCompiler() {}
+
+  public static void main(String... args) throws IOException {
+    var outputDirectory = args.length > 0 ? new File(args[0]) : CompiledPaths.getDefaultDirectory();
+    var pathPlannerDirectory = new File(Filesystem.getDeployDirectory(), "pathplanner");
+    var pathsOutput = new File(outputDirectory, CompiledPaths.kPathsDirectory);
+    var autosOutput = new File(outputDirectory, CompiledPaths.kAutosDirectory);
+    clean(pathsOutput);
+    clean(autosOutput);
+
+    var startNanos = System.nanoTime();
+    var compiledPaths = new HashSet<String>();
+    for (var file : list(new File(pathPlannerDirectory, "paths"), ".path")) {
+      var name = stripExtension(file, ".path");
+      try {
+        compilePath(name, s_mapper.readTree(file), new File(pathsOutput, name + CompiledPaths.kTrajectoryExtension));
+        compiledPaths.add(name);
+      } catch (Exception e) {
+        System.err.println("[PathCompiler] Skipping path " + name + ": " + e.getMessage());
+      }
+    }
+
+    var compiledAutos = 0;
+    for (var file : list(new File(pathPlannerDirectory, "autos"), ".auto")) {
+      var name = stripExtension(file, ".auto");
+      try {
+        compileAuto(s_mapper.readTree(file), compiledPaths, new File(autosOutput, name + CompiledPaths.kAutoExtension));
+        compiledAutos++;
+      } catch (Exception e) {
+        System.err.println("[PathCompiler] Skipping auto " + name + ": " + e.getMessage());
+      }
+    }
+
+    System.out.printf(
+      "[PathCompiler] Compiled %d paths and %d autos into %s in %.0f ms%n",
+      compiledPaths.size(),
+      compiledAutos,
+      outputDirectory,
+      (System.nanoTime() - startNanos) / 1e6
+    );
+  }
+
+  //#region Paths
+
+  private static void compilePath(String name, JsonNode definition, File output) throws IOException {
+    var bluePath = PathPlannerPath.fromPathFile(name);
+    var redPath = bluePath.flipPath();
+    var blue = sample(generate(bluePath));
+    var red = sample(generate(redPath));
+    if (blue.length != red.length) throw new IOException("blue and red trajectories have different lengths");
+
+    // Markers, as the time of the sample nearest each one's position along the path
+    var markers = new ArrayList<JsonNode>();
+    definition.path("eventMarkers").forEach(markers::add);
+    var markerTimes = new double[markers.size()];
+    var waypoints = definition.path("waypoints");
+    for (int i = 0; i < markers.size(); i++) {
+      var position = getBezierPoint(waypoints, markers.get(i).path("waypointRelativePos").asDouble());
+      markerTimes[i] = getNearestSampleTime(blue, position);
+    }
+    var order = new Integer[markers.size()];
+    for (int i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(order, Comparator.comparingDouble(i -> markerTimes[i]));
+
+    try (var stream = open(output)) {
+      stream.writeInt(CompiledTrajectory.kMagic);
+      stream.writeInt(CompiledTrajectory.kVersion);
+      stream.writeDouble(kSamplePeriodSeconds);
+      stream.writeInt(blue.length / CompiledTrajectory.kValuesPerSample);
+      stream.writeInt(markers.size());
+      for (var value : blue) stream.writeDouble(value);
+      for (var value : red) stream.writeDouble(value);
+      for (var i : order) {
+        stream.writeDouble(markerTimes[i]);
+        CompiledCommand.write(markers.get(i).path("command"), stream);
+      }
+    }
+  }
+
+  /**
+   * Generates a path's trajectory from rest, starting at the rotation PathPlanner previews for it
+   */
+  private static PathPlannerTrajectory generate(PathPlannerPath path) {
+    return path.getTrajectory(new ChassisSpeeds(), path.getPreviewStartingHolonomicPose().getRotation());
+  }
+
+  /**
+   * Samples a trajectory at a fixed period, through its end, into rows of time, x, y, vx, vy, rotation and omega
+   */
+  private static double[] sample(PathPlannerTrajectory trajectory) {
+    var totalTime = trajectory.getTotalTimeSeconds();
+    var count = (int) Math.ceil(totalTime / kSamplePeriodSeconds) + 1;
+    var values = new double[count * CompiledTrajectory.kValuesPerSample];
+
+    var previousRawRotation = 0.0;
+    for (int i = 0; i < count; i++) {
+      var time = Math.min(i * kSamplePeriodSeconds, totalTime);
+      var state = trajectory.sample(time);
+      var row = i * CompiledTrajectory.kValuesPerSample;
+
+      values[row] = time;
+      values[row + 1] = state.positionMeters.getX();
+      values[row + 2] = state.positionMeters.getY();
+      values[row + 3] = state.velocityMps * state.heading.getCos();
+      values[row + 4] = state.velocityMps * state.heading.getSin();
+
+      // Unwrap the rotation so interpolating between samples never goes the long way around
+      var rawRotation = state.targetHolonomicRotation.getRadians();
+      var previousRotation = i == 0 ? rawRotation : values[row + 5 - CompiledTrajectory.kValuesPerSample];
+      values[row + 5] = previousRotation + (i == 0 ? 0 : MathUtil.angleModulus(rawRotation - previousRawRotation));
+      previousRawRotation = rawRotation;
+    }
+
+    // Angular velocity by central difference of the unwrapped rotation
+    for (int i = 0; i < count; i++) {
+      var before = Math.max(0, i - 1) * CompiledTrajectory.kValuesPerSample;
+      var after = Math.min(count - 1, i + 1) * CompiledTrajectory.kValuesPerSample;
+      var dt = values[after] - values[before];
+      values[i * CompiledTrajectory.kValuesPerSample + 6] = dt > 0 ? (values[after + 5] - values[before + 5]) / dt : 0;
+    }
+
+    return values;
+  }
+
+  /**
+   * Gets the point on a path's Bézier curve at a waypoint-relative position, from its JSON
+   */
+  private static Translation2d getBezierPoint(JsonNode waypoints, double waypointRelativePos) {
+    var segment = (int) MathUtil.clamp(Math.floor(waypointRelativePos), 0, waypoints.size() - 2);
+    var t = MathUtil.clamp(waypointRelativePos - segment, 0, 1);
+    var p0 = toTranslation(waypoints.get(segment).path("anchor"));
+    var p1 = toTranslation(waypoints.get(segment).path("nextControl"));
+    var p2 = toTranslation(waypoints.get(segment + 1).path("prevControl"));
+    var p3 = toTranslation(waypoints.get(segment + 1).path("anchor"));
+
+    var u = 1 - t;
+    return p0
+      .times(u * u * u)
+      .plus(p1.times(3 * u * u * t))
+      .plus(p2.times(3 * u * t * t))
+      .plus(p3.times(t * t * t));
+  }
+
+  private static double getNearestSampleTime(double[] samples, Translation2d position) {
+    var nearestTime = 0.0;
+    var nearestDistance = Double.POSITIVE_INFINITY;
+    for (int row = 0; row < samples.length; row += CompiledTrajectory.kValuesPerSample) {
+      var distance = Math.hypot(samples[row + 1] - position.getX(), samples[row + 2] - position.getY());
+      if (distance < nearestDistance) {
+        nearestDistance = distance;
+        nearestTime = samples[row];
+      }
+    }
+
+    return nearestTime;
+  }
+
+  //#endregion
+
+  //#region Autos
+
+  private static void compileAuto(JsonNode definition, Set<String> compiledPaths, File output) throws IOException {
+    var missingPath = findMissingPath(definition.path("command"), compiledPaths);
+    if (missingPath != null) throw new IOException("path " + missingPath + " wasn't compiled");
+
+    try (var stream = open(output)) {
+      stream.writeInt(CompiledAuto.kMagic);
+      stream.writeInt(CompiledAuto.kVersion);
+
+      var startingPose = definition.path("startingPose");
+      stream.writeBoolean(!startingPose.isMissingNode() && !startingPose.isNull());
+      if (!startingPose.isMissingNode() && !startingPose.isNull()) {
+        var blue = new Pose2d(
+          toTranslation(startingPose.path("position")),
+          Rotation2d.fromDegrees(startingPose.path("rotation").asDouble())
+        );
+        var red = GeometryUtil.flipFieldPose(blue);
+        for (var pose : new Pose2d[] { blue, red }) {
+          stream.writeDouble(pose.getX());
+          stream.writeDouble(pose.getY());
+          stream.writeDouble(pose.getRotation().getRadians());
+        }
+      }
+
+      CompiledCommand.write(definition.path("command"), stream);
+    }
+  }
+
+  private static String findMissingPath(JsonNode node, Set<String> compiledPaths) {
+    if ("path".equals(node.path("type").asText())) {
+      var pathName = node.path("data").path("pathName").asText();
+      return compiledPaths.contains(pathName) ? null : pathName;
+    }
+
+    for (var child : node.path("data").path("commands")) {
+      var missingPath = findMissingPath(child, compiledPaths);
+      if (missingPath != null) return missingPath;
+    }
+
+    return null;
+  }
+
+  //#endregion
+
+  private static Translation2d toTranslation(JsonNode point) {
+    return new Translation2d(point.path("x").asDouble(), point.path("y").asDouble());
+  }
+
+  private static File[] list(File directory, String extension) {
+    var files = directory.listFiles((dir, name) -> name.endsWith(extension));
+    if (files == null) return new File[0];
+
+    Arrays.sort(files);
+    return files;
+  }
+
+  private static String stripExtension(File file, String extension) {
+    return file.getName().substring(0, file.getName().length() - extension.length());
+  }
+
+  private static void clean(File directory) throws IOException {
+    var stale = directory.listFiles();
+    if (stale != null) for (var file : stale) file.delete();
+    if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Can't create " + directory);
+  }
+
+  private static DataOutputStream open(File file) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+  }
+}
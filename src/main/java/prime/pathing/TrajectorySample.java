@@ -0,0 +1,18 @@
+package prime.pathing;
+
+/**
+ * One point of a compiled trajectory, in field coordinates for the alliance it was sampled for. Mutable, so the
+ * follower can sample into the same instance every loop.
+ */
+public class TrajectorySample {
+
+  public double TimeSeconds;
+  public double XMeters;
+  public double YMeters;
+  public double VxMetersPerSecond;
+  public double VyMetersPerSecond;
+
+  // Unwrapped, so it interpolates across ±π
+  public double RotationRadians;
+  public double OmegaRadiansPerSecond;
+}
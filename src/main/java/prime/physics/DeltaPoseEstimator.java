@@ -0,0 +1,408 @@
+package prime.physics;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import prime.utilities.TimestampedRingBuffer;
+
+/**
+ * A swerve pose estimator that handles delayed and out-of-order vision measurements without replaying odometry.
+ *
+ * Odometry is integrated on its own and kept in a bounded primitive history. The estimate is that odometry pose
+ * moved by a correction transform, and each vision measurement only changes the correction: it looks up the odometry
+ * pose at the measurement's timestamp, blends the estimate at that time towards the measurement with the same
+ * Kalman-style gain WPILib uses, and stores the resulting correction. A measurement older than ones already applied
+ * re-applies only those newer measurements, which are few when frames arrive roughly in order, so the cost per
+ * measurement is a history lookup plus a small constant.
+ *
+ * Not thread-safe.
+ */
+public class DeltaPoseEstimator implements IPoseEstimator {
+
+  private static final int kMaxVisionUpdates = 64;
+
+  private final PrimitiveSwerveKinematics m_kinematics;
+  private final int m_moduleCount;
+  private final double[] m_stateVariances = new double[3];
+
+  // Odometry
+  private final double[] m_previousDistances;
+  private final double[] m_distanceDeltas;
+  private final double[] m_moduleAngles;
+  private final double[] m_twist = new double[3];
+  private double m_previousGyroRadians;
+  private double m_gyroOffsetRadians;
+  private double m_odometryX, m_odometryY, m_odometryTheta;
+  private final TimestampedRingBuffer m_odometryHistory;
+  private final double[] m_odometrySample = new double[3];
+
+  // Correction before the oldest retained vision update
+  private double m_baseCorrectionX, m_baseCorrectionY, m_baseCorrectionTheta;
+
+  // Vision updates in timestamp order, each with the measurement and the correction after applying it
+  private final double[] m_visionTimestamps = new double[kMaxVisionUpdates];
+  private final double[][] m_visionPoses = new double[kMaxVisionUpdates][3];
+  private final double[][] m_visionGains = new double[kMaxVisionUpdates][3];
+  private final double[][] m_corrections = new double[kMaxVisionUpdates][3];
+  private int m_visionUpdateCount = 0;
+
+  // Scratch
+  private final double[] m_pose = new double[3];
+  private Pose2d m_estimatedPose;
+
+  /**
+   * Creates a pose estimator with WPILib's default state standard deviations of 0.1 for x, y and theta
+   * @param kinematics The module kinematics
+   * @param gyroAngle The current gyro angle
+   * @param modulePositions The current module positions
+   * @param initialPose The starting pose
+   * @param historyCapacity The number of odometry samples to keep; measurements older than the history are ignored
+   */
+  public DeltaPoseEstimator(
+    PrimitiveSwerveKinematics kinematics,
+    Rotation2d gyroAngle,
+    SwerveModulePosition[] modulePositions,
+    Pose2d initialPose,
+    int historyCapacity
+  ) {
+    this(kinematics, gyroAngle, modulePositions, initialPose, historyCapacity, 0.1, 0.1, 0.1);
+  }
+
+  /**
+   * Creates a pose estimator
+   * @param kinematics The module kinematics
+   * @param gyroAngle The current gyro angle
+   * @param modulePositions The current module positions
+   * @param initialPose The starting pose
+   * @param historyCapacity The number of odometry samples to keep; measurements older than the history are ignored
+   * @param xStdDev How much the odometry x is trusted, in meters
+   * @param yStdDev How much the odometry y is trusted, in meters
+   * @param thetaStdDev How much the odometry heading is trusted, in radians
+   */
+  public DeltaPoseEstimator(
+    PrimitiveSwerveKinematics kinematics,
+    Rotation2d gyroAngle,
+    SwerveModulePosition[] modulePositions,
+    Pose2d initialPose,
+    int historyCapacity,
+    double xStdDev,
+    double yStdDev,
+    double thetaStdDev
+  ) {
+    m_kinematics = kinematics;
+    m_moduleCount = kinematics.getModuleCount();
+    m_previousDistances = new double[m_moduleCount];
+    m_distanceDeltas = new double[m_moduleCount];
+    m_moduleAngles = new double[m_moduleCount];
+    m_odometryHistory = new TimestampedRingBuffer(historyCapacity, false, false, true);
+
+    m_stateVariances[0] = xStdDev * xStdDev;
+    m_stateVariances[1] = yStdDev * yStdDev;
+    m_stateVariances[2] = thetaStdDev * thetaStdDev;
+
+    resetPosition(gyroAngle, modulePositions, initialPose);
+  }
+
+  @Override
+  public void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, Pose2d pose) {
+    for (int i = 0; i < m_moduleCount; i++) m_previousDistances[i] = modulePositions[i].distanceMeters;
+
+    m_previousGyroRadians = gyroAngle.getRadians();
+    m_gyroOffsetRadians = pose.getRotation().getRadians() - m_previousGyroRadians;
+    m_odometryX = pose.getX();
+    m_odometryY = pose.getY();
+    m_odometryTheta = pose.getRotation().getRadians();
+
+    m_odometryHistory.clear();
+    m_visionUpdateCount = 0;
+    m_baseCorrectionX = 0;
+    m_baseCorrectionY = 0;
+    m_baseCorrectionTheta = 0;
+    m_estimatedPose = pose;
+  }
+
+  @Override
+  public Pose2d updateWithTime(double timestamp, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
+    // Module deltas are taken along each module's current angle, same as SwerveDriveOdometry
+    for (int i = 0; i < m_moduleCount; i++) {
+      m_distanceDeltas[i] = modulePositions[i].distanceMeters - m_previousDistances[i];
+      m_moduleAngles[i] = modulePositions[i].angle.getRadians();
+      m_previousDistances[i] = modulePositions[i].distanceMeters;
+    }
+
+    return integrateOdometry(timestamp, gyroAngle);
+  }
+
+  @Override
+  public Pose2d updateWithTime(
+    double timestamp,
+    Rotation2d gyroAngle,
+    double[] distancesMeters,
+    double[] anglesRadians
+  ) {
+    for (int i = 0; i < m_moduleCount; i++) {
+      m_distanceDeltas[i] = distancesMeters[i] - m_previousDistances[i];
+      m_moduleAngles[i] = anglesRadians[i];
+      m_previousDistances[i] = distancesMeters[i];
+    }
+
+    return integrateOdometry(timestamp, gyroAngle);
+  }
+
+  // Integrates the module deltas and angles of a sample into the odometry, then updates the estimate
+  private Pose2d integrateOdometry(double timestamp, Rotation2d gyroAngle) {
+    m_kinematics.toChassisSpeeds(m_distanceDeltas, m_moduleAngles, m_twist);
+
+    // Trust the gyro for rotation
+    var gyroRadians = gyroAngle.getRadians();
+    m_twist[2] = MathUtil.angleModulus(gyroRadians - m_previousGyroRadians);
+    m_previousGyroRadians = gyroRadians;
+
+    m_pose[0] = m_odometryX;
+    m_pose[1] = m_odometryY;
+    m_pose[2] = m_odometryTheta;
+    exp(m_pose, m_twist[0], m_twist[1], m_twist[2]);
+    m_odometryX = m_pose[0];
+    m_odometryY = m_pose[1];
+    m_odometryTheta = MathUtil.angleModulus(gyroRadians + m_gyroOffsetRadians);
+
+    m_odometrySample[0] = m_odometryX;
+    m_odometrySample[1] = m_odometryY;
+    m_odometrySample[2] = m_odometryTheta;
+    m_odometryHistory.add(timestamp, m_odometrySample);
+
+    // Retire vision updates that have fallen out of the odometry history
+    var oldest = m_odometryHistory.getOldestTimestamp();
+    var retired = 0;
+    while (retired < m_visionUpdateCount && m_visionTimestamps[retired] < oldest) retired++;
+    if (retired > 0) {
+      var correction = m_corrections[retired - 1];
+      m_baseCorrectionX = correction[0];
+      m_baseCorrectionY = correction[1];
+      m_baseCorrectionTheta = correction[2];
+      removeVisionUpdates(retired);
+    }
+
+    m_estimatedPose = createCurrentEstimate();
+    return m_estimatedPose;
+  }
+
+  @Override
+  public void addVisionMeasurement(Pose2d pose, double timestamp, Matrix<N3, N1> stdDeviations) {
+    // Ignore measurements from before the history, and any before the first odometry sample
+    if (m_odometryHistory.size() == 0 || timestamp < m_odometryHistory.getOldestTimestamp()) return;
+
+    // Make room, retiring the oldest update into the base correction
+    if (m_visionUpdateCount == kMaxVisionUpdates) {
+      m_baseCorrectionX = m_corrections[0][0];
+      m_baseCorrectionY = m_corrections[0][1];
+      m_baseCorrectionTheta = m_corrections[0][2];
+      removeVisionUpdates(1);
+    }
+
+    // Insert in timestamp order, usually at the end
+    var index = m_visionUpdateCount;
+    while (index > 0 && m_visionTimestamps[index - 1] > timestamp) index--;
+    insertVisionUpdate(index);
+
+    m_visionTimestamps[index] = timestamp;
+    m_visionPoses[index][0] = pose.getX();
+    m_visionPoses[index][1] = pose.getY();
+    m_visionPoses[index][2] = pose.getRotation().getRadians();
+
+    // Same gain as WPILib's estimator: q / (q + sqrt(q * r))
+    for (int i = 0; i < 3; i++) {
+      var q = m_stateVariances[i];
+      var r = stdDeviations.get(i, 0) * stdDeviations.get(i, 0);
+      m_visionGains[index][i] = q == 0 ? 0 : q / (q + Math.sqrt(q * r));
+    }
+
+    // Apply this update and re-apply any newer ones, since their corrections built on the old one
+    for (int i = index; i < m_visionUpdateCount; i++) applyVisionUpdate(i);
+
+    m_estimatedPose = createCurrentEstimate();
+  }
+
+  @Override
+  public Pose2d getEstimatedPosition() {
+    return m_estimatedPose;
+  }
+
+  /**
+   * Gets the number of vision updates that can still be corrected by older measurements
+   */
+  public int getRetainedVisionUpdateCount() {
+    return m_visionUpdateCount;
+  }
+
+  //#region Vision updates
+
+  // Recomputes the correction of a vision update from the correction before it
+  private void applyVisionUpdate(int index) {
+    double correctionX, correctionY, correctionTheta;
+    if (index == 0) {
+      correctionX = m_baseCorrectionX;
+      correctionY = m_baseCorrectionY;
+      correctionTheta = m_baseCorrectionTheta;
+    } else {
+      correctionX = m_corrections[index - 1][0];
+      correctionY = m_corrections[index - 1][1];
+      correctionTheta = m_corrections[index - 1][2];
+    }
+
+    // Estimate at the measurement's timestamp
+    var timestamp = m_visionTimestamps[index];
+    var odometryX = m_odometryHistory.get(timestamp, 0);
+    var odometryY = m_odometryHistory.get(timestamp, 1);
+    var odometryTheta = m_odometryHistory.get(timestamp, 2);
+    applyCorrection(correctionX, correctionY, correctionTheta, odometryX, odometryY, odometryTheta, m_pose);
+
+    // Move the estimate part of the way to the measurement along the twist between them
+    var vision = m_visionPoses[index];
+    var gains = m_visionGains[index];
+    log(m_pose, vision[0], vision[1], vision[2], m_twist);
+    exp(m_pose, m_twist[0] * gains[0], m_twist[1] * gains[1], m_twist[2] * gains[2]);
+
+    // Store the correction that maps the odometry pose to the new estimate
+    var correction = m_corrections[index];
+    correction[2] = MathUtil.angleModulus(m_pose[2] - odometryTheta);
+    var cos = Math.cos(correction[2]);
+    var sin = Math.sin(correction[2]);
+    correction[0] = m_pose[0] - (odometryX * cos - odometryY * sin);
+    correction[1] = m_pose[1] - (odometryX * sin + odometryY * cos);
+  }
+
+  // Opens a slot at the index, shifting newer updates up by one
+  private void insertVisionUpdate(int index) {
+    var poseRow = m_visionPoses[m_visionUpdateCount];
+    var gainRow = m_visionGains[m_visionUpdateCount];
+    var correctionRow = m_corrections[m_visionUpdateCount];
+
+    for (int i = m_visionUpdateCount; i > index; i--) {
+      m_visionTimestamps[i] = m_visionTimestamps[i - 1];
+      m_visionPoses[i] = m_visionPoses[i - 1];
+      m_visionGains[i] = m_visionGains[i - 1];
+      m_corrections[i] = m_corrections[i - 1];
+    }
+
+    // Reuse the rows that fell off the end
+    m_visionPoses[index] = poseRow;
+    m_visionGains[index] = gainRow;
+    m_corrections[index] = correctionRow;
+    m_visionUpdateCount++;
+  }
+
+  // Removes the oldest updates, shifting the rest down
+  private void removeVisionUpdates(int count) {
+    for (int i = 0; i < count; i++) {
+      var poseRow = m_visionPoses[0];
+      var gainRow = m_visionGains[0];
+      var correctionRow = m_corrections[0];
+
+      for (int j = 1; j < m_visionUpdateCount; j++) {
+        m_visionTimestamps[j - 1] = m_visionTimestamps[j];
+        m_visionPoses[j - 1] = m_visionPoses[j];
+        m_visionGains[j - 1] = m_visionGains[j];
+        m_corrections[j - 1] = m_corrections[j];
+      }
+
+      m_visionUpdateCount--;
+      m_visionPoses[m_visionUpdateCount] = poseRow;
+      m_visionGains[m_visionUpdateCount] = gainRow;
+      m_corrections[m_visionUpdateCount] = correctionRow;
+    }
+  }
+
+  //#endregion
+
+  //#region Pose math
+
+  // Builds the current estimate from the latest odometry pose and correction
+  private Pose2d createCurrentEstimate() {
+    if (m_visionUpdateCount == 0) {
+      applyCorrection(
+        m_baseCorrectionX,
+        m_baseCorrectionY,
+        m_baseCorrectionTheta,
+        m_odometryX,
+        m_odometryY,
+        m_odometryTheta,
+        m_pose
+      );
+    } else {
+      var correction = m_corrections[m_visionUpdateCount - 1];
+      applyCorrection(correction[0], correction[1], correction[2], m_odometryX, m_odometryY, m_odometryTheta, m_pose);
+    }
+
+    return new Pose2d(m_pose[0], m_pose[1], new Rotation2d(m_pose[2]));
+  }
+
+  // Rotates an odometry pose by the correction's angle about the origin, then translates it
+  private static void applyCorrection(
+    double correctionX,
+    double correctionY,
+    double correctionTheta,
+    double x,
+    double y,
+    double theta,
+    double[] pose
+  ) {
+    var cos = Math.cos(correctionTheta);
+    var sin = Math.sin(correctionTheta);
+    pose[0] = x * cos - y * sin + correctionX;
+    pose[1] = x * sin + y * cos + correctionY;
+    pose[2] = MathUtil.angleModulus(theta + correctionTheta);
+  }
+
+  // Same as Pose2d.exp, applied in place
+  private static void exp(double[] pose, double dx, double dy, double dtheta) {
+    var sinTheta = Math.sin(dtheta);
+    var cosTheta = Math.cos(dtheta);
+
+    double s, c;
+    if (Math.abs(dtheta) < 1E-9) {
+      s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+      c = 0.5 * dtheta;
+    } else {
+      s = sinTheta / dtheta;
+      c = (1 - cosTheta) / dtheta;
+    }
+
+    var localX = dx * s - dy * c;
+    var localY = dx * c + dy * s;
+    var poseCos = Math.cos(pose[2]);
+    var poseSin = Math.sin(pose[2]);
+
+    pose[0] += localX * poseCos - localY * poseSin;
+    pose[1] += localX * poseSin + localY * poseCos;
+    pose[2] = MathUtil.angleModulus(pose[2] + dtheta);
+  }
+
+  // Same as Pose2d.log from the start pose to the end pose
+  private static void log(double[] start, double endX, double endY, double endTheta, double[] twist) {
+    // End relative to start
+    var cos = Math.cos(start[2]);
+    var sin = Math.sin(start[2]);
+    var tx = (endX - start[0]) * cos + (endY - start[1]) * sin;
+    var ty = -(endX - start[0]) * sin + (endY - start[1]) * cos;
+    var dtheta = MathUtil.angleModulus(endTheta - start[2]);
+
+    var halfDtheta = dtheta / 2.0;
+    var cosMinusOne = Math.cos(dtheta) - 1;
+    double halfThetaByTanOfHalfDtheta;
+    if (Math.abs(cosMinusOne) < 1E-9) {
+      halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+    } else {
+      halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+    }
+
+    twist[0] = tx * halfThetaByTanOfHalfDtheta + ty * halfDtheta;
+    twist[1] = -tx * halfDtheta + ty * halfThetaByTanOfHalfDtheta;
+    twist[2] = dtheta;
+  }
+  //#endregion
+}
@@ -0,0 +1,56 @@
+package prime.physics;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * A swerve pose estimator that fuses odometry with delayed vision measurements. Method names match WPILib's
+ * SwerveDrivePoseEstimator so either implementation can be swapped in.
+ */
+public interface IPoseEstimator {
+  /**
+   * Updates the estimate with a new odometry sample
+   * @param timestamp The FPGA timestamp of the sample in seconds
+   * @param gyroAngle The gyro angle, CCW+
+   * @param modulePositions The module positions in the same order as the kinematics
+   * @return The new estimated pose
+   */
+  public Pose2d updateWithTime(double timestamp, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions);
+
+  /**
+   * Updates the estimate with a new odometry sample given as raw module distances and headings
+   * @param timestamp The FPGA timestamp of the sample in seconds
+   * @param gyroAngle The gyro angle, CCW+
+   * @param distancesMeters The module distances in the same order as the kinematics
+   * @param anglesRadians The module headings in the same order as the kinematics
+   * @return The new estimated pose
+   */
+  public Pose2d updateWithTime(
+    double timestamp,
+    Rotation2d gyroAngle,
+    double[] distancesMeters,
+    double[] anglesRadians
+  );
+
+  /**
+   * Corrects the estimate with a vision measurement taken at a past timestamp
+   * @param pose The measured pose of the robot
+   * @param timestamp The FPGA timestamp of the measurement in seconds
+   * @param stdDeviations The standard deviations of the measurement (x, y, theta)
+   */
+  public void addVisionMeasurement(Pose2d pose, double timestamp, Matrix<N3, N1> stdDeviations);
+
+  /**
+   * Resets the estimate to a pose, discarding all history
+   */
+  public void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, Pose2d pose);
+
+  /**
+   * Gets the current estimated pose
+   */
+  public Pose2d getEstimatedPosition();
+}
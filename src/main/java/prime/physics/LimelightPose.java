@@ -19,7 +19,28 @@ public class LimelightPose {
   public double AvgTagArea;
   public Matrix<N3, N1> StdDeviations;
 
+  // Per-tag data, only filled in when the Limelight publishes raw fiducials after the summary values
+  public int[] TagIds = new int[0];
+  public double[] TagDistancesToRobotMeters = new double[0];
+
+  /**
+   * Creates a pose from a Limelight botpose array, timestamped from the current time minus the frame's latency
+   * @param data Translation (X,Y,Z), Rotation (Roll,Pitch,Yaw), total latency, tag count, tag span, average tag
+   *             distance, average tag area
+   * @param stdDeviations The standard deviations of the measurement (x, y, theta)
+   */
   public LimelightPose(double[] data, Matrix<N3, N1> stdDeviations) {
+    this(data, data.length > 6 ? Timer.getFPGATimestamp() - (data[6] / 1000.0) : Timer.getFPGATimestamp(), stdDeviations);
+  }
+
+  /**
+   * Creates a pose from a Limelight botpose array with a known capture timestamp
+   * @param data Translation (X,Y,Z), Rotation (Roll,Pitch,Yaw), total latency, tag count, tag span, average tag
+   *             distance, average tag area
+   * @param timestamp The FPGA timestamp in seconds at which the frame was captured
+   * @param stdDeviations The standard deviations of the measurement (x, y, theta)
+   */
+  public LimelightPose(double[] data, double timestamp, Matrix<N3, N1> stdDeviations) {
     if (data.length < 6) {
       System.err.println("Bad LL 3D Pose Data!");
       return;
@@ -35,12 +56,26 @@ public class LimelightPose {
         )
       );
 
-    var latencyMs = data[6];
-    Timestamp = Timer.getFPGATimestamp() - (latencyMs / 1000.0);
+    Timestamp = timestamp;
+    StdDeviations = stdDeviations;
+
+    // Older firmware only publishes the pose, and the summary values follow the latency when it's there
+    if (data.length < 11) return;
+
     TagCount = data[7];
     TagSpan = data[8];
     AvgTagDistanceMeters = data[9];
     AvgTagArea = data[10];
-    StdDeviations = stdDeviations;
+
+    // Each raw fiducial is id, txnc, tync, ta, distance to camera, distance to robot, ambiguity
+    var tagCount = (int) TagCount;
+    if (tagCount > 0 && data.length >= 11 + tagCount * 7) {
+      TagIds = new int[tagCount];
+      TagDistancesToRobotMeters = new double[tagCount];
+      for (int i = 0; i < tagCount; i++) {
+        TagIds[i] = (int) data[11 + i * 7];
+        TagDistancesToRobotMeters[i] = data[11 + i * 7 + 5];
+      }
+    }
   }
 }
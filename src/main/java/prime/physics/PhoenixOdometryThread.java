@@ -0,0 +1,93 @@
+package prime.physics;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import edu.wpi.first.wpilibj.Threads;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Waits on a group of Phoenix 6 status signals and hands each synchronized sample to a consumer,
+ * independent of the 20ms robot loop.
+ */
+public class PhoenixOdometryThread extends Thread {
+
+  private final BaseStatusSignal[] m_signals;
+  private final double m_frequencyHz;
+  private final DoubleConsumer m_sampleConsumer;
+
+  private volatile boolean m_running = true;
+  private volatile long m_sampleCount = 0;
+  private volatile long m_failedSampleCount = 0;
+
+  /**
+   * Creates a new odometry thread. The thread is not started until start() is called.
+   * @param signals The signals to wait on together
+   * @param frequencyHz The update frequency of the signals
+   * @param sampleConsumer Called with the FPGA timestamp (seconds) of each sample after all signals are refreshed
+   */
+  public PhoenixOdometryThread(BaseStatusSignal[] signals, double frequencyHz, DoubleConsumer sampleConsumer) {
+    m_signals = signals;
+    m_frequencyHz = frequencyHz;
+    m_sampleConsumer = sampleConsumer;
+
+    setName("PhoenixOdometryThread");
+    setDaemon(true);
+
+    BaseStatusSignal.setUpdateFrequencyForAll(frequencyHz, signals);
+  }
+
+  @Override
+  public void run() {
+    // Run above the main robot thread so samples are taken as soon as they arrive
+    Threads.setCurrentThreadPriority(true, 1);
+
+    // Wait up to two periods so a single late frame doesn't drop the sample
+    var timeoutSeconds = 2.0 / m_frequencyHz;
+
+    while (m_running) {
+      var status = BaseStatusSignal.waitForAll(timeoutSeconds, m_signals);
+      if (!status.isOK()) {
+        m_failedSampleCount++;
+
+        // Avoid spinning if the bus is returning errors immediately
+        try {
+          Thread.sleep((long) (1000 / m_frequencyHz));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        continue;
+      }
+
+      // Timestamp the sample at the average time the frames were received
+      var totalLatency = 0.0;
+      for (var signal : m_signals) {
+        totalLatency += signal.getTimestamp().getLatency();
+      }
+
+      m_sampleConsumer.accept(Timer.getFPGATimestamp() - (totalLatency / m_signals.length));
+      m_sampleCount++;
+    }
+  }
+
+  /**
+   * Gets the number of samples handed to the consumer
+   */
+  public long getSampleCount() {
+    return m_sampleCount;
+  }
+
+  /**
+   * Gets the number of waits that timed out or returned an error
+   */
+  public long getFailedSampleCount() {
+    return m_failedSampleCount;
+  }
+
+  /**
+   * Stops the thread after the current sample
+   */
+  public void stopThread() {
+    m_running = false;
+  }
+}
@@ -0,0 +1,90 @@
+package prime.physics;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.util.struct.Struct;
+import java.nio.ByteBuffer;
+
+/**
+ * A mutable module speed or distance and angle, so module states can be logged every loop without allocating a
+ * SwerveModuleState and Rotation2d per module. The structs serialize exactly like SwerveModuleState.struct and
+ * SwerveModulePosition.struct, so dashboards and log viewers read them as the WPILib types.
+ */
+public class PrimitiveModuleState {
+
+  /**
+   * Serializes as a SwerveModuleState, with Value as the speed in meters per second
+   */
+  public static final Struct<PrimitiveModuleState> kStateStruct = new ModuleStruct("SwerveModuleState", "speed");
+
+  /**
+   * Serializes as a SwerveModulePosition, with Value as the distance in meters
+   */
+  public static final Struct<PrimitiveModuleState> kPositionStruct = new ModuleStruct(
+    "SwerveModulePosition",
+    "distance"
+  );
+
+  public double Value;
+  public double AngleRadians;
+
+  /**
+   * Creates an array of states, one per module
+   */
+  public static PrimitiveModuleState[] createArray(int moduleCount) {
+    var states = new PrimitiveModuleState[moduleCount];
+    for (int i = 0; i < moduleCount; i++) states[i] = new PrimitiveModuleState();
+
+    return states;
+  }
+
+  private static class ModuleStruct implements Struct<PrimitiveModuleState> {
+
+    private final String m_typeName;
+    private final String m_valueName;
+
+    public ModuleStruct(String typeName, String valueName) {
+      m_typeName = typeName;
+      m_valueName = valueName;
+    }
+
+    @Override
+    public Class<PrimitiveModuleState> getTypeClass() {
+      return PrimitiveModuleState.class;
+    }
+
+    @Override
+    public String getTypeString() {
+      return "struct:" + m_typeName;
+    }
+
+    @Override
+    public int getSize() {
+      return kSizeDouble + Rotation2d.struct.getSize();
+    }
+
+    @Override
+    public String getSchema() {
+      return "double " + m_valueName + ";Rotation2d angle";
+    }
+
+    @Override
+    public Struct<?>[] getNested() {
+      return new Struct<?>[] { Rotation2d.struct };
+    }
+
+    @Override
+    public PrimitiveModuleState unpack(ByteBuffer bb) {
+      var state = new PrimitiveModuleState();
+      state.Value = bb.getDouble();
+      state.AngleRadians = bb.getDouble(); // Rotation2d is a single double of radians
+
+      return state;
+    }
+
+    @Override
+    public void pack(ByteBuffer bb, PrimitiveModuleState value) {
+      bb.putDouble(value.Value);
+      bb.putDouble(value.AngleRadians);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package prime.physics;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Swerve kinematics on primitive doubles. Results are written into buffers owned by this class, so converting chassis
+ * speeds to module states and back does not allocate. Module angles are in radians, CCW+.
+ */
+public class PrimitiveSwerveKinematics {
+
+  private final int m_moduleCount;
+  private final double[] m_moduleX;
+  private final double[] m_moduleY;
+
+  // Pseudo-inverse of the inverse kinematics matrix, 3 rows by 2n columns
+  private final double[][] m_forwardKinematics;
+
+  // Output buffers
+  private final double[] m_speeds;
+  private final double[] m_anglesRadians;
+  private final double[] m_discretizedSpeeds = new double[3];
+
+  /**
+   * Creates kinematics for modules at the given locations relative to the robot center
+   * @param moduleLocations The module locations, in the order states will be reported
+   */
+  public PrimitiveSwerveKinematics(Translation2d... moduleLocations) {
+    m_moduleCount = moduleLocations.length;
+    m_moduleX = new double[m_moduleCount];
+    m_moduleY = new double[m_moduleCount];
+    m_speeds = new double[m_moduleCount];
+    m_anglesRadians = new double[m_moduleCount];
+
+    var inverseKinematics = new SimpleMatrix(m_moduleCount * 2, 3);
+    for (int i = 0; i < m_moduleCount; i++) {
+      m_moduleX[i] = moduleLocations[i].getX();
+      m_moduleY[i] = moduleLocations[i].getY();
+
+      inverseKinematics.setRow(i * 2, 0, 1, 0, -m_moduleY[i]);
+      inverseKinematics.setRow(i * 2 + 1, 0, 0, 1, m_moduleX[i]);
+    }
+
+    var forwardKinematics = inverseKinematics.pseudoInverse();
+    m_forwardKinematics = new double[3][m_moduleCount * 2];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < m_moduleCount * 2; col++) {
+        m_forwardKinematics[row][col] = forwardKinematics.get(row, col);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of modules
+   */
+  public int getModuleCount() {
+    return m_moduleCount;
+  }
+
+  /**
+   * Gets the forward location of a module relative to the robot center in meters
+   */
+  public double getModuleX(int module) {
+    return m_moduleX[module];
+  }
+
+  /**
+   * Gets the left location of a module relative to the robot center in meters
+   */
+  public double getModuleY(int module) {
+    return m_moduleY[module];
+  }
+
+  /**
+   * Converts robot-relative chassis speeds to module speeds and angles. If the chassis is not moving, each module
+   * keeps its last angle at zero speed.
+   * @param vxMetersPerSecond Forward speed
+   * @param vyMetersPerSecond Left speed
+   * @param omegaRadiansPerSecond Rotational speed, CCW+
+   * @param dtSeconds The loop period used to discretize the speeds, or 0 to skip discretization
+   */
+  public void toModuleStates(
+    double vxMetersPerSecond,
+    double vyMetersPerSecond,
+    double omegaRadiansPerSecond,
+    double dtSeconds
+  ) {
+    if (dtSeconds > 0) {
+      discretize(vxMetersPerSecond, vyMetersPerSecond, omegaRadiansPerSecond, dtSeconds);
+      vxMetersPerSecond = m_discretizedSpeeds[0];
+      vyMetersPerSecond = m_discretizedSpeeds[1];
+      omegaRadiansPerSecond = m_discretizedSpeeds[2];
+    }
+
+    if (vxMetersPerSecond == 0 && vyMetersPerSecond == 0 && omegaRadiansPerSecond == 0) {
+      for (int i = 0; i < m_moduleCount; i++) m_speeds[i] = 0;
+      return;
+    }
+
+    for (int i = 0; i < m_moduleCount; i++) {
+      var moduleVx = vxMetersPerSecond - omegaRadiansPerSecond * m_moduleY[i];
+      var moduleVy = vyMetersPerSecond + omegaRadiansPerSecond * m_moduleX[i];
+
+      m_speeds[i] = Math.hypot(moduleVx, moduleVy);
+      m_anglesRadians[i] = Math.atan2(moduleVy, moduleVx);
+    }
+  }
+
+  /**
+   * Scales every module speed down so none exceeds the maximum, preserving the ratio between modules
+   * @param maxSpeedMetersPerSecond The maximum attainable module speed
+   */
+  public void desaturateWheelSpeeds(double maxSpeedMetersPerSecond) {
+    var realMaxSpeed = 0.0;
+    for (int i = 0; i < m_moduleCount; i++) {
+      realMaxSpeed = Math.max(realMaxSpeed, Math.abs(m_speeds[i]));
+    }
+
+    if (realMaxSpeed > maxSpeedMetersPerSecond) {
+      var scale = maxSpeedMetersPerSecond / realMaxSpeed;
+      for (int i = 0; i < m_moduleCount; i++) m_speeds[i] *= scale;
+    }
+  }
+
+  /**
+   * Gets the module speeds from the last conversion. The array is owned by this class and must not be modified.
+   */
+  public double[] getSpeeds() {
+    return m_speeds;
+  }
+
+  /**
+   * Gets the module angles in radians from the last conversion. The array is owned by this class and must not be
+   * modified.
+   */
+  public double[] getAnglesRadians() {
+    return m_anglesRadians;
+  }
+
+  /**
+   * Converts measured module speeds and angles to robot-relative chassis speeds using least squares
+   * @param speeds The module speeds in meters per second
+   * @param anglesRadians The module angles in radians
+   * @param chassisSpeeds Output of length 3: vx, vy (m/s) and omega (rad/s)
+   */
+  public void toChassisSpeeds(double[] speeds, double[] anglesRadians, double[] chassisSpeeds) {
+    var vx = 0.0;
+    var vy = 0.0;
+    var omega = 0.0;
+
+    for (int i = 0; i < m_moduleCount; i++) {
+      var moduleVx = speeds[i] * Math.cos(anglesRadians[i]);
+      var moduleVy = speeds[i] * Math.sin(anglesRadians[i]);
+
+      vx += m_forwardKinematics[0][i * 2] * moduleVx + m_forwardKinematics[0][i * 2 + 1] * moduleVy;
+      vy += m_forwardKinematics[1][i * 2] * moduleVx + m_forwardKinematics[1][i * 2 + 1] * moduleVy;
+      omega += m_forwardKinematics[2][i * 2] * moduleVx + m_forwardKinematics[2][i * 2 + 1] * moduleVy;
+    }
+
+    chassisSpeeds[0] = vx;
+    chassisSpeeds[1] = vy;
+    chassisSpeeds[2] = omega;
+  }
+
+  /**
+   * Same as ChassisSpeeds.discretize: finds the constant-curvature speeds that end the period at the pose the
+   * robot would reach by applying each component independently. Writes into the internal discretized buffer.
+   */
+  private void discretize(double vx, double vy, double omega, double dtSeconds) {
+    var dx = vx * dtSeconds;
+    var dy = vy * dtSeconds;
+    var dtheta = omega * dtSeconds;
+
+    // Pose2d.log of the per-period delta pose
+    var halfDtheta = dtheta / 2.0;
+    var cosMinusOne = Math.cos(dtheta) - 1;
+    double halfThetaByTanOfHalfDtheta;
+    if (Math.abs(cosMinusOne) < 1E-9) {
+      halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+    } else {
+      halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+    }
+
+    m_discretizedSpeeds[0] = (dx * halfThetaByTanOfHalfDtheta + dy * halfDtheta) / dtSeconds;
+    m_discretizedSpeeds[1] = (dy * halfThetaByTanOfHalfDtheta - dx * halfDtheta) / dtSeconds;
+    m_discretizedSpeeds[2] = omega;
+  }
+}
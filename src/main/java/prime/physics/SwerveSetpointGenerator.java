@@ -0,0 +1,234 @@
+package prime.physics;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Turns requested chassis speeds into module setpoints the modules can actually follow in one loop. Each cycle it
+ * moves from the previous setpoint towards the requested speeds only as far as every module can go without turning
+ * faster than its steering limit or changing its wheel velocity faster than the acceleration limit. Works on
+ * primitives and preallocated buffers, so generating a setpoint does not allocate.
+ */
+public class SwerveSetpointGenerator {
+
+  // Wheel speeds below this are treated as stopped, so the module can turn freely
+  private static final double kStoppedSpeedMetersPerSecond = 1E-3;
+
+  private final PrimitiveSwerveKinematics m_kinematics;
+  private final int m_moduleCount;
+  private final double m_maxSpeedMetersPerSecond;
+  private final double m_maxAccelerationMetersPerSecondSquared;
+  private final double m_maxSteeringSpeedRadiansPerSecond;
+
+  // Previous setpoint
+  private double m_vx;
+  private double m_vy;
+  private double m_omega;
+  private final double[] m_speeds;
+  private final double[] m_anglesRadians;
+
+  /**
+   * Creates a setpoint generator
+   * @param kinematics The kinematics of the modules being driven
+   * @param maxSpeedMetersPerSecond The maximum wheel speed
+   * @param maxAccelerationMetersPerSecondSquared The maximum change in wheel velocity per second, in any direction
+   * @param maxSteeringSpeedRadiansPerSecond The maximum rate a module can turn
+   */
+  public SwerveSetpointGenerator(
+    PrimitiveSwerveKinematics kinematics,
+    double maxSpeedMetersPerSecond,
+    double maxAccelerationMetersPerSecondSquared,
+    double maxSteeringSpeedRadiansPerSecond
+  ) {
+    m_kinematics = kinematics;
+    m_moduleCount = kinematics.getModuleCount();
+    m_maxSpeedMetersPerSecond = maxSpeedMetersPerSecond;
+    m_maxAccelerationMetersPerSecondSquared = maxAccelerationMetersPerSecondSquared;
+    m_maxSteeringSpeedRadiansPerSecond = maxSteeringSpeedRadiansPerSecond;
+    m_speeds = new double[m_moduleCount];
+    m_anglesRadians = new double[m_moduleCount];
+  }
+
+  /**
+   * Resets the previous setpoint to the measured state of the robot, e.g. while disabled
+   * @param vxMetersPerSecond The measured forward speed
+   * @param vyMetersPerSecond The measured left speed
+   * @param omegaRadiansPerSecond The measured rotational speed
+   * @param anglesRadians The measured module angles
+   */
+  public void reset(
+    double vxMetersPerSecond,
+    double vyMetersPerSecond,
+    double omegaRadiansPerSecond,
+    double[] anglesRadians
+  ) {
+    m_vx = vxMetersPerSecond;
+    m_vy = vyMetersPerSecond;
+    m_omega = omegaRadiansPerSecond;
+
+    for (int i = 0; i < m_moduleCount; i++) {
+      m_speeds[i] = getModuleSpeed(i, m_vx, m_vy, m_omega);
+      m_anglesRadians[i] = anglesRadians[i];
+    }
+  }
+
+  /**
+   * Generates the next feasible setpoint towards the requested robot-relative speeds. Read the result with
+   * getSpeeds() and getAnglesRadians().
+   * @param vxMetersPerSecond The requested forward speed
+   * @param vyMetersPerSecond The requested left speed
+   * @param omegaRadiansPerSecond The requested rotational speed, CCW+
+   * @param dtSeconds The loop period
+   */
+  public void generate(
+    double vxMetersPerSecond,
+    double vyMetersPerSecond,
+    double omegaRadiansPerSecond,
+    double dtSeconds
+  ) {
+    // Scale the request down, preserving its direction, if any wheel would exceed the maximum speed
+    var maxRequestedSpeed = 0.0;
+    for (int i = 0; i < m_moduleCount; i++) {
+      maxRequestedSpeed =
+        Math.max(maxRequestedSpeed, getModuleSpeed(i, vxMetersPerSecond, vyMetersPerSecond, omegaRadiansPerSecond));
+    }
+    if (maxRequestedSpeed > m_maxSpeedMetersPerSecond) {
+      var scale = m_maxSpeedMetersPerSecond / maxRequestedSpeed;
+      vxMetersPerSecond *= scale;
+      vyMetersPerSecond *= scale;
+      omegaRadiansPerSecond *= scale;
+    }
+
+    var dvx = vxMetersPerSecond - m_vx;
+    var dvy = vyMetersPerSecond - m_vy;
+    var domega = omegaRadiansPerSecond - m_omega;
+
+    // Find how far along the straight line from the previous setpoint to the request every module can get
+    var maxVelocityStep = m_maxAccelerationMetersPerSecondSquared * dtSeconds;
+    var maxSteeringStep = m_maxSteeringSpeedRadiansPerSecond * dtSeconds;
+    var s = 1.0;
+
+    for (int i = 0; i < m_moduleCount; i++) {
+      var x = m_kinematics.getModuleX(i);
+      var y = m_kinematics.getModuleY(i);
+
+      // Module velocity vectors at the previous setpoint and at the request
+      var prevVx = m_vx - m_omega * y;
+      var prevVy = m_vy + m_omega * x;
+      var deltaVx = dvx - domega * y;
+      var deltaVy = dvy + domega * x;
+
+      // Acceleration limit; the change in wheel velocity grows linearly along the line
+      var deltaSpeed = Math.hypot(deltaVx, deltaVy);
+      if (deltaSpeed * s > maxVelocityStep) s = maxVelocityStep / deltaSpeed;
+
+      // Steering limit; a stopped module can turn in place
+      if (Math.hypot(prevVx, prevVy) > kStoppedSpeedMetersPerSecond) {
+        s = limitSteering(prevVx, prevVy, deltaVx, deltaVy, maxSteeringStep, s);
+      }
+    }
+
+    m_vx += s * dvx;
+    m_vy += s * dvy;
+    m_omega += s * domega;
+
+    // Convert to discretized module states, keeping the previous angle for any module that stops
+    m_kinematics.toModuleStates(m_vx, m_vy, m_omega, dtSeconds);
+    m_kinematics.desaturateWheelSpeeds(m_maxSpeedMetersPerSecond);
+
+    var speeds = m_kinematics.getSpeeds();
+    var angles = m_kinematics.getAnglesRadians();
+    for (int i = 0; i < m_moduleCount; i++) {
+      m_speeds[i] = speeds[i];
+      if (Math.abs(speeds[i]) > kStoppedSpeedMetersPerSecond) m_anglesRadians[i] = angles[i];
+    }
+  }
+
+  /**
+   * Finds the largest fraction of the step, up to the given maximum, that keeps the module heading within the
+   * steering limit of where it started. A heading and its opposite are equivalent since the module can reverse the
+   * wheel instead of turning.
+   */
+  private static double limitSteering(
+    double prevVx,
+    double prevVy,
+    double deltaVx,
+    double deltaVy,
+    double maxSteeringStep,
+    double maxS
+  ) {
+    // Also covers a request that reverses the module, and any limit of a quarter turn or more
+    var prevAngle = Math.atan2(prevVy, prevVx);
+    if (getSteeringChange(prevAngle, prevVx, prevVy, deltaVx, deltaVy, maxS) <= maxSteeringStep) return maxS;
+
+    // The heading along the line turns one way only, and it can't reach the reversed heading without ending within
+    // the limit of it, so the limit is where the heading first leaves the cone of the steering limit around the
+    // previous heading: tan(maxSteeringStep) = |cross(prev, v(s))| / dot(prev, v(s)) with v(s) = prev + s * delta
+    var tanLimit = Math.tan(maxSteeringStep);
+    var cross = Math.abs(prevVx * deltaVy - prevVy * deltaVx);
+    var dot = prevVx * deltaVx + prevVy * deltaVy;
+    var denominator = cross - tanLimit * dot;
+    if (denominator <= 0) return maxS;
+
+    return Math.min(maxS, tanLimit * (prevVx * prevVx + prevVy * prevVy) / denominator);
+  }
+
+  // Gets how far the module turns, ignoring reversals, when moving a fraction s along the step
+  private static double getSteeringChange(
+    double prevAngle,
+    double prevVx,
+    double prevVy,
+    double deltaVx,
+    double deltaVy,
+    double s
+  ) {
+    var vx = prevVx + s * deltaVx;
+    var vy = prevVy + s * deltaVy;
+    if (Math.hypot(vx, vy) <= kStoppedSpeedMetersPerSecond) return 0;
+
+    var change = Math.abs(MathUtil.angleModulus(Math.atan2(vy, vx) - prevAngle));
+    return Math.min(change, Math.PI - change);
+  }
+
+  // Gets the wheel speed of a module for the given chassis speeds
+  private double getModuleSpeed(int module, double vx, double vy, double omega) {
+    return Math.hypot(
+      vx - omega * m_kinematics.getModuleY(module),
+      vy + omega * m_kinematics.getModuleX(module)
+    );
+  }
+
+  /**
+   * Gets the module speeds of the last setpoint. The array is owned by this class and must not be modified.
+   */
+  public double[] getSpeeds() {
+    return m_speeds;
+  }
+
+  /**
+   * Gets the module angles in radians of the last setpoint. The array is owned by this class and must not be modified.
+   */
+  public double[] getAnglesRadians() {
+    return m_anglesRadians;
+  }
+
+  /**
+   * Gets the forward speed of the last setpoint
+   */
+  public double getVxMetersPerSecond() {
+    return m_vx;
+  }
+
+  /**
+   * Gets the left speed of the last setpoint
+   */
+  public double getVyMetersPerSecond() {
+    return m_vy;
+  }
+
+  /**
+   * Gets the rotational speed of the last setpoint
+   */
+  public double getOmegaRadiansPerSecond() {
+    return m_omega;
+  }
+}
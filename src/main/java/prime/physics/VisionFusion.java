@@ -0,0 +1,320 @@
+package prime.physics;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * Combines Limelight frames from one or more cameras into vision measurements for a pose estimator. Each frame is
+ * checked against the field and the odometry history, given standard deviations that scale with tag distance, tag
+ * count, tag span and robot speed, and frames from different cameras captured within the same short window are
+ * merged into a single inverse-variance weighted measurement. Consecutive frames from one camera share most of their
+ * error, so a window never holds more than one frame per camera.
+ *
+ * Use once per loop: begin(), addFrames() once for each camera, then fuse().
+ */
+public class VisionFusion {
+
+  /**
+   * Receives fused measurements, matching SwerveDrivePoseEstimator.addVisionMeasurement
+   */
+  @FunctionalInterface
+  public interface MeasurementConsumer {
+    void accept(Pose2d pose, double timestamp, Matrix<N3, N1> stdDeviations);
+  }
+
+  /**
+   * Looks up where the robot was at a past timestamp
+   */
+  @FunctionalInterface
+  public interface PoseHistory {
+    /**
+     * @param pose Output of length 3: x, y (meters) and theta (radians)
+     * @return False if there is no history
+     */
+    boolean getPoseAt(double timestamp, double[] pose);
+  }
+
+  // Frames from different cameras captured within this many seconds of each other are merged
+  private static final double kFusionWindowSeconds = 0.05;
+
+  // How far outside the field boundary, and above or below the carpet, a pose may be
+  private static final double kFieldMarginMeters = 0.5;
+  private static final double kMaxHeightMeters = 0.75;
+
+  // After this many multi-tag frames in a row fail the jump check, the estimate is more likely wrong than the camera,
+  // so multi-tag frames are let through until one agrees with it again
+  private static final int kMaxConsecutiveMultiTagJumps = 10;
+
+  // How far a tag's measured distance may disagree with the distance implied by the pose and the field layout
+  private static final double kTagDistanceToleranceMeters = 0.75;
+
+  // Std devs never drop below these, however close and numerous the tags
+  private static final double kMinXYStdDevMeters = 0.05;
+  private static final double kMinThetaStdDevRadians = 0.05;
+
+  // Rotation is not trusted from single-tag frames
+  private static final double kUntrustedStdDev = 9999;
+
+  private static final int kMaxFrames = 32;
+
+  private final AprilTagFieldLayout m_fieldLayout;
+  private final PoseHistory m_poseHistory;
+  private final double m_maxSpeedMetersPerSecond;
+  private final double m_maxAngularSpeedRadians;
+  private final double m_maxPoseJumpMeters;
+  private final double m_maxMultiTagPoseJumpMeters;
+  private final double m_xyStdDevCoefficient;
+  private final double m_thetaStdDevCoefficient;
+
+  // Accepted frames this loop, sorted by timestamp as they're added
+  private final double[] m_timestamps = new double[kMaxFrames];
+  private final double[] m_x = new double[kMaxFrames];
+  private final double[] m_y = new double[kMaxFrames];
+  private final double[] m_theta = new double[kMaxFrames];
+  private final double[] m_xyStdDev = new double[kMaxFrames];
+  private final double[] m_thetaStdDev = new double[kMaxFrames];
+  private final int[] m_cameras = new int[kMaxFrames];
+  private int m_frameCount = 0;
+  private int m_cameraCount = 0;
+
+  private double m_linearSpeed;
+  private double m_angularSpeed;
+  private final double[] m_historicalPose = new double[3];
+
+  // Counters for logging
+  private int m_acceptedCount = 0;
+  private int m_rejectedSpeedCount = 0;
+  private int m_rejectedOffFieldCount = 0;
+  private int m_rejectedJumpCount = 0;
+  private int m_rejectedMultiTagJumpCount = 0;
+  private int m_consecutiveMultiTagJumps = 0;
+  private int m_rejectedTagCount = 0;
+
+  public VisionFusion(
+    AprilTagFieldLayout fieldLayout,
+    PoseHistory poseHistory,
+    double maxSpeedMetersPerSecond,
+    double maxAngularSpeedRadians,
+    double maxPoseJumpMeters,
+    double maxMultiTagPoseJumpMeters,
+    double xyStdDevCoefficient,
+    double thetaStdDevCoefficient
+  ) {
+    m_fieldLayout = fieldLayout;
+    m_poseHistory = poseHistory;
+    m_maxSpeedMetersPerSecond = maxSpeedMetersPerSecond;
+    m_maxAngularSpeedRadians = maxAngularSpeedRadians;
+    m_maxPoseJumpMeters = maxPoseJumpMeters;
+    m_maxMultiTagPoseJumpMeters = maxMultiTagPoseJumpMeters;
+    m_xyStdDevCoefficient = xyStdDevCoefficient;
+    m_thetaStdDevCoefficient = thetaStdDevCoefficient;
+  }
+
+  /**
+   * Starts a new loop's batch of frames
+   * @param linearSpeedMetersPerSecond The measured translational speed of the robot
+   * @param angularSpeedRadiansPerSecond The measured rotational speed of the robot
+   */
+  public void begin(double linearSpeedMetersPerSecond, double angularSpeedRadiansPerSecond) {
+    m_frameCount = 0;
+    m_cameraCount = 0;
+    m_linearSpeed = Math.abs(linearSpeedMetersPerSecond);
+    m_angularSpeed = Math.abs(angularSpeedRadiansPerSecond);
+  }
+
+  /**
+   * Checks and weighs a camera's new frames, keeping the ones that pass. Call once per camera per loop.
+   * @param poses Frames in field space (blue origin)
+   */
+  public void addFrames(LimelightPose[] poses) {
+    var camera = m_cameraCount++;
+    for (var pose : poses) addFrame(camera, pose);
+  }
+
+  private void addFrame(int camera, LimelightPose frame) {
+    if (frame.Pose == null || frame.TagCount < 1) return;
+
+    // Blurry frames and rolling shutter make poses unreliable while moving fast
+    if (m_linearSpeed > m_maxSpeedMetersPerSecond || m_angularSpeed > m_maxAngularSpeedRadians) {
+      m_rejectedSpeedCount++;
+      return;
+    }
+
+    var x = frame.Pose.getX();
+    var y = frame.Pose.getY();
+    var theta = frame.Pose.getRotation().getZ();
+
+    if (
+      x < -kFieldMarginMeters ||
+      x > m_fieldLayout.getFieldLength() + kFieldMarginMeters ||
+      y < -kFieldMarginMeters ||
+      y > m_fieldLayout.getFieldWidth() + kFieldMarginMeters ||
+      Math.abs(frame.Pose.getZ()) > kMaxHeightMeters
+    ) {
+      m_rejectedOffFieldCount++;
+      return;
+    }
+
+    if (!matchesFieldLayout(frame, x, y)) {
+      m_rejectedTagCount++;
+      return;
+    }
+
+    // Compare the frame with where odometry says the robot was. A single tag can flip to an ambiguous solution, so it
+    // gets the tighter limit; a multi-tag solve is rarely wrong, but a bad one could otherwise pull the estimate
+    // anywhere on the field. A run of multi-tag frames that all disagree means the estimate is lost, so let them in.
+    var multiTag = frame.TagCount >= 2;
+    if (m_poseHistory.getPoseAt(frame.Timestamp, m_historicalPose)) {
+      var jump = Math.hypot(x - m_historicalPose[0], y - m_historicalPose[1]);
+      if (!multiTag && jump > m_maxPoseJumpMeters) {
+        m_rejectedJumpCount++;
+        return;
+      }
+
+      if (multiTag && jump <= m_maxMultiTagPoseJumpMeters) {
+        m_consecutiveMultiTagJumps = 0;
+      } else if (multiTag && ++m_consecutiveMultiTagJumps < kMaxConsecutiveMultiTagJumps) {
+        m_rejectedMultiTagJumpCount++;
+        return;
+      }
+    }
+
+    if (m_frameCount == kMaxFrames) return;
+
+    // Error grows with the square of the distance, shrinks with more and more spread-out tags, and grows with speed
+    var distanceSquared = frame.AvgTagDistanceMeters * frame.AvgTagDistanceMeters;
+    var confidence = frame.TagCount * (1 + frame.TagSpan);
+    var motionFactor = 1 + m_linearSpeed / m_maxSpeedMetersPerSecond + m_angularSpeed / m_maxAngularSpeedRadians;
+
+    var xyStdDev = Math.max(kMinXYStdDevMeters, m_xyStdDevCoefficient * distanceSquared * motionFactor / confidence);
+    var thetaStdDev = multiTag
+      ? Math.max(kMinThetaStdDevRadians, m_thetaStdDevCoefficient * distanceSquared * motionFactor / confidence)
+      : kUntrustedStdDev;
+
+    // Insert in timestamp order
+    var index = m_frameCount++;
+    while (index > 0 && m_timestamps[index - 1] > frame.Timestamp) {
+      m_timestamps[index] = m_timestamps[index - 1];
+      m_x[index] = m_x[index - 1];
+      m_y[index] = m_y[index - 1];
+      m_theta[index] = m_theta[index - 1];
+      m_xyStdDev[index] = m_xyStdDev[index - 1];
+      m_thetaStdDev[index] = m_thetaStdDev[index - 1];
+      m_cameras[index] = m_cameras[index - 1];
+      index--;
+    }
+
+    m_timestamps[index] = frame.Timestamp;
+    m_x[index] = x;
+    m_y[index] = y;
+    m_theta[index] = theta;
+    m_xyStdDev[index] = xyStdDev;
+    m_thetaStdDev[index] = thetaStdDev;
+    m_cameras[index] = camera;
+  }
+
+  /**
+   * Checks that every tag in the frame exists in the field layout and is about as far from the measured pose as the
+   * Limelight says it is. Frames without per-tag data can't be checked and are accepted.
+   */
+  private boolean matchesFieldLayout(LimelightPose frame, double x, double y) {
+    for (int i = 0; i < frame.TagIds.length; i++) {
+      var tagPose = m_fieldLayout.getTagPose(frame.TagIds[i]);
+      if (tagPose.isEmpty()) return false;
+
+      var expectedDistance = Math.hypot(tagPose.get().getX() - x, tagPose.get().getY() - y);
+      var measuredDistance = frame.TagDistancesToRobotMeters[i];
+      if (measuredDistance > 0 && Math.abs(expectedDistance - measuredDistance) > kTagDistanceToleranceMeters) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Merges this loop's accepted frames that fall within the same window and hands each result to the consumer,
+   * oldest first. A camera's second frame in a window starts the next window instead of being merged.
+   */
+  public void fuse(MeasurementConsumer consumer) {
+    var start = 0;
+    while (start < m_frameCount) {
+      var end = start + 1;
+      while (
+        end < m_frameCount &&
+        m_timestamps[end] - m_timestamps[start] <= kFusionWindowSeconds &&
+        !hasCamera(start, end, m_cameras[end])
+      ) {
+        end++;
+      }
+
+      // Inverse-variance weighted mean; angles are averaged as unit vectors
+      double xyWeightSum = 0, thetaWeightSum = 0, x = 0, y = 0, cos = 0, sin = 0, timestamp = 0;
+      for (int i = start; i < end; i++) {
+        var xyWeight = 1 / (m_xyStdDev[i] * m_xyStdDev[i]);
+        var thetaWeight = 1 / (m_thetaStdDev[i] * m_thetaStdDev[i]);
+
+        xyWeightSum += xyWeight;
+        thetaWeightSum += thetaWeight;
+        x += m_x[i] * xyWeight;
+        y += m_y[i] * xyWeight;
+        timestamp += m_timestamps[i] * xyWeight;
+        cos += Math.cos(m_theta[i]) * thetaWeight;
+        sin += Math.sin(m_theta[i]) * thetaWeight;
+      }
+
+      var thetaStdDev = Math.min(kUntrustedStdDev, 1 / Math.sqrt(thetaWeightSum));
+      var xyStdDev = 1 / Math.sqrt(xyWeightSum);
+
+      consumer.accept(
+        new Pose2d(x / xyWeightSum, y / xyWeightSum, new Rotation2d(MathUtil.angleModulus(Math.atan2(sin, cos)))),
+        timestamp / xyWeightSum,
+        VecBuilder.fill(xyStdDev, xyStdDev, thetaStdDev)
+      );
+
+      m_acceptedCount += end - start;
+      start = end;
+    }
+
+    m_frameCount = 0;
+  }
+
+  // Checks whether any frame in [start, end) came from the given camera
+  private boolean hasCamera(int start, int end, int camera) {
+    for (int i = start; i < end; i++) {
+      if (m_cameras[i] == camera) return true;
+    }
+
+    return false;
+  }
+
+  public int getAcceptedCount() {
+    return m_acceptedCount;
+  }
+
+  public int getRejectedSpeedCount() {
+    return m_rejectedSpeedCount;
+  }
+
+  public int getRejectedOffFieldCount() {
+    return m_rejectedOffFieldCount;
+  }
+
+  public int getRejectedJumpCount() {
+    return m_rejectedJumpCount;
+  }
+
+  public int getRejectedMultiTagJumpCount() {
+    return m_rejectedMultiTagJumpCount;
+  }
+
+  public int getRejectedTagCount() {
+    return m_rejectedTagCount;
+  }
+}
@@ -0,0 +1,46 @@
+package prime.physics;
+
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+/**
+ * WPILib's SwerveDrivePoseEstimator behind the IPoseEstimator interface. Every delayed vision measurement replays the
+ * odometry recorded since it was taken.
+ */
+public class WPILibPoseEstimator extends SwerveDrivePoseEstimator implements IPoseEstimator {
+
+  private final SwerveModulePosition[] m_positions;
+
+  public WPILibPoseEstimator(
+    SwerveDriveKinematics kinematics,
+    Rotation2d gyroAngle,
+    SwerveModulePosition[] modulePositions,
+    Pose2d initialPose
+  ) {
+    super(kinematics, gyroAngle, modulePositions, initialPose);
+
+    m_positions = new SwerveModulePosition[modulePositions.length];
+    for (int i = 0; i < m_positions.length; i++) m_positions[i] = new SwerveModulePosition();
+  }
+
+  @Override
+  public Pose2d updateWithTime(
+    double timestamp,
+    Rotation2d gyroAngle,
+    double[] distancesMeters,
+    double[] anglesRadians
+  ) {
+    // WPILib's estimator allocates on every update anyway, so only the positions array is reused
+    for (int i = 0; i < m_positions.length; i++) {
+      m_positions[i].distanceMeters = distancesMeters[i];
+      if (m_positions[i].angle.getRadians() != anglesRadians[i]) {
+        m_positions[i].angle = new Rotation2d(anglesRadians[i]);
+      }
+    }
+
+    return updateWithTime(timestamp, gyroAngle, m_positions);
+  }
+}
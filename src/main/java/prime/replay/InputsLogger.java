@@ -0,0 +1,44 @@
+package prime.replay;
+
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.RawLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a subsystem's IO inputs to the DataLog as one binary record per loop, under "IO/<name>". The record buffer is
+ * allocated once; each append copies it into the log.
+ */
+public class InputsLogger {
+
+  public static final String kEntryPrefix = "IO/";
+  public static final String kEntryType = "prime.replay.inputs";
+
+  private final RawLogEntry m_entry;
+  private final byte[] m_record;
+  private final ByteBuffer m_buffer;
+
+  /**
+   * Creates a logger for the given inputs
+   * @param name The name of the log entry, under "IO/"
+   * @param inputs The inputs that will be logged, used to size the record
+   */
+  public InputsLogger(String name, LoggableInputs inputs) {
+    this(DataLogManager.getLog(), name, inputs);
+  }
+
+  public InputsLogger(DataLog log, String name, LoggableInputs inputs) {
+    m_entry = new RawLogEntry(log, kEntryPrefix + name, "", kEntryType);
+    m_record = new byte[inputs.getSizeBytes()];
+    m_buffer = ByteBuffer.wrap(m_record);
+  }
+
+  /**
+   * Appends the inputs' current values to the log
+   */
+  public void log(LoggableInputs inputs) {
+    m_buffer.clear();
+    inputs.toBytes(m_buffer);
+    m_entry.append(m_record);
+  }
+}
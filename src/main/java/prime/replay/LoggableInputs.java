@@ -0,0 +1,24 @@
+package prime.replay;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A set of IO inputs that can be written to the DataLog as one fixed-size binary record per loop and read back for
+ * replay. Fields are written and read in the same fixed order; change getSizeBytes() along with them.
+ */
+public interface LoggableInputs {
+  /**
+   * The size of one record in bytes
+   */
+  int getSizeBytes();
+
+  /**
+   * Writes every field into the buffer at its current position
+   */
+  void toBytes(ByteBuffer buffer);
+
+  /**
+   * Reads every field from the buffer at its current position, in the order toBytes() wrote them
+   */
+  void fromBytes(ByteBuffer buffer);
+}
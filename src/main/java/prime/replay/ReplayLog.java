@@ -0,0 +1,152 @@
+package prime.replay;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * The records of a DataLog file, read into memory and grouped by entry name so they can be stepped through in order
+ * during replay
+ */
+public class ReplayLog {
+
+  /**
+   * The records of one entry, in the order they were logged
+   */
+  public static class Entry {
+
+    private final String m_type;
+    private final ArrayList<byte[]> m_records = new ArrayList<>();
+    private final ArrayList<Long> m_timestamps = new ArrayList<>();
+    private int m_nextIndex = 0;
+
+    private Entry(String type) {
+      m_type = type;
+    }
+
+    public String getType() {
+      return m_type;
+    }
+
+    public int size() {
+      return m_records.size();
+    }
+
+    /**
+     * Gets the timestamp of a record in seconds
+     */
+    public double getTimestamp(int index) {
+      return m_timestamps.get(index) / 1e6;
+    }
+
+    /**
+     * Gets the raw bytes of a record
+     */
+    public byte[] getRecord(int index) {
+      return m_records.get(index);
+    }
+
+    /**
+     * Checks whether there are records left to read with next()
+     */
+    public boolean hasNext() {
+      return m_nextIndex < m_records.size();
+    }
+
+    /**
+     * Gets the timestamp of the record next() will read, or NaN if there are none left
+     */
+    public double peekTimestamp() {
+      return hasNext() ? getTimestamp(m_nextIndex) : Double.NaN;
+    }
+
+    /**
+     * Reads the next record into the given inputs. Once every record has been read, the inputs keep their last values.
+     * @return False if there were no records left
+     */
+    public boolean next(LoggableInputs inputs) {
+      if (!hasNext()) return false;
+
+      inputs.fromBytes(ByteBuffer.wrap(m_records.get(m_nextIndex++)));
+      return true;
+    }
+
+    /**
+     * Reads the next record as an array of doubles, the way NetworkTables logging stores double[] topics
+     * @return The values, or null if there were no records left
+     */
+    public double[] nextDoubleArray() {
+      if (!hasNext()) return null;
+
+      var buffer = ByteBuffer.wrap(m_records.get(m_nextIndex++)).order(ByteOrder.LITTLE_ENDIAN);
+      var values = new double[buffer.remaining() / Double.BYTES];
+      buffer.asDoubleBuffer().get(values);
+      return values;
+    }
+
+    /**
+     * Starts reading from the first record again
+     */
+    public void rewind() {
+      m_nextIndex = 0;
+    }
+  }
+
+  private final HashMap<String, Entry> m_entries = new HashMap<>();
+
+  private ReplayLog() {}
+
+  /**
+   * Reads a .wpilog file
+   * @param path The path of the file
+   * @throws IOException If the file can't be read or isn't a DataLog
+   */
+  public static ReplayLog load(String path) throws IOException {
+    var reader = new DataLogReader(path);
+    if (!reader.isValid()) throw new IOException(path + " is not a valid DataLog file");
+
+    var log = new ReplayLog();
+    var entriesById = new HashMap<Integer, Entry>();
+    for (var record : reader) {
+      if (record.isStart()) {
+        var start = record.getStartData();
+        var entry = log.m_entries.computeIfAbsent(start.name, name -> new Entry(start.type));
+        entriesById.put(start.entry, entry);
+      } else if (record.isFinish()) {
+        entriesById.remove(record.getFinishEntry());
+      } else if (!record.isControl()) {
+        var entry = entriesById.get(record.getEntry());
+        if (entry == null) continue;
+
+        entry.m_records.add(record.getRaw());
+        entry.m_timestamps.add(record.getTimestamp());
+      }
+    }
+
+    return log;
+  }
+
+  /**
+   * Gets an entry by its full name, e.g. "IO/Shooter" or "NT:/limelight-rear/botpose_wpiblue"
+   * @return The entry, or null if the log doesn't have it
+   */
+  public Entry getEntry(String name) {
+    return m_entries.get(name);
+  }
+
+  /**
+   * Gets the entry logged by an InputsLogger with the given name
+   * @return The entry, or null if the log doesn't have it
+   */
+  public Entry getInputsEntry(String name) {
+    return getEntry(InputsLogger.kEntryPrefix + name);
+  }
+
+  public Set<String> getEntryNames() {
+    return m_entries.keySet();
+  }
+}
@@ -0,0 +1,53 @@
+package prime.telemetry;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+
+/**
+ * A boolean published to NetworkTables, created by a TelemetryRegistry. Every change is written to the DataLog, and
+ * published when the entry's level is enabled.
+ */
+public class BooleanTelemetry extends TelemetryEntry implements AutoCloseable {
+
+  private final BooleanPublisher m_publisher;
+  private final BooleanLogEntry m_logEntry;
+  private boolean m_hasLogged = false;
+  private boolean m_lastLogged;
+  private boolean m_hasPublished = false;
+  private boolean m_lastPublished;
+
+  BooleanTelemetry(BooleanPublisher publisher, BooleanLogEntry logEntry, TelemetryLevel level) {
+    super(level);
+    m_publisher = publisher;
+    m_logEntry = logEntry;
+  }
+
+  /**
+   * Publishes to NetworkTables at most once every given number of loops
+   */
+  public BooleanTelemetry withPeriod(int periodLoops) {
+    setPeriodLoops(periodLoops);
+    return this;
+  }
+
+  public void set(boolean value) {
+    if (!m_hasLogged || value != m_lastLogged) {
+      m_logEntry.append(value);
+      m_lastLogged = value;
+      m_hasLogged = true;
+    }
+
+    if (!isPublishDue()) return;
+    if (!hasLevelChanged() && m_hasPublished && value == m_lastPublished) return;
+
+    m_publisher.set(value);
+    m_lastPublished = value;
+    m_hasPublished = true;
+  }
+
+  @Override
+  public void close() {
+    m_publisher.close();
+    m_logEntry.finish();
+  }
+}
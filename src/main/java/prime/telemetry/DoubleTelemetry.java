@@ -0,0 +1,61 @@
+package prime.telemetry;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+
+/**
+ * A number published to NetworkTables, created by a TelemetryRegistry. Every change is written to the DataLog; only
+ * changes larger than the deadband are published, at most once per period, and only at or above the entry's level.
+ */
+public class DoubleTelemetry extends TelemetryEntry implements AutoCloseable {
+
+  private final DoublePublisher m_publisher;
+  private final DoubleLogEntry m_logEntry;
+  private double m_deadband = 0;
+  private double m_lastPublished = Double.NaN;
+  private double m_lastLogged = Double.NaN;
+
+  DoubleTelemetry(DoublePublisher publisher, DoubleLogEntry logEntry, TelemetryLevel level) {
+    super(level);
+    m_publisher = publisher;
+    m_logEntry = logEntry;
+  }
+
+  /**
+   * Publishes to NetworkTables at most once every given number of loops
+   */
+  public DoubleTelemetry withPeriod(int periodLoops) {
+    setPeriodLoops(periodLoops);
+    return this;
+  }
+
+  /**
+   * Only publishes to NetworkTables when the value moves more than the deadband from the last published value
+   */
+  public DoubleTelemetry withDeadband(double deadband) {
+    m_deadband = deadband;
+    return this;
+  }
+
+  public void set(double value) {
+    if (Double.compare(value, m_lastLogged) != 0) {
+      m_logEntry.append(value);
+      m_lastLogged = value;
+    }
+
+    if (!isPublishDue()) return;
+
+    var levelChanged = hasLevelChanged();
+    if (!levelChanged && Double.compare(value, m_lastPublished) == 0) return;
+    if (!levelChanged && Math.abs(value - m_lastPublished) <= m_deadband) return;
+
+    m_publisher.set(value);
+    m_lastPublished = value;
+  }
+
+  @Override
+  public void close() {
+    m_publisher.close();
+    m_logEntry.finish();
+  }
+}
@@ -0,0 +1,39 @@
+package prime.telemetry;
+
+import edu.wpi.first.networktables.StructArrayPublisher;
+import edu.wpi.first.util.datalog.StructArrayLogEntry;
+
+/**
+ * An array of struct-serialized values published to NetworkTables, created by a TelemetryRegistry. Every array is
+ * written to the DataLog; use a period to reduce how often it is published.
+ */
+public class StructArrayTelemetry<T> extends TelemetryEntry implements AutoCloseable {
+
+  private final StructArrayPublisher<T> m_publisher;
+  private final StructArrayLogEntry<T> m_logEntry;
+
+  StructArrayTelemetry(StructArrayPublisher<T> publisher, StructArrayLogEntry<T> logEntry, TelemetryLevel level) {
+    super(level);
+    m_publisher = publisher;
+    m_logEntry = logEntry;
+  }
+
+  /**
+   * Publishes to NetworkTables at most once every given number of loops
+   */
+  public StructArrayTelemetry<T> withPeriod(int periodLoops) {
+    setPeriodLoops(periodLoops);
+    return this;
+  }
+
+  public void set(T[] values) {
+    m_logEntry.append(values);
+    if (isPublishDue()) m_publisher.set(values);
+  }
+
+  @Override
+  public void close() {
+    m_publisher.close();
+    m_logEntry.finish();
+  }
+}
@@ -0,0 +1,43 @@
+package prime.telemetry;
+
+import edu.wpi.first.networktables.StructPublisher;
+import edu.wpi.first.util.datalog.StructLogEntry;
+
+/**
+ * A struct-serialized value published to NetworkTables, created by a TelemetryRegistry. The publisher packs the value
+ * into a reused buffer, so mutable values like ChassisSpeeds can be updated in place and set every loop without
+ * allocating.
+ *
+ * Every value is written to the DataLog. Structs aren't compared for changes, so use a period to reduce how often they
+ * are published.
+ */
+public class StructTelemetry<T> extends TelemetryEntry implements AutoCloseable {
+
+  private final StructPublisher<T> m_publisher;
+  private final StructLogEntry<T> m_logEntry;
+
+  StructTelemetry(StructPublisher<T> publisher, StructLogEntry<T> logEntry, TelemetryLevel level) {
+    super(level);
+    m_publisher = publisher;
+    m_logEntry = logEntry;
+  }
+
+  /**
+   * Publishes to NetworkTables at most once every given number of loops
+   */
+  public StructTelemetry<T> withPeriod(int periodLoops) {
+    setPeriodLoops(periodLoops);
+    return this;
+  }
+
+  public void set(T value) {
+    m_logEntry.append(value);
+    if (isPublishDue()) m_publisher.set(value);
+  }
+
+  @Override
+  public void close() {
+    m_publisher.close();
+    m_logEntry.finish();
+  }
+}
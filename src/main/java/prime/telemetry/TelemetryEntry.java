@@ -0,0 +1,46 @@
+package prime.telemetry;
+
+/**
+ * The publishing rules shared by every telemetry entry: the level it needs, and how many loops to wait between
+ * publishes
+ */
+abstract class TelemetryEntry {
+
+  private final TelemetryLevel m_level;
+  private int m_periodLoops = 1;
+  private int m_loopsUntilPublish = 0;
+  private int m_levelVersion = -1;
+
+  protected TelemetryEntry(TelemetryLevel level) {
+    m_level = level;
+  }
+
+  protected void setPeriodLoops(int periodLoops) {
+    if (periodLoops < 1) throw new IllegalArgumentException("Period must be at least 1 loop");
+
+    m_periodLoops = periodLoops;
+  }
+
+  /**
+   * Checks whether this entry should publish to NetworkTables this loop. Call once per set().
+   */
+  protected boolean isPublishDue() {
+    if (!TelemetryRegistry.isPublished(m_level)) return false;
+    if (--m_loopsUntilPublish > 0) return false;
+
+    m_loopsUntilPublish = m_periodLoops;
+    return true;
+  }
+
+  /**
+   * Checks whether the level has changed since this entry last asked, in which case change-only entries should
+   * publish even if their value hasn't changed, since NetworkTables may be holding a stale value
+   */
+  protected boolean hasLevelChanged() {
+    var version = TelemetryRegistry.getLevelVersion();
+    if (version == m_levelVersion) return false;
+
+    m_levelVersion = version;
+    return true;
+  }
+}
@@ -0,0 +1,14 @@
+package prime.telemetry;
+
+/**
+ * How much telemetry is published to NetworkTables. Each level includes everything published at the levels before it.
+ * The DataLog receives every entry regardless of level.
+ */
+public enum TelemetryLevel {
+  /** Only what the drive team needs during a match */
+  Competition,
+  /** Adds mechanism and estimator state for tuning on the practice field */
+  Practice,
+  /** Everything, including per-module and per-frame detail */
+  Debug,
+}
@@ -0,0 +1,159 @@
+package prime.telemetry;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StructArrayLogEntry;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.util.struct.Struct;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Creates typed telemetry entries for one subsystem. Every topic is looked up once, when the entry is created, so
+ * setting a value each loop doesn't hash a key or search for a topic the way SmartDashboard.put* does.
+ *
+ * Entries live under the SmartDashboard table so existing dashboard layouts keep working, e.g. a registry for "Drive"
+ * publishes "Gyro (deg)" to /SmartDashboard/Drive/Gyro (deg). Each entry is also written to the DataLog under
+ * "Telemetry/", whatever the level.
+ *
+ * Which entries reach NetworkTables depends on the telemetry level, chosen on the dashboard and forced to
+ * Competition while the FMS is attached. Call updateLevel() once per loop.
+ */
+public class TelemetryRegistry {
+
+  private static TelemetryLevel s_level = TelemetryLevel.Practice;
+  private static int s_levelVersion = 0;
+  private static SendableChooser<TelemetryLevel> s_levelChooser;
+
+  private final NetworkTable m_table;
+  private final String m_logPrefix;
+  private final DataLog m_log;
+
+  /**
+   * Creates a registry for the given subsystem
+   * @param prefix The subtable that every entry is created in, e.g. "Drive"
+   */
+  public TelemetryRegistry(String prefix) {
+    m_table = NetworkTableInstance.getDefault().getTable("SmartDashboard").getSubTable(prefix);
+    m_logPrefix = "Telemetry/" + prefix + "/";
+    m_log = DataLogManager.getLog();
+  }
+
+  //#region Entries
+
+  /**
+   * Creates an entry for a number
+   * @param name The topic name, relative to this registry's prefix
+   * @param level The lowest level at which the entry is published to NetworkTables
+   */
+  public DoubleTelemetry addDouble(String name, TelemetryLevel level) {
+    return new DoubleTelemetry(
+      m_table.getDoubleTopic(name).publish(),
+      new DoubleLogEntry(m_log, m_logPrefix + name),
+      level
+    );
+  }
+
+  /**
+   * Creates an entry for a boolean
+   * @param name The topic name, relative to this registry's prefix
+   * @param level The lowest level at which the entry is published to NetworkTables
+   */
+  public BooleanTelemetry addBoolean(String name, TelemetryLevel level) {
+    return new BooleanTelemetry(
+      m_table.getBooleanTopic(name).publish(),
+      new BooleanLogEntry(m_log, m_logPrefix + name),
+      level
+    );
+  }
+
+  /**
+   * Creates an entry for a struct-serializable value, such as a Pose2d or ChassisSpeeds
+   * @param name The topic name, relative to this registry's prefix
+   * @param struct The struct serializer, e.g. Pose2d.struct
+   * @param level The lowest level at which the entry is published to NetworkTables
+   */
+  public <T> StructTelemetry<T> addStruct(String name, Struct<T> struct, TelemetryLevel level) {
+    return new StructTelemetry<>(
+      m_table.getStructTopic(name, struct).publish(),
+      StructLogEntry.create(m_log, m_logPrefix + name, struct),
+      level
+    );
+  }
+
+  /**
+   * Creates an entry for an array of struct-serializable values, such as SwerveModuleStates
+   * @param name The topic name, relative to this registry's prefix
+   * @param struct The struct serializer, e.g. SwerveModuleState.struct
+   * @param level The lowest level at which the entry is published to NetworkTables
+   */
+  public <T> StructArrayTelemetry<T> addStructArray(String name, Struct<T> struct, TelemetryLevel level) {
+    return new StructArrayTelemetry<>(
+      m_table.getStructArrayTopic(name, struct).publish(),
+      StructArrayLogEntry.create(m_log, m_logPrefix + name, struct),
+      level
+    );
+  }
+
+  //#endregion
+
+  //#region Level
+
+  /**
+   * Puts a chooser for the telemetry level on the dashboard, used whenever the FMS isn't attached
+   * @param defaultLevel The level selected at startup
+   */
+  public static void startLevelChooser(TelemetryLevel defaultLevel) {
+    s_levelChooser = new SendableChooser<>();
+    for (var level : TelemetryLevel.values()) {
+      if (level == defaultLevel) {
+        s_levelChooser.setDefaultOption(level.name(), level);
+      } else {
+        s_levelChooser.addOption(level.name(), level);
+      }
+    }
+
+    SmartDashboard.putData("Telemetry Level", s_levelChooser);
+    setLevel(defaultLevel);
+  }
+
+  /**
+   * Picks the telemetry level for this loop: Competition while the FMS is attached, otherwise the dashboard's choice
+   */
+  public static void updateLevel() {
+    if (DriverStation.isFMSAttached()) {
+      setLevel(TelemetryLevel.Competition);
+    } else if (s_levelChooser != null) {
+      setLevel(s_levelChooser.getSelected());
+    }
+  }
+
+  public static void setLevel(TelemetryLevel level) {
+    if (level == null || level == s_level) return;
+
+    s_level = level;
+    s_levelVersion++;
+  }
+
+  public static TelemetryLevel getLevel() {
+    return s_level;
+  }
+
+  /**
+   * Checks whether entries at the given level are published to NetworkTables
+   */
+  static boolean isPublished(TelemetryLevel level) {
+    return level.ordinal() <= s_level.ordinal();
+  }
+
+  // Incremented on every level change, so change-only entries know to republish
+  static int getLevelVersion() {
+    return s_levelVersion;
+  }
+  //#endregion
+}
@@ -0,0 +1,207 @@
+package prime.utilities;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Times sections of the robot loop, such as each subsystem's periodic() and each command's execute(), and keeps the
+ * last few seconds of samples per section in preallocated arrays. Once a second, the p50/p95/p99/max and overrun count
+ * of every section are published to NetworkTables under "Profiler/" and written to the DataLogManager log.
+ *
+ * Timing a section costs two System.nanoTime() calls and an array write. Everything runs on the main thread.
+ */
+public final class LoopProfiler {
+
+  // 5 seconds of samples at 50 Hz
+  private static final int kWindowSize = 250;
+  private static final int kPublishPeriodLoops = 50;
+  private static final long kLoopBudgetNanos = 20_000_000;
+
+  // Command instances created on the fly beyond this many per name share one section
+  private static final int kMaxSectionsPerCommandName = 8;
+
+  private static final ArrayList<Section> s_sections = new ArrayList<>();
+  private static final IdentityHashMap<Command, Section> s_commandSections = new IdentityHashMap<>();
+  private static final HashMap<String, Integer> s_commandNameCounts = new HashMap<>();
+  private static final long[] s_sortScratch = new long[kWindowSize];
+  private static NetworkTable s_table;
+  private static long s_lastMarkNanos = System.nanoTime();
+  private static int s_loopsSincePublish = 0;
+
+  private LoopProfiler() {}
+
+  /**
+   * A timed part of the loop
+   */
+  public static final class Section {
+
+    private final String m_name;
+    private final long[] m_samples = new long[kWindowSize];
+    private int m_nextIndex = 0;
+    private int m_sampleCount = 0;
+    private long m_startNanos;
+    private int m_overrunCount = 0;
+
+    // Created on first publish, once the data log is running
+    private DoublePublisher m_p50Publisher, m_p95Publisher, m_p99Publisher, m_maxPublisher;
+    private DoubleLogEntry m_p50Entry, m_p95Entry, m_p99Entry, m_maxEntry;
+    private IntegerPublisher m_overrunPublisher;
+    private IntegerLogEntry m_overrunEntry;
+
+    private Section(String name) {
+      m_name = name;
+    }
+
+    /**
+     * Marks the start of the section
+     */
+    public void start() {
+      m_startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of the section and records the time since start()
+     */
+    public void stop() {
+      var now = System.nanoTime();
+      record(now - m_startNanos);
+      s_lastMarkNanos = now;
+    }
+
+    /**
+     * Records a duration measured elsewhere
+     */
+    public void record(long elapsedNanos) {
+      m_samples[m_nextIndex] = elapsedNanos;
+      m_nextIndex = (m_nextIndex + 1) % kWindowSize;
+      if (m_sampleCount < kWindowSize) m_sampleCount++;
+      if (elapsedNanos > kLoopBudgetNanos) m_overrunCount++;
+    }
+
+    /**
+     * Gets the number of samples that took longer than a whole 20 ms loop
+     */
+    public int getOverrunCount() {
+      return m_overrunCount;
+    }
+
+    private void publish() {
+      if (m_sampleCount == 0) return;
+
+      if (m_p50Publisher == null) {
+        var table = getTable().getSubTable(m_name);
+        m_p50Publisher = table.getDoubleTopic("p50 (ms)").publish();
+        m_p95Publisher = table.getDoubleTopic("p95 (ms)").publish();
+        m_p99Publisher = table.getDoubleTopic("p99 (ms)").publish();
+        m_maxPublisher = table.getDoubleTopic("Max (ms)").publish();
+        m_overrunPublisher = table.getIntegerTopic("Overruns").publish();
+
+        var log = DataLogManager.getLog();
+        m_p50Entry = new DoubleLogEntry(log, "Profiler/" + m_name + "/p50 (ms)");
+        m_p95Entry = new DoubleLogEntry(log, "Profiler/" + m_name + "/p95 (ms)");
+        m_p99Entry = new DoubleLogEntry(log, "Profiler/" + m_name + "/p99 (ms)");
+        m_maxEntry = new DoubleLogEntry(log, "Profiler/" + m_name + "/Max (ms)");
+        m_overrunEntry = new IntegerLogEntry(log, "Profiler/" + m_name + "/Overruns");
+      }
+
+      System.arraycopy(m_samples, 0, s_sortScratch, 0, m_sampleCount);
+      Arrays.sort(s_sortScratch, 0, m_sampleCount);
+
+      var p50 = percentileMs(0.50);
+      var p95 = percentileMs(0.95);
+      var p99 = percentileMs(0.99);
+      var max = s_sortScratch[m_sampleCount - 1] / 1e6;
+
+      m_p50Publisher.set(p50);
+      m_p95Publisher.set(p95);
+      m_p99Publisher.set(p99);
+      m_maxPublisher.set(max);
+      m_p50Entry.append(p50);
+      m_p95Entry.append(p95);
+      m_p99Entry.append(p99);
+      m_maxEntry.append(max);
+      m_overrunPublisher.set(m_overrunCount);
+      m_overrunEntry.append(m_overrunCount);
+    }
+
+    // Nearest-rank percentile of the sorted scratch array
+    private double percentileMs(double percentile) {
+      var rank = (int) Math.ceil(percentile * m_sampleCount) - 1;
+      return s_sortScratch[Math.max(0, rank)] / 1e6;
+    }
+  }
+
+  /**
+   * Gets the section with the given name, creating it the first time. Call once and keep the section, rather than
+   * looking it up every loop.
+   * @param name The name of the section, used as its NetworkTables path under "Profiler/"
+   */
+  public static Section getSection(String name) {
+    for (var section : s_sections) {
+      if (section.m_name.equals(name)) return section;
+    }
+
+    var section = new Section(name);
+    s_sections.add(section);
+    return section;
+  }
+
+  /**
+   * Times each scheduled command's execute(). The scheduler only reports after a command executes, so each command is
+   * timed from the previous mark: the end of the last profiled subsystem or the previous command. The first command
+   * also includes the scheduler's button polling. Commands are keyed by instance, so different commands with the same
+   * name are numbered rather than merged.
+   */
+  public static void bindCommandScheduler(CommandScheduler scheduler) {
+    scheduler.onCommandExecute(LoopProfiler::onCommandExecute);
+  }
+
+  private static void onCommandExecute(Command command) {
+    var now = System.nanoTime();
+
+    var section = s_commandSections.get(command);
+    if (section == null) {
+      section = createCommandSection(command.getName());
+      s_commandSections.put(command, section);
+    }
+
+    section.record(now - s_lastMarkNanos);
+    s_lastMarkNanos = now;
+  }
+
+  // The first command with a name gets "Commands/<name>", later ones "Commands/<name> (2)" and so on
+  private static Section createCommandSection(String name) {
+    var count = s_commandNameCounts.merge(name, 1, Integer::sum);
+    if (count == 1) return getSection("Commands/" + name);
+    if (count > kMaxSectionsPerCommandName) return getSection("Commands/" + name + " (others)");
+
+    return getSection("Commands/" + name + " (" + count + ")");
+  }
+
+  /**
+   * Publishes every section's statistics once every 50 calls. Call once per loop.
+   */
+  public static void publishPeriodically() {
+    if (++s_loopsSincePublish < kPublishPeriodLoops) return;
+
+    s_loopsSincePublish = 0;
+    for (int i = 0; i < s_sections.size(); i++) s_sections.get(i).publish();
+  }
+
+  private static NetworkTable getTable() {
+    if (s_table == null) s_table = NetworkTableInstance.getDefault().getTable("Profiler");
+
+    return s_table;
+  }
+}
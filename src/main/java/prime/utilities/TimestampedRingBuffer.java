@@ -0,0 +1,227 @@
+package prime.utilities;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * A fixed-capacity history of timestamped samples with one or more primitive channels, e.g. pose x/y/theta. Lookups
+ * by timestamp use a binary search and interpolate linearly between the two nearest samples; angular channels
+ * interpolate along the shortest arc. Nothing is allocated after construction.
+ *
+ * Samples must be added in increasing timestamp order; older samples are ignored. Not thread-safe, so callers that
+ * add and look up from different threads need to hold a common lock.
+ */
+public class TimestampedRingBuffer {
+
+  private final int m_capacity;
+  private final int m_channelCount;
+  private final boolean[] m_angularChannels;
+
+  private final double[] m_timestamps;
+  private final double[] m_values; // m_capacity rows of m_channelCount values
+  private int m_head = 0; // Index of the oldest sample
+  private int m_size = 0;
+
+  /**
+   * Creates a ring buffer
+   * @param capacity The number of samples to keep
+   * @param angularChannels One entry per channel, true if that channel holds an angle in radians
+   */
+  public TimestampedRingBuffer(int capacity, boolean... angularChannels) {
+    if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1");
+    if (angularChannels.length < 1) throw new IllegalArgumentException("At least one channel is required");
+
+    m_capacity = capacity;
+    m_channelCount = angularChannels.length;
+    m_angularChannels = angularChannels.clone();
+    m_timestamps = new double[capacity];
+    m_values = new double[capacity * m_channelCount];
+  }
+
+  //#region Adding samples
+
+  /**
+   * Adds a sample to a single-channel buffer
+   */
+  public void add(double timestamp, double value) {
+    var row = beginSample(timestamp, 1);
+    if (row >= 0) m_values[row] = value;
+  }
+
+  /**
+   * Adds a sample to a buffer with two channels
+   */
+  public void add(double timestamp, double value0, double value1) {
+    var row = beginSample(timestamp, 2);
+    if (row < 0) return;
+
+    m_values[row] = value0;
+    m_values[row + 1] = value1;
+  }
+
+  /**
+   * Adds a sample to a buffer with three channels
+   */
+  public void add(double timestamp, double value0, double value1, double value2) {
+    var row = beginSample(timestamp, 3);
+    if (row < 0) return;
+
+    m_values[row] = value0;
+    m_values[row + 1] = value1;
+    m_values[row + 2] = value2;
+  }
+
+  /**
+   * Adds a sample with every channel's value copied from an array
+   */
+  public void add(double timestamp, double[] values) {
+    var row = beginSample(timestamp, values.length);
+    if (row >= 0) System.arraycopy(values, 0, m_values, row, m_channelCount);
+  }
+
+  // Claims the next slot for a sample, overwriting the oldest if full. Returns the slot's offset into m_values, or -1
+  // if the sample is older than the newest one.
+  private int beginSample(double timestamp, int channelCount) {
+    if (channelCount != m_channelCount) {
+      throw new IllegalArgumentException("Expected " + m_channelCount + " channels, got " + channelCount);
+    }
+
+    if (m_size > 0 && timestamp <= m_timestamps[physicalIndex(m_size - 1)]) return -1;
+
+    int index;
+    if (m_size < m_capacity) {
+      index = physicalIndex(m_size++);
+    } else {
+      index = m_head;
+      m_head = (m_head + 1) % m_capacity;
+    }
+
+    m_timestamps[index] = timestamp;
+    return index * m_channelCount;
+  }
+
+  /**
+   * Removes every sample
+   */
+  public void clear() {
+    m_head = 0;
+    m_size = 0;
+  }
+
+  //#endregion
+
+  //#region Lookups
+
+  /**
+   * Gets the number of samples in the buffer
+   */
+  public int size() {
+    return m_size;
+  }
+
+  /**
+   * Gets the timestamp of the oldest sample, or NaN if the buffer is empty
+   */
+  public double getOldestTimestamp() {
+    return m_size == 0 ? Double.NaN : m_timestamps[m_head];
+  }
+
+  /**
+   * Gets the timestamp of the newest sample, or NaN if the buffer is empty
+   */
+  public double getNewestTimestamp() {
+    return m_size == 0 ? Double.NaN : m_timestamps[physicalIndex(m_size - 1)];
+  }
+
+  /**
+   * Gets the newest value of a channel, or NaN if the buffer is empty
+   */
+  public double getNewest(int channel) {
+    return m_size == 0 ? Double.NaN : m_values[physicalIndex(m_size - 1) * m_channelCount + channel];
+  }
+
+  /**
+   * Gets the value of a channel at a timestamp, interpolating between the nearest samples. Timestamps outside the
+   * buffer return the oldest or newest sample.
+   * @return The value, or NaN if the buffer is empty
+   */
+  public double get(double timestamp, int channel) {
+    if (m_size == 0) return Double.NaN;
+
+    var upper = findUpper(timestamp);
+    if (upper == 0) return m_values[physicalIndex(0) * m_channelCount + channel];
+    if (upper == m_size) return m_values[physicalIndex(m_size - 1) * m_channelCount + channel];
+
+    var lowerIndex = physicalIndex(upper - 1);
+    var upperIndex = physicalIndex(upper);
+    var t = (timestamp - m_timestamps[lowerIndex]) / (m_timestamps[upperIndex] - m_timestamps[lowerIndex]);
+
+    return interpolate(
+      m_values[lowerIndex * m_channelCount + channel],
+      m_values[upperIndex * m_channelCount + channel],
+      t,
+      m_angularChannels[channel]
+    );
+  }
+
+  /**
+   * Gets every channel at a timestamp, interpolating between the nearest samples. Timestamps outside the buffer
+   * return the oldest or newest sample.
+   * @param timestamp The timestamp to look up
+   * @param values Output with one entry per channel
+   * @return False if the buffer is empty, in which case the output is left unchanged
+   */
+  public boolean get(double timestamp, double[] values) {
+    if (m_size == 0) return false;
+
+    var upper = findUpper(timestamp);
+    if (upper == 0 || upper == m_size) {
+      var row = physicalIndex(upper == 0 ? 0 : m_size - 1) * m_channelCount;
+      System.arraycopy(m_values, row, values, 0, m_channelCount);
+      return true;
+    }
+
+    var lowerIndex = physicalIndex(upper - 1);
+    var upperIndex = physicalIndex(upper);
+    var t = (timestamp - m_timestamps[lowerIndex]) / (m_timestamps[upperIndex] - m_timestamps[lowerIndex]);
+
+    for (int channel = 0; channel < m_channelCount; channel++) {
+      values[channel] =
+        interpolate(
+          m_values[lowerIndex * m_channelCount + channel],
+          m_values[upperIndex * m_channelCount + channel],
+          t,
+          m_angularChannels[channel]
+        );
+    }
+
+    return true;
+  }
+
+  // Binary search for the logical index of the first sample newer than the timestamp
+  private int findUpper(double timestamp) {
+    var low = 0;
+    var high = m_size;
+    while (low < high) {
+      var mid = (low + high) >>> 1;
+      if (m_timestamps[physicalIndex(mid)] <= timestamp) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+  // Converts a logical index, 0 being the oldest sample, to an index into the backing arrays
+  private int physicalIndex(int logicalIndex) {
+    return (m_head + logicalIndex) % m_capacity;
+  }
+
+  private static double interpolate(double start, double end, double t, boolean angular) {
+    if (angular) return MathUtil.angleModulus(start + MathUtil.angleModulus(end - start) * t);
+
+    return start + (end - start) * t;
+  }
+  //#endregion
+}
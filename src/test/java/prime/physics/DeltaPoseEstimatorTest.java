@@ -0,0 +1,236 @@
+package prime.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Replays one second of driving an arc with 250 Hz odometry and noisy vision frames, and checks DeltaPoseEstimator
+ * against WPILib's SwerveDrivePoseEstimator and against itself with the frames in a different order
+ */
+class DeltaPoseEstimatorTest {
+
+  private static final double kOdometryPeriod = 1.0 / 250;
+  private static final int kOdometrySteps = 250;
+  private static final int kHistoryCapacity = 375; // 1.5 s, the same as WPILib's estimator
+  private static final double kEpsilon = 1E-6;
+
+  private static final Translation2d[] kModuleLocations = new Translation2d[] {
+    new Translation2d(0.3, 0.3),
+    new Translation2d(0.3, -0.3),
+    new Translation2d(-0.3, 0.3),
+    new Translation2d(-0.3, -0.3),
+  };
+
+  private final SwerveDriveKinematics m_kinematics = new SwerveDriveKinematics(kModuleLocations);
+  private final Matrix<N3, N1> m_stdDevs = VecBuilder.fill(0.5, 0.5, 0.5);
+
+  // Odometry inputs and the true pose per step
+  private final SwerveModulePosition[][] m_positions = new SwerveModulePosition[kOdometrySteps][4];
+  private final Rotation2d[] m_gyroAngles = new Rotation2d[kOdometrySteps];
+  private final double[] m_timestamps = new double[kOdometrySteps];
+  private final Pose2d[] m_truePoses = new Pose2d[kOdometrySteps];
+  private final SwerveModulePosition[] m_startPositions = new SwerveModulePosition[4];
+
+  DeltaPoseEstimatorTest() {
+    // Drive an arc at 2 m/s while turning at 1 rad/s
+    var speeds = new ChassisSpeeds(2, 0, 1);
+    var states = m_kinematics.toSwerveModuleStates(speeds);
+    var distances = new double[4];
+    var heading = 0.0;
+    var x = 0.0;
+    var y = 0.0;
+
+    for (int m = 0; m < 4; m++) m_startPositions[m] = new SwerveModulePosition(0, states[m].angle);
+
+    for (int step = 0; step < kOdometrySteps; step++) {
+      for (int m = 0; m < 4; m++) {
+        distances[m] += states[m].speedMetersPerSecond * kOdometryPeriod;
+        m_positions[step][m] = new SwerveModulePosition(distances[m], states[m].angle);
+      }
+
+      x += speeds.vxMetersPerSecond * Math.cos(heading) * kOdometryPeriod;
+      y += speeds.vxMetersPerSecond * Math.sin(heading) * kOdometryPeriod;
+      heading += speeds.omegaRadiansPerSecond * kOdometryPeriod;
+
+      m_gyroAngles[step] = new Rotation2d(heading);
+      m_timestamps[step] = (step + 1) * kOdometryPeriod;
+      m_truePoses[step] = new Pose2d(x, y, new Rotation2d(heading));
+    }
+  }
+
+  @Test
+  void matchesWpilibWithFramesInOrder() {
+    var frames = createFrames(10, 254);
+    var arrivalSteps = new int[frames.length];
+    for (int i = 0; i < frames.length; i++) arrivalSteps[i] = frames[i].captureStep() + 10;
+
+    assertMatchesWpilib(frames, arrivalSteps);
+  }
+
+  @Test
+  void matchesWpilibWithMoreFramesThanAreRetained() {
+    // A frame every other step is more than the 64 updates the estimator keeps correctable
+    var frames = createFrames(2, 1678);
+    var arrivalSteps = new int[frames.length];
+    for (int i = 0; i < frames.length; i++) arrivalSteps[i] = frames[i].captureStep() + 5;
+
+    var delta = assertMatchesWpilib(frames, arrivalSteps);
+    assertEquals(64, delta.getRetainedVisionUpdateCount());
+  }
+
+  @Test
+  void outOfOrderFramesGiveTheSameEstimateAsInOrder() {
+    var frames = createFrames(10, 971);
+
+    // Every other pair of frames arrives swapped, as when two cameras have different latencies
+    var swapped = frames.clone();
+    for (int i = 0; i + 1 < swapped.length; i += 4) {
+      var frame = swapped[i];
+      swapped[i] = swapped[i + 1];
+      swapped[i + 1] = frame;
+    }
+
+    var inOrder = createDeltaEstimator();
+    var outOfOrder = createDeltaEstimator();
+    for (int step = 0; step < kOdometrySteps; step++) {
+      inOrder.updateWithTime(m_timestamps[step], m_gyroAngles[step], m_positions[step]);
+      outOfOrder.updateWithTime(m_timestamps[step], m_gyroAngles[step], m_positions[step]);
+
+      // Both estimators see the same frames by the end of each group of four
+      if (step % 40 == 39) {
+        var firstFrame = (step / 40) * 4;
+        for (int i = firstFrame; i < firstFrame + 4 && i < frames.length; i++) {
+          addFrame(inOrder, frames[i]);
+          addFrame(outOfOrder, swapped[i]);
+        }
+
+        assertPosesEqual(inOrder.getEstimatedPosition(), outOfOrder.getEstimatedPosition(), "step " + step);
+      }
+    }
+  }
+
+  @Test
+  void ignoresFramesOlderThanTheHistory() {
+    var estimator = new DeltaPoseEstimator(
+      new PrimitiveSwerveKinematics(kModuleLocations),
+      new Rotation2d(),
+      m_startPositions,
+      new Pose2d(),
+      50
+    );
+    for (int step = 0; step < 100; step++) {
+      estimator.updateWithTime(m_timestamps[step], m_gyroAngles[step], m_positions[step]);
+    }
+
+    var before = estimator.getEstimatedPosition();
+    estimator.addVisionMeasurement(new Pose2d(5, 5, new Rotation2d()), m_timestamps[10], m_stdDevs);
+
+    assertPosesEqual(before, estimator.getEstimatedPosition(), "after a stale frame");
+    assertEquals(0, estimator.getRetainedVisionUpdateCount());
+  }
+
+  @Test
+  void acceptsRawOdometrySamples() {
+    var fromPositions = createDeltaEstimator();
+    var fromRaw = createDeltaEstimator();
+    var distances = new double[4];
+    var angles = new double[4];
+
+    for (int step = 0; step < kOdometrySteps; step++) {
+      for (int m = 0; m < 4; m++) {
+        distances[m] = m_positions[step][m].distanceMeters;
+        angles[m] = m_positions[step][m].angle.getRadians();
+      }
+
+      var expected = fromPositions.updateWithTime(m_timestamps[step], m_gyroAngles[step], m_positions[step]);
+      var actual = fromRaw.updateWithTime(m_timestamps[step], m_gyroAngles[step], distances, angles);
+      assertPosesEqual(expected, actual, "step " + step);
+    }
+  }
+
+  //#region Helpers
+
+  // A vision frame captured at an odometry step, so both estimators look up the same sample without interpolating
+  private record Frame(int captureStep, Pose2d pose) {}
+
+  // Creates a noisy frame every given number of steps
+  private Frame[] createFrames(int periodSteps, long seed) {
+    var random = new Random(seed);
+    var frames = new Frame[kOdometrySteps / periodSteps];
+    for (int i = 0; i < frames.length; i++) {
+      var step = i * periodSteps;
+      var truth = m_truePoses[step];
+      frames[i] =
+        new Frame(
+          step,
+          new Pose2d(
+            truth.getX() + random.nextGaussian() * 0.05,
+            truth.getY() + random.nextGaussian() * 0.05,
+            truth.getRotation().plus(new Rotation2d(random.nextGaussian() * 0.02))
+          )
+        );
+    }
+
+    return frames;
+  }
+
+  private DeltaPoseEstimator createDeltaEstimator() {
+    return new DeltaPoseEstimator(
+      new PrimitiveSwerveKinematics(kModuleLocations),
+      new Rotation2d(),
+      m_startPositions,
+      new Pose2d(),
+      kHistoryCapacity
+    );
+  }
+
+  private void addFrame(IPoseEstimator estimator, Frame frame) {
+    estimator.addVisionMeasurement(frame.pose(), m_timestamps[frame.captureStep()], m_stdDevs);
+  }
+
+  // Runs both estimators over the drive, adding each frame on its arrival step, and compares them every step
+  private DeltaPoseEstimator assertMatchesWpilib(Frame[] frames, int[] arrivalSteps) {
+    var wpilib = new WPILibPoseEstimator(m_kinematics, new Rotation2d(), m_startPositions, new Pose2d());
+    var delta = createDeltaEstimator();
+
+    var frame = 0;
+    for (int step = 0; step < kOdometrySteps; step++) {
+      wpilib.updateWithTime(m_timestamps[step], m_gyroAngles[step], m_positions[step]);
+      delta.updateWithTime(m_timestamps[step], m_gyroAngles[step], m_positions[step]);
+
+      while (frame < frames.length && arrivalSteps[frame] <= step) {
+        addFrame(wpilib, frames[frame]);
+        addFrame(delta, frames[frame]);
+        frame++;
+      }
+
+      assertPosesEqual(wpilib.getEstimatedPosition(), delta.getEstimatedPosition(), "step " + step);
+    }
+
+    return delta;
+  }
+
+  private static void assertPosesEqual(Pose2d expected, Pose2d actual, String message) {
+    assertEquals(expected.getX(), actual.getX(), kEpsilon, message + " x");
+    assertEquals(expected.getY(), actual.getY(), kEpsilon, message + " y");
+    assertEquals(
+      0,
+      expected.getRotation().minus(actual.getRotation()).getRadians(),
+      kEpsilon,
+      message + " theta"
+    );
+  }
+  //#endregion
+}
@@ -0,0 +1,121 @@
+package prime.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TimestampedRingBufferTest {
+
+  private static final double kEpsilon = 1E-9;
+
+  @Test
+  void emptyBufferReturnsNaN() {
+    var buffer = new TimestampedRingBuffer(4, false);
+
+    assertEquals(0, buffer.size());
+    assertTrue(Double.isNaN(buffer.get(1.0, 0)));
+    assertTrue(Double.isNaN(buffer.getNewest(0)));
+    assertTrue(Double.isNaN(buffer.getOldestTimestamp()));
+    assertFalse(buffer.get(1.0, new double[1]));
+  }
+
+  @Test
+  void interpolatesBetweenSamples() {
+    var buffer = new TimestampedRingBuffer(4, false, false);
+    buffer.add(1.0, 0.0, 10.0);
+    buffer.add(2.0, 4.0, 20.0);
+
+    assertEquals(1.0, buffer.get(1.25, 0), kEpsilon);
+    assertEquals(15.0, buffer.get(1.5, 1), kEpsilon);
+
+    var values = new double[2];
+    assertTrue(buffer.get(1.75, values));
+    assertEquals(3.0, values[0], kEpsilon);
+    assertEquals(17.5, values[1], kEpsilon);
+  }
+
+  @Test
+  void returnsExactSamples() {
+    var buffer = new TimestampedRingBuffer(4, false);
+    buffer.add(1.0, 5.0);
+    buffer.add(2.0, 7.0);
+    buffer.add(3.0, 11.0);
+
+    assertEquals(5.0, buffer.get(1.0, 0), kEpsilon);
+    assertEquals(7.0, buffer.get(2.0, 0), kEpsilon);
+    assertEquals(11.0, buffer.get(3.0, 0), kEpsilon);
+  }
+
+  @Test
+  void clampsOutsideTheHistory() {
+    var buffer = new TimestampedRingBuffer(4, false);
+    buffer.add(1.0, 5.0);
+    buffer.add(2.0, 7.0);
+
+    assertEquals(5.0, buffer.get(0.5, 0), kEpsilon);
+    assertEquals(7.0, buffer.get(2.5, 0), kEpsilon);
+  }
+
+  @Test
+  void interpolatesAnglesAlongTheShortestArc() {
+    var buffer = new TimestampedRingBuffer(4, true);
+    buffer.add(1.0, Math.PI - 0.1);
+    buffer.add(2.0, -Math.PI + 0.1);
+
+    // Halfway across the +/- pi seam, not back through zero
+    assertEquals(Math.PI, Math.abs(buffer.get(1.5, 0)), kEpsilon);
+    assertEquals(Math.PI - 0.05, buffer.get(1.25, 0), kEpsilon);
+  }
+
+  @Test
+  void overwritesTheOldestSampleWhenFull() {
+    var buffer = new TimestampedRingBuffer(3, false);
+    for (int i = 0; i < 5; i++) buffer.add(i, i * 10.0);
+
+    assertEquals(3, buffer.size());
+    assertEquals(2.0, buffer.getOldestTimestamp(), kEpsilon);
+    assertEquals(4.0, buffer.getNewestTimestamp(), kEpsilon);
+    assertEquals(40.0, buffer.getNewest(0), kEpsilon);
+
+    // Lookups interpolate across the point where the backing arrays wrap
+    assertEquals(25.0, buffer.get(2.5, 0), kEpsilon);
+    assertEquals(35.0, buffer.get(3.5, 0), kEpsilon);
+    assertEquals(20.0, buffer.get(0.0, 0), kEpsilon);
+  }
+
+  @Test
+  void ignoresSamplesOlderThanTheNewest() {
+    var buffer = new TimestampedRingBuffer(4, false);
+    buffer.add(2.0, 7.0);
+    buffer.add(1.0, 5.0);
+    buffer.add(2.0, 9.0);
+
+    assertEquals(1, buffer.size());
+    assertEquals(7.0, buffer.getNewest(0), kEpsilon);
+  }
+
+  @Test
+  void clearRemovesEverySample() {
+    var buffer = new TimestampedRingBuffer(4, false);
+    buffer.add(1.0, 5.0);
+    buffer.add(2.0, 7.0);
+    buffer.clear();
+
+    assertEquals(0, buffer.size());
+
+    // Earlier timestamps are accepted again after a clear
+    buffer.add(0.5, 3.0);
+    assertEquals(3.0, buffer.get(0.5, 0), kEpsilon);
+  }
+
+  @Test
+  void rejectsTheWrongNumberOfChannels() {
+    var buffer = new TimestampedRingBuffer(4, false, false);
+
+    assertThrows(IllegalArgumentException.class, () -> buffer.add(1.0, 5.0));
+    assertThrows(IllegalArgumentException.class, () -> new TimestampedRingBuffer(0, false));
+  }
+}